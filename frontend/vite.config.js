@@ -2,6 +2,32 @@ import { defineConfig } from 'vite'
 import react from '@vitejs/plugin-react-swc'
 import path from 'path';
 import { visualizer } from 'rollup-plugin-visualizer';
+import { readFileSync, writeFileSync } from 'fs';
+import { brotliCompressSync, constants, gzipSync } from 'zlib';
+
+// Writes a gzip (.gz) and a brotli (.br) copy next to each text file of the build. The backend
+// serves these instead of the original to browsers that accept them (see
+// spring.web.resources.chain.compressed), so the bundle is compressed once, as hard as possible,
+// rather than on every request.
+function precompress() {
+  return {
+    name: 'precompress',
+    apply: 'build',
+    writeBundle(options, bundle) {
+      for (const fileName of Object.keys(bundle)) {
+        if (!/\.(html|js|css|svg|json)$/.test(fileName)) continue;
+        const file = path.join(options.dir, fileName);
+        const content = readFileSync(file);
+        if (content.length < 1024) continue; // too small to be worth it
+        writeFileSync(`${file}.gz`, gzipSync(content, { level: 9 }));
+        writeFileSync(
+          `${file}.br`,
+          brotliCompressSync(content, { params: { [constants.BROTLI_PARAM_QUALITY]: 11 } }),
+        );
+      }
+    },
+  };
+}
 
 // https://vite.dev/config/
 export default defineConfig({
@@ -11,6 +37,7 @@ export default defineConfig({
       parserPlugins: ['jsx'],
     }),
     process.env.ANALYZE && visualizer({ open: true }), // use `ANALYZE=true npm run build` to analyze the bundle size 
+    precompress(),
   ].filter(Boolean), // .filter(Boolean) removes any falsey values from the array
   build: {
     outDir: 'build', // Changes the output directory from 'dist' to 'build'
@@ -0,0 +1,42 @@
+package edu.ucsb.cs156.example.config;
+
+import java.util.concurrent.ThreadPoolExecutor;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Configuration;
+import org.springframework.scheduling.concurrent.ThreadPoolTaskExecutor;
+
+/**
+ * The `JobExecutorConfig` class defines the executor that runs jobs launched through JobService.
+ *
+ * <p>Jobs get their own fixed pool, separate from the threads that serve HTTP requests. It has no
+ * queue of its own: jobs wait as queued rows in the jobs table, and JobService only claims as many
+ * of them as there are threads free.
+ */
+@Configuration
+public class JobExecutorConfig {
+
+  /** Name of the executor bean, for use in {@code @Async(JobExecutorConfig.JOB_EXECUTOR)} */
+  public static final String JOB_EXECUTOR = "jobExecutor";
+
+  /**
+   * Creates the executor used to run jobs.
+   *
+   * @param corePoolSize number of jobs that run at once on this app instance
+   * @param virtualThreads whether jobs run on virtual threads instead of platform threads
+   * @return the job executor
+   */
+  @Bean(name = JOB_EXECUTOR)
+  public ThreadPoolTaskExecutor jobExecutor(
+      @Value("${app.jobs.executor.corePoolSize}") int corePoolSize,
+      @Value("${app.jobs.executor.virtualThreads}") boolean virtualThreads) {
+    ThreadPoolTaskExecutor executor = new ThreadPoolTaskExecutor();
+    executor.setThreadNamePrefix("job-");
+    executor.setCorePoolSize(corePoolSize);
+    executor.setMaxPoolSize(corePoolSize);
+    executor.setQueueCapacity(0);
+    executor.setVirtualThreads(virtualThreads);
+    executor.setRejectedExecutionHandler(new ThreadPoolExecutor.AbortPolicy());
+    return executor;
+  }
+}
@@ -0,0 +1,30 @@
+package edu.ucsb.cs156.example.config;
+
+import java.time.ZonedDateTime;
+import java.util.Optional;
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Configuration;
+import org.springframework.data.auditing.DateTimeProvider;
+import org.springframework.data.jpa.repository.config.EnableJpaAuditing;
+
+/**
+ * The `JpaAuditingConfig` class turns on Spring Data auditing, which fills in fields annotated with
+ * {@code @CreatedDate} and {@code @LastModifiedDate} (e.g. on Job) whenever an entity is saved.
+ *
+ * <p>It lives in its own class rather than on ExampleApplication so that web slice tests, which
+ * have no JPA metamodel, do not try to set up auditing.
+ */
+@Configuration
+@EnableJpaAuditing(dateTimeProviderRef = "auditingDateTimeProvider")
+public class JpaAuditingConfig {
+
+  /**
+   * The default provider produces LocalDateTime, which cannot be stored in ZonedDateTime fields.
+   *
+   * @return a provider of the current time as a ZonedDateTime
+   */
+  @Bean
+  public DateTimeProvider auditingDateTimeProvider() {
+    return () -> Optional.of(ZonedDateTime.now());
+  }
+}
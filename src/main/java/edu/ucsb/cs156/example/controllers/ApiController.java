@@ -2,19 +2,38 @@ package edu.ucsb.cs156.example.controllers;
 
 import edu.ucsb.cs156.example.errors.EntityNotFoundException;
 import edu.ucsb.cs156.example.models.CurrentUser;
+import edu.ucsb.cs156.example.models.CursorPage;
+import edu.ucsb.cs156.example.repositories.PagedRepository;
 import edu.ucsb.cs156.example.services.CurrentUserService;
+import edu.ucsb.cs156.example.services.TableVersions;
 import java.util.Map;
+import java.util.Set;
+import java.util.function.Supplier;
 import lombok.extern.slf4j.Slf4j;
 import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.data.domain.KeysetScrollPosition;
+import org.springframework.data.domain.Limit;
+import org.springframework.data.domain.PageRequest;
+import org.springframework.data.domain.ScrollPosition;
+import org.springframework.data.domain.Sort;
+import org.springframework.data.domain.Window;
+import org.springframework.data.web.PagedModel;
 import org.springframework.http.HttpStatus;
 import org.springframework.web.bind.annotation.ExceptionHandler;
 import org.springframework.web.bind.annotation.ResponseStatus;
+import org.springframework.web.context.request.WebRequest;
+import org.springframework.web.server.ResponseStatusException;
 
 /** This is an abstract class that provides common functionality for all API controllers. */
 @Slf4j
 public abstract class ApiController {
+  /** The most entities returned in one page */
+  protected static final int MAX_PAGE_SIZE = 100;
+
   @Autowired private CurrentUserService currentUserService;
 
+  @Autowired private TableVersions tableVersions;
+
   /**
    * This method returns the current user.
    *
@@ -34,6 +53,105 @@ public abstract class ApiController {
     return Map.of("message", message);
   }
 
+  /**
+   * This method builds a request for one page, keeping the page number and size within bounds.
+   *
+   * @param page page number, starting from 0
+   * @param size entities per page
+   * @param sort sort order
+   * @return the page request
+   */
+  protected PageRequest pageRequest(int page, int size, Sort sort) {
+    return PageRequest.of(Math.max(page, 0), Math.min(Math.max(size, 1), MAX_PAGE_SIZE), sort);
+  }
+
+  /**
+   * This method returns one page of entities by page number. Ties in the sort order are broken by
+   * id, so that the same entity never appears on two pages.
+   *
+   * @param repository repository of the entities
+   * @param idProperty name of the id property of the entity
+   * @param sortProperties properties that the entities may be sorted by
+   * @param page page number, starting from 0
+   * @param size entities per page
+   * @param sort property to sort by
+   * @param direction sort direction
+   * @param <T> the entity type
+   * @return the page of entities
+   */
+  protected <T> PagedModel<T> pageOf(
+      PagedRepository<T, ?> repository,
+      String idProperty,
+      Set<String> sortProperties,
+      int page,
+      int size,
+      String sort,
+      Sort.Direction direction) {
+    if (!sortProperties.contains(sort)) {
+      throw new ResponseStatusException(
+          HttpStatus.BAD_REQUEST, "Cannot sort by %s".formatted(sort));
+    }
+    Sort order = Sort.by(direction, sort);
+    if (!sort.equals(idProperty)) {
+      order = order.and(Sort.by(direction, idProperty));
+    }
+    return new PagedModel<>(repository.findAll(pageRequest(page, size, order)));
+  }
+
+  /**
+   * This method returns the entities that come after a cursor, in id order. The cursor is the id of
+   * the last entity already seen, so each batch is read straight from the primary key index no
+   * matter how far into the table it is.
+   *
+   * @param repository repository of the entities
+   * @param idProperty name of the id property of the entity
+   * @param after id of the last entity already seen (null to start from the beginning)
+   * @param size most entities to return
+   * @param direction ASC for increasing ids, DESC for decreasing ids
+   * @param <T> the entity type
+   * @param <ID> the type of the entity's id
+   * @return the entities, and the cursor for the next batch
+   */
+  protected <T, ID> CursorPage<T> pageAfter(
+      PagedRepository<T, ID> repository,
+      String idProperty,
+      ID after,
+      int size,
+      Sort.Direction direction) {
+    ScrollPosition position =
+        after == null ? ScrollPosition.keyset() : ScrollPosition.forward(Map.of(idProperty, after));
+    Window<T> window =
+        repository.findAllBy(
+            position,
+            Sort.by(direction, idProperty),
+            Limit.of(Math.min(Math.max(size, 1), MAX_PAGE_SIZE)));
+    Object next = null;
+    if (window.hasNext()) {
+      KeysetScrollPosition last = (KeysetScrollPosition) window.positionAt(window.size() - 1);
+      next = last.getKeys().get(idProperty);
+    }
+    return new CursorPage<>(window.getContent(), next);
+  }
+
+  /**
+   * This method answers a GET of entities from one table conditionally. The response is tagged with
+   * the table's version as its ETag; if the request's If-None-Match already holds that ETag, the
+   * query is not run and the response is an empty 304 Not Modified. The query must read the
+   * database rather than the second-level cache (see TableVersions).
+   *
+   * @param request the request
+   * @param table the entity class of the table the query reads
+   * @param query runs the query
+   * @param <T> the type of the response body
+   * @return the results of the query, or null if the client's copy is still current
+   */
+  protected <T> T unlessNotModified(WebRequest request, Class<?> table, Supplier<T> query) {
+    if (request.checkNotModified(tableVersions.etag(table))) {
+      return null;
+    }
+    return query.get();
+  }
+
   /**
    * This method handles the EntityNotFoundException.
    *
@@ -3,14 +3,22 @@ package edu.ucsb.cs156.example.controllers;
 import com.fasterxml.jackson.core.JsonProcessingException;
 import edu.ucsb.cs156.example.entities.Article;
 import edu.ucsb.cs156.example.errors.EntityNotFoundException;
+import edu.ucsb.cs156.example.models.Changes;
+import edu.ucsb.cs156.example.models.CursorPage;
 import edu.ucsb.cs156.example.repositories.ArticleRepository;
+import edu.ucsb.cs156.example.services.BulkSaveService;
+import edu.ucsb.cs156.example.services.ChangeVersionService;
 import io.swagger.v3.oas.annotations.Operation;
 import io.swagger.v3.oas.annotations.Parameter;
 import io.swagger.v3.oas.annotations.tags.Tag;
 import jakarta.validation.Valid;
 import java.time.LocalDateTime;
+import java.util.List;
+import java.util.Set;
 import lombok.extern.slf4j.Slf4j;
 import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.data.domain.Sort;
+import org.springframework.data.web.PagedModel;
 import org.springframework.format.annotation.DateTimeFormat;
 import org.springframework.security.access.prepost.PreAuthorize;
 import org.springframework.web.bind.annotation.DeleteMapping;
@@ -21,6 +29,7 @@ import org.springframework.web.bind.annotation.RequestBody;
 import org.springframework.web.bind.annotation.RequestMapping;
 import org.springframework.web.bind.annotation.RequestParam;
 import org.springframework.web.bind.annotation.RestController;
+import org.springframework.web.context.request.WebRequest;
 
 /* This is a REST controller for Articles */
 
@@ -32,17 +41,98 @@ public class ArticlesController extends ApiController {
 
   @Autowired ArticleRepository articleRepository;
 
+  @Autowired BulkSaveService bulkSaveService;
+
+  @Autowired ChangeVersionService changeVersionService;
+
+  // sort parameter values accepted by /page
+  private static final Set<String> SORT_PROPERTIES = Set.of("id", "title", "email", "dateAdded");
+
   /**
    * List all Articles
    *
+   * @param request the request, whose If-None-Match header is checked
    * @return an iterable of Article
    */
   @Operation(summary = "List all articles")
   @PreAuthorize("hasRole('ROLE_USER')")
   @GetMapping("/all")
-  public Iterable<Article> allArticles() {
-    Iterable<Article> articles = articleRepository.findAll();
-    return articles;
+  public Iterable<Article> allArticles(WebRequest request) {
+    return unlessNotModified(request, Article.class, () -> articleRepository.findAll());
+  }
+
+  /**
+   * This method returns one page of articles.
+   *
+   * @param page page number, starting from 0
+   * @param size articles per page
+   * @param sort property to sort by
+   * @param direction sort direction
+   * @return a page of articles
+   */
+  @Operation(summary = "List one page of articles")
+  @PreAuthorize("hasRole('ROLE_USER')")
+  @GetMapping("/page")
+  public PagedModel<Article> pageOfArticles(
+      @Parameter(name = "page", description = "page number, starting from 0")
+          @RequestParam(defaultValue = "0")
+          int page,
+      @Parameter(name = "size", description = "articles per page (at most 100)")
+          @RequestParam(defaultValue = "20")
+          int size,
+      @Parameter(name = "sort", description = "one of id, title, email, dateAdded")
+          @RequestParam(defaultValue = "id")
+          String sort,
+      @Parameter(name = "direction", description = "ASC or DESC")
+          @RequestParam(defaultValue = "ASC")
+          Sort.Direction direction) {
+    return pageOf(articleRepository, "id", SORT_PROPERTIES, page, size, sort, direction);
+  }
+
+  /**
+   * This method returns the articles after a cursor, in id order.
+   *
+   * @param after id of the last article already seen
+   * @param size most articles to return
+   * @param direction sort direction
+   * @return the articles, and the cursor for the next batch
+   */
+  @Operation(summary = "List the articles after a cursor")
+  @PreAuthorize("hasRole('ROLE_USER')")
+  @GetMapping("/cursor")
+  public CursorPage<Article> articlesAfter(
+      @Parameter(
+              name = "after",
+              description =
+                  "id of the last article already seen (leave out to start from the beginning)")
+          @RequestParam(required = false)
+          Long after,
+      @Parameter(name = "size", description = "most articles to return (at most 100)")
+          @RequestParam(defaultValue = "20")
+          int size,
+      @Parameter(name = "direction", description = "ASC or DESC")
+          @RequestParam(defaultValue = "ASC")
+          Sort.Direction direction) {
+    return pageAfter(articleRepository, "id", after, size, direction);
+  }
+
+  /**
+   * This method returns the articles changed since a version.
+   *
+   * @param since the version returned by the previous call
+   * @return the articles created or updated since then, the ids of those deleted, and the new
+   *     version
+   */
+  @Operation(summary = "List the articles changed since a version")
+  @PreAuthorize("hasRole('ROLE_USER')")
+  @GetMapping("/changes")
+  public Changes<Article> articleChanges(
+      @Parameter(
+              name = "since",
+              description = "version returned by the previous call (leave out to get all articles)")
+          @RequestParam(defaultValue = "0")
+          long since) {
+    return changeVersionService.changesSince(articleRepository, Article.class, since);
   }
 
   /**
@@ -85,22 +175,53 @@ public class ArticlesController extends ApiController {
     return savedArticle;
   }
 
+  /**
+   * Create many articles at once
+   *
+   * <p>Any ids in the request are ignored; new ids are assigned.
+   *
+   * @param incoming the articles to create
+   * @return the saved articles
+   */
+  @Operation(summary = "Create many articles at once")
+  @PreAuthorize("hasRole('ROLE_ADMIN')")
+  @PostMapping("/bulk")
+  public Iterable<Article> postArticlesInBulk(@RequestBody List<Article> incoming) {
+    incoming.forEach(article -> article.setId(0));
+    return bulkSaveService.createAll(articleRepository, incoming);
+  }
+
+  /**
+   * Update many articles at once
+   *
+   * @param incoming the new versions of the articles, identified by their ids
+   * @return the updated articles
+   */
+  @Operation(summary = "Update many articles at once")
+  @PreAuthorize("hasRole('ROLE_ADMIN')")
+  @PutMapping("/bulk")
+  public Iterable<Article> updateArticlesInBulk(@RequestBody List<Article> incoming) {
+    return bulkSaveService.updateAll(articleRepository, Article.class, Article::getId, incoming);
+  }
+
   /**
    * Get a single article by id
    *
    * @param id the id of the article
+   * @param request the request, whose If-None-Match header is checked
    * @return an Article
    */
   @Operation(summary = "Get a single article")
   @PreAuthorize("hasRole('ROLE_USER')")
   @GetMapping("")
-  public Article getById(@Parameter(name = "id") @RequestParam Long id) {
-    Article article =
-        articleRepository
-            .findById(id)
-            .orElseThrow(() -> new EntityNotFoundException(Article.class, id));
-
-    return article;
+  public Article getById(@Parameter(name = "id") @RequestParam Long id, WebRequest request) {
+    return unlessNotModified(
+        request,
+        Article.class,
+        () ->
+            articleRepository
+                .findById(id)
+                .orElseThrow(() -> new EntityNotFoundException(Article.class, id)));
   }
 
   /**
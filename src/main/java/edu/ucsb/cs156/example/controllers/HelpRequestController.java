@@ -3,24 +3,38 @@ package edu.ucsb.cs156.example.controllers;
 import com.fasterxml.jackson.core.JsonProcessingException;
 import edu.ucsb.cs156.example.entities.HelpRequest;
 import edu.ucsb.cs156.example.errors.EntityNotFoundException;
+import edu.ucsb.cs156.example.models.Changes;
+import edu.ucsb.cs156.example.models.CursorPage;
 import edu.ucsb.cs156.example.repositories.HelpRequestRepository;
+import edu.ucsb.cs156.example.services.BulkSaveService;
+import edu.ucsb.cs156.example.services.ChangeVersionService;
+import edu.ucsb.cs156.example.services.ExportService;
 import io.swagger.v3.oas.annotations.Operation;
 import io.swagger.v3.oas.annotations.Parameter;
 import io.swagger.v3.oas.annotations.tags.Tag;
 import jakarta.validation.Valid;
 import java.time.LocalDateTime;
+import java.util.List;
+import java.util.Set;
 import lombok.extern.slf4j.Slf4j;
 import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.data.domain.Sort;
+import org.springframework.data.web.PagedModel;
 import org.springframework.format.annotation.DateTimeFormat;
+import org.springframework.http.HttpHeaders;
+import org.springframework.http.ResponseEntity;
 import org.springframework.security.access.prepost.PreAuthorize;
 import org.springframework.web.bind.annotation.DeleteMapping;
 import org.springframework.web.bind.annotation.GetMapping;
 import org.springframework.web.bind.annotation.PostMapping;
 import org.springframework.web.bind.annotation.PutMapping;
 import org.springframework.web.bind.annotation.RequestBody;
+import org.springframework.web.bind.annotation.RequestHeader;
 import org.springframework.web.bind.annotation.RequestMapping;
 import org.springframework.web.bind.annotation.RequestParam;
 import org.springframework.web.bind.annotation.RestController;
+import org.springframework.web.context.request.WebRequest;
+import org.springframework.web.servlet.mvc.method.annotation.StreamingResponseBody;
 
 /** This is a REST controller for HelpRequest */
 @Tag(name = "HelpRequests")
@@ -31,35 +45,146 @@ public class HelpRequestController extends ApiController {
 
   @Autowired HelpRequestRepository helpRequestRepository;
 
+  @Autowired BulkSaveService bulkSaveService;
+
+  @Autowired ChangeVersionService changeVersionService;
+
+  @Autowired ExportService exportService;
+
+  // sort parameter values accepted by /page
+  private static final Set<String> SORT_PROPERTIES =
+      Set.of("id", "requesterEmail", "teamId", "requestTime", "solved");
+
   /**
    * List all HelpRequests
    *
+   * @param request the request, whose If-None-Match header is checked
    * @return an iterable of HelpRequest
    */
   @Operation(summary = "List all ucsb help requests")
   @PreAuthorize("hasRole('ROLE_USER')")
   @GetMapping("/all")
-  public Iterable<HelpRequest> allHelpRequests() {
-    Iterable<HelpRequest> helprequests = helpRequestRepository.findAll();
-    return helprequests;
+  public Iterable<HelpRequest> allHelpRequests(WebRequest request) {
+    return unlessNotModified(request, HelpRequest.class, () -> helpRequestRepository.findAll());
+  }
+
+  /**
+   * This method returns one page of help requests.
+   *
+   * @param page page number, starting from 0
+   * @param size help requests per page
+   * @param sort property to sort by
+   * @param direction sort direction
+   * @return a page of help requests
+   */
+  @Operation(summary = "List one page of help requests")
+  @PreAuthorize("hasRole('ROLE_USER')")
+  @GetMapping("/page")
+  public PagedModel<HelpRequest> pageOfHelpRequests(
+      @Parameter(name = "page", description = "page number, starting from 0")
+          @RequestParam(defaultValue = "0")
+          int page,
+      @Parameter(name = "size", description = "help requests per page (at most 100)")
+          @RequestParam(defaultValue = "20")
+          int size,
+      @Parameter(
+              name = "sort",
+              description = "one of id, requesterEmail, teamId, requestTime, solved")
+          @RequestParam(defaultValue = "id")
+          String sort,
+      @Parameter(name = "direction", description = "ASC or DESC")
+          @RequestParam(defaultValue = "ASC")
+          Sort.Direction direction) {
+    return pageOf(helpRequestRepository, "id", SORT_PROPERTIES, page, size, sort, direction);
+  }
+
+  /**
+   * This method returns the help requests after a cursor, in id order.
+   *
+   * @param after id of the last help request already seen
+   * @param size most help requests to return
+   * @param direction sort direction
+   * @return the help requests, and the cursor for the next batch
+   */
+  @Operation(summary = "List the help requests after a cursor")
+  @PreAuthorize("hasRole('ROLE_USER')")
+  @GetMapping("/cursor")
+  public CursorPage<HelpRequest> helpRequestsAfter(
+      @Parameter(
+              name = "after",
+              description =
+                  "id of the last help request already seen (leave out to start from the beginning)")
+          @RequestParam(required = false)
+          Long after,
+      @Parameter(name = "size", description = "most help requests to return (at most 100)")
+          @RequestParam(defaultValue = "20")
+          int size,
+      @Parameter(name = "direction", description = "ASC or DESC")
+          @RequestParam(defaultValue = "ASC")
+          Sort.Direction direction) {
+    return pageAfter(helpRequestRepository, "id", after, size, direction);
+  }
+
+  /**
+   * This method returns the help requests changed since a version.
+   *
+   * @param since the version returned by the previous call
+   * @return the help requests created or updated since then, the ids of those deleted, and the new
+   *     version
+   */
+  @Operation(summary = "List the help requests changed since a version")
+  @PreAuthorize("hasRole('ROLE_USER')")
+  @GetMapping("/changes")
+  public Changes<HelpRequest> helpRequestChanges(
+      @Parameter(
+              name = "since",
+              description =
+                  "version returned by the previous call (leave out to get all help requests)")
+          @RequestParam(defaultValue = "0")
+          long since) {
+    return changeVersionService.changesSince(helpRequestRepository, HelpRequest.class, since);
+  }
+
+  /**
+   * This method downloads all help requests as a CSV or NDJSON file, streamed from the database.
+   *
+   * @param format csv or ndjson
+   * @param acceptEncoding the Accept-Encoding header; the file is gzipped if it allows gzip
+   * @return the file
+   */
+  @Operation(summary = "Download all help requests as a CSV or NDJSON file")
+  @PreAuthorize("hasRole('ROLE_USER')")
+  @GetMapping("/export")
+  public ResponseEntity<StreamingResponseBody> exportHelpRequests(
+      @Parameter(name = "format", description = "csv or ndjson") @RequestParam(defaultValue = "csv")
+          String format,
+      @RequestHeader(value = HttpHeaders.ACCEPT_ENCODING, required = false) String acceptEncoding) {
+    return exportService.export(
+        "helprequests",
+        HelpRequest.class,
+        format,
+        acceptEncoding,
+        helpRequestRepository::streamAll);
   }
 
   /**
    * Get a single helprequest by id
    *
    * @param id the id of the date
+   * @param request the request, whose If-None-Match header is checked
    * @return a UCSBDate
    */
   @Operation(summary = "Get a single helprequest")
   @PreAuthorize("hasRole('ROLE_USER')")
   @GetMapping("")
-  public HelpRequest getById(@Parameter(name = "id") @RequestParam Long id) {
-    HelpRequest helpRequest =
-        helpRequestRepository
-            .findById(id)
-            .orElseThrow(() -> new EntityNotFoundException(HelpRequest.class, id));
-
-    return helpRequest;
+  public HelpRequest getById(@Parameter(name = "id") @RequestParam Long id, WebRequest request) {
+    return unlessNotModified(
+        request,
+        HelpRequest.class,
+        () ->
+            helpRequestRepository
+                .findById(id)
+                .orElseThrow(() -> new EntityNotFoundException(HelpRequest.class, id)));
   }
 
   /**
@@ -108,6 +233,36 @@ public class HelpRequestController extends ApiController {
     return savedHelpRequest;
   }
 
+  /**
+   * Create many help requests at once
+   *
+   * <p>Any ids in the request are ignored; new ids are assigned.
+   *
+   * @param incoming the help requests to create
+   * @return the saved help requests
+   */
+  @Operation(summary = "Create many help requests at once")
+  @PreAuthorize("hasRole('ROLE_ADMIN')")
+  @PostMapping("/bulk")
+  public Iterable<HelpRequest> postHelpRequestsInBulk(@RequestBody List<HelpRequest> incoming) {
+    incoming.forEach(helpRequest -> helpRequest.setId(0));
+    return bulkSaveService.createAll(helpRequestRepository, incoming);
+  }
+
+  /**
+   * Update many help requests at once
+   *
+   * @param incoming the new versions of the help requests, identified by their ids
+   * @return the updated help requests
+   */
+  @Operation(summary = "Update many help requests at once")
+  @PreAuthorize("hasRole('ROLE_ADMIN')")
+  @PutMapping("/bulk")
+  public Iterable<HelpRequest> updateHelpRequestsInBulk(@RequestBody List<HelpRequest> incoming) {
+    return bulkSaveService.updateAll(
+        helpRequestRepository, HelpRequest.class, HelpRequest::getId, incoming);
+  }
+
   /**
    * Update a single helprequest
    *
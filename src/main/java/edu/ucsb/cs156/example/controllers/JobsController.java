@@ -4,23 +4,46 @@ import com.fasterxml.jackson.core.JsonProcessingException;
 import com.fasterxml.jackson.databind.ObjectMapper;
 import edu.ucsb.cs156.example.entities.Job;
 import edu.ucsb.cs156.example.errors.EntityNotFoundException;
+import edu.ucsb.cs156.example.jobs.ImportJob;
 import edu.ucsb.cs156.example.jobs.TestJob;
+import edu.ucsb.cs156.example.models.JobExecutorStatus;
+import edu.ucsb.cs156.example.models.JobSummary;
 import edu.ucsb.cs156.example.repositories.JobsRepository;
+import edu.ucsb.cs156.example.services.EntityImportService;
+import edu.ucsb.cs156.example.services.ImportUploadService;
+import edu.ucsb.cs156.example.services.JsonStreamingService;
+import edu.ucsb.cs156.example.services.jobs.JobLogTailService;
 import edu.ucsb.cs156.example.services.jobs.JobService;
 import io.swagger.v3.oas.annotations.Operation;
 import io.swagger.v3.oas.annotations.Parameter;
 import io.swagger.v3.oas.annotations.tags.Tag;
+import java.io.IOException;
+import java.io.InputStream;
+import java.time.Duration;
+import java.util.List;
 import java.util.Map;
 import lombok.extern.slf4j.Slf4j;
 import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.data.domain.PageRequest;
+import org.springframework.data.domain.Sort;
+import org.springframework.data.web.PagedModel;
+import org.springframework.http.HttpStatus;
+import org.springframework.http.MediaType;
+import org.springframework.http.ResponseEntity;
 import org.springframework.security.access.prepost.PreAuthorize;
 import org.springframework.web.bind.annotation.DeleteMapping;
 import org.springframework.web.bind.annotation.GetMapping;
 import org.springframework.web.bind.annotation.PathVariable;
 import org.springframework.web.bind.annotation.PostMapping;
+import org.springframework.web.bind.annotation.RequestHeader;
 import org.springframework.web.bind.annotation.RequestMapping;
 import org.springframework.web.bind.annotation.RequestParam;
 import org.springframework.web.bind.annotation.RestController;
+import org.springframework.web.multipart.MultipartFile;
+import org.springframework.web.server.ResponseStatusException;
+import org.springframework.web.servlet.mvc.method.annotation.SseEmitter;
+import org.springframework.web.servlet.mvc.method.annotation.StreamingResponseBody;
 
 @Tag(name = "Jobs")
 @RequestMapping("/api/jobs")
@@ -31,21 +54,85 @@ public class JobsController extends ApiController {
 
   @Autowired private JobService jobService;
 
+  @Autowired private JobLogTailService jobLogTailService;
+
   @Autowired ObjectMapper mapper;
 
+  @Autowired private JsonStreamingService jsonStreamingService;
+
+  @Autowired private EntityImportService entityImportService;
+
+  @Autowired private ImportUploadService importUploadService;
+
+  @Value("${app.jobs.import.maxBytes}")
+  private long importMaxBytes;
+
+  // sort parameter values accepted by /page, and the job property each one sorts by
+  private static final Map<String, String> SORT_PROPERTIES =
+      Map.of(
+          "id", "id",
+          "status", "status",
+          "createdAt", "createdAt",
+          "updatedAt", "updatedAt",
+          "createdBy", "createdBy.id");
+
   @Operation(summary = "List all jobs")
   @PreAuthorize("hasRole('ROLE_ADMIN')")
   @GetMapping("/all")
-  public Iterable<Job> allJobs() {
-    Iterable<Job> jobs = jobsRepository.findAll();
-    return jobs;
+  public ResponseEntity<StreamingResponseBody> allJobs() {
+    return ResponseEntity.ok()
+        .contentType(MediaType.APPLICATION_JSON)
+        .body(jsonStreamingService.jsonArray(jobsRepository::streamAll));
+  }
+
+  @Operation(summary = "List one page of jobs (without their logs)")
+  @PreAuthorize("hasRole('ROLE_ADMIN')")
+  @GetMapping("/page")
+  public PagedModel<JobSummary> pageOfJobs(
+      @Parameter(name = "page", description = "page number, starting from 0")
+          @RequestParam(defaultValue = "0")
+          int page,
+      @Parameter(name = "size", description = "jobs per page (at most 100)")
+          @RequestParam(defaultValue = "20")
+          int size,
+      @Parameter(name = "sort", description = "one of id, status, createdAt, updatedAt, createdBy")
+          @RequestParam(defaultValue = "createdAt")
+          String sort,
+      @Parameter(name = "direction", description = "ASC or DESC")
+          @RequestParam(defaultValue = "DESC")
+          Sort.Direction direction,
+      @Parameter(name = "status", description = "only list jobs with this status")
+          @RequestParam(required = false)
+          String status,
+      @Parameter(name = "createdById", description = "only list jobs created by this user id")
+          @RequestParam(required = false)
+          Long createdById) {
+
+    String sortProperty = SORT_PROPERTIES.get(sort);
+    if (sortProperty == null) {
+      throw new ResponseStatusException(
+          HttpStatus.BAD_REQUEST, "Cannot sort jobs by %s".formatted(sort));
+    }
+    PageRequest pageRequest =
+        pageRequest(page, size, Sort.by(direction, sortProperty).and(Sort.by(direction, "id")));
+    if (status != null && createdById != null) {
+      return new PagedModel<>(
+          jobsRepository.findSummariesByStatusAndCreatedById(status, createdById, pageRequest));
+    }
+    if (status != null) {
+      return new PagedModel<>(jobsRepository.findSummariesByStatus(status, pageRequest));
+    }
+    if (createdById != null) {
+      return new PagedModel<>(jobsRepository.findSummariesByCreatedById(createdById, pageRequest));
+    }
+    return new PagedModel<>(jobsRepository.findSummaries(pageRequest));
   }
 
   @Operation(summary = "Delete all job records")
   @PreAuthorize("hasRole('ROLE_ADMIN')")
   @DeleteMapping("/all")
   public Map<String, String> deleteAllJobs() {
-    jobsRepository.deleteAll();
+    jobsRepository.deleteAllInBulk();
     return Map.of("message", "All jobs deleted");
   }
 
@@ -66,22 +153,90 @@ public class JobsController extends ApiController {
   @PreAuthorize("hasRole('ROLE_ADMIN')")
   @DeleteMapping("")
   public Map<String, String> deleteAllJobs(@Parameter(name = "id") @RequestParam Long id) {
-    if (!jobsRepository.existsById(id)) {
+    if (jobsRepository.deleteByIdInBulk(List.of(id)) == 0) {
       return Map.of("message", String.format("Job with id %d not found", id));
     }
-    jobsRepository.deleteById(id);
     return Map.of("message", String.format("Job with id %d deleted", id));
   }
 
+  @Operation(summary = "Cancel a running job")
+  @PreAuthorize("hasRole('ROLE_ADMIN')")
+  @PostMapping("/cancel")
+  public Map<String, String> cancelJob(@Parameter(name = "id") @RequestParam Long id) {
+    if (!jobService.cancelJob(id)) {
+      return Map.of("message", String.format("Job with id %d is not running", id));
+    }
+    return Map.of("message", String.format("Job with id %d cancelled", id));
+  }
+
   @Operation(summary = "Launch Test Job (click fail if you want to test exception handling)")
   @PreAuthorize("hasRole('ROLE_ADMIN')")
   @PostMapping("/launch/testjob")
   public Job launchTestJob(
       @Parameter(name = "fail") @RequestParam Boolean fail,
-      @Parameter(name = "sleepMs") @RequestParam Integer sleepMs) {
+      @Parameter(name = "sleepMs") @RequestParam Integer sleepMs,
+      @Parameter(
+              name = "timeoutSeconds",
+              description = "time limit (default: app.jobs.timeoutSeconds)")
+          @RequestParam(required = false)
+          Long timeoutSeconds) {
 
     TestJob testJob = TestJob.builder().fail(fail).sleepMs(sleepMs).build();
-    return jobService.runAsJob(testJob);
+    if (timeoutSeconds == null) {
+      return jobService.runAsJob(testJob);
+    }
+    return jobService.runAsJob(testJob, Duration.ofSeconds(timeoutSeconds));
+  }
+
+  @Operation(
+      summary = "Launch a job that imports a CSV or NDJSON file as new entities",
+      description =
+          "A CSV file needs a header row naming the fields. Generated ids in the file are ignored."
+              + " Rows that cannot be imported are listed in the job log.")
+  @PreAuthorize("hasRole('ROLE_ADMIN')")
+  @PostMapping(value = "/launch/import", consumes = MediaType.MULTIPART_FORM_DATA_VALUE)
+  public Job launchImportJob(
+      @Parameter(name = "entity", description = "e.g. restaurants, ucsbdates, ucsborganization")
+          @RequestParam
+          String entity,
+      @Parameter(name = "format", description = "csv or ndjson") @RequestParam(defaultValue = "csv")
+          String format,
+      @Parameter(name = "file") @RequestParam MultipartFile file)
+      throws IOException {
+
+    if (!entityImportService.getEntityNames().contains(entity)) {
+      throw new ResponseStatusException(
+          HttpStatus.BAD_REQUEST, "Cannot import %s".formatted(entity));
+    }
+    if (!EntityImportService.FORMATS.contains(format)) {
+      throw new ResponseStatusException(
+          HttpStatus.BAD_REQUEST, "Cannot import from %s".formatted(format));
+    }
+    if (file.getSize() > importMaxBytes) {
+      throw new ResponseStatusException(
+          HttpStatus.BAD_REQUEST,
+          "Cannot import a file larger than %d bytes".formatted(importMaxBytes));
+    }
+
+    String uploadId;
+    try (InputStream in = file.getInputStream()) {
+      uploadId = importUploadService.store(in);
+    }
+    ImportJob importJob =
+        ImportJob.builder()
+            .entity(entity)
+            .format(format)
+            .uploadId(uploadId)
+            .size(file.getSize())
+            .build();
+    return jobService.runAsJob(importJob);
+  }
+
+  @Operation(summary = "Get the number of running and queued jobs")
+  @PreAuthorize("hasRole('ROLE_ADMIN')")
+  @GetMapping("/executor")
+  public JobExecutorStatus getExecutorStatus() {
+    return jobService.getExecutorStatus();
   }
 
   @Operation(summary = "Get long job logs")
@@ -91,4 +246,21 @@ public class JobsController extends ApiController {
 
     return jobService.getJobLogs(id);
   }
+
+  @Operation(
+      summary = "Stream job log lines as server-sent events",
+      description =
+          "Each event is one log line whose id is the line id; pass the last id received as"
+              + " 'after' (or Last-Event-ID) to resume. Ends with a 'complete' event.")
+  @PreAuthorize("hasRole('ROLE_ADMIN')")
+  @GetMapping(value = "/logs/{id}/stream", produces = MediaType.TEXT_EVENT_STREAM_VALUE)
+  public SseEmitter streamJobLogs(
+      @Parameter(name = "id", description = "Job ID") @PathVariable Long id,
+      @Parameter(name = "after", description = "id of the last log line already received")
+          @RequestParam(defaultValue = "0")
+          Long after,
+      @RequestHeader(value = "Last-Event-ID", required = false) Long lastEventId) {
+
+    return jobLogTailService.tail(id, lastEventId != null ? lastEventId : after);
+  }
 }
@@ -1,26 +1,45 @@
 package edu.ucsb.cs156.example.controllers;
 
 import com.fasterxml.jackson.core.JsonProcessingException;
+import edu.ucsb.cs156.example.entities.MenuItemRating;
 import edu.ucsb.cs156.example.entities.MenuItemReview;
 import edu.ucsb.cs156.example.errors.EntityNotFoundException;
+import edu.ucsb.cs156.example.models.Changes;
+import edu.ucsb.cs156.example.models.CursorPage;
+import edu.ucsb.cs156.example.models.RatedMenuItem;
+import edu.ucsb.cs156.example.repositories.MenuItemRatingRepository;
 import edu.ucsb.cs156.example.repositories.MenuItemReviewRepository;
+import edu.ucsb.cs156.example.services.BulkSaveService;
+import edu.ucsb.cs156.example.services.ChangeVersionService;
+import edu.ucsb.cs156.example.services.ExportService;
 import io.swagger.v3.oas.annotations.Operation;
 import io.swagger.v3.oas.annotations.Parameter;
 import io.swagger.v3.oas.annotations.tags.Tag;
 import jakarta.validation.Valid;
 import java.time.LocalDateTime;
+import java.util.List;
+import java.util.Set;
 import lombok.extern.slf4j.Slf4j;
 import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.data.domain.Limit;
+import org.springframework.data.domain.PageRequest;
+import org.springframework.data.domain.Sort;
+import org.springframework.data.web.PagedModel;
 import org.springframework.format.annotation.DateTimeFormat;
+import org.springframework.http.HttpHeaders;
+import org.springframework.http.ResponseEntity;
 import org.springframework.security.access.prepost.PreAuthorize;
 import org.springframework.web.bind.annotation.DeleteMapping;
 import org.springframework.web.bind.annotation.GetMapping;
 import org.springframework.web.bind.annotation.PostMapping;
 import org.springframework.web.bind.annotation.PutMapping;
 import org.springframework.web.bind.annotation.RequestBody;
+import org.springframework.web.bind.annotation.RequestHeader;
 import org.springframework.web.bind.annotation.RequestMapping;
 import org.springframework.web.bind.annotation.RequestParam;
 import org.springframework.web.bind.annotation.RestController;
+import org.springframework.web.context.request.WebRequest;
+import org.springframework.web.servlet.mvc.method.annotation.StreamingResponseBody;
 
 /** This is a REST controller for MenuItemReviw */
 @Tag(name = "MenuItemReview")
@@ -31,17 +50,246 @@ public class MenuItemReviewController extends ApiController {
 
   @Autowired MenuItemReviewRepository menuItemReviewRepository;
 
+  @Autowired MenuItemRatingRepository menuItemRatingRepository;
+
+  @Autowired BulkSaveService bulkSaveService;
+
+  @Autowired ChangeVersionService changeVersionService;
+
+  @Autowired ExportService exportService;
+
+  // bounds of /search when from or to is left out; both are valid timestamps in every database
+  private static final LocalDateTime EARLIEST_REVIEW = LocalDateTime.parse("0001-01-01T00:00:00");
+  private static final LocalDateTime LATEST_REVIEW = LocalDateTime.parse("9999-12-31T23:59:59");
+
+  // sort parameter values accepted by /page
+  private static final Set<String> SORT_PROPERTIES =
+      Set.of("id", "itemId", "reviewerEmail", "stars", "dateReviewed");
+
   /**
    * List all MenuItemReviews
    *
+   * @param request the request, whose If-None-Match header is checked
    * @return an iterable of MenuItemReview
    */
   @Operation(summary = "List all menu item reviews")
   @PreAuthorize("hasRole('ROLE_USER')")
   @GetMapping("/all")
-  public Iterable<MenuItemReview> allMenuItemReviews() {
-    Iterable<MenuItemReview> reviews = menuItemReviewRepository.findAll();
-    return reviews;
+  public Iterable<MenuItemReview> allMenuItemReviews(WebRequest request) {
+    return unlessNotModified(
+        request, MenuItemReview.class, () -> menuItemReviewRepository.findAll());
+  }
+
+  /**
+   * This method returns one page of menu item reviews.
+   *
+   * @param page page number, starting from 0
+   * @param size menu item reviews per page
+   * @param sort property to sort by
+   * @param direction sort direction
+   * @return a page of menu item reviews
+   */
+  @Operation(summary = "List one page of menu item reviews")
+  @PreAuthorize("hasRole('ROLE_USER')")
+  @GetMapping("/page")
+  public PagedModel<MenuItemReview> pageOfMenuItemReviews(
+      @Parameter(name = "page", description = "page number, starting from 0")
+          @RequestParam(defaultValue = "0")
+          int page,
+      @Parameter(name = "size", description = "menu item reviews per page (at most 100)")
+          @RequestParam(defaultValue = "20")
+          int size,
+      @Parameter(
+              name = "sort",
+              description = "one of id, itemId, reviewerEmail, stars, dateReviewed")
+          @RequestParam(defaultValue = "id")
+          String sort,
+      @Parameter(name = "direction", description = "ASC or DESC")
+          @RequestParam(defaultValue = "ASC")
+          Sort.Direction direction) {
+    return pageOf(menuItemReviewRepository, "id", SORT_PROPERTIES, page, size, sort, direction);
+  }
+
+  /**
+   * This method returns the menu item reviews after a cursor, in id order.
+   *
+   * @param after id of the last menu item review already seen
+   * @param size most menu item reviews to return
+   * @param direction sort direction
+   * @return the menu item reviews, and the cursor for the next batch
+   */
+  @Operation(summary = "List the menu item reviews after a cursor")
+  @PreAuthorize("hasRole('ROLE_USER')")
+  @GetMapping("/cursor")
+  public CursorPage<MenuItemReview> menuItemReviewsAfter(
+      @Parameter(
+              name = "after",
+              description =
+                  "id of the last menu item review already seen (leave out to start from the beginning)")
+          @RequestParam(required = false)
+          Long after,
+      @Parameter(name = "size", description = "most menu item reviews to return (at most 100)")
+          @RequestParam(defaultValue = "20")
+          int size,
+      @Parameter(name = "direction", description = "ASC or DESC")
+          @RequestParam(defaultValue = "ASC")
+          Sort.Direction direction) {
+    return pageAfter(menuItemReviewRepository, "id", after, size, direction);
+  }
+
+  /**
+   * This method returns the menu item reviews changed since a version.
+   *
+   * @param since the version returned by the previous call
+   * @return the menu item reviews created or updated since then, the ids of those deleted, and the
+   *     new version
+   */
+  @Operation(summary = "List the menu item reviews changed since a version")
+  @PreAuthorize("hasRole('ROLE_USER')")
+  @GetMapping("/changes")
+  public Changes<MenuItemReview> menuItemReviewChanges(
+      @Parameter(
+              name = "since",
+              description =
+                  "version returned by the previous call (leave out to get all menu item reviews)")
+          @RequestParam(defaultValue = "0")
+          long since) {
+    return changeVersionService.changesSince(menuItemReviewRepository, MenuItemReview.class, since);
+  }
+
+  /**
+   * This method returns one page of the menu item reviews made between two times, optionally only
+   * those of one menu item, by one reviewer, or both, newest first by default. Each combination is
+   * a range scan of an index on MENUITEMREVIEW.
+   *
+   * @param itemId only reviews of this menu item
+   * @param reviewerEmail only reviews by this reviewer
+   * @param from earliest review time
+   * @param to latest review time
+   * @param page page number, starting from 0
+   * @param size menu item reviews per page
+   * @param direction sort direction of dateReviewed
+   * @return a page of menu item reviews
+   */
+  @Operation(summary = "Search the menu item reviews by item, reviewer and date")
+  @PreAuthorize("hasRole('ROLE_USER')")
+  @GetMapping("/search")
+  public PagedModel<MenuItemReview> searchMenuItemReviews(
+      @Parameter(name = "itemId", description = "only reviews of this menu item")
+          @RequestParam(required = false)
+          Long itemId,
+      @Parameter(name = "reviewerEmail", description = "only reviews by this reviewer")
+          @RequestParam(required = false)
+          String reviewerEmail,
+      @Parameter(name = "from", description = "earliest review time, e.g. 2022-01-03T00:00:00")
+          @RequestParam(required = false)
+          @DateTimeFormat(iso = DateTimeFormat.ISO.DATE_TIME)
+          LocalDateTime from,
+      @Parameter(name = "to", description = "latest review time, e.g. 2022-01-09T23:59:59")
+          @RequestParam(required = false)
+          @DateTimeFormat(iso = DateTimeFormat.ISO.DATE_TIME)
+          LocalDateTime to,
+      @Parameter(name = "page", description = "page number, starting from 0")
+          @RequestParam(defaultValue = "0")
+          int page,
+      @Parameter(name = "size", description = "menu item reviews per page (at most 100)")
+          @RequestParam(defaultValue = "20")
+          int size,
+      @Parameter(name = "direction", description = "ASC or DESC")
+          @RequestParam(defaultValue = "DESC")
+          Sort.Direction direction) {
+    LocalDateTime earliest = from == null ? EARLIEST_REVIEW : from;
+    LocalDateTime latest = to == null ? LATEST_REVIEW : to;
+    PageRequest pageRequest =
+        pageRequest(page, size, Sort.by(direction, "dateReviewed").and(Sort.by(direction, "id")));
+    if (itemId != null && reviewerEmail != null) {
+      return new PagedModel<>(
+          menuItemReviewRepository.findByItemIdAndReviewerEmailAndDateReviewedBetween(
+              itemId, reviewerEmail, earliest, latest, pageRequest));
+    }
+    if (itemId != null) {
+      return new PagedModel<>(
+          menuItemReviewRepository.findByItemIdAndDateReviewedBetween(
+              itemId, earliest, latest, pageRequest));
+    }
+    if (reviewerEmail != null) {
+      return new PagedModel<>(
+          menuItemReviewRepository.findByReviewerEmailAndDateReviewedBetween(
+              reviewerEmail, earliest, latest, pageRequest));
+    }
+    return new PagedModel<>(
+        menuItemReviewRepository.findByDateReviewedBetween(earliest, latest, pageRequest));
+  }
+
+  /**
+   * This method returns the rating of a menu item: its number of reviews, their average stars, and
+   * how many gave each number of stars. It is read from MENUITEMRATING, which is kept up to date as
+   * reviews change, rather than computed from the reviews.
+   *
+   * @param itemId the id of the menu item
+   * @return the rating (all zeros if the item has no reviews)
+   */
+  @Operation(summary = "Get the rating of a menu item")
+  @PreAuthorize("hasRole('ROLE_USER')")
+  @GetMapping("/rating")
+  public MenuItemRating menuItemRating(@Parameter(name = "itemId") @RequestParam long itemId) {
+    return menuItemRatingRepository
+        .findById(itemId)
+        .orElseGet(() -> MenuItemRating.builder().itemId(itemId).build());
+  }
+
+  /**
+   * This method returns the menu items of a dining commons with the highest average stars, each
+   * with its rating.
+   *
+   * @param diningCommonsCode code of the dining commons, e.g. ortega
+   * @param minReviews fewest reviews an item must have to be included
+   * @param size most menu items to return
+   * @return the menu items and their ratings, best first
+   */
+  @Operation(summary = "List the top rated menu items of a dining commons")
+  @PreAuthorize("hasRole('ROLE_USER')")
+  @GetMapping("/toprated")
+  public List<RatedMenuItem> topRatedMenuItems(
+      @Parameter(
+              name = "diningCommonsCode",
+              description = "code of the dining commons, e.g. ortega")
+          @RequestParam
+          String diningCommonsCode,
+      @Parameter(name = "minReviews", description = "fewest reviews an item must have")
+          @RequestParam(defaultValue = "1")
+          long minReviews,
+      @Parameter(name = "size", description = "most menu items to return (at most 100)")
+          @RequestParam(defaultValue = "10")
+          int size) {
+    // at least 1, as an item whose reviews have all been deleted keeps its row with no reviews
+    return menuItemRatingRepository.findTopRated(
+        diningCommonsCode,
+        Math.max(minReviews, 1),
+        Limit.of(Math.min(Math.max(size, 1), MAX_PAGE_SIZE)));
+  }
+
+  /**
+   * This method downloads all menu item reviews as a CSV or NDJSON file, streamed from the
+   * database.
+   *
+   * @param format csv or ndjson
+   * @param acceptEncoding the Accept-Encoding header; the file is gzipped if it allows gzip
+   * @return the file
+   */
+  @Operation(summary = "Download all menu item reviews as a CSV or NDJSON file")
+  @PreAuthorize("hasRole('ROLE_USER')")
+  @GetMapping("/export")
+  public ResponseEntity<StreamingResponseBody> exportMenuItemReviews(
+      @Parameter(name = "format", description = "csv or ndjson") @RequestParam(defaultValue = "csv")
+          String format,
+      @RequestHeader(value = HttpHeaders.ACCEPT_ENCODING, required = false) String acceptEncoding) {
+    return exportService.export(
+        "menuitemreview",
+        MenuItemReview.class,
+        format,
+        acceptEncoding,
+        menuItemReviewRepository::streamAll);
   }
 
   /**
@@ -88,22 +336,56 @@ public class MenuItemReviewController extends ApiController {
     return savedMenuItemReview;
   }
 
+  /**
+   * Create many menu item reviews at once
+   *
+   * <p>Any ids in the request are ignored; new ids are assigned.
+   *
+   * @param incoming the menu item reviews to create
+   * @return the saved menu item reviews
+   */
+  @Operation(summary = "Create many menu item reviews at once")
+  @PreAuthorize("hasRole('ROLE_ADMIN')")
+  @PostMapping("/bulk")
+  public Iterable<MenuItemReview> postMenuItemReviewsInBulk(
+      @RequestBody List<MenuItemReview> incoming) {
+    incoming.forEach(review -> review.setId(0));
+    return bulkSaveService.createAll(menuItemReviewRepository, incoming);
+  }
+
+  /**
+   * Update many menu item reviews at once
+   *
+   * @param incoming the new versions of the menu item reviews, identified by their ids
+   * @return the updated menu item reviews
+   */
+  @Operation(summary = "Update many menu item reviews at once")
+  @PreAuthorize("hasRole('ROLE_ADMIN')")
+  @PutMapping("/bulk")
+  public Iterable<MenuItemReview> updateMenuItemReviewsInBulk(
+      @RequestBody List<MenuItemReview> incoming) {
+    return bulkSaveService.updateAll(
+        menuItemReviewRepository, MenuItemReview.class, MenuItemReview::getId, incoming);
+  }
+
   /**
    * Get a single menu item review by id
    *
    * @param id the id of the menu item review
+   * @param request the request, whose If-None-Match header is checked
    * @return a MenuItemReview
    */
   @Operation(summary = "Get a single menu item review")
   @PreAuthorize("hasRole('ROLE_USER')")
   @GetMapping("")
-  public MenuItemReview getById(@Parameter(name = "id") @RequestParam Long id) {
-    MenuItemReview menuItemReview =
-        menuItemReviewRepository
-            .findById(id)
-            .orElseThrow(() -> new EntityNotFoundException(MenuItemReview.class, id));
-
-    return menuItemReview;
+  public MenuItemReview getById(@Parameter(name = "id") @RequestParam Long id, WebRequest request) {
+    return unlessNotModified(
+        request,
+        MenuItemReview.class,
+        () ->
+            menuItemReviewRepository
+                .findById(id)
+                .orElseThrow(() -> new EntityNotFoundException(MenuItemReview.class, id)));
   }
 
   /**
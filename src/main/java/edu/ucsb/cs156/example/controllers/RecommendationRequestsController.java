@@ -3,24 +3,38 @@ package edu.ucsb.cs156.example.controllers;
 import com.fasterxml.jackson.core.JsonProcessingException;
 import edu.ucsb.cs156.example.entities.RecommendationRequest;
 import edu.ucsb.cs156.example.errors.EntityNotFoundException;
+import edu.ucsb.cs156.example.models.Changes;
+import edu.ucsb.cs156.example.models.CursorPage;
 import edu.ucsb.cs156.example.repositories.RecommendationRequestRepository;
+import edu.ucsb.cs156.example.services.BulkSaveService;
+import edu.ucsb.cs156.example.services.ChangeVersionService;
+import edu.ucsb.cs156.example.services.ExportService;
 import io.swagger.v3.oas.annotations.Operation;
 import io.swagger.v3.oas.annotations.Parameter;
 import io.swagger.v3.oas.annotations.tags.Tag;
 import jakarta.validation.Valid;
 import java.time.LocalDateTime;
+import java.util.List;
+import java.util.Set;
 import lombok.extern.slf4j.Slf4j;
 import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.data.domain.Sort;
+import org.springframework.data.web.PagedModel;
 import org.springframework.format.annotation.DateTimeFormat;
+import org.springframework.http.HttpHeaders;
+import org.springframework.http.ResponseEntity;
 import org.springframework.security.access.prepost.PreAuthorize;
 import org.springframework.web.bind.annotation.DeleteMapping;
 import org.springframework.web.bind.annotation.GetMapping;
 import org.springframework.web.bind.annotation.PostMapping;
 import org.springframework.web.bind.annotation.PutMapping;
 import org.springframework.web.bind.annotation.RequestBody;
+import org.springframework.web.bind.annotation.RequestHeader;
 import org.springframework.web.bind.annotation.RequestMapping;
 import org.springframework.web.bind.annotation.RequestParam;
 import org.springframework.web.bind.annotation.RestController;
+import org.springframework.web.context.request.WebRequest;
+import org.springframework.web.servlet.mvc.method.annotation.StreamingResponseBody;
 
 /** This is a REST controller for RecommendationRequests */
 @Tag(name = "RecommendationRequests")
@@ -31,17 +45,133 @@ public class RecommendationRequestsController extends ApiController {
 
   @Autowired RecommendationRequestRepository recommendationRequestRepository;
 
+  @Autowired BulkSaveService bulkSaveService;
+
+  @Autowired ChangeVersionService changeVersionService;
+
+  @Autowired ExportService exportService;
+
+  // sort parameter values accepted by /page
+  private static final Set<String> SORT_PROPERTIES =
+      Set.of("id", "requesterEmail", "professorEmail", "dateRequested", "dateNeeded", "done");
+
   /**
    * List all RecommendationRequests
    *
+   * @param request the request, whose If-None-Match header is checked
    * @return an iterable of RecommendationRequests
    */
   @Operation(summary = "List all recommendation requests")
   @PreAuthorize("hasRole('ROLE_USER')")
   @GetMapping("/all")
-  public Iterable<RecommendationRequest> allRecommendationRequests() {
-    Iterable<RecommendationRequest> requests = recommendationRequestRepository.findAll();
-    return requests;
+  public Iterable<RecommendationRequest> allRecommendationRequests(WebRequest request) {
+    return unlessNotModified(
+        request, RecommendationRequest.class, () -> recommendationRequestRepository.findAll());
+  }
+
+  /**
+   * This method returns one page of recommendation requests.
+   *
+   * @param page page number, starting from 0
+   * @param size recommendation requests per page
+   * @param sort property to sort by
+   * @param direction sort direction
+   * @return a page of recommendation requests
+   */
+  @Operation(summary = "List one page of recommendation requests")
+  @PreAuthorize("hasRole('ROLE_USER')")
+  @GetMapping("/page")
+  public PagedModel<RecommendationRequest> pageOfRecommendationRequests(
+      @Parameter(name = "page", description = "page number, starting from 0")
+          @RequestParam(defaultValue = "0")
+          int page,
+      @Parameter(name = "size", description = "recommendation requests per page (at most 100)")
+          @RequestParam(defaultValue = "20")
+          int size,
+      @Parameter(
+              name = "sort",
+              description =
+                  "one of id, requesterEmail, professorEmail, dateRequested, dateNeeded, done")
+          @RequestParam(defaultValue = "id")
+          String sort,
+      @Parameter(name = "direction", description = "ASC or DESC")
+          @RequestParam(defaultValue = "ASC")
+          Sort.Direction direction) {
+    return pageOf(
+        recommendationRequestRepository, "id", SORT_PROPERTIES, page, size, sort, direction);
+  }
+
+  /**
+   * This method returns the recommendation requests after a cursor, in id order.
+   *
+   * @param after id of the last recommendation request already seen
+   * @param size most recommendation requests to return
+   * @param direction sort direction
+   * @return the recommendation requests, and the cursor for the next batch
+   */
+  @Operation(summary = "List the recommendation requests after a cursor")
+  @PreAuthorize("hasRole('ROLE_USER')")
+  @GetMapping("/cursor")
+  public CursorPage<RecommendationRequest> recommendationRequestsAfter(
+      @Parameter(
+              name = "after",
+              description =
+                  "id of the last recommendation request already seen (leave out to start from the beginning)")
+          @RequestParam(required = false)
+          Long after,
+      @Parameter(
+              name = "size",
+              description = "most recommendation requests to return (at most 100)")
+          @RequestParam(defaultValue = "20")
+          int size,
+      @Parameter(name = "direction", description = "ASC or DESC")
+          @RequestParam(defaultValue = "ASC")
+          Sort.Direction direction) {
+    return pageAfter(recommendationRequestRepository, "id", after, size, direction);
+  }
+
+  /**
+   * This method returns the recommendation requests changed since a version.
+   *
+   * @param since the version returned by the previous call
+   * @return the recommendation requests created or updated since then, the ids of those deleted,
+   *     and the new version
+   */
+  @Operation(summary = "List the recommendation requests changed since a version")
+  @PreAuthorize("hasRole('ROLE_USER')")
+  @GetMapping("/changes")
+  public Changes<RecommendationRequest> recommendationRequestChanges(
+      @Parameter(
+              name = "since",
+              description =
+                  "version returned by the previous call (leave out to get all recommendation requests)")
+          @RequestParam(defaultValue = "0")
+          long since) {
+    return changeVersionService.changesSince(
+        recommendationRequestRepository, RecommendationRequest.class, since);
+  }
+
+  /**
+   * This method downloads all recommendation requests as a CSV or NDJSON file, streamed from the
+   * database.
+   *
+   * @param format csv or ndjson
+   * @param acceptEncoding the Accept-Encoding header; the file is gzipped if it allows gzip
+   * @return the file
+   */
+  @Operation(summary = "Download all recommendation requests as a CSV or NDJSON file")
+  @PreAuthorize("hasRole('ROLE_USER')")
+  @GetMapping("/export")
+  public ResponseEntity<StreamingResponseBody> exportRecommendationRequests(
+      @Parameter(name = "format", description = "csv or ndjson") @RequestParam(defaultValue = "csv")
+          String format,
+      @RequestHeader(value = HttpHeaders.ACCEPT_ENCODING, required = false) String acceptEncoding) {
+    return exportService.export(
+        "recommendationrequests",
+        RecommendationRequest.class,
+        format,
+        acceptEncoding,
+        recommendationRequestRepository::streamAll);
   }
 
   /**
@@ -101,22 +231,60 @@ public class RecommendationRequestsController extends ApiController {
     return savedRecommendationRequest;
   }
 
+  /**
+   * Create many recommendation requests at once
+   *
+   * <p>Any ids in the request are ignored; new ids are assigned.
+   *
+   * @param incoming the recommendation requests to create
+   * @return the saved recommendation requests
+   */
+  @Operation(summary = "Create many recommendation requests at once")
+  @PreAuthorize("hasRole('ROLE_ADMIN')")
+  @PostMapping("/bulk")
+  public Iterable<RecommendationRequest> postRecommendationRequestsInBulk(
+      @RequestBody List<RecommendationRequest> incoming) {
+    incoming.forEach(request -> request.setId(0));
+    return bulkSaveService.createAll(recommendationRequestRepository, incoming);
+  }
+
+  /**
+   * Update many recommendation requests at once
+   *
+   * @param incoming the new versions of the recommendation requests, identified by their ids
+   * @return the updated recommendation requests
+   */
+  @Operation(summary = "Update many recommendation requests at once")
+  @PreAuthorize("hasRole('ROLE_ADMIN')")
+  @PutMapping("/bulk")
+  public Iterable<RecommendationRequest> updateRecommendationRequestsInBulk(
+      @RequestBody List<RecommendationRequest> incoming) {
+    return bulkSaveService.updateAll(
+        recommendationRequestRepository,
+        RecommendationRequest.class,
+        RecommendationRequest::getId,
+        incoming);
+  }
+
   /**
    * Get a single recommendation request by id
    *
    * @param id the id of the recommendation request
+   * @param request the request, whose If-None-Match header is checked
    * @return a RecommendationRequest
    */
   @Operation(summary = "Get a single recommendation request")
   @PreAuthorize("hasRole('ROLE_USER')")
   @GetMapping("")
-  public RecommendationRequest getById(@Parameter(name = "id") @RequestParam Long id) {
-    RecommendationRequest recommendationRequest =
-        recommendationRequestRepository
-            .findById(id)
-            .orElseThrow(() -> new EntityNotFoundException(RecommendationRequest.class, id));
-
-    return recommendationRequest;
+  public RecommendationRequest getById(
+      @Parameter(name = "id") @RequestParam Long id, WebRequest request) {
+    return unlessNotModified(
+        request,
+        RecommendationRequest.class,
+        () ->
+            recommendationRequestRepository
+                .findById(id)
+                .orElseThrow(() -> new EntityNotFoundException(RecommendationRequest.class, id)));
   }
 
   /**
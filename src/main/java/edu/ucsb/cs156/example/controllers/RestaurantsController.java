@@ -2,12 +2,20 @@ package edu.ucsb.cs156.example.controllers;
 
 import edu.ucsb.cs156.example.entities.Restaurant;
 import edu.ucsb.cs156.example.errors.EntityNotFoundException;
+import edu.ucsb.cs156.example.models.Changes;
+import edu.ucsb.cs156.example.models.CursorPage;
 import edu.ucsb.cs156.example.repositories.RestaurantRepository;
+import edu.ucsb.cs156.example.services.BulkSaveService;
+import edu.ucsb.cs156.example.services.ChangeVersionService;
 import io.swagger.v3.oas.annotations.Operation;
 import io.swagger.v3.oas.annotations.Parameter;
 import io.swagger.v3.oas.annotations.tags.Tag;
 import jakarta.validation.Valid;
+import java.util.List;
+import java.util.Set;
 import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.data.domain.Sort;
+import org.springframework.data.web.PagedModel;
 import org.springframework.security.access.prepost.PreAuthorize;
 import org.springframework.web.bind.annotation.DeleteMapping;
 import org.springframework.web.bind.annotation.GetMapping;
@@ -17,6 +25,7 @@ import org.springframework.web.bind.annotation.RequestBody;
 import org.springframework.web.bind.annotation.RequestMapping;
 import org.springframework.web.bind.annotation.RequestParam;
 import org.springframework.web.bind.annotation.RestController;
+import org.springframework.web.context.request.WebRequest;
 
 /** This is a REST controller for Restaurants */
 @Tag(name = "Restaurants")
@@ -26,35 +35,118 @@ public class RestaurantsController extends ApiController {
 
   @Autowired RestaurantRepository restaurantRepository;
 
+  @Autowired BulkSaveService bulkSaveService;
+
+  @Autowired ChangeVersionService changeVersionService;
+
+  // sort parameter values accepted by /page
+  private static final Set<String> SORT_PROPERTIES = Set.of("id", "name");
+
   /**
    * This method returns a list of all restaurants.
    *
+   * @param request the request, whose If-None-Match header is checked
    * @return a list of all restaurants
    */
   @Operation(summary = "List all restaurants")
   @PreAuthorize("hasRole('ROLE_USER')")
   @GetMapping("/all")
-  public Iterable<Restaurant> allRestaurants() {
-    Iterable<Restaurant> restaurants = restaurantRepository.findAll();
-    return restaurants;
+  public Iterable<Restaurant> allRestaurants(WebRequest request) {
+    return unlessNotModified(request, Restaurant.class, () -> restaurantRepository.findAll());
+  }
+
+  /**
+   * This method returns one page of restaurants.
+   *
+   * @param page page number, starting from 0
+   * @param size restaurants per page
+   * @param sort property to sort by
+   * @param direction sort direction
+   * @return a page of restaurants
+   */
+  @Operation(summary = "List one page of restaurants")
+  @PreAuthorize("hasRole('ROLE_USER')")
+  @GetMapping("/page")
+  public PagedModel<Restaurant> pageOfRestaurants(
+      @Parameter(name = "page", description = "page number, starting from 0")
+          @RequestParam(defaultValue = "0")
+          int page,
+      @Parameter(name = "size", description = "restaurants per page (at most 100)")
+          @RequestParam(defaultValue = "20")
+          int size,
+      @Parameter(name = "sort", description = "one of id, name") @RequestParam(defaultValue = "id")
+          String sort,
+      @Parameter(name = "direction", description = "ASC or DESC")
+          @RequestParam(defaultValue = "ASC")
+          Sort.Direction direction) {
+    return pageOf(restaurantRepository, "id", SORT_PROPERTIES, page, size, sort, direction);
+  }
+
+  /**
+   * This method returns the restaurants after a cursor, in id order.
+   *
+   * @param after id of the last restaurant already seen
+   * @param size most restaurants to return
+   * @param direction sort direction
+   * @return the restaurants, and the cursor for the next batch
+   */
+  @Operation(summary = "List the restaurants after a cursor")
+  @PreAuthorize("hasRole('ROLE_USER')")
+  @GetMapping("/cursor")
+  public CursorPage<Restaurant> restaurantsAfter(
+      @Parameter(
+              name = "after",
+              description =
+                  "id of the last restaurant already seen (leave out to start from the beginning)")
+          @RequestParam(required = false)
+          Long after,
+      @Parameter(name = "size", description = "most restaurants to return (at most 100)")
+          @RequestParam(defaultValue = "20")
+          int size,
+      @Parameter(name = "direction", description = "ASC or DESC")
+          @RequestParam(defaultValue = "ASC")
+          Sort.Direction direction) {
+    return pageAfter(restaurantRepository, "id", after, size, direction);
+  }
+
+  /**
+   * This method returns the restaurants changed since a version.
+   *
+   * @param since the version returned by the previous call
+   * @return the restaurants created or updated since then, the ids of those deleted, and the new
+   *     version
+   */
+  @Operation(summary = "List the restaurants changed since a version")
+  @PreAuthorize("hasRole('ROLE_USER')")
+  @GetMapping("/changes")
+  public Changes<Restaurant> restaurantChanges(
+      @Parameter(
+              name = "since",
+              description =
+                  "version returned by the previous call (leave out to get all restaurants)")
+          @RequestParam(defaultValue = "0")
+          long since) {
+    return changeVersionService.changesSince(restaurantRepository, Restaurant.class, since);
   }
 
   /**
    * This method returns a single restaurant.
    *
    * @param id id of the restaurant to get
+   * @param request the request, whose If-None-Match header is checked
    * @return a single restaurant
    */
   @Operation(summary = "Get a single restaurant")
   @PreAuthorize("hasRole('ROLE_USER')")
   @GetMapping("")
-  public Restaurant getById(@Parameter(name = "id") @RequestParam Long id) {
-    Restaurant restaurant =
-        restaurantRepository
-            .findById(id)
-            .orElseThrow(() -> new EntityNotFoundException(Restaurant.class, id));
-
-    return restaurant;
+  public Restaurant getById(@Parameter(name = "id") @RequestParam Long id, WebRequest request) {
+    return unlessNotModified(
+        request,
+        Restaurant.class,
+        () ->
+            restaurantRepository
+                .findById(id)
+                .orElseThrow(() -> new EntityNotFoundException(Restaurant.class, id)));
   }
 
   /**
@@ -79,6 +171,36 @@ public class RestaurantsController extends ApiController {
     return savedrestaurant;
   }
 
+  /**
+   * Create many restaurants at once
+   *
+   * <p>Any ids in the request are ignored; new ids are assigned.
+   *
+   * @param incoming the restaurants to create
+   * @return the saved restaurants
+   */
+  @Operation(summary = "Create many restaurants at once")
+  @PreAuthorize("hasRole('ROLE_ADMIN')")
+  @PostMapping("/bulk")
+  public Iterable<Restaurant> postRestaurantsInBulk(@RequestBody List<Restaurant> incoming) {
+    incoming.forEach(restaurant -> restaurant.setId(0));
+    return bulkSaveService.createAll(restaurantRepository, incoming);
+  }
+
+  /**
+   * Update many restaurants at once
+   *
+   * @param incoming the new versions of the restaurants, identified by their ids
+   * @return the updated restaurants
+   */
+  @Operation(summary = "Update many restaurants at once")
+  @PreAuthorize("hasRole('ROLE_ADMIN')")
+  @PutMapping("/bulk")
+  public Iterable<Restaurant> updateRestaurantsInBulk(@RequestBody List<Restaurant> incoming) {
+    return bulkSaveService.updateAll(
+        restaurantRepository, Restaurant.class, Restaurant::getId, incoming);
+  }
+
   /**
    * Deletes a restaurant. Accessible only to users with the role "ROLE_ADMIN".
    *
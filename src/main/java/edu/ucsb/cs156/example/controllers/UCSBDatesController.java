@@ -3,14 +3,22 @@ package edu.ucsb.cs156.example.controllers;
 import com.fasterxml.jackson.core.JsonProcessingException;
 import edu.ucsb.cs156.example.entities.UCSBDate;
 import edu.ucsb.cs156.example.errors.EntityNotFoundException;
+import edu.ucsb.cs156.example.models.Changes;
+import edu.ucsb.cs156.example.models.CursorPage;
 import edu.ucsb.cs156.example.repositories.UCSBDateRepository;
+import edu.ucsb.cs156.example.services.BulkSaveService;
+import edu.ucsb.cs156.example.services.ChangeVersionService;
 import io.swagger.v3.oas.annotations.Operation;
 import io.swagger.v3.oas.annotations.Parameter;
 import io.swagger.v3.oas.annotations.tags.Tag;
 import jakarta.validation.Valid;
 import java.time.LocalDateTime;
+import java.util.List;
+import java.util.Set;
 import lombok.extern.slf4j.Slf4j;
 import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.data.domain.Sort;
+import org.springframework.data.web.PagedModel;
 import org.springframework.format.annotation.DateTimeFormat;
 import org.springframework.security.access.prepost.PreAuthorize;
 import org.springframework.web.bind.annotation.DeleteMapping;
@@ -21,6 +29,7 @@ import org.springframework.web.bind.annotation.RequestBody;
 import org.springframework.web.bind.annotation.RequestMapping;
 import org.springframework.web.bind.annotation.RequestParam;
 import org.springframework.web.bind.annotation.RestController;
+import org.springframework.web.context.request.WebRequest;
 
 /** This is a REST controller for UCSBDates */
 @Tag(name = "UCSBDates")
@@ -31,35 +40,120 @@ public class UCSBDatesController extends ApiController {
 
   @Autowired UCSBDateRepository ucsbDateRepository;
 
+  @Autowired BulkSaveService bulkSaveService;
+
+  @Autowired ChangeVersionService changeVersionService;
+
+  // sort parameter values accepted by /page
+  private static final Set<String> SORT_PROPERTIES =
+      Set.of("id", "quarterYYYYQ", "name", "localDateTime");
+
   /**
    * List all UCSB dates
    *
+   * @param request the request, whose If-None-Match header is checked
    * @return an iterable of UCSBDate
    */
   @Operation(summary = "List all ucsb dates")
   @PreAuthorize("hasRole('ROLE_USER')")
   @GetMapping("/all")
-  public Iterable<UCSBDate> allUCSBDates() {
-    Iterable<UCSBDate> dates = ucsbDateRepository.findAll();
-    return dates;
+  public Iterable<UCSBDate> allUCSBDates(WebRequest request) {
+    return unlessNotModified(request, UCSBDate.class, () -> ucsbDateRepository.findAll());
+  }
+
+  /**
+   * This method returns one page of ucsb dates.
+   *
+   * @param page page number, starting from 0
+   * @param size ucsb dates per page
+   * @param sort property to sort by
+   * @param direction sort direction
+   * @return a page of ucsb dates
+   */
+  @Operation(summary = "List one page of ucsb dates")
+  @PreAuthorize("hasRole('ROLE_USER')")
+  @GetMapping("/page")
+  public PagedModel<UCSBDate> pageOfUCSBDates(
+      @Parameter(name = "page", description = "page number, starting from 0")
+          @RequestParam(defaultValue = "0")
+          int page,
+      @Parameter(name = "size", description = "ucsb dates per page (at most 100)")
+          @RequestParam(defaultValue = "20")
+          int size,
+      @Parameter(name = "sort", description = "one of id, quarterYYYYQ, name, localDateTime")
+          @RequestParam(defaultValue = "id")
+          String sort,
+      @Parameter(name = "direction", description = "ASC or DESC")
+          @RequestParam(defaultValue = "ASC")
+          Sort.Direction direction) {
+    return pageOf(ucsbDateRepository, "id", SORT_PROPERTIES, page, size, sort, direction);
+  }
+
+  /**
+   * This method returns the ucsb dates after a cursor, in id order.
+   *
+   * @param after id of the last ucsb date already seen
+   * @param size most ucsb dates to return
+   * @param direction sort direction
+   * @return the ucsb dates, and the cursor for the next batch
+   */
+  @Operation(summary = "List the ucsb dates after a cursor")
+  @PreAuthorize("hasRole('ROLE_USER')")
+  @GetMapping("/cursor")
+  public CursorPage<UCSBDate> uCSBDatesAfter(
+      @Parameter(
+              name = "after",
+              description =
+                  "id of the last ucsb date already seen (leave out to start from the beginning)")
+          @RequestParam(required = false)
+          Long after,
+      @Parameter(name = "size", description = "most ucsb dates to return (at most 100)")
+          @RequestParam(defaultValue = "20")
+          int size,
+      @Parameter(name = "direction", description = "ASC or DESC")
+          @RequestParam(defaultValue = "ASC")
+          Sort.Direction direction) {
+    return pageAfter(ucsbDateRepository, "id", after, size, direction);
+  }
+
+  /**
+   * This method returns the ucsb dates changed since a version.
+   *
+   * @param since the version returned by the previous call
+   * @return the ucsb dates created or updated since then, the ids of those deleted, and the new
+   *     version
+   */
+  @Operation(summary = "List the ucsb dates changed since a version")
+  @PreAuthorize("hasRole('ROLE_USER')")
+  @GetMapping("/changes")
+  public Changes<UCSBDate> ucsbDateChanges(
+      @Parameter(
+              name = "since",
+              description =
+                  "version returned by the previous call (leave out to get all ucsb dates)")
+          @RequestParam(defaultValue = "0")
+          long since) {
+    return changeVersionService.changesSince(ucsbDateRepository, UCSBDate.class, since);
   }
 
   /**
    * Get a single date by id
    *
    * @param id the id of the date
+   * @param request the request, whose If-None-Match header is checked
    * @return a UCSBDate
    */
   @Operation(summary = "Get a single date")
   @PreAuthorize("hasRole('ROLE_USER')")
   @GetMapping("")
-  public UCSBDate getById(@Parameter(name = "id") @RequestParam Long id) {
-    UCSBDate ucsbDate =
-        ucsbDateRepository
-            .findById(id)
-            .orElseThrow(() -> new EntityNotFoundException(UCSBDate.class, id));
-
-    return ucsbDate;
+  public UCSBDate getById(@Parameter(name = "id") @RequestParam Long id, WebRequest request) {
+    return unlessNotModified(
+        request,
+        UCSBDate.class,
+        () ->
+            ucsbDateRepository
+                .findUncachedById(id)
+                .orElseThrow(() -> new EntityNotFoundException(UCSBDate.class, id)));
   }
 
   /**
@@ -100,6 +194,35 @@ public class UCSBDatesController extends ApiController {
     return savedUcsbDate;
   }
 
+  /**
+   * Create many ucsb dates at once
+   *
+   * <p>Any ids in the request are ignored; new ids are assigned.
+   *
+   * @param incoming the ucsb dates to create
+   * @return the saved ucsb dates
+   */
+  @Operation(summary = "Create many ucsb dates at once")
+  @PreAuthorize("hasRole('ROLE_ADMIN')")
+  @PostMapping("/bulk")
+  public Iterable<UCSBDate> postUCSBDatesInBulk(@RequestBody List<UCSBDate> incoming) {
+    incoming.forEach(date -> date.setId(0));
+    return bulkSaveService.createAll(ucsbDateRepository, incoming);
+  }
+
+  /**
+   * Update many ucsb dates at once
+   *
+   * @param incoming the new versions of the ucsb dates, identified by their ids
+   * @return the updated ucsb dates
+   */
+  @Operation(summary = "Update many ucsb dates at once")
+  @PreAuthorize("hasRole('ROLE_ADMIN')")
+  @PutMapping("/bulk")
+  public Iterable<UCSBDate> updateUCSBDatesInBulk(@RequestBody List<UCSBDate> incoming) {
+    return bulkSaveService.updateAll(ucsbDateRepository, UCSBDate.class, UCSBDate::getId, incoming);
+  }
+
   /**
    * Delete a UCSBDate
    *
@@ -2,13 +2,21 @@ package edu.ucsb.cs156.example.controllers;
 
 import edu.ucsb.cs156.example.entities.UCSBDiningCommons;
 import edu.ucsb.cs156.example.errors.EntityNotFoundException;
+import edu.ucsb.cs156.example.models.Changes;
+import edu.ucsb.cs156.example.models.CursorPage;
 import edu.ucsb.cs156.example.repositories.UCSBDiningCommonsRepository;
+import edu.ucsb.cs156.example.services.BulkSaveService;
+import edu.ucsb.cs156.example.services.ChangeVersionService;
 import io.swagger.v3.oas.annotations.Operation;
 import io.swagger.v3.oas.annotations.Parameter;
 import io.swagger.v3.oas.annotations.tags.Tag;
 import jakarta.validation.Valid;
+import java.util.List;
+import java.util.Set;
 import lombok.extern.slf4j.Slf4j;
 import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.data.domain.Sort;
+import org.springframework.data.web.PagedModel;
 import org.springframework.security.access.prepost.PreAuthorize;
 import org.springframework.web.bind.annotation.DeleteMapping;
 import org.springframework.web.bind.annotation.GetMapping;
@@ -18,6 +26,7 @@ import org.springframework.web.bind.annotation.RequestBody;
 import org.springframework.web.bind.annotation.RequestMapping;
 import org.springframework.web.bind.annotation.RequestParam;
 import org.springframework.web.bind.annotation.RestController;
+import org.springframework.web.context.request.WebRequest;
 
 /** This is a REST controller for UCSBDiningCommons */
 @Tag(name = "UCSBDiningCommons")
@@ -28,35 +37,123 @@ public class UCSBDiningCommonsController extends ApiController {
 
   @Autowired UCSBDiningCommonsRepository ucsbDiningCommonsRepository;
 
+  @Autowired BulkSaveService bulkSaveService;
+
+  @Autowired ChangeVersionService changeVersionService;
+
+  // sort parameter values accepted by /page
+  private static final Set<String> SORT_PROPERTIES = Set.of("code", "name");
+
   /**
    * THis method returns a list of all ucsbdiningcommons.
    *
+   * @param request the request, whose If-None-Match header is checked
    * @return a list of all ucsbdiningcommons
    */
   @Operation(summary = "List all ucsb dining commons")
   @PreAuthorize("hasRole('ROLE_USER')")
   @GetMapping("/all")
-  public Iterable<UCSBDiningCommons> allCommonss() {
-    Iterable<UCSBDiningCommons> commons = ucsbDiningCommonsRepository.findAll();
-    return commons;
+  public Iterable<UCSBDiningCommons> allCommonss(WebRequest request) {
+    return unlessNotModified(
+        request, UCSBDiningCommons.class, () -> ucsbDiningCommonsRepository.findAll());
+  }
+
+  /**
+   * This method returns one page of dining commons.
+   *
+   * @param page page number, starting from 0
+   * @param size dining commons per page
+   * @param sort property to sort by
+   * @param direction sort direction
+   * @return a page of dining commons
+   */
+  @Operation(summary = "List one page of dining commons")
+  @PreAuthorize("hasRole('ROLE_USER')")
+  @GetMapping("/page")
+  public PagedModel<UCSBDiningCommons> pageOfCommons(
+      @Parameter(name = "page", description = "page number, starting from 0")
+          @RequestParam(defaultValue = "0")
+          int page,
+      @Parameter(name = "size", description = "dining commons per page (at most 100)")
+          @RequestParam(defaultValue = "20")
+          int size,
+      @Parameter(name = "sort", description = "one of code, name")
+          @RequestParam(defaultValue = "code")
+          String sort,
+      @Parameter(name = "direction", description = "ASC or DESC")
+          @RequestParam(defaultValue = "ASC")
+          Sort.Direction direction) {
+    return pageOf(
+        ucsbDiningCommonsRepository, "code", SORT_PROPERTIES, page, size, sort, direction);
+  }
+
+  /**
+   * This method returns the dining commons after a cursor, in code order.
+   *
+   * @param after code of the last dining commons already seen
+   * @param size most dining commons to return
+   * @param direction sort direction
+   * @return the dining commons, and the cursor for the next batch
+   */
+  @Operation(summary = "List the dining commons after a cursor")
+  @PreAuthorize("hasRole('ROLE_USER')")
+  @GetMapping("/cursor")
+  public CursorPage<UCSBDiningCommons> commonsAfter(
+      @Parameter(
+              name = "after",
+              description =
+                  "code of the last dining commons already seen (leave out to start from the beginning)")
+          @RequestParam(required = false)
+          String after,
+      @Parameter(name = "size", description = "most dining commons to return (at most 100)")
+          @RequestParam(defaultValue = "20")
+          int size,
+      @Parameter(name = "direction", description = "ASC or DESC")
+          @RequestParam(defaultValue = "ASC")
+          Sort.Direction direction) {
+    return pageAfter(ucsbDiningCommonsRepository, "code", after, size, direction);
+  }
+
+  /**
+   * This method returns the dining commons changed since a version.
+   *
+   * @param since the version returned by the previous call
+   * @return the dining commons created or updated since then, the ids of those deleted, and the new
+   *     version
+   */
+  @Operation(summary = "List the dining commons changed since a version")
+  @PreAuthorize("hasRole('ROLE_USER')")
+  @GetMapping("/changes")
+  public Changes<UCSBDiningCommons> commonsChanges(
+      @Parameter(
+              name = "since",
+              description =
+                  "version returned by the previous call (leave out to get all dining commons)")
+          @RequestParam(defaultValue = "0")
+          long since) {
+    return changeVersionService.changesSince(
+        ucsbDiningCommonsRepository, UCSBDiningCommons.class, since);
   }
 
   /**
    * This method returns a single diningcommons.
    *
    * @param code code of the diningcommons
+   * @param request the request, whose If-None-Match header is checked
    * @return a single diningcommons
    */
   @Operation(summary = "Get a single commons")
   @PreAuthorize("hasRole('ROLE_USER')")
   @GetMapping("")
-  public UCSBDiningCommons getById(@Parameter(name = "code") @RequestParam String code) {
-    UCSBDiningCommons commons =
-        ucsbDiningCommonsRepository
-            .findById(code)
-            .orElseThrow(() -> new EntityNotFoundException(UCSBDiningCommons.class, code));
-
-    return commons;
+  public UCSBDiningCommons getById(
+      @Parameter(name = "code") @RequestParam String code, WebRequest request) {
+    return unlessNotModified(
+        request,
+        UCSBDiningCommons.class,
+        () ->
+            ucsbDiningCommonsRepository
+                .findUncachedByCode(code)
+                .orElseThrow(() -> new EntityNotFoundException(UCSBDiningCommons.class, code)));
   }
 
   /**
@@ -97,6 +194,36 @@ public class UCSBDiningCommonsController extends ApiController {
     return savedCommons;
   }
 
+  /**
+   * Create many dining commons at once
+   *
+   * @param incoming the dining commons to create
+   * @return the saved dining commons
+   */
+  @Operation(summary = "Create many dining commons at once")
+  @PreAuthorize("hasRole('ROLE_ADMIN')")
+  @PostMapping("/bulk")
+  public Iterable<UCSBDiningCommons> postCommonsInBulk(
+      @RequestBody List<UCSBDiningCommons> incoming) {
+    return bulkSaveService.createAllWithAssignedIds(
+        ucsbDiningCommonsRepository, UCSBDiningCommons.class, UCSBDiningCommons::getCode, incoming);
+  }
+
+  /**
+   * Update many dining commons at once
+   *
+   * @param incoming the new versions of the dining commons, identified by their ids
+   * @return the updated dining commons
+   */
+  @Operation(summary = "Update many dining commons at once")
+  @PreAuthorize("hasRole('ROLE_ADMIN')")
+  @PutMapping("/bulk")
+  public Iterable<UCSBDiningCommons> updateCommonsInBulk(
+      @RequestBody List<UCSBDiningCommons> incoming) {
+    return bulkSaveService.updateAll(
+        ucsbDiningCommonsRepository, UCSBDiningCommons.class, UCSBDiningCommons::getCode, incoming);
+  }
+
   /**
    * Delete a diningcommons. Accessible only to users with the role "ROLE_ADMIN".
    *
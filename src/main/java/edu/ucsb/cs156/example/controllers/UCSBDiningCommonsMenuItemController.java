@@ -3,13 +3,21 @@ package edu.ucsb.cs156.example.controllers;
 import com.fasterxml.jackson.core.JsonProcessingException;
 import edu.ucsb.cs156.example.entities.UCSBDiningCommonsMenuItem;
 import edu.ucsb.cs156.example.errors.EntityNotFoundException;
+import edu.ucsb.cs156.example.models.Changes;
+import edu.ucsb.cs156.example.models.CursorPage;
 import edu.ucsb.cs156.example.repositories.UCSBDiningCommonsMenuItemRepository;
+import edu.ucsb.cs156.example.services.BulkSaveService;
+import edu.ucsb.cs156.example.services.ChangeVersionService;
 import io.swagger.v3.oas.annotations.Operation;
 import io.swagger.v3.oas.annotations.Parameter;
 import io.swagger.v3.oas.annotations.tags.Tag;
 import jakarta.validation.Valid;
+import java.util.List;
+import java.util.Set;
 import lombok.extern.slf4j.Slf4j;
 import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.data.domain.Sort;
+import org.springframework.data.web.PagedModel;
 import org.springframework.security.access.prepost.PreAuthorize;
 import org.springframework.web.bind.annotation.DeleteMapping;
 import org.springframework.web.bind.annotation.GetMapping;
@@ -19,6 +27,7 @@ import org.springframework.web.bind.annotation.RequestBody;
 import org.springframework.web.bind.annotation.RequestMapping;
 import org.springframework.web.bind.annotation.RequestParam;
 import org.springframework.web.bind.annotation.RestController;
+import org.springframework.web.context.request.WebRequest;
 
 @Tag(name = "UCSBDiningCommonsMenuItem")
 @RequestMapping("/api/ucsbdiningcommonsmenuitem")
@@ -27,17 +36,105 @@ import org.springframework.web.bind.annotation.RestController;
 public class UCSBDiningCommonsMenuItemController extends ApiController {
   @Autowired UCSBDiningCommonsMenuItemRepository UCSBDiningCommonsMenuItemRepository;
 
+  @Autowired BulkSaveService bulkSaveService;
+
+  @Autowired ChangeVersionService changeVersionService;
+
+  // sort parameter values accepted by /page
+  private static final Set<String> SORT_PROPERTIES =
+      Set.of("id", "diningCommonsCode", "name", "station");
+
   /**
    * List all UCSB Menu Items
    *
+   * @param request the request, whose If-None-Match header is checked
    * @return an iterable of UCSBItem
    */
   @Operation(summary = "List all dining commons items")
   @PreAuthorize("hasRole('ROLE_USER')")
   @GetMapping("/all")
-  public Iterable<UCSBDiningCommonsMenuItem> allUCSBDiningCommonsMenuItems() {
-    Iterable<UCSBDiningCommonsMenuItem> menuItems = UCSBDiningCommonsMenuItemRepository.findAll();
-    return menuItems;
+  public Iterable<UCSBDiningCommonsMenuItem> allUCSBDiningCommonsMenuItems(WebRequest request) {
+    return unlessNotModified(
+        request,
+        UCSBDiningCommonsMenuItem.class,
+        () -> UCSBDiningCommonsMenuItemRepository.findAll());
+  }
+
+  /**
+   * This method returns one page of menu items.
+   *
+   * @param page page number, starting from 0
+   * @param size menu items per page
+   * @param sort property to sort by
+   * @param direction sort direction
+   * @return a page of menu items
+   */
+  @Operation(summary = "List one page of menu items")
+  @PreAuthorize("hasRole('ROLE_USER')")
+  @GetMapping("/page")
+  public PagedModel<UCSBDiningCommonsMenuItem> pageOfUCSBDiningCommonsMenuItems(
+      @Parameter(name = "page", description = "page number, starting from 0")
+          @RequestParam(defaultValue = "0")
+          int page,
+      @Parameter(name = "size", description = "menu items per page (at most 100)")
+          @RequestParam(defaultValue = "20")
+          int size,
+      @Parameter(name = "sort", description = "one of id, diningCommonsCode, name, station")
+          @RequestParam(defaultValue = "id")
+          String sort,
+      @Parameter(name = "direction", description = "ASC or DESC")
+          @RequestParam(defaultValue = "ASC")
+          Sort.Direction direction) {
+    return pageOf(
+        UCSBDiningCommonsMenuItemRepository, "id", SORT_PROPERTIES, page, size, sort, direction);
+  }
+
+  /**
+   * This method returns the menu items after a cursor, in id order.
+   *
+   * @param after id of the last menu item already seen
+   * @param size most menu items to return
+   * @param direction sort direction
+   * @return the menu items, and the cursor for the next batch
+   */
+  @Operation(summary = "List the menu items after a cursor")
+  @PreAuthorize("hasRole('ROLE_USER')")
+  @GetMapping("/cursor")
+  public CursorPage<UCSBDiningCommonsMenuItem> uCSBDiningCommonsMenuItemsAfter(
+      @Parameter(
+              name = "after",
+              description =
+                  "id of the last menu item already seen (leave out to start from the beginning)")
+          @RequestParam(required = false)
+          Long after,
+      @Parameter(name = "size", description = "most menu items to return (at most 100)")
+          @RequestParam(defaultValue = "20")
+          int size,
+      @Parameter(name = "direction", description = "ASC or DESC")
+          @RequestParam(defaultValue = "ASC")
+          Sort.Direction direction) {
+    return pageAfter(UCSBDiningCommonsMenuItemRepository, "id", after, size, direction);
+  }
+
+  /**
+   * This method returns the menu items changed since a version.
+   *
+   * @param since the version returned by the previous call
+   * @return the menu items created or updated since then, the ids of those deleted, and the new
+   *     version
+   */
+  @Operation(summary = "List the menu items changed since a version")
+  @PreAuthorize("hasRole('ROLE_USER')")
+  @GetMapping("/changes")
+  public Changes<UCSBDiningCommonsMenuItem> menuItemChanges(
+      @Parameter(
+              name = "since",
+              description =
+                  "version returned by the previous call (leave out to get all menu items)")
+          @RequestParam(defaultValue = "0")
+          long since) {
+    return changeVersionService.changesSince(
+        UCSBDiningCommonsMenuItemRepository, UCSBDiningCommonsMenuItem.class, since);
   }
 
   /**
@@ -71,15 +168,53 @@ public class UCSBDiningCommonsMenuItemController extends ApiController {
     return savedUCSBDiningCommonsMenuItem;
   }
 
+  /**
+   * Create many menu items at once
+   *
+   * <p>Any ids in the request are ignored; new ids are assigned.
+   *
+   * @param incoming the menu items to create
+   * @return the saved menu items
+   */
+  @Operation(summary = "Create many menu items at once")
+  @PreAuthorize("hasRole('ROLE_ADMIN')")
+  @PostMapping("/bulk")
+  public Iterable<UCSBDiningCommonsMenuItem> postUCSBDiningCommonsMenuItemsInBulk(
+      @RequestBody List<UCSBDiningCommonsMenuItem> incoming) {
+    incoming.forEach(menuItem -> menuItem.setId(null));
+    return bulkSaveService.createAll(UCSBDiningCommonsMenuItemRepository, incoming);
+  }
+
+  /**
+   * Update many menu items at once
+   *
+   * @param incoming the new versions of the menu items, identified by their ids
+   * @return the updated menu items
+   */
+  @Operation(summary = "Update many menu items at once")
+  @PreAuthorize("hasRole('ROLE_ADMIN')")
+  @PutMapping("/bulk")
+  public Iterable<UCSBDiningCommonsMenuItem> updateUCSBDiningCommonsMenuItemsInBulk(
+      @RequestBody List<UCSBDiningCommonsMenuItem> incoming) {
+    return bulkSaveService.updateAll(
+        UCSBDiningCommonsMenuItemRepository,
+        UCSBDiningCommonsMenuItem.class,
+        UCSBDiningCommonsMenuItem::getId,
+        incoming);
+  }
+
   @Operation(summary = "Get a single item by id")
   @PreAuthorize("hasRole('ROLE_USER')")
   @GetMapping("")
-  public UCSBDiningCommonsMenuItem getById(@Parameter(name = "id") @RequestParam Long id) {
-    UCSBDiningCommonsMenuItem menuItem =
-        UCSBDiningCommonsMenuItemRepository.findById(id)
-            .orElseThrow(() -> new EntityNotFoundException(UCSBDiningCommonsMenuItem.class, id));
-
-    return menuItem;
+  public UCSBDiningCommonsMenuItem getById(
+      @Parameter(name = "id") @RequestParam Long id, WebRequest request) {
+    return unlessNotModified(
+        request,
+        UCSBDiningCommonsMenuItem.class,
+        () ->
+            UCSBDiningCommonsMenuItemRepository.findById(id)
+                .orElseThrow(
+                    () -> new EntityNotFoundException(UCSBDiningCommonsMenuItem.class, id)));
   }
 
   @Operation(summary = "Update a single item")
@@ -2,13 +2,21 @@ package edu.ucsb.cs156.example.controllers;
 
 import edu.ucsb.cs156.example.entities.UCSBOrganization;
 import edu.ucsb.cs156.example.errors.EntityNotFoundException;
+import edu.ucsb.cs156.example.models.Changes;
+import edu.ucsb.cs156.example.models.CursorPage;
 import edu.ucsb.cs156.example.repositories.UCSBOrganizationRepository;
+import edu.ucsb.cs156.example.services.BulkSaveService;
+import edu.ucsb.cs156.example.services.ChangeVersionService;
 import io.swagger.v3.oas.annotations.Operation;
 import io.swagger.v3.oas.annotations.Parameter;
 import io.swagger.v3.oas.annotations.tags.Tag;
 import jakarta.validation.Valid;
+import java.util.List;
+import java.util.Set;
 import lombok.extern.slf4j.Slf4j;
 import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.data.domain.Sort;
+import org.springframework.data.web.PagedModel;
 import org.springframework.security.access.prepost.PreAuthorize;
 import org.springframework.web.bind.annotation.DeleteMapping;
 import org.springframework.web.bind.annotation.GetMapping;
@@ -18,6 +26,7 @@ import org.springframework.web.bind.annotation.RequestBody;
 import org.springframework.web.bind.annotation.RequestMapping;
 import org.springframework.web.bind.annotation.RequestParam;
 import org.springframework.web.bind.annotation.RestController;
+import org.springframework.web.context.request.WebRequest;
 
 @Tag(name = "UCSBOrganization")
 @RequestMapping("/api/ucsborganization")
@@ -27,35 +36,126 @@ public class UCSBOrganizationController extends ApiController {
 
   @Autowired UCSBOrganizationRepository ucsbOrganizationRepository;
 
+  @Autowired BulkSaveService bulkSaveService;
+
+  @Autowired ChangeVersionService changeVersionService;
+
+  // sort parameter values accepted by /page
+  private static final Set<String> SORT_PROPERTIES =
+      Set.of("orgCode", "orgTranslationShort", "orgTranslation", "inactive");
+
   /**
    * This method returns a list of all ucsborganizations.
    *
+   * @param request the request, whose If-None-Match header is checked
    * @return a list of all ucsborganizations
    */
   @Operation(summary = "List all ucsb organizations")
   @PreAuthorize("hasRole('ROLE_USER')")
   @GetMapping("/all")
-  public Iterable<UCSBOrganization> allOrganizations() {
-    Iterable<UCSBOrganization> organizations = ucsbOrganizationRepository.findAll();
-    return organizations;
+  public Iterable<UCSBOrganization> allOrganizations(WebRequest request) {
+    return unlessNotModified(
+        request, UCSBOrganization.class, () -> ucsbOrganizationRepository.findAll());
+  }
+
+  /**
+   * This method returns one page of ucsb organizations.
+   *
+   * @param page page number, starting from 0
+   * @param size ucsb organizations per page
+   * @param sort property to sort by
+   * @param direction sort direction
+   * @return a page of ucsb organizations
+   */
+  @Operation(summary = "List one page of ucsb organizations")
+  @PreAuthorize("hasRole('ROLE_USER')")
+  @GetMapping("/page")
+  public PagedModel<UCSBOrganization> pageOfOrganizations(
+      @Parameter(name = "page", description = "page number, starting from 0")
+          @RequestParam(defaultValue = "0")
+          int page,
+      @Parameter(name = "size", description = "ucsb organizations per page (at most 100)")
+          @RequestParam(defaultValue = "20")
+          int size,
+      @Parameter(
+              name = "sort",
+              description = "one of orgCode, orgTranslationShort, orgTranslation, inactive")
+          @RequestParam(defaultValue = "orgCode")
+          String sort,
+      @Parameter(name = "direction", description = "ASC or DESC")
+          @RequestParam(defaultValue = "ASC")
+          Sort.Direction direction) {
+    return pageOf(
+        ucsbOrganizationRepository, "orgCode", SORT_PROPERTIES, page, size, sort, direction);
+  }
+
+  /**
+   * This method returns the ucsb organizations after a cursor, in orgCode order.
+   *
+   * @param after orgCode of the last organization already seen
+   * @param size most ucsb organizations to return
+   * @param direction sort direction
+   * @return the ucsb organizations, and the cursor for the next batch
+   */
+  @Operation(summary = "List the ucsb organizations after a cursor")
+  @PreAuthorize("hasRole('ROLE_USER')")
+  @GetMapping("/cursor")
+  public CursorPage<UCSBOrganization> organizationsAfter(
+      @Parameter(
+              name = "after",
+              description =
+                  "orgCode of the last organization already seen (leave out to start from the beginning)")
+          @RequestParam(required = false)
+          String after,
+      @Parameter(name = "size", description = "most ucsb organizations to return (at most 100)")
+          @RequestParam(defaultValue = "20")
+          int size,
+      @Parameter(name = "direction", description = "ASC or DESC")
+          @RequestParam(defaultValue = "ASC")
+          Sort.Direction direction) {
+    return pageAfter(ucsbOrganizationRepository, "orgCode", after, size, direction);
+  }
+
+  /**
+   * This method returns the ucsb organizations changed since a version.
+   *
+   * @param since the version returned by the previous call
+   * @return the ucsb organizations created or updated since then, the ids of those deleted, and the
+   *     new version
+   */
+  @Operation(summary = "List the ucsb organizations changed since a version")
+  @PreAuthorize("hasRole('ROLE_USER')")
+  @GetMapping("/changes")
+  public Changes<UCSBOrganization> organizationChanges(
+      @Parameter(
+              name = "since",
+              description =
+                  "version returned by the previous call (leave out to get all ucsb organizations)")
+          @RequestParam(defaultValue = "0")
+          long since) {
+    return changeVersionService.changesSince(
+        ucsbOrganizationRepository, UCSBOrganization.class, since);
   }
 
   /**
    * This method returns a single organization.
    *
    * @param orgCode code of the organization
+   * @param request the request, whose If-None-Match header is checked
    * @return a single organization
    */
   @Operation(summary = "Get a single organization")
   @PreAuthorize("hasRole('ROLE_USER')")
   @GetMapping("")
-  public UCSBOrganization getById(@Parameter(name = "orgCode") @RequestParam String orgCode) {
-    UCSBOrganization organization =
-        ucsbOrganizationRepository
-            .findById(orgCode)
-            .orElseThrow(() -> new EntityNotFoundException(UCSBOrganization.class, orgCode));
-
-    return organization;
+  public UCSBOrganization getById(
+      @Parameter(name = "orgCode") @RequestParam String orgCode, WebRequest request) {
+    return unlessNotModified(
+        request,
+        UCSBOrganization.class,
+        () ->
+            ucsbOrganizationRepository
+                .findUncachedByOrgCode(orgCode)
+                .orElseThrow(() -> new EntityNotFoundException(UCSBOrganization.class, orgCode)));
   }
 
   @Operation(summary = "Create a new organization")
@@ -78,6 +178,36 @@ public class UCSBOrganizationController extends ApiController {
     return savedOrganization;
   }
 
+  /**
+   * Create many ucsb organizations at once
+   *
+   * @param incoming the ucsb organizations to create
+   * @return the saved ucsb organizations
+   */
+  @Operation(summary = "Create many ucsb organizations at once")
+  @PreAuthorize("hasRole('ROLE_ADMIN')")
+  @PostMapping("/bulk")
+  public Iterable<UCSBOrganization> postOrganizationsInBulk(
+      @RequestBody List<UCSBOrganization> incoming) {
+    return bulkSaveService.createAllWithAssignedIds(
+        ucsbOrganizationRepository, UCSBOrganization.class, UCSBOrganization::getOrgCode, incoming);
+  }
+
+  /**
+   * Update many ucsb organizations at once
+   *
+   * @param incoming the new versions of the ucsb organizations, identified by their ids
+   * @return the updated ucsb organizations
+   */
+  @Operation(summary = "Update many ucsb organizations at once")
+  @PreAuthorize("hasRole('ROLE_ADMIN')")
+  @PutMapping("/bulk")
+  public Iterable<UCSBOrganization> updateOrganizationsInBulk(
+      @RequestBody List<UCSBOrganization> incoming) {
+    return bulkSaveService.updateAll(
+        ucsbOrganizationRepository, UCSBOrganization.class, UCSBOrganization::getOrgCode, incoming);
+  }
+
   /**
    * Delete a organization. Accessible only to users with the role "ROLE_ADMIN".
    *
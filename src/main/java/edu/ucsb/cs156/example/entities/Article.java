@@ -1,13 +1,18 @@
 package edu.ucsb.cs156.example.entities;
 
+import com.fasterxml.jackson.annotation.JsonIgnore;
+import edu.ucsb.cs156.example.services.TableChangeListener;
 import jakarta.persistence.Entity;
+import jakarta.persistence.EntityListeners;
 import jakarta.persistence.GeneratedValue;
 import jakarta.persistence.GenerationType;
 import jakarta.persistence.Id;
+import jakarta.persistence.SequenceGenerator;
 import java.time.LocalDateTime;
 import lombok.AllArgsConstructor;
 import lombok.Builder;
 import lombok.Data;
+import lombok.EqualsAndHashCode;
 import lombok.NoArgsConstructor;
 
 /** This is a JPA entity that represents an Article. */
@@ -16,9 +21,11 @@ import lombok.NoArgsConstructor;
 @NoArgsConstructor
 @Builder
 @Entity(name = "articles")
-public class Article {
+@EntityListeners(TableChangeListener.class)
+public class Article implements ChangeVersioned {
   @Id
-  @GeneratedValue(strategy = GenerationType.IDENTITY)
+  @GeneratedValue(strategy = GenerationType.SEQUENCE, generator = "articles_seq")
+  @SequenceGenerator(name = "articles_seq", sequenceName = "ARTICLES_SEQ", allocationSize = 50)
   private long id;
 
   private String title;
@@ -26,4 +33,7 @@ public class Article {
   private String explanation;
   private String email;
   private LocalDateTime dateAdded;
+
+  // version of the change that last inserted or updated this row, for GET /changes
+  @JsonIgnore @EqualsAndHashCode.Exclude private long changeVersion;
 }
@@ -0,0 +1,12 @@
+package edu.ucsb.cs156.example.entities;
+
+/**
+ * This is an entity whose rows record the version of the change that last inserted or updated them
+ * (see ChangeVersionService), so that a client can ask for just the rows changed since a version it
+ * has already seen.
+ */
+public interface ChangeVersioned {
+  long getChangeVersion();
+
+  void setChangeVersion(long changeVersion);
+}
@@ -1,13 +1,18 @@
 package edu.ucsb.cs156.example.entities;
 
+import com.fasterxml.jackson.annotation.JsonIgnore;
+import edu.ucsb.cs156.example.services.TableChangeListener;
 import jakarta.persistence.Entity;
+import jakarta.persistence.EntityListeners;
 import jakarta.persistence.GeneratedValue;
 import jakarta.persistence.GenerationType;
 import jakarta.persistence.Id;
+import jakarta.persistence.SequenceGenerator;
 import java.time.LocalDateTime;
 import lombok.AllArgsConstructor;
 import lombok.Builder;
 import lombok.Data;
+import lombok.EqualsAndHashCode;
 import lombok.NoArgsConstructor;
 
 /** This is a JPA entity that represents a user. */
@@ -16,9 +21,14 @@ import lombok.NoArgsConstructor;
 @NoArgsConstructor
 @Builder
 @Entity(name = "helprequests")
-public class HelpRequest {
+@EntityListeners(TableChangeListener.class)
+public class HelpRequest implements ChangeVersioned {
   @Id
-  @GeneratedValue(strategy = GenerationType.IDENTITY)
+  @GeneratedValue(strategy = GenerationType.SEQUENCE, generator = "helprequests_seq")
+  @SequenceGenerator(
+      name = "helprequests_seq",
+      sequenceName = "HELPREQUESTS_SEQ",
+      allocationSize = 50)
   private long id;
 
   private String requesterEmail;
@@ -27,4 +37,7 @@ public class HelpRequest {
   private LocalDateTime requestTime;
   private String explanation;
   private boolean solved;
+
+  // version of the change that last inserted or updated this row, for GET /changes
+  @JsonIgnore @EqualsAndHashCode.Exclude private long changeVersion;
 }
@@ -0,0 +1,43 @@
+package edu.ucsb.cs156.example.entities;
+
+import jakarta.persistence.Column;
+import jakarta.persistence.Entity;
+import jakarta.persistence.GeneratedValue;
+import jakarta.persistence.GenerationType;
+import jakarta.persistence.Id;
+import jakarta.persistence.SequenceGenerator;
+import java.time.ZonedDateTime;
+import lombok.AccessLevel;
+import lombok.AllArgsConstructor;
+import lombok.Builder;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+/**
+ * This is a JPA entity that represents one piece of a file uploaded to be imported by an ImportJob.
+ * The file is kept in the database, split into pieces, so that the job can read it on whichever app
+ * instance it runs, however large it is.
+ */
+@Data
+@AllArgsConstructor
+@NoArgsConstructor(access = AccessLevel.PROTECTED)
+@Builder
+@Entity(name = "import_upload_chunks")
+public class ImportUploadChunk {
+  @Id
+  @GeneratedValue(strategy = GenerationType.SEQUENCE, generator = "import_upload_chunks_seq")
+  @SequenceGenerator(
+      name = "import_upload_chunks_seq",
+      sequenceName = "IMPORT_UPLOAD_CHUNKS_SEQ",
+      allocationSize = 50)
+  private long id;
+
+  private String uploadId;
+
+  private int chunkNumber; // from 0, in the order the pieces make up the file
+
+  @Column(length = 1048576)
+  private byte[] data;
+
+  private ZonedDateTime createdAt;
+}
@@ -16,7 +16,8 @@ import org.springframework.data.jpa.domain.support.AuditingEntityListener;
 @EntityListeners(AuditingEntityListener.class)
 public class Job {
   @Id
-  @GeneratedValue(strategy = GenerationType.IDENTITY)
+  @GeneratedValue(strategy = GenerationType.SEQUENCE, generator = "jobs_seq")
+  @SequenceGenerator(name = "jobs_seq", sequenceName = "JOBS_SEQ", allocationSize = 50)
   private long id;
 
   @JsonIgnore
@@ -29,6 +30,31 @@ public class Job {
 
   private String status;
 
+  private Integer progress; // percent complete, if the job reports it
+
+  // what to run: the class of the JobContextConsumer, and its fields as JSON
+  private String type;
+
+  @JsonIgnore
+  @Column(columnDefinition = "TEXT", length = 1048576)
+  private String payload;
+
+  private Long timeoutSeconds; // null if the job has no time limit
+
+  // a running job is leased to one app instance, which renews the lease while the job runs;
+  // jobs whose lease runs out (e.g. because the instance stopped) are queued again
+  private int attempts;
+  private String leaseOwner;
+  private ZonedDateTime leaseExpiresAt;
+
+  // set when a job running on another app instance is cancelled; the instance running it checks
+  // for this each time it renews its leases, and stops the job
+  @JsonIgnore private boolean cancelRequested;
+
+  // how far the job had got, saved by JobContext.checkpoint so that a job queued again after its
+  // instance stopped can carry on from there; null until the job saves one
+  @JsonIgnore private Long checkpoint;
+
   // 1048576 is 2^20, which is the max size of a mediumtext in MySQL
   @Column(
       columnDefinition = "TEXT",
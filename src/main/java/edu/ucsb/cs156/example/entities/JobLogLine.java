@@ -0,0 +1,41 @@
+package edu.ucsb.cs156.example.entities;
+
+import jakarta.persistence.Column;
+import jakarta.persistence.Entity;
+import jakarta.persistence.GeneratedValue;
+import jakarta.persistence.GenerationType;
+import jakarta.persistence.Id;
+import lombok.AccessLevel;
+import lombok.AllArgsConstructor;
+import lombok.Builder;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+/**
+ * This is a JPA entity that represents a single line written to the log of a Job.
+ *
+ * <p>Log lines are only ever inserted, never updated, so that writing to a job log costs one small
+ * insert per line rather than rewriting the whole log each time. Their ids increase in the order
+ * the lines were written, which is the order the log is read back in.
+ */
+@Data
+@AllArgsConstructor
+@NoArgsConstructor(access = AccessLevel.PROTECTED)
+@Builder
+@Entity(name = "job_log_lines")
+public class JobLogLine {
+  // the one id that is an IDENTITY column rather than a pooled sequence, whose blocks of ids are
+  // not
+  // increasing across app instances: log tails resume after the id of the last line they sent, and
+  // a rerun of the job on another instance must not write lines with lower ids than the earlier
+  // attempt. Hibernate cannot batch IDENTITY inserts, so JobContext writes the lines with
+  // JobLogLinesRepository.insertAll, a plain JDBC batch, rather than saveAll
+  @Id
+  @GeneratedValue(strategy = GenerationType.IDENTITY)
+  private long id;
+
+  private long jobId;
+
+  @Column(columnDefinition = "TEXT", length = 1048576)
+  private String line;
+}
@@ -0,0 +1,43 @@
+package edu.ucsb.cs156.example.entities;
+
+import jakarta.persistence.Entity;
+import jakarta.persistence.Id;
+import lombok.AllArgsConstructor;
+import lombok.Builder;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+/**
+ * This is a JPA entity that represents the ratings given to one menu item: how many reviews it has,
+ * their total stars, and how many of them gave each number of stars. It is kept up to date by
+ * MenuItemRatingListener as reviews are saved and deleted, so it never has to be computed from the
+ * reviews themselves.
+ */
+@Data
+@AllArgsConstructor
+@NoArgsConstructor
+@Builder
+@Entity(name = "menuitemrating")
+public class MenuItemRating {
+  @Id private long itemId;
+
+  private long reviewCount;
+  private long starSum;
+
+  // number of reviews giving 0 to 5 stars
+  private long stars0;
+  private long stars1;
+  private long stars2;
+  private long stars3;
+  private long stars4;
+  private long stars5;
+
+  /**
+   * Returns the average number of stars given to the menu item.
+   *
+   * @return the average, or 0 if it has no reviews
+   */
+  public double getAverageStars() {
+    return reviewCount == 0 ? 0 : (double) starSum / reviewCount;
+  }
+}
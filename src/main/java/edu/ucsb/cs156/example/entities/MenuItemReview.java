@@ -1,13 +1,19 @@
 package edu.ucsb.cs156.example.entities;
 
+import com.fasterxml.jackson.annotation.JsonIgnore;
+import edu.ucsb.cs156.example.services.MenuItemRatingListener;
+import edu.ucsb.cs156.example.services.TableChangeListener;
 import jakarta.persistence.Entity;
+import jakarta.persistence.EntityListeners;
 import jakarta.persistence.GeneratedValue;
 import jakarta.persistence.GenerationType;
 import jakarta.persistence.Id;
+import jakarta.persistence.SequenceGenerator;
 import java.time.LocalDateTime;
 import lombok.AllArgsConstructor;
 import lombok.Builder;
 import lombok.Data;
+import lombok.EqualsAndHashCode;
 import lombok.NoArgsConstructor;
 
 /** This is a JPA entity that represents a Menu Item Reviews */
@@ -16,9 +22,14 @@ import lombok.NoArgsConstructor;
 @NoArgsConstructor
 @Builder
 @Entity(name = "menuitemreview")
-public class MenuItemReview {
+@EntityListeners({TableChangeListener.class, MenuItemRatingListener.class})
+public class MenuItemReview implements ChangeVersioned {
   @Id
-  @GeneratedValue(strategy = GenerationType.IDENTITY)
+  @GeneratedValue(strategy = GenerationType.SEQUENCE, generator = "menuitemreview_seq")
+  @SequenceGenerator(
+      name = "menuitemreview_seq",
+      sequenceName = "MENUITEMREVIEW_SEQ",
+      allocationSize = 50)
   private long id;
 
   private long itemId; // matches database column ITEM_ID
@@ -26,4 +37,7 @@ public class MenuItemReview {
   private int stars;
   private LocalDateTime dateReviewed;
   private String comments;
+
+  // version of the change that last inserted or updated this row, for GET /changes
+  @JsonIgnore @EqualsAndHashCode.Exclude private long changeVersion;
 }
@@ -0,0 +1,16 @@
+package edu.ucsb.cs156.example.errors;
+
+/**
+ * This is an exception that a job can throw (usually via JobContext.checkCancelled()) to stop
+ * running once it has been cancelled or has run past its time limit.
+ */
+public class JobCancelledException extends RuntimeException {
+  /**
+   * Constructor for the exception
+   *
+   * @param message why the job was stopped
+   */
+  public JobCancelledException(String message) {
+    super(message);
+  }
+}
@@ -0,0 +1,42 @@
+package edu.ucsb.cs156.example.jobs;
+
+import com.fasterxml.jackson.annotation.JsonIgnore;
+import edu.ucsb.cs156.example.services.EntityImportService;
+import edu.ucsb.cs156.example.services.ImportUploadService;
+import edu.ucsb.cs156.example.services.jobs.JobContext;
+import edu.ucsb.cs156.example.services.jobs.JobContextConsumer;
+import java.io.InputStream;
+import lombok.Builder;
+import lombok.Getter;
+import lombok.extern.jackson.Jacksonized;
+import org.springframework.beans.factory.annotation.Autowired;
+
+/**
+ * A job that imports an uploaded CSV or NDJSON file as new entities of one kind.
+ *
+ * <p>The file is kept by ImportUploadService until the job has run, and only its upload id is
+ * stored with the job.
+ */
+@Builder
+@Getter
+@Jacksonized
+public class ImportJob implements JobContextConsumer {
+
+  private String entity;
+  private String format;
+  private String uploadId;
+  private long size; // of the file, in bytes
+
+  @JsonIgnore @Autowired private EntityImportService entityImportService;
+
+  @JsonIgnore @Autowired private ImportUploadService importUploadService;
+
+  @Override
+  public void accept(JobContext ctx) throws Exception {
+    try (InputStream file = importUploadService.open(uploadId)) {
+      entityImportService.importRows(ctx, entity, format, file, size);
+    } finally {
+      importUploadService.delete(uploadId);
+    }
+  }
+}
@@ -0,0 +1,23 @@
+package edu.ucsb.cs156.example.models;
+
+import java.util.List;
+import lombok.AllArgsConstructor;
+import lombok.Data;
+
+/**
+ * This is a model class that represents the changes made to a table since a version a client has
+ * already seen.
+ *
+ * <p>To apply them, remove the deleted entities and then add or replace the changed ones (an entity
+ * may have been deleted and created again). To get the next changes, pass version as the version
+ * already seen.
+ *
+ * @param <T> the entity type
+ */
+@Data
+@AllArgsConstructor
+public class Changes<T> {
+  private long version; // the version of the table these changes bring the client up to
+  private List<T> changed; // entities inserted or updated, in the order they were changed
+  private List<String> deleted; // ids of the entities deleted
+}
@@ -0,0 +1,19 @@
+package edu.ucsb.cs156.example.models;
+
+import java.util.List;
+import lombok.AllArgsConstructor;
+import lombok.Data;
+
+/**
+ * This is a model class that represents one batch of entities read with a keyset cursor.
+ *
+ * <p>To get the next batch, pass next as the cursor; next is null once there are no more entities.
+ *
+ * @param <T> the entity type
+ */
+@Data
+@AllArgsConstructor
+public class CursorPage<T> {
+  private List<T> content;
+  private Object next; // id of the last entity in content, if there are more entities
+}
@@ -0,0 +1,22 @@
+package edu.ucsb.cs156.example.models;
+
+import lombok.AccessLevel;
+import lombok.AllArgsConstructor;
+import lombok.Builder;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+/**
+ * This is a model class that represents how busy the job executor of this app instance currently
+ * is, and how many jobs are waiting to be claimed by any instance.
+ */
+@Data
+@AllArgsConstructor
+@NoArgsConstructor(access = AccessLevel.PROTECTED)
+@Builder
+public class JobExecutorStatus {
+  private int corePoolSize; // jobs that can run at once on this instance
+  private int poolSize; // threads currently in the pool
+  private int activeCount; // jobs currently running on this instance
+  private long queueSize; // queued jobs in the jobs table
+}
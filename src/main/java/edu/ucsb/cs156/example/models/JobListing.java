@@ -0,0 +1,33 @@
+package edu.ucsb.cs156.example.models;
+
+import java.time.ZonedDateTime;
+
+/**
+ * This is a projection of a Job that leaves out its payload, used by /api/jobs/all so that the job
+ * functions stored with the jobs (e.g. the whole file of an import) are neither read nor sent.
+ *
+ * @see edu.ucsb.cs156.example.repositories.JobsRepository#streamAll
+ */
+public interface JobListing {
+  Long getId();
+
+  ZonedDateTime getCreatedAt();
+
+  ZonedDateTime getUpdatedAt();
+
+  String getStatus();
+
+  Integer getProgress();
+
+  String getType();
+
+  Long getTimeoutSeconds();
+
+  Integer getAttempts();
+
+  String getLeaseOwner();
+
+  ZonedDateTime getLeaseExpiresAt();
+
+  String getLog();
+}
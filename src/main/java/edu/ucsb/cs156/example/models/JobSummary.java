@@ -0,0 +1,22 @@
+package edu.ucsb.cs156.example.models;
+
+import java.time.ZonedDateTime;
+
+/**
+ * This is a projection of a Job that leaves out its log, used when listing many jobs at once.
+ *
+ * @see edu.ucsb.cs156.example.repositories.JobsRepository#findSummaries
+ */
+public interface JobSummary {
+  Long getId();
+
+  Long getCreatedById();
+
+  ZonedDateTime getCreatedAt();
+
+  ZonedDateTime getUpdatedAt();
+
+  String getStatus();
+
+  Integer getProgress();
+}
@@ -0,0 +1,14 @@
+package edu.ucsb.cs156.example.models;
+
+import edu.ucsb.cs156.example.entities.MenuItemRating;
+import edu.ucsb.cs156.example.entities.UCSBDiningCommonsMenuItem;
+import lombok.AllArgsConstructor;
+import lombok.Data;
+
+/** This is a model class that represents a menu item together with its rating. */
+@Data
+@AllArgsConstructor
+public class RatedMenuItem {
+  private UCSBDiningCommonsMenuItem item;
+  private MenuItemRating rating;
+}
@@ -0,0 +1,26 @@
+package edu.ucsb.cs156.example.repositories;
+
+import edu.ucsb.cs156.example.entities.ChangeVersioned;
+import java.util.List;
+import org.springframework.data.repository.NoRepositoryBean;
+import org.springframework.data.repository.Repository;
+
+/**
+ * The ChangeVersionedRepository is the base of repositories whose entities record the version of
+ * the change that last inserted or updated them.
+ *
+ * @param <T> the entity type
+ * @param <ID> the type of the entity's id
+ */
+@NoRepositoryBean
+public interface ChangeVersionedRepository<T extends ChangeVersioned, ID>
+    extends Repository<T, ID> {
+  /**
+   * This method returns the entities changed after a version, in the order they were changed. It is
+   * a range scan of the index on the change version, so it reads only the rows that changed.
+   *
+   * @param version the version already seen
+   * @return the entities changed since
+   */
+  List<T> findByChangeVersionGreaterThanOrderByChangeVersion(long version);
+}
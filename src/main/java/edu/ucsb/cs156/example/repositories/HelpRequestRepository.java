@@ -1,8 +1,23 @@
 package edu.ucsb.cs156.example.repositories;
 
 import edu.ucsb.cs156.example.entities.HelpRequest;
-import org.springframework.data.repository.CrudRepository;
+import jakarta.persistence.QueryHint;
+import java.util.stream.Stream;
+import org.springframework.data.jpa.repository.Query;
+import org.springframework.data.jpa.repository.QueryHints;
 import org.springframework.stereotype.Repository;
 
 @Repository
-public interface HelpRequestRepository extends CrudRepository<HelpRequest, Long> {}
+public interface HelpRequestRepository
+    extends PagedRepository<HelpRequest, Long>, ChangeVersionedRepository<HelpRequest, Long> {
+  /**
+   * This method returns every help request, in id order, read through a database cursor a batch of
+   * rows at a time rather than loaded all at once. Must be called in a transaction, and the stream
+   * closed.
+   *
+   * @return stream of all help requests
+   */
+  @QueryHints(@QueryHint(name = "org.hibernate.fetchSize", value = "500"))
+  @Query("SELECT h FROM helprequests h ORDER BY h.id")
+  Stream<HelpRequest> streamAll();
+}
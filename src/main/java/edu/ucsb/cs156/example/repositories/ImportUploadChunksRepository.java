@@ -0,0 +1,47 @@
+package edu.ucsb.cs156.example.repositories;
+
+import edu.ucsb.cs156.example.entities.ImportUploadChunk;
+import java.time.ZonedDateTime;
+import java.util.Optional;
+import org.springframework.data.jpa.repository.Modifying;
+import org.springframework.data.jpa.repository.Query;
+import org.springframework.data.repository.CrudRepository;
+import org.springframework.data.repository.query.Param;
+import org.springframework.stereotype.Repository;
+import org.springframework.transaction.annotation.Transactional;
+
+/** The ImportUploadChunksRepository is a repository for ImportUploadChunk entities. */
+@Repository
+public interface ImportUploadChunksRepository extends CrudRepository<ImportUploadChunk, Long> {
+  /**
+   * This method returns one piece of an uploaded file.
+   *
+   * @param uploadId id of the upload
+   * @param chunkNumber number of the piece, from 0
+   * @return the piece, or empty if the file has fewer pieces
+   */
+  Optional<ImportUploadChunk> findByUploadIdAndChunkNumber(String uploadId, int chunkNumber);
+
+  /**
+   * This method deletes every piece of an uploaded file in a single statement.
+   *
+   * @param uploadId id of the upload
+   * @return number of pieces deleted
+   */
+  @Modifying
+  @Transactional
+  @Query("DELETE FROM import_upload_chunks c WHERE c.uploadId = :uploadId")
+  int deleteByUploadIdInBulk(@Param("uploadId") String uploadId);
+
+  /**
+   * This method deletes, in a single statement, the pieces of files uploaded before a cutoff, e.g.
+   * those of import jobs that were cancelled before they ran.
+   *
+   * @param cutoff pieces created before this time are deleted
+   * @return number of pieces deleted
+   */
+  @Modifying
+  @Transactional
+  @Query("DELETE FROM import_upload_chunks c WHERE c.createdAt < :cutoff")
+  int deleteCreatedBeforeInBulk(@Param("cutoff") ZonedDateTime cutoff);
+}
@@ -0,0 +1,19 @@
+package edu.ucsb.cs156.example.repositories;
+
+import edu.ucsb.cs156.example.entities.JobLogLine;
+import java.util.List;
+
+/**
+ * The JobLogLinesBatchRepository is a fragment of JobLogLinesRepository that writes log lines in a
+ * single JDBC batch. Their ids come from an IDENTITY column, which Hibernate has to read back one
+ * insert at a time, so CrudRepository.saveAll cannot batch them.
+ */
+public interface JobLogLinesBatchRepository {
+  /**
+   * This method inserts log lines in a single JDBC batch, in the order given, so that their ids
+   * increase in that order. The ids are not read back.
+   *
+   * @param lines the new log lines
+   */
+  void insertAll(List<JobLogLine> lines);
+}
@@ -0,0 +1,22 @@
+package edu.ucsb.cs156.example.repositories;
+
+import edu.ucsb.cs156.example.entities.JobLogLine;
+import java.util.List;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.jdbc.core.JdbcTemplate;
+
+/**
+ * The implementation of JobLogLinesBatchRepository, which Spring Data adds to
+ * JobLogLinesRepository.
+ */
+public class JobLogLinesBatchRepositoryImpl implements JobLogLinesBatchRepository {
+  static final String INSERT_SQL = "INSERT INTO JOB_LOG_LINES (JOB_ID, LINE) VALUES (?, ?)";
+
+  @Autowired private JdbcTemplate jdbcTemplate;
+
+  @Override
+  public void insertAll(List<JobLogLine> lines) {
+    jdbcTemplate.batchUpdate(
+        INSERT_SQL, lines.stream().map(l -> new Object[] {l.getJobId(), l.getLine()}).toList());
+  }
+}
@@ -0,0 +1,31 @@
+package edu.ucsb.cs156.example.repositories;
+
+import edu.ucsb.cs156.example.entities.JobLogLine;
+import java.util.List;
+import org.springframework.data.jpa.repository.Query;
+import org.springframework.data.repository.CrudRepository;
+import org.springframework.data.repository.query.Param;
+import org.springframework.stereotype.Repository;
+
+/** The JobLogLinesRepository is a repository for JobLogLine entities. */
+@Repository
+public interface JobLogLinesRepository
+    extends CrudRepository<JobLogLine, Long>, JobLogLinesBatchRepository {
+  /**
+   * This method returns the text of every log line for a job, in the order they were written.
+   *
+   * @param jobId id of the job
+   * @return the log lines of the job, oldest first
+   */
+  @Query("SELECT l.line FROM job_log_lines l WHERE l.jobId = :jobId ORDER BY l.id")
+  List<String> findLinesByJobId(@Param("jobId") long jobId);
+
+  /**
+   * This method returns the next batch of log lines for a job that were written after a given line.
+   *
+   * @param jobId id of the job
+   * @param id id of the last line already seen (0 to start from the beginning)
+   * @return up to 500 log lines of the job with ids greater than id, oldest first
+   */
+  List<JobLogLine> findTop500ByJobIdAndIdGreaterThanOrderByIdAsc(long jobId, long id);
+}
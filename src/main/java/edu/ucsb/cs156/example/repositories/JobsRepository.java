@@ -1,8 +1,293 @@
 package edu.ucsb.cs156.example.repositories;
 
 import edu.ucsb.cs156.example.entities.Job;
+import edu.ucsb.cs156.example.models.JobListing;
+import edu.ucsb.cs156.example.models.JobSummary;
+import jakarta.persistence.LockModeType;
+import jakarta.persistence.QueryHint;
+import java.time.ZonedDateTime;
+import java.util.Collection;
+import java.util.List;
+import java.util.Optional;
+import java.util.stream.Stream;
+import org.springframework.data.domain.Page;
+import org.springframework.data.domain.Pageable;
+import org.springframework.data.jpa.repository.Lock;
+import org.springframework.data.jpa.repository.Modifying;
+import org.springframework.data.jpa.repository.Query;
+import org.springframework.data.jpa.repository.QueryHints;
 import org.springframework.data.repository.CrudRepository;
+import org.springframework.data.repository.query.Param;
 import org.springframework.stereotype.Repository;
+import org.springframework.transaction.annotation.Transactional;
 
 @Repository
-public interface JobsRepository extends CrudRepository<Job, Long> {}
+public interface JobsRepository extends CrudRepository<Job, Long> {
+  /**
+   * This method returns the status of a job without loading the rest of the row.
+   *
+   * @param id id of the job
+   * @return Optional of the status (empty if there is no such job)
+   */
+  @Query("SELECT j.status FROM jobs j WHERE j.id = :id")
+  Optional<String> findStatusById(@Param("id") long id);
+
+  /**
+   * This method counts the jobs with a status, e.g. the queued jobs waiting to be claimed.
+   *
+   * @param status the status
+   * @return number of jobs with that status
+   */
+  long countByStatus(String status);
+
+  /**
+   * This method returns every job except its payload, in id order, read through a database cursor a
+   * batch of rows at a time rather than loaded all at once. Must be called in a transaction, and
+   * the stream closed.
+   *
+   * @return stream of all jobs
+   */
+  @QueryHints(@QueryHint(name = "org.hibernate.fetchSize", value = "100"))
+  @Query(
+      "SELECT j.id AS id, j.createdAt AS createdAt, j.updatedAt AS updatedAt, j.status AS status,"
+          + " j.progress AS progress, j.type AS type, j.timeoutSeconds AS timeoutSeconds,"
+          + " j.attempts AS attempts, j.leaseOwner AS leaseOwner,"
+          + " j.leaseExpiresAt AS leaseExpiresAt, j.log AS log"
+          + " FROM jobs j ORDER BY j.id")
+  Stream<JobListing> streamAll();
+
+  /** The columns of a {@link JobSummary}, selected from jobs j. */
+  String SUMMARY =
+      "SELECT j.id AS id, j.createdBy.id AS createdById, j.createdAt AS createdAt,"
+          + " j.updatedAt AS updatedAt, j.status AS status, j.progress AS progress"
+          + " FROM jobs j";
+
+  /**
+   * This method returns one page of jobs without loading their logs.
+   *
+   * @param pageable page number, page size and sort order
+   * @return a page of job summaries
+   */
+  @Query(value = SUMMARY, countQuery = "SELECT count(j) FROM jobs j")
+  Page<JobSummary> findSummaries(Pageable pageable);
+
+  /**
+   * This method returns one page of the jobs with a given status without loading their logs. Each
+   * filter combination has its own query, so that this one can use the index on (STATUS,
+   * CREATED_AT).
+   *
+   * @param status status of the jobs
+   * @param pageable page number, page size and sort order
+   * @return a page of job summaries
+   */
+  @Query(
+      value = SUMMARY + " WHERE j.status = :status",
+      countQuery = "SELECT count(j) FROM jobs j WHERE j.status = :status")
+  Page<JobSummary> findSummariesByStatus(@Param("status") String status, Pageable pageable);
+
+  /**
+   * This method returns one page of the jobs created by a user without loading their logs. It can
+   * use the index on (CREATED_BY_ID, CREATED_AT).
+   *
+   * @param createdById id of the user who created the jobs
+   * @param pageable page number, page size and sort order
+   * @return a page of job summaries
+   */
+  @Query(
+      value = SUMMARY + " WHERE j.createdBy.id = :createdById",
+      countQuery = "SELECT count(j) FROM jobs j WHERE j.createdBy.id = :createdById")
+  Page<JobSummary> findSummariesByCreatedById(
+      @Param("createdById") Long createdById, Pageable pageable);
+
+  /**
+   * This method returns one page of the jobs with a given status created by a user without loading
+   * their logs.
+   *
+   * @param status status of the jobs
+   * @param createdById id of the user who created the jobs
+   * @param pageable page number, page size and sort order
+   * @return a page of job summaries
+   */
+  @Query(
+      value = SUMMARY + " WHERE j.status = :status AND j.createdBy.id = :createdById",
+      countQuery =
+          "SELECT count(j) FROM jobs j WHERE j.status = :status AND j.createdBy.id = :createdById")
+  Page<JobSummary> findSummariesByStatusAndCreatedById(
+      @Param("status") String status, @Param("createdById") Long createdById, Pageable pageable);
+
+  /**
+   * This method returns the ids of jobs in one of the given statuses that were last updated before
+   * a cutoff.
+   *
+   * @param statuses statuses to look for, e.g. complete and error
+   * @param cutoff only jobs last updated before this time are returned
+   * @param pageable limits how many ids are returned
+   * @return ids of the matching jobs, lowest first
+   */
+  @Query(
+      "SELECT j.id FROM jobs j WHERE j.status IN :statuses AND j.updatedAt < :cutoff ORDER BY j.id")
+  List<Long> findIdsByStatusInAndUpdatedBefore(
+      @Param("statuses") Collection<String> statuses,
+      @Param("cutoff") ZonedDateTime cutoff,
+      Pageable pageable);
+
+  /**
+   * This method deletes the jobs with the given ids in a single statement. Their log lines are
+   * removed by the database, through the cascading foreign key on job_log_lines.
+   *
+   * @param ids ids of the jobs to delete
+   * @return number of jobs deleted
+   */
+  @Modifying
+  @Transactional
+  @Query("DELETE FROM jobs j WHERE j.id IN :ids")
+  int deleteByIdInBulk(@Param("ids") Collection<Long> ids);
+
+  /**
+   * This method deletes every job in a single statement, rather than loading and deleting each job
+   * one at a time as deleteAll() does. Log lines are removed by the cascading foreign key on
+   * job_log_lines.
+   *
+   * @return number of jobs deleted
+   */
+  @Modifying
+  @Transactional
+  @Query("DELETE FROM jobs j")
+  int deleteAllInBulk();
+
+  /**
+   * This method sets the progress of a job without writing the rest of the row.
+   *
+   * @param id id of the job
+   * @param progress percent complete
+   * @return number of jobs updated
+   */
+  @Modifying
+  @Transactional
+  @Query("UPDATE jobs j SET j.progress = :progress WHERE j.id = :id")
+  int updateProgress(@Param("id") long id, @Param("progress") int progress);
+
+  /**
+   * This method saves the checkpoint of a job without writing the rest of the row. It joins the
+   * caller's transaction, so the checkpoint is committed together with the work it records.
+   *
+   * @param id id of the job
+   * @param checkpoint how far the job has got
+   * @return number of jobs updated
+   */
+  @Modifying
+  @Transactional
+  @Query("UPDATE jobs j SET j.checkpoint = :checkpoint WHERE j.id = :id")
+  int updateCheckpoint(@Param("id") long id, @Param("checkpoint") long checkpoint);
+
+  /**
+   * This method locks and returns the oldest queued jobs. Rows already locked by another app
+   * instance are skipped (SELECT ... FOR UPDATE SKIP LOCKED), so instances claiming at the same
+   * time get different jobs. Must be called in a transaction.
+   *
+   * @param pageable how many jobs to return
+   * @return queued jobs, oldest first
+   */
+  @Lock(LockModeType.PESSIMISTIC_WRITE)
+  @QueryHints(@QueryHint(name = "jakarta.persistence.lock.timeout", value = "-2"))
+  @Query("SELECT j FROM jobs j WHERE j.status = 'queued' ORDER BY j.id")
+  List<Job> findQueuedForUpdate(Pageable pageable);
+
+  /**
+   * This method extends the leases that an app instance holds on the jobs it is running.
+   *
+   * @param ids ids of the jobs
+   * @param owner the app instance holding the leases
+   * @param leaseExpiresAt new expiry time of the leases
+   * @return number of leases renewed
+   */
+  @Modifying
+  @Transactional
+  @Query(
+      "UPDATE jobs j SET j.leaseExpiresAt = :leaseExpiresAt"
+          + " WHERE j.id IN :ids AND j.leaseOwner = :owner AND j.status = 'running'")
+  int renewLeases(
+      @Param("ids") Collection<Long> ids,
+      @Param("owner") String owner,
+      @Param("leaseExpiresAt") ZonedDateTime leaseExpiresAt);
+
+  /**
+   * This method returns which of the jobs an app instance is running have been cancelled through
+   * another instance.
+   *
+   * @param ids ids of the jobs
+   * @return ids of those jobs that have been asked to stop
+   */
+  @Query("SELECT j.id FROM jobs j WHERE j.id IN :ids AND j.cancelRequested = true")
+  List<Long> findCancelRequestedIds(@Param("ids") Collection<Long> ids);
+
+  /**
+   * This method marks as failed the running jobs whose lease has run out and that should not be
+   * tried again, either because they have used up their attempts or because they were started
+   * before jobs were queued and cannot be restarted.
+   *
+   * @param now the current time
+   * @param maxAttempts the number of times a job may be started
+   * @param owner the app instance calling this
+   * @param ownJobIds ids of the jobs that instance is still running, which are left alone
+   * @return number of jobs marked as failed
+   */
+  @Modifying
+  @Transactional
+  @Query(
+      "UPDATE jobs j SET j.status = 'error', j.leaseOwner = NULL, j.leaseExpiresAt = NULL,"
+          + " j.updatedAt = :now"
+          + " WHERE j.status = 'running' AND (j.leaseExpiresAt IS NULL OR j.leaseExpiresAt < :now)"
+          + " AND (j.attempts >= :maxAttempts OR j.type IS NULL)"
+          + " AND (j.leaseOwner IS NULL OR j.leaseOwner <> :owner OR j.id NOT IN :ownJobIds)")
+  int failExpiredLeases(
+      @Param("now") ZonedDateTime now,
+      @Param("maxAttempts") int maxAttempts,
+      @Param("owner") String owner,
+      @Param("ownJobIds") Collection<Long> ownJobIds);
+
+  /**
+   * This method queues again the running jobs whose lease has run out, so that another app instance
+   * can pick them up. Those that were cancelled before their instance stopped are marked as
+   * cancelled instead.
+   *
+   * @param now the current time
+   * @param owner the app instance calling this
+   * @param ownJobIds ids of the jobs that instance is still running, which are left alone
+   * @return number of jobs queued again
+   */
+  @Modifying
+  @Transactional
+  @Query(
+      "UPDATE jobs j SET j.status = CASE WHEN j.cancelRequested = true THEN 'cancelled'"
+          + " ELSE 'queued' END, j.leaseOwner = NULL, j.leaseExpiresAt = NULL"
+          + " WHERE j.status = 'running' AND (j.leaseExpiresAt IS NULL OR j.leaseExpiresAt < :now)"
+          + " AND (j.leaseOwner IS NULL OR j.leaseOwner <> :owner OR j.id NOT IN :ownJobIds)")
+  int requeueExpiredLeases(
+      @Param("now") ZonedDateTime now,
+      @Param("owner") String owner,
+      @Param("ownJobIds") Collection<Long> ownJobIds);
+
+  /**
+   * This method cancels a job that has not started yet.
+   *
+   * @param id id of the job
+   * @return number of jobs cancelled (0 if the job is not queued)
+   */
+  @Modifying
+  @Transactional
+  @Query("UPDATE jobs j SET j.status = 'cancelled' WHERE j.id = :id AND j.status = 'queued'")
+  int cancelIfQueued(@Param("id") long id);
+
+  /**
+   * This method asks the app instance running a job to stop it. That instance checks for the
+   * request when it next renews its leases.
+   *
+   * @param id id of the job
+   * @return number of jobs asked to stop (0 if the job is not running)
+   */
+  @Modifying
+  @Transactional
+  @Query("UPDATE jobs j SET j.cancelRequested = true WHERE j.id = :id AND j.status = 'running'")
+  int requestCancel(@Param("id") long id);
+}
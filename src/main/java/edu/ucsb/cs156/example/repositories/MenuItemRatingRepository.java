@@ -0,0 +1,29 @@
+package edu.ucsb.cs156.example.repositories;
+
+import edu.ucsb.cs156.example.entities.MenuItemRating;
+import edu.ucsb.cs156.example.models.RatedMenuItem;
+import java.util.List;
+import org.springframework.data.domain.Limit;
+import org.springframework.data.jpa.repository.Query;
+import org.springframework.data.repository.CrudRepository;
+import org.springframework.stereotype.Repository;
+
+/** The MenuItemRatingRepository is a repository for MenuItemRating entities */
+@Repository
+public interface MenuItemRatingRepository extends CrudRepository<MenuItemRating, Long> {
+  /**
+   * Finds the menu items of a dining commons with the highest average stars, joining each item to
+   * its rating by primary key. Ties go to the item with more reviews.
+   *
+   * @param diningCommonsCode code of the dining commons
+   * @param minReviews fewest reviews an item must have to be included
+   * @param limit most items to return
+   * @return the items and their ratings, best first
+   */
+  @Query(
+      "SELECT new edu.ucsb.cs156.example.models.RatedMenuItem(i, r)"
+          + " FROM ucsbdiningcommonsmenuitem i JOIN menuitemrating r ON r.itemId = i.id"
+          + " WHERE i.diningCommonsCode = :diningCommonsCode AND r.reviewCount >= :minReviews"
+          + " ORDER BY 1.0 * r.starSum / r.reviewCount DESC, r.reviewCount DESC, i.id")
+  List<RatedMenuItem> findTopRated(String diningCommonsCode, long minReviews, Limit limit);
+}
@@ -1,9 +1,81 @@
 package edu.ucsb.cs156.example.repositories;
 
 import edu.ucsb.cs156.example.entities.MenuItemReview;
-import org.springframework.data.repository.CrudRepository;
+import jakarta.persistence.QueryHint;
+import java.time.LocalDateTime;
+import java.util.stream.Stream;
+import org.springframework.data.domain.Page;
+import org.springframework.data.domain.Pageable;
+import org.springframework.data.jpa.repository.Query;
+import org.springframework.data.jpa.repository.QueryHints;
 import org.springframework.stereotype.Repository;
 
 /** The MenuItemReviewRepository is a repository for MenuItemReview entities. */
 @Repository
-public interface MenuItemReviewRepository extends CrudRepository<MenuItemReview, Long> {}
+public interface MenuItemReviewRepository
+    extends PagedRepository<MenuItemReview, Long>, ChangeVersionedRepository<MenuItemReview, Long> {
+  /**
+   * This method returns every menu item review, in id order, read through a database cursor a batch
+   * of rows at a time rather than loaded all at once. Must be called in a transaction, and the
+   * stream closed.
+   *
+   * @return stream of all menu item reviews
+   */
+  @QueryHints(@QueryHint(name = "org.hibernate.fetchSize", value = "500"))
+  @Query("SELECT r FROM menuitemreview r ORDER BY r.id")
+  Stream<MenuItemReview> streamAll();
+
+  /**
+   * This method returns one page of the reviews of a menu item made between two times. It is a
+   * range scan of the index on (ITEM_ID, DATE_REVIEWED, ID), so sort by dateReviewed and then id.
+   *
+   * @param itemId id of the menu item
+   * @param from earliest review time
+   * @param to latest review time
+   * @param pageable page number, page size and sort order
+   * @return a page of reviews
+   */
+  Page<MenuItemReview> findByItemIdAndDateReviewedBetween(
+      long itemId, LocalDateTime from, LocalDateTime to, Pageable pageable);
+
+  /**
+   * This method returns one page of the reviews of a menu item by one reviewer made between two
+   * times. It is a range scan of the index on (ITEM_ID, DATE_REVIEWED, ID) that filters on the
+   * reviewer, so sort by dateReviewed and then id.
+   *
+   * @param itemId id of the menu item
+   * @param reviewerEmail email of the reviewer
+   * @param from earliest review time
+   * @param to latest review time
+   * @param pageable page number, page size and sort order
+   * @return a page of reviews
+   */
+  Page<MenuItemReview> findByItemIdAndReviewerEmailAndDateReviewedBetween(
+      long itemId, String reviewerEmail, LocalDateTime from, LocalDateTime to, Pageable pageable);
+
+  /**
+   * This method returns one page of the reviews by one reviewer made between two times. It is a
+   * range scan of the index on (REVIEWER_EMAIL, DATE_REVIEWED, ID), so sort by dateReviewed and
+   * then id.
+   *
+   * @param reviewerEmail email of the reviewer
+   * @param from earliest review time
+   * @param to latest review time
+   * @param pageable page number, page size and sort order
+   * @return a page of reviews
+   */
+  Page<MenuItemReview> findByReviewerEmailAndDateReviewedBetween(
+      String reviewerEmail, LocalDateTime from, LocalDateTime to, Pageable pageable);
+
+  /**
+   * This method returns one page of the reviews made between two times. It is a range scan of the
+   * index on (DATE_REVIEWED, ID), so sort by dateReviewed and then id.
+   *
+   * @param from earliest review time
+   * @param to latest review time
+   * @param pageable page number, page size and sort order
+   * @return a page of reviews
+   */
+  Page<MenuItemReview> findByDateReviewedBetween(
+      LocalDateTime from, LocalDateTime to, Pageable pageable);
+}
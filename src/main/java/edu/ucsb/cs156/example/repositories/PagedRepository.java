@@ -0,0 +1,32 @@
+package edu.ucsb.cs156.example.repositories;
+
+import org.springframework.data.domain.Limit;
+import org.springframework.data.domain.ScrollPosition;
+import org.springframework.data.domain.Sort;
+import org.springframework.data.domain.Window;
+import org.springframework.data.repository.CrudRepository;
+import org.springframework.data.repository.NoRepositoryBean;
+import org.springframework.data.repository.PagingAndSortingRepository;
+
+/**
+ * The PagedRepository is the base of repositories whose entities are listed a page at a time,
+ * either by page number or by keyset cursor.
+ *
+ * @param <T> the entity type
+ * @param <ID> the type of the entity's id
+ */
+@NoRepositoryBean
+public interface PagedRepository<T, ID>
+    extends CrudRepository<T, ID>, PagingAndSortingRepository<T, ID> {
+  /**
+   * This method returns the entities that come after a keyset position. Unlike a page number, a
+   * keyset position is turned into a WHERE clause on the sort keys, so reading far into a large
+   * table costs no more than reading its first page.
+   *
+   * @param position the keys of the last entity already seen (or an initial position)
+   * @param sort sort order, which must match the keys in the position
+   * @param limit maximum number of entities to return
+   * @return the next entities, and whether there are more
+   */
+  Window<T> findAllBy(ScrollPosition position, Sort sort, Limit limit);
+}
@@ -0,0 +1,22 @@
+package edu.ucsb.cs156.example.repositories;
+
+import java.util.List;
+
+/**
+ * The PersistingRepository is a fragment of repositories whose entities have an assigned id, such
+ * as a code. CrudRepository.saveAll merges such entities, which selects each one by its id before
+ * inserting it and overwrites one that already exists; persistAll only inserts them.
+ *
+ * @param <T> the entity type
+ */
+public interface PersistingRepository<T> {
+  /**
+   * This method inserts new entities, leaving Hibernate free to send the inserts in JDBC batches.
+   * The transaction fails if any of their ids is already taken.
+   *
+   * @param entities the new entities
+   * @param <S> the type of the entities
+   * @return the inserted entities
+   */
+  <S extends T> List<S> persistAll(Iterable<S> entities);
+}
@@ -0,0 +1,28 @@
+package edu.ucsb.cs156.example.repositories;
+
+import jakarta.persistence.EntityManager;
+import jakarta.persistence.PersistenceContext;
+import java.util.ArrayList;
+import java.util.List;
+import org.springframework.transaction.annotation.Transactional;
+
+/**
+ * The implementation of PersistingRepository, which Spring Data adds to the repositories that
+ * extend it.
+ *
+ * @param <T> the entity type
+ */
+public class PersistingRepositoryImpl<T> implements PersistingRepository<T> {
+  @PersistenceContext private EntityManager entityManager;
+
+  @Override
+  @Transactional
+  public <S extends T> List<S> persistAll(Iterable<S> entities) {
+    List<S> persisted = new ArrayList<>();
+    for (S entity : entities) {
+      entityManager.persist(entity);
+      persisted.add(entity);
+    }
+    return persisted;
+  }
+}
@@ -1,10 +1,25 @@
 package edu.ucsb.cs156.example.repositories;
 
 import edu.ucsb.cs156.example.entities.RecommendationRequest;
-import org.springframework.data.repository.CrudRepository;
+import jakarta.persistence.QueryHint;
+import java.util.stream.Stream;
+import org.springframework.data.jpa.repository.Query;
+import org.springframework.data.jpa.repository.QueryHints;
 import org.springframework.stereotype.Repository;
 
 /** The RecommendationRequestRepository is a repository for RecommendationRequest entities. */
 @Repository
 public interface RecommendationRequestRepository
-    extends CrudRepository<RecommendationRequest, Long> {}
+    extends PagedRepository<RecommendationRequest, Long>,
+        ChangeVersionedRepository<RecommendationRequest, Long> {
+  /**
+   * This method returns every recommendation request, in id order, read through a database cursor a
+   * batch of rows at a time rather than loaded all at once. Must be called in a transaction, and
+   * the stream closed.
+   *
+   * @return stream of all recommendation requests
+   */
+  @QueryHints(@QueryHint(name = "org.hibernate.fetchSize", value = "500"))
+  @Query("SELECT r FROM recommendationrequests r ORDER BY r.id")
+  Stream<RecommendationRequest> streamAll();
+}
@@ -1,12 +1,38 @@
 package edu.ucsb.cs156.example.repositories;
 
 import edu.ucsb.cs156.example.entities.UCSBDate;
-import org.springframework.data.repository.CrudRepository;
+import jakarta.persistence.QueryHint;
+import java.util.Optional;
+import org.hibernate.jpa.HibernateHints;
+import org.springframework.data.jpa.repository.QueryHints;
 import org.springframework.stereotype.Repository;
 
 /** The UCSBDateRepository is a repository for UCSBDate entities. */
 @Repository
-public interface UCSBDateRepository extends CrudRepository<UCSBDate, Long> {
+public interface UCSBDateRepository
+    extends PagedRepository<UCSBDate, Long>, ChangeVersionedRepository<UCSBDate, Long> {
+  /**
+   * This method returns all dates, read from the database rather than from the second-level cache.
+   * The response is tagged with the table's version in TABLE_CHANGE_VERSIONS (see TableVersions),
+   * and the cache of this app instance may not yet hold changes that another instance has
+   * committed.
+   *
+   * @return all dates
+   */
+  @Override
+  @QueryHints(@QueryHint(name = HibernateHints.HINT_CACHE_MODE, value = "IGNORE"))
+  Iterable<UCSBDate> findAll();
+
+  /**
+   * This method returns the date with a given id, read from the database rather than from the
+   * second-level cache, like findAll.
+   *
+   * @param id id of the date
+   * @return Optional of UCSBDate (empty if not found)
+   */
+  @QueryHints(@QueryHint(name = HibernateHints.HINT_CACHE_MODE, value = "IGNORE"))
+  Optional<UCSBDate> findUncachedById(Long id);
+
   /**
    * This method returns all UCSBDate entities with a given quarterYYYYQ.
    *
@@ -14,5 +40,6 @@ public interface UCSBDateRepository extends CrudRepository<UCSBDate, Long> {
    *     2024, 20243 for Summer 2024, 20244 for Fall 2024)
    * @return all UCSBDate entities with a given quarterYYYYQ
    */
+  @QueryHints(@QueryHint(name = HibernateHints.HINT_CACHEABLE, value = "true"))
   Iterable<UCSBDate> findAllByQuarterYYYYQ(String quarterYYYYQ);
 }
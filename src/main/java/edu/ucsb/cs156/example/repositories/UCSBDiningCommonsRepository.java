@@ -1,9 +1,37 @@
 package edu.ucsb.cs156.example.repositories;
 
 import edu.ucsb.cs156.example.entities.UCSBDiningCommons;
-import org.springframework.data.repository.CrudRepository;
+import jakarta.persistence.QueryHint;
+import java.util.Optional;
+import org.hibernate.jpa.HibernateHints;
+import org.springframework.data.jpa.repository.QueryHints;
 import org.springframework.stereotype.Repository;
 
 /** The UCSBDiningCommonsRepository is a repository for UCSBDiningCommons entities */
 @Repository
-public interface UCSBDiningCommonsRepository extends CrudRepository<UCSBDiningCommons, String> {}
+public interface UCSBDiningCommonsRepository
+    extends PagedRepository<UCSBDiningCommons, String>,
+        ChangeVersionedRepository<UCSBDiningCommons, String>,
+        PersistingRepository<UCSBDiningCommons> {
+  /**
+   * This method returns all dining commons, read from the database rather than from the
+   * second-level cache. The response is tagged with the table's version in TABLE_CHANGE_VERSIONS
+   * (see TableVersions), and the cache of this app instance may not yet hold changes that another
+   * instance has committed.
+   *
+   * @return all dining commons
+   */
+  @Override
+  @QueryHints(@QueryHint(name = HibernateHints.HINT_CACHE_MODE, value = "IGNORE"))
+  Iterable<UCSBDiningCommons> findAll();
+
+  /**
+   * This method returns the dining commons with a given code, read from the database rather than
+   * from the second-level cache, like findAll.
+   *
+   * @param code code of the dining commons
+   * @return Optional of UCSBDiningCommons (empty if not found)
+   */
+  @QueryHints(@QueryHint(name = HibernateHints.HINT_CACHE_MODE, value = "IGNORE"))
+  Optional<UCSBDiningCommons> findUncachedByCode(String code);
+}
@@ -1,9 +1,37 @@
 package edu.ucsb.cs156.example.repositories;
 
 import edu.ucsb.cs156.example.entities.UCSBOrganization;
-import org.springframework.data.repository.CrudRepository;
+import jakarta.persistence.QueryHint;
+import java.util.Optional;
+import org.hibernate.jpa.HibernateHints;
+import org.springframework.data.jpa.repository.QueryHints;
 import org.springframework.stereotype.Repository;
 
 /** The UCSBDiningCommonsRepository is a repository for UCSBDiningCommons entities */
 @Repository
-public interface UCSBOrganizationRepository extends CrudRepository<UCSBOrganization, String> {}
+public interface UCSBOrganizationRepository
+    extends PagedRepository<UCSBOrganization, String>,
+        ChangeVersionedRepository<UCSBOrganization, String>,
+        PersistingRepository<UCSBOrganization> {
+  /**
+   * This method returns all organizations, read from the database rather than from the second-level
+   * cache. The response is tagged with the table's version in TABLE_CHANGE_VERSIONS (see
+   * TableVersions), and the cache of this app instance may not yet hold changes that another
+   * instance has committed.
+   *
+   * @return all organizations
+   */
+  @Override
+  @QueryHints(@QueryHint(name = HibernateHints.HINT_CACHE_MODE, value = "IGNORE"))
+  Iterable<UCSBOrganization> findAll();
+
+  /**
+   * This method returns the organization with a given orgCode, read from the database rather than
+   * from the second-level cache, like findAll.
+   *
+   * @param orgCode code of the organization
+   * @return Optional of UCSBOrganization (empty if not found)
+   */
+  @QueryHints(@QueryHint(name = HibernateHints.HINT_CACHE_MODE, value = "IGNORE"))
+  Optional<UCSBOrganization> findUncachedByOrgCode(String orgCode);
+}
@@ -1,18 +1,44 @@
 package edu.ucsb.cs156.example.repositories;
 
 import edu.ucsb.cs156.example.entities.User;
+import jakarta.persistence.QueryHint;
+import java.util.List;
 import java.util.Optional;
+import java.util.stream.Stream;
+import org.springframework.data.jpa.repository.Query;
+import org.springframework.data.jpa.repository.QueryHints;
 import org.springframework.data.repository.CrudRepository;
+import org.springframework.data.repository.query.Param;
 import org.springframework.stereotype.Repository;
 
 /** The UserRepository is a repository for User entities. */
 @Repository
 public interface UserRepository extends CrudRepository<User, Long> {
   /**
-   * This method returns a User entity with a given email.
+   * This method returns the User entity with a given email, ignoring case. Emails are stored in
+   * lower case, so this is a lookup in the unique index on email.
    *
-   * @param email email address of the user
+   * @param email email address of the user, in any case
    * @return Optional of User (empty if not found)
    */
-  Optional<User> findByEmail(String email);
+  @Query("SELECT u FROM users u WHERE u.email = LOWER(:email)")
+  Optional<User> findByEmailIgnoringCase(@Param("email") String email);
+
+  /**
+   * This method returns the email addresses of the users whose admin flag is set.
+   *
+   * @return emails of admin users
+   */
+  @Query("SELECT u.email FROM users u WHERE u.admin = true")
+  List<String> findAdminEmails();
+
+  /**
+   * This method returns every user, in id order, read through a database cursor a batch of rows at
+   * a time rather than loaded all at once. Must be called in a transaction, and the stream closed.
+   *
+   * @return stream of all users
+   */
+  @QueryHints(@QueryHint(name = "org.hibernate.fetchSize", value = "100"))
+  @Query("SELECT u FROM users u ORDER BY u.id")
+  Stream<User> streamAll();
 }
@@ -0,0 +1,78 @@
+package edu.ucsb.cs156.example.services;
+
+import edu.ucsb.cs156.example.entities.User;
+import edu.ucsb.cs156.example.repositories.UserRepository;
+import jakarta.annotation.PostConstruct;
+import java.util.ArrayList;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Locale;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Service;
+
+/**
+ * This is an in-memory directory of which users are admins, so that deciding whether someone who
+ * logs in is an admin (SecurityConfig) or should be stored as one (CurrentUserServiceImpl) does not
+ * query the users table.
+ *
+ * <p>Admins are the emails listed in app.admin.emails plus the users whose admin flag is set. The
+ * latter are loaded at startup, kept up to date as users are saved (see UserChangeListener), and
+ * reloaded every app.admin.refreshIntervalMs to pick up changes made by other app instances.
+ */
+@Slf4j
+@Service
+public class AdminDirectory {
+  @Autowired private UserRepository userRepository;
+
+  @Value("${app.admin.emails}")
+  private final List<String> adminEmails = new ArrayList<>();
+
+  private final Set<String> userAdminEmails = ConcurrentHashMap.newKeySet();
+
+  /** Reloads the emails of users whose admin flag is set. */
+  @PostConstruct
+  @Scheduled(
+      initialDelayString = "${app.admin.refreshIntervalMs}",
+      fixedDelayString = "${app.admin.refreshIntervalMs}")
+  public void refresh() {
+    Set<String> loaded = new HashSet<>(userRepository.findAdminEmails());
+    userAdminEmails.addAll(loaded);
+    userAdminEmails.retainAll(loaded);
+    log.debug("Loaded {} admins from the users table", loaded.size());
+  }
+
+  /**
+   * @param email email address of a user
+   * @return whether the email is listed in app.admin.emails
+   */
+  public boolean isConfiguredAdmin(String email) {
+    return adminEmails.stream().anyMatch(adminEmail -> adminEmail.equalsIgnoreCase(email));
+  }
+
+  /**
+   * @param email email address of a user
+   * @return whether the email is listed in app.admin.emails or belongs to a user whose admin flag
+   *     is set
+   */
+  public boolean isAdmin(String email) {
+    // users' emails are stored in lower case
+    return isConfiguredAdmin(email) || userAdminEmails.contains(email.toLowerCase(Locale.ROOT));
+  }
+
+  public void userSaved(User user) {
+    if (user.getAdmin()) {
+      userAdminEmails.add(user.getEmail());
+    } else {
+      userAdminEmails.remove(user.getEmail());
+    }
+  }
+
+  public void userRemoved(User user) {
+    userAdminEmails.remove(user.getEmail());
+  }
+}
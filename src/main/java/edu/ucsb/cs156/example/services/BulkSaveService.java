@@ -0,0 +1,131 @@
+package edu.ucsb.cs156.example.services;
+
+import edu.ucsb.cs156.example.errors.EntityNotFoundException;
+import edu.ucsb.cs156.example.repositories.PersistingRepository;
+import java.util.ArrayList;
+import java.util.HashSet;
+import java.util.Iterator;
+import java.util.List;
+import java.util.Set;
+import java.util.function.Function;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.data.repository.CrudRepository;
+import org.springframework.http.HttpStatus;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.annotation.Transactional;
+import org.springframework.web.server.ResponseStatusException;
+
+/**
+ * This is a service that creates or updates many entities in one transaction.
+ *
+ * <p>All of the entities are saved with a single saveAll, so Hibernate can send the inserts or
+ * updates to the database in JDBC batches (see hibernate.jdbc.batch_size) rather than one statement
+ * per round trip. At most app.bulk.maxSize entities are accepted at once.
+ */
+@Service
+public class BulkSaveService {
+  @Value("${app.bulk.maxSize}")
+  private int maxSize;
+
+  /**
+   * Saves new entities.
+   *
+   * @param repository repository of the entities
+   * @param incoming the entities to save
+   * @param <T> the entity type
+   * @return the saved entities
+   */
+  @Transactional
+  public <T> Iterable<T> createAll(CrudRepository<T, ?> repository, List<T> incoming) {
+    checkSize(incoming);
+    return repository.saveAll(incoming);
+  }
+
+  /**
+   * Saves new entities whose ids are assigned rather than generated, such as a code. The ids are
+   * checked with a single query first, so that an entity that already exists is rejected rather
+   * than overwritten, and the new entities are then inserted without being selected one by one.
+   *
+   * @param repository repository of the entities
+   * @param type the entity class, for the error if an id is taken
+   * @param idOf returns the id of an entity
+   * @param incoming the entities to save
+   * @param <T> the entity type
+   * @param <ID> the type of the entity's id
+   * @param <R> the type of the repository
+   * @return the saved entities
+   * @throws ResponseStatusException 400 if an entity has no id, or 409 if an id is taken, by an
+   *     existing entity or another of the incoming ones
+   */
+  @Transactional
+  public <T, ID, R extends CrudRepository<T, ID> & PersistingRepository<T>>
+      Iterable<T> createAllWithAssignedIds(
+          R repository, Class<T> type, Function<T, ID> idOf, List<T> incoming) {
+    checkSize(incoming);
+    List<ID> ids = idsOf(type, idOf, incoming);
+    Set<ID> taken = new HashSet<>();
+    for (ID id : ids) {
+      if (!taken.add(id)) {
+        throw idTaken(type, id);
+      }
+    }
+    Iterator<T> existing = repository.findAllById(ids).iterator();
+    if (existing.hasNext()) {
+      throw idTaken(type, idOf.apply(existing.next()));
+    }
+    return repository.persistAll(incoming);
+  }
+
+  /**
+   * Replaces existing entities. The entities are first loaded with a single query, both to check
+   * that they all exist and so that saving them does not select each one again.
+   *
+   * @param repository repository of the entities
+   * @param type the entity class, for the error if one does not exist
+   * @param idOf returns the id of an entity
+   * @param incoming the new versions of the entities
+   * @param <T> the entity type
+   * @param <ID> the type of the entity's id
+   * @return the saved entities
+   * @throws EntityNotFoundException if any of the entities does not exist
+   * @throws ResponseStatusException 400 if an entity has no id
+   */
+  @Transactional
+  public <T, ID> Iterable<T> updateAll(
+      CrudRepository<T, ID> repository, Class<T> type, Function<T, ID> idOf, List<T> incoming) {
+    checkSize(incoming);
+    Set<ID> existing = new HashSet<>();
+    repository.findAllById(idsOf(type, idOf, incoming)).forEach(e -> existing.add(idOf.apply(e)));
+    for (T entity : incoming) {
+      if (!existing.contains(idOf.apply(entity))) {
+        throw new EntityNotFoundException(type, idOf.apply(entity));
+      }
+    }
+    return repository.saveAll(incoming);
+  }
+
+  private <T, ID> List<ID> idsOf(Class<T> type, Function<T, ID> idOf, List<T> incoming) {
+    List<ID> ids = new ArrayList<>();
+    for (T entity : incoming) {
+      ID id = idOf.apply(entity);
+      if (id == null) {
+        throw new ResponseStatusException(
+            HttpStatus.BAD_REQUEST, "Every %s must have an id".formatted(type.getSimpleName()));
+      }
+      ids.add(id);
+    }
+    return ids;
+  }
+
+  private ResponseStatusException idTaken(Class<?> type, Object id) {
+    return new ResponseStatusException(
+        HttpStatus.CONFLICT, "%s %s already exists".formatted(type.getSimpleName(), id));
+  }
+
+  private void checkSize(List<?> incoming) {
+    if (incoming.size() > maxSize) {
+      throw new ResponseStatusException(
+          HttpStatus.BAD_REQUEST, "Cannot save more than %d entities at once".formatted(maxSize));
+    }
+  }
+}
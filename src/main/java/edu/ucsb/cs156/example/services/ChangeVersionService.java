@@ -0,0 +1,150 @@
+package edu.ucsb.cs156.example.services;
+
+import edu.ucsb.cs156.example.entities.ChangeVersioned;
+import edu.ucsb.cs156.example.models.Changes;
+import edu.ucsb.cs156.example.repositories.ChangeVersionedRepository;
+import jakarta.persistence.EntityManagerFactory;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import org.hibernate.Hibernate;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.support.TransactionSynchronization;
+import org.springframework.transaction.support.TransactionSynchronizationManager;
+
+/**
+ * This is a service that numbers the changes made to each table, so that clients can ask for just
+ * the rows changed since a version they have already seen (GET /changes on each entity controller)
+ * instead of reading the whole table again.
+ *
+ * <p>Each table has a counter in TABLE_CHANGE_VERSIONS. The first time a transaction changes a row
+ * of a table, it increments the table's counter, and every row it inserts or updates records the
+ * new value in its CHANGE_VERSION column. Deleted rows leave a tombstone in TOMBSTONES with the
+ * same version.
+ *
+ * <p>Incrementing the counter locks its row until the transaction ends, so transactions that change
+ * the same table get their versions in the order they commit. A client that has seen version v has
+ * therefore seen every change numbered v or less, and will not miss a change that commits late.
+ *
+ * <p>This is called from TableChangeListener while Hibernate is saving entities, so it uses JDBC
+ * directly rather than the entity manager; the statements run on the transaction's connection.
+ */
+@Service
+public class ChangeVersionService {
+  @Autowired private JdbcTemplate jdbcTemplate;
+
+  @Autowired private EntityManagerFactory entityManagerFactory;
+
+  /**
+   * Returns the version of the latest committed change to a table.
+   *
+   * @param table name of the table's entity, e.g. helprequests
+   * @return the version
+   */
+  public long currentVersion(String table) {
+    return jdbcTemplate.queryForObject(
+        "SELECT VERSION FROM TABLE_CHANGE_VERSIONS WHERE TABLE_NAME = ?", Long.class, table);
+  }
+
+  /**
+   * Returns the version of the latest committed change to an entity's table.
+   *
+   * @param type the entity class
+   * @return the version
+   */
+  public long currentVersion(Class<?> type) {
+    return currentVersion(entityManagerFactory.getMetamodel().entity(type).getName());
+  }
+
+  /**
+   * Returns the version of the changes that the current transaction makes to a table, incrementing
+   * the table's counter the first time it is asked for.
+   *
+   * @param table name of the table's entity
+   * @return the version
+   */
+  long versionOfThisChange(String table) {
+    @SuppressWarnings("unchecked")
+    Map<String, Long> versions =
+        (Map<String, Long>) TransactionSynchronizationManager.getResource(this);
+    if (versions == null) {
+      versions = new HashMap<>();
+      TransactionSynchronizationManager.bindResource(this, versions);
+      TransactionSynchronizationManager.registerSynchronization(
+          new TransactionSynchronization() {
+            @Override
+            public void afterCompletion(int status) {
+              TransactionSynchronizationManager.unbindResource(ChangeVersionService.this);
+            }
+          });
+    }
+    return versions.computeIfAbsent(
+        table,
+        t -> {
+          jdbcTemplate.update(
+              "UPDATE TABLE_CHANGE_VERSIONS SET VERSION = VERSION + 1 WHERE TABLE_NAME = ?", t);
+          return currentVersion(t);
+        });
+  }
+
+  /**
+   * Records the version of the change in an entity that is about to be inserted or updated.
+   *
+   * @param entity the entity
+   */
+  public void recordChange(ChangeVersioned entity) {
+    entity.setChangeVersion(versionOfThisChange(tableOf(entity)));
+  }
+
+  /**
+   * Leaves a tombstone for an entity that is being deleted. An entity deleted more than once (by
+   * being created again with the same id) keeps only its latest tombstone.
+   *
+   * @param entity the entity
+   */
+  public void recordDeletion(Object entity) {
+    String table = tableOf(entity);
+    String id = entityManagerFactory.getPersistenceUnitUtil().getIdentifier(entity).toString();
+    long version = versionOfThisChange(table);
+    jdbcTemplate.update("DELETE FROM TOMBSTONES WHERE TABLE_NAME = ? AND ENTITY_ID = ?", table, id);
+    jdbcTemplate.update(
+        "INSERT INTO TOMBSTONES (TABLE_NAME, ENTITY_ID, VERSION) VALUES (?, ?, ?)",
+        table,
+        id,
+        version);
+  }
+
+  /**
+   * Returns the changes made to a table after a version.
+   *
+   * <p>The table's version is read first, and every change up to it has been committed by then, so
+   * none of them can be missed by the queries that follow. Changes committed in between may be
+   * returned as well, and will be returned again by the next call; applying a change twice does no
+   * harm.
+   *
+   * @param repository repository of the table's entities
+   * @param type the entity class
+   * @param since the version already seen (0 to get every entity)
+   * @param <T> the entity type
+   * @return the changes
+   */
+  public <T extends ChangeVersioned> Changes<T> changesSince(
+      ChangeVersionedRepository<T, ?> repository, Class<T> type, long since) {
+    String table = entityManagerFactory.getMetamodel().entity(type).getName();
+    long version = currentVersion(table);
+    List<T> changed = repository.findByChangeVersionGreaterThanOrderByChangeVersion(since);
+    List<String> deleted =
+        jdbcTemplate.queryForList(
+            "SELECT ENTITY_ID FROM TOMBSTONES WHERE TABLE_NAME = ? AND VERSION > ? ORDER BY VERSION",
+            String.class,
+            table,
+            since);
+    return new Changes<>(version, changed, deleted);
+  }
+
+  private String tableOf(Object entity) {
+    return entityManagerFactory.getMetamodel().entity(Hibernate.getClass(entity)).getName();
+  }
+}
@@ -0,0 +1,63 @@
+package edu.ucsb.cs156.example.services;
+
+import edu.ucsb.cs156.example.entities.User;
+import java.time.Instant;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.TimeUnit;
+import java.util.function.Supplier;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Service;
+
+/**
+ * This is a cache of the User that each logged in user resolves to, keyed by email, so that
+ * CurrentUserServiceImpl does not look the caller up in the database on every request.
+ *
+ * <p>Entries expire after app.currentUser.cacheTtlSeconds (0 turns the cache off), and are evicted
+ * as soon as the user's row changes, e.g. when they are made an admin (see UserChangeListener).
+ */
+@Service
+public class CurrentUserCache {
+  private record Entry(User user, Instant expiresAt) {}
+
+  private final Map<String, Entry> entries = new ConcurrentHashMap<>();
+
+  @Value("${app.currentUser.cacheTtlSeconds}")
+  private long ttlSeconds;
+
+  /**
+   * Returns the cached user with an email, loading and caching it if it is missing or expired.
+   *
+   * @param email email of the user
+   * @param loader looks up (or creates) the user
+   * @return the user
+   */
+  public User get(String email, Supplier<User> loader) {
+    Instant now = Instant.now();
+    Entry entry = entries.get(email);
+    if (entry != null && now.isBefore(entry.expiresAt())) {
+      return entry.user();
+    }
+    User user = loader.get();
+    if (ttlSeconds > 0) {
+      entries.put(email, new Entry(user, now.plusSeconds(ttlSeconds)));
+    }
+    return user;
+  }
+
+  public void evict(String email) {
+    entries.remove(email);
+  }
+
+  /** Drops expired entries, so that users who have gone away do not stay in memory. */
+  @Scheduled(fixedDelay = 1, timeUnit = TimeUnit.MINUTES)
+  public void evictExpired() {
+    Instant now = Instant.now();
+    entries.values().removeIf(entry -> !now.isBefore(entry.expiresAt()));
+  }
+
+  int size() {
+    return entries.size();
+  }
+}
@@ -3,13 +3,11 @@ package edu.ucsb.cs156.example.services;
 import edu.ucsb.cs156.example.entities.User;
 import edu.ucsb.cs156.example.models.CurrentUser;
 import edu.ucsb.cs156.example.repositories.UserRepository;
-import java.util.ArrayList;
 import java.util.Collection;
-import java.util.List;
+import java.util.Locale;
 import java.util.Optional;
 import lombok.extern.slf4j.Slf4j;
 import org.springframework.beans.factory.annotation.Autowired;
-import org.springframework.beans.factory.annotation.Value;
 import org.springframework.context.annotation.Primary;
 import org.springframework.security.core.Authentication;
 import org.springframework.security.core.GrantedAuthority;
@@ -32,8 +30,9 @@ public class CurrentUserServiceImpl extends CurrentUserService {
 
   @Autowired GrantedAuthoritiesService grantedAuthoritiesService;
 
-  @Value("${app.admin.emails}")
-  private final List<String> adminEmails = new ArrayList<String>();
+  @Autowired private CurrentUserCache currentUserCache;
+
+  @Autowired private AdminDirectory adminDirectory;
 
   /**
    * This method returns the current user as a User object.
@@ -60,7 +59,8 @@ public class CurrentUserServiceImpl extends CurrentUserService {
   public User getOAuth2AuthenticatedUser(
       SecurityContext securityContext, Authentication authentication) {
     OAuth2User oAuthUser = ((OAuth2AuthenticationToken) authentication).getPrincipal();
-    String email = oAuthUser.getAttribute("email");
+    // emails are stored in lower case, which the unique index on users.email relies on
+    String email = ((String) oAuthUser.getAttribute("email")).toLowerCase(Locale.ROOT);
     String googleSub = oAuthUser.getAttribute("sub");
     String pictureUrl = oAuthUser.getAttribute("picture");
     String fullName = oAuthUser.getAttribute("name");
@@ -73,10 +73,10 @@ public class CurrentUserServiceImpl extends CurrentUserService {
     java.util.Map<java.lang.String, java.lang.Object> attrs = oAuthUser.getAttributes();
     log.info("attrs={}", attrs);
 
-    Optional<User> ou = userRepository.findByEmail(email);
+    Optional<User> ou = userRepository.findByEmailIgnoringCase(email);
     if (ou.isPresent()) {
       User u = ou.get();
-      if (adminEmails.contains(email) && !u.getAdmin()) {
+      if (adminDirectory.isConfiguredAdmin(email) && !u.getAdmin()) {
         u.setAdmin(true);
         userRepository.save(u);
       }
@@ -94,14 +94,15 @@ public class CurrentUserServiceImpl extends CurrentUserService {
             .emailVerified(emailVerified)
             .locale(locale)
             .hostedDomain(hostedDomain)
-            .admin(adminEmails.contains(email))
+            .admin(adminDirectory.isConfiguredAdmin(email))
             .build();
     userRepository.save(u);
     return u;
   }
 
   /**
-   * This method returns the current user as a User object.
+   * This method returns the current user as a User object. The user is cached (see
+   * CurrentUserCache), so most requests do not look the user up in the database.
    *
    * @return the current user
    */
@@ -109,8 +110,10 @@ public class CurrentUserServiceImpl extends CurrentUserService {
     SecurityContext securityContext = SecurityContextHolder.getContext();
     Authentication authentication = securityContext.getAuthentication();
 
-    if (authentication instanceof OAuth2AuthenticationToken) {
-      return getOAuth2AuthenticatedUser(securityContext, authentication);
+    if (authentication instanceof OAuth2AuthenticationToken token) {
+      String email = ((String) token.getPrincipal().getAttribute("email")).toLowerCase(Locale.ROOT);
+      return currentUserCache.get(
+          email, () -> getOAuth2AuthenticatedUser(securityContext, authentication));
     }
     return null;
   }
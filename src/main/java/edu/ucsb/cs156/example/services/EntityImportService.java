@@ -0,0 +1,351 @@
+package edu.ucsb.cs156.example.services;
+
+import com.fasterxml.jackson.core.JsonLocation;
+import com.fasterxml.jackson.databind.DeserializationFeature;
+import com.fasterxml.jackson.databind.JsonMappingException;
+import com.fasterxml.jackson.databind.MappingIterator;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.fasterxml.jackson.dataformat.csv.CsvMapper;
+import com.fasterxml.jackson.dataformat.csv.CsvSchema;
+import edu.ucsb.cs156.example.entities.Article;
+import edu.ucsb.cs156.example.entities.HelpRequest;
+import edu.ucsb.cs156.example.entities.MenuItemReview;
+import edu.ucsb.cs156.example.entities.RecommendationRequest;
+import edu.ucsb.cs156.example.entities.Restaurant;
+import edu.ucsb.cs156.example.entities.UCSBDate;
+import edu.ucsb.cs156.example.entities.UCSBDiningCommons;
+import edu.ucsb.cs156.example.entities.UCSBDiningCommonsMenuItem;
+import edu.ucsb.cs156.example.entities.UCSBOrganization;
+import edu.ucsb.cs156.example.repositories.ArticleRepository;
+import edu.ucsb.cs156.example.repositories.HelpRequestRepository;
+import edu.ucsb.cs156.example.repositories.MenuItemReviewRepository;
+import edu.ucsb.cs156.example.repositories.RecommendationRequestRepository;
+import edu.ucsb.cs156.example.repositories.RestaurantRepository;
+import edu.ucsb.cs156.example.repositories.UCSBDateRepository;
+import edu.ucsb.cs156.example.repositories.UCSBDiningCommonsMenuItemRepository;
+import edu.ucsb.cs156.example.repositories.UCSBDiningCommonsRepository;
+import edu.ucsb.cs156.example.repositories.UCSBOrganizationRepository;
+import edu.ucsb.cs156.example.services.jobs.JobContext;
+import jakarta.annotation.PostConstruct;
+import java.io.IOException;
+import java.io.InputStream;
+import java.util.ArrayList;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Objects;
+import java.util.Set;
+import java.util.function.Consumer;
+import java.util.function.Function;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.dao.DataAccessException;
+import org.springframework.data.repository.CrudRepository;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.support.TransactionTemplate;
+
+/**
+ * This is a service that imports the rows of a CSV or NDJSON (one JSON object per line) file as new
+ * entities. It is run from an ImportJob, and writes its progress and any rows it rejects to the log
+ * of the job.
+ *
+ * <p>Rows are read one at a time and saved app.jobs.import.batchSize at a time, each batch in its
+ * own transaction, so a large file is never all held in memory as entities and one bad row does not
+ * undo the rest of the import. A row that cannot be read, or that the database rejects, is logged
+ * with its row number (counting from 1, not including a CSV header) and skipped. If the job is
+ * restarted on another app instance, it carries on after the last row whose batch was committed.
+ *
+ * <p>Entities keyed by a code (dining commons and organizations) keep the code read from the file,
+ * so a row whose code is already taken, by an existing entity or an earlier row, is rejected rather
+ * than saved over the entity that has it.
+ */
+@Service
+public class EntityImportService {
+  /** The formats a file to import can be in. */
+  public static final Set<String> FORMATS = Set.of("csv", "ndjson");
+
+  // at most this many rejected rows are written to the job log; the rest are only counted
+  static final int MAX_LOGGED_ERRORS = 100;
+
+  @Autowired private ObjectMapper mapper;
+
+  @Autowired private PlatformTransactionManager transactionManager;
+
+  @Autowired private ArticleRepository articleRepository;
+
+  @Autowired private HelpRequestRepository helpRequestRepository;
+
+  @Autowired private MenuItemReviewRepository menuItemReviewRepository;
+
+  @Autowired private RecommendationRequestRepository recommendationRequestRepository;
+
+  @Autowired private RestaurantRepository restaurantRepository;
+
+  @Autowired private UCSBDateRepository ucsbDateRepository;
+
+  @Autowired private UCSBDiningCommonsRepository ucsbDiningCommonsRepository;
+
+  @Autowired private UCSBDiningCommonsMenuItemRepository ucsbDiningCommonsMenuItemRepository;
+
+  @Autowired private UCSBOrganizationRepository ucsbOrganizationRepository;
+
+  @Value("${app.jobs.import.batchSize}")
+  private int batchSize;
+
+  private final CsvMapper csvMapper = new CsvMapper();
+
+  // the entities that can be imported, by the name used in their /api path
+  private Map<String, Importable<?, ?>> importables;
+
+  /**
+   * How to import one kind of entity.
+   *
+   * @param type the entity class
+   * @param repository saves the entities
+   * @param clearId clears a generated id read from the file, so that a new one is assigned
+   * @param naturalKey gets the id of an entity keyed by a code read from the file (null for
+   *     entities with generated ids)
+   */
+  record Importable<T, ID>(
+      Class<T> type,
+      CrudRepository<T, ID> repository,
+      Consumer<T> clearId,
+      Function<T, ID> naturalKey) {}
+
+  @PostConstruct
+  void registerImportables() {
+    csvMapper.findAndRegisterModules();
+    csvMapper.disable(DeserializationFeature.FAIL_ON_UNKNOWN_PROPERTIES);
+    importables =
+        Map.of(
+            "articles", new Importable<>(Article.class, articleRepository, a -> a.setId(0), null),
+            "helprequests",
+                new Importable<>(HelpRequest.class, helpRequestRepository, h -> h.setId(0), null),
+            "menuitemreview",
+                new Importable<>(
+                    MenuItemReview.class, menuItemReviewRepository, m -> m.setId(0), null),
+            "recommendationrequests",
+                new Importable<>(
+                    RecommendationRequest.class,
+                    recommendationRequestRepository,
+                    r -> r.setId(0),
+                    null),
+            "restaurants",
+                new Importable<>(Restaurant.class, restaurantRepository, r -> r.setId(0), null),
+            "ucsbdates",
+                new Importable<>(UCSBDate.class, ucsbDateRepository, d -> d.setId(0), null),
+            // dining commons and organizations are keyed by their code, which is kept
+            "ucsbdiningcommons",
+                new Importable<>(
+                    UCSBDiningCommons.class,
+                    ucsbDiningCommonsRepository,
+                    c -> {},
+                    UCSBDiningCommons::getCode),
+            "ucsbdiningcommonsmenuitem",
+                new Importable<>(
+                    UCSBDiningCommonsMenuItem.class,
+                    ucsbDiningCommonsMenuItemRepository,
+                    i -> i.setId(null),
+                    null),
+            "ucsborganization",
+                new Importable<>(
+                    UCSBOrganization.class,
+                    ucsbOrganizationRepository,
+                    o -> {},
+                    UCSBOrganization::getOrgCode));
+  }
+
+  /**
+   * @return the names of the entities that can be imported
+   */
+  public Set<String> getEntityNames() {
+    return importables.keySet();
+  }
+
+  /**
+   * Imports the rows of a file as new entities.
+   *
+   * @param ctx context of the job running the import
+   * @param entity name of the entity, one of getEntityNames()
+   * @param format csv (with a header row naming the fields) or ndjson
+   * @param file the file, which is read as the rows are imported
+   * @param size size of the file in bytes, to report progress
+   * @throws IOException if the file is malformed past the point where a row can be skipped
+   * @throws IllegalArgumentException if the entity or format is unknown
+   */
+  public void importRows(JobContext ctx, String entity, String format, InputStream file, long size)
+      throws IOException {
+    Importable<?, ?> importable = importables.get(entity);
+    if (importable == null) {
+      throw new IllegalArgumentException("Cannot import %s".formatted(entity));
+    }
+    if (!FORMATS.contains(format)) {
+      throw new IllegalArgumentException("Cannot import from %s".formatted(format));
+    }
+    ctx.log("Importing %s from %s (%d bytes)".formatted(entity, format, size));
+    importRows(ctx, importable, format, file, size);
+  }
+
+  private <T> void importRows(
+      JobContext ctx, Importable<T, ?> importable, String format, InputStream file, long size)
+      throws IOException {
+    TransactionTemplate transaction = new TransactionTemplate(transactionManager);
+    ImportCounts counts = new ImportCounts();
+    List<T> batch = new ArrayList<>();
+    List<Integer> batchRows = new ArrayList<>();
+    // the rows up to the checkpoint were saved or rejected by an earlier attempt of the job
+    long resumeAfter = ctx.getCheckpoint() == null ? 0 : ctx.getCheckpoint();
+    if (resumeAfter > 0) {
+      ctx.log("Resuming after row %d".formatted(resumeAfter));
+    }
+    int row = 0;
+    try (MappingIterator<T> rows = readRows(importable.type(), format, file)) {
+      while (rows.hasNextValue()) {
+        row++;
+        T entity;
+        try {
+          entity = rows.nextValue();
+        } catch (JsonMappingException e) {
+          if (row > resumeAfter) {
+            rejectRow(ctx, counts, row, e.getOriginalMessage());
+          }
+          continue;
+        }
+        if (row <= resumeAfter) {
+          continue;
+        }
+        batch.add(entity);
+        batchRows.add(row);
+        if (batch.size() >= batchSize) {
+          saveBatch(ctx, transaction, importable, batch, batchRows, counts);
+          batch = new ArrayList<>();
+          batchRows = new ArrayList<>();
+          // JSON is parsed from the bytes of the file and CSV from its characters, so the parser
+          // counts one or the other
+          JsonLocation location = rows.getCurrentLocation();
+          long offset = Math.max(location.getByteOffset(), location.getCharOffset());
+          ctx.progress((int) (offset * 100 / size));
+          ctx.checkCancelled();
+        }
+      }
+    }
+    if (!batch.isEmpty()) {
+      saveBatch(ctx, transaction, importable, batch, batchRows, counts);
+    }
+    ctx.progress(100);
+    if (resumeAfter > 0) {
+      ctx.log(
+          "Imported %d of rows %d to %d (%d rejected)"
+              .formatted(counts.imported, resumeAfter + 1, row, counts.rejected));
+    } else {
+      ctx.log(
+          "Imported %d of %d rows (%d rejected)".formatted(counts.imported, row, counts.rejected));
+    }
+  }
+
+  private <T> MappingIterator<T> readRows(Class<T> type, String format, InputStream file)
+      throws IOException {
+    if (format.equals("csv")) {
+      return csvMapper.readerFor(type).with(CsvSchema.emptySchema().withHeader()).readValues(file);
+    }
+    return mapper.readerFor(type).readValues(file);
+  }
+
+  /**
+   * Saves a batch of rows in one transaction. If the database rejects any of them, the batch is
+   * rolled back and its rows are saved again one at a time, to find and skip the rows at fault.
+   * Each transaction also saves the number of the last row it covers as the job's checkpoint, so
+   * that an attempt of the job restarted after its instance stopped skips the rows already saved.
+   */
+  private <T, ID> void saveBatch(
+      JobContext ctx,
+      TransactionTemplate transaction,
+      Importable<T, ID> importable,
+      List<T> batch,
+      List<Integer> batchRows,
+      ImportCounts counts) {
+    int lastRow = batchRows.get(batchRows.size() - 1);
+    if (importable.naturalKey() != null) {
+      rejectTakenKeys(ctx, importable, batch, batchRows, counts);
+    }
+    batch.forEach(importable.clearId());
+    try {
+      transaction.executeWithoutResult(
+          status -> {
+            importable.repository().saveAll(batch);
+            ctx.checkpoint(lastRow);
+          });
+      counts.imported += batch.size();
+    } catch (DataAccessException batchFailure) {
+      for (int i = 0; i < batch.size(); i++) {
+        T entity = batch.get(i);
+        int row = batchRows.get(i);
+        // the failed batch may have given the entity an id that was never saved
+        importable.clearId().accept(entity);
+        try {
+          transaction.executeWithoutResult(
+              status -> {
+                importable.repository().save(entity);
+                ctx.checkpoint(row);
+              });
+          counts.imported++;
+        } catch (DataAccessException e) {
+          rejectRow(ctx, counts, row, e.getMostSpecificCause().getMessage());
+        }
+      }
+    }
+  }
+
+  /**
+   * Rejects, and removes from a batch, the rows keyed by a code that is taken by a saved entity or
+   * by an earlier row of the batch, so that they are not saved over the entity with the code.
+   */
+  private <T, ID> void rejectTakenKeys(
+      JobContext ctx,
+      Importable<T, ID> importable,
+      List<T> batch,
+      List<Integer> batchRows,
+      ImportCounts counts) {
+    Function<T, ID> naturalKey = importable.naturalKey();
+    Set<ID> taken = new HashSet<>();
+    importable
+        .repository()
+        .findAllById(batch.stream().map(naturalKey).filter(Objects::nonNull).toList())
+        .forEach(entity -> taken.add(naturalKey.apply(entity)));
+    List<T> kept = new ArrayList<>();
+    List<Integer> keptRows = new ArrayList<>();
+    for (int i = 0; i < batch.size(); i++) {
+      ID key = naturalKey.apply(batch.get(i));
+      // a row without a key is left for the database to reject
+      if (key != null && !taken.add(key)) {
+        rejectRow(
+            ctx,
+            counts,
+            batchRows.get(i),
+            "%s %s already exists".formatted(importable.type().getSimpleName(), key));
+      } else {
+        kept.add(batch.get(i));
+        keptRows.add(batchRows.get(i));
+      }
+    }
+    batch.clear();
+    batch.addAll(kept);
+    batchRows.clear();
+    batchRows.addAll(keptRows);
+  }
+
+  private void rejectRow(JobContext ctx, ImportCounts counts, int row, String reason) {
+    counts.rejected++;
+    if (counts.rejected <= MAX_LOGGED_ERRORS) {
+      ctx.log("Row %d: %s".formatted(row, reason));
+    } else if (counts.rejected == MAX_LOGGED_ERRORS + 1) {
+      ctx.log("More than %d rows rejected; only counting the rest".formatted(MAX_LOGGED_ERRORS));
+    }
+  }
+
+  private static class ImportCounts {
+    int imported;
+    int rejected;
+  }
+}
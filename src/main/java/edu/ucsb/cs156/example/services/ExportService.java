@@ -0,0 +1,177 @@
+package edu.ucsb.cs156.example.services;
+
+import com.fasterxml.jackson.core.JsonGenerator;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.fasterxml.jackson.databind.SequenceWriter;
+import com.fasterxml.jackson.databind.SerializationFeature;
+import com.fasterxml.jackson.dataformat.csv.CsvMapper;
+import jakarta.annotation.PostConstruct;
+import jakarta.persistence.EntityManager;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.io.UncheckedIOException;
+import java.util.Locale;
+import java.util.Set;
+import java.util.function.Supplier;
+import java.util.stream.Stream;
+import java.util.zip.GZIPOutputStream;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.http.ContentDisposition;
+import org.springframework.http.HttpHeaders;
+import org.springframework.http.HttpStatus;
+import org.springframework.http.MediaType;
+import org.springframework.http.ResponseEntity;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.support.TransactionTemplate;
+import org.springframework.web.server.ResponseStatusException;
+import org.springframework.web.servlet.mvc.method.annotation.StreamingResponseBody;
+
+/**
+ * This is a service that downloads every row of a table as a CSV or NDJSON (one JSON object per
+ * line) file, in the same formats that EntityImportService reads.
+ *
+ * <p>Like JsonStreamingService, the rows are read through a database cursor in a read-only
+ * transaction while the response is written, and each entity is detached once it has been written,
+ * so an export of any size uses a small, fixed amount of memory. The file is gzipped when the
+ * client's Accept-Encoding allows gzip, which for text like this cuts the bytes sent several times
+ * over.
+ */
+@Service
+public class ExportService {
+  /** The formats a table can be exported in. */
+  public static final Set<String> FORMATS = Set.of("csv", "ndjson");
+
+  static final MediaType TEXT_CSV = new MediaType("text", "csv");
+
+  static final MediaType APPLICATION_NDJSON = MediaType.parseMediaType("application/x-ndjson");
+
+  @Autowired private ObjectMapper mapper;
+
+  @Autowired private EntityManager entityManager;
+
+  @Autowired private PlatformTransactionManager transactionManager;
+
+  private final CsvMapper csvMapper = new CsvMapper();
+
+  @PostConstruct
+  void configureCsvMapper() {
+    csvMapper.findAndRegisterModules();
+    csvMapper.disable(SerializationFeature.WRITE_DATES_AS_TIMESTAMPS);
+  }
+
+  /**
+   * Returns a response that downloads the results of a query as a file.
+   *
+   * @param name name of the file, without extension
+   * @param type the entity class, whose properties are the CSV columns
+   * @param format csv (with a header row) or ndjson
+   * @param acceptEncoding the Accept-Encoding header of the request (null if none)
+   * @param query runs the query; called when the response is written, it should return a Stream
+   *     backed by a database cursor
+   * @param <T> the entity type
+   * @return the response
+   */
+  public <T> ResponseEntity<StreamingResponseBody> export(
+      String name, Class<T> type, String format, String acceptEncoding, Supplier<Stream<T>> query) {
+    if (!FORMATS.contains(format)) {
+      throw new ResponseStatusException(
+          HttpStatus.BAD_REQUEST, "Cannot export as %s".formatted(format));
+    }
+    boolean gzip = acceptsGzip(acceptEncoding);
+    ResponseEntity.BodyBuilder response =
+        ResponseEntity.ok()
+            .contentType(format.equals("csv") ? TEXT_CSV : APPLICATION_NDJSON)
+            .header(
+                HttpHeaders.CONTENT_DISPOSITION,
+                ContentDisposition.attachment()
+                    .filename("%s.%s".formatted(name, format))
+                    .build()
+                    .toString())
+            .header(HttpHeaders.VARY, HttpHeaders.ACCEPT_ENCODING);
+    if (gzip) {
+      response.header(HttpHeaders.CONTENT_ENCODING, "gzip");
+    }
+
+    TransactionTemplate transaction = new TransactionTemplate(transactionManager);
+    transaction.setReadOnly(true);
+    return response.body(
+        out ->
+            transaction.executeWithoutResult(
+                status -> {
+                  try (Stream<T> entities = query.get()) {
+                    OutputStream target = gzip ? new GZIPOutputStream(out, 8192) : out;
+                    try (SequenceWriter writer = rowWriter(type, format, target)) {
+                      entities.forEach(entity -> write(writer, entity));
+                    }
+                    if (target instanceof GZIPOutputStream gzipped) {
+                      gzipped.finish();
+                    }
+                  } catch (IOException e) {
+                    throw new UncheckedIOException(e);
+                  }
+                }));
+  }
+
+  /**
+   * Returns whether an Accept-Encoding header allows a gzipped response: it lists gzip, or failing
+   * that *, with a quality above zero. Other codings that merely contain "gzip", such as x-gzip, do
+   * not count, and gzip;q=0 refuses gzip.
+   *
+   * @param acceptEncoding the header (null if none)
+   * @return whether to gzip the response
+   */
+  static boolean acceptsGzip(String acceptEncoding) {
+    if (acceptEncoding == null) {
+      return false;
+    }
+    Double gzip = null;
+    Double any = null;
+    for (String element : acceptEncoding.split(",")) {
+      String[] parts = element.split(";");
+      String coding = parts[0].trim().toLowerCase(Locale.ROOT);
+      double quality = 1;
+      for (int i = 1; i < parts.length; i++) {
+        String[] param = parts[i].split("=", 2);
+        if (param.length == 2 && param[0].trim().equalsIgnoreCase("q")) {
+          try {
+            quality = Double.parseDouble(param[1].trim());
+          } catch (NumberFormatException e) {
+            quality = 0;
+          }
+        }
+      }
+      if (coding.equals("gzip")) {
+        gzip = quality;
+      } else if (coding.equals("*")) {
+        any = quality;
+      }
+    }
+    Double quality = gzip != null ? gzip : any;
+    return quality != null && quality > 0;
+  }
+
+  private SequenceWriter rowWriter(Class<?> type, String format, OutputStream out)
+      throws IOException {
+    if (format.equals("csv")) {
+      return csvMapper
+          .writer(csvMapper.schemaFor(type).withHeader())
+          .without(JsonGenerator.Feature.AUTO_CLOSE_TARGET)
+          .writeValues(out);
+    }
+    return mapper
+        .writer()
+        .withRootValueSeparator("\n")
+        .without(JsonGenerator.Feature.AUTO_CLOSE_TARGET)
+        .writeValues(out);
+  }
+
+  private void write(SequenceWriter writer, Object entity) {
+    try {
+      writer.write(entity);
+    } catch (IOException e) {
+      throw new UncheckedIOException(e);
+    }
+    entityManager.detach(entity);
+  }
+}
@@ -0,0 +1,111 @@
+package edu.ucsb.cs156.example.services;
+
+import edu.ucsb.cs156.example.entities.ImportUploadChunk;
+import edu.ucsb.cs156.example.repositories.ImportUploadChunksRepository;
+import java.io.ByteArrayInputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.SequenceInputStream;
+import java.time.ZonedDateTime;
+import java.util.Enumeration;
+import java.util.Optional;
+import java.util.UUID;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Service;
+
+/**
+ * This is a service that keeps the files uploaded to be imported in the import_upload_chunks table
+ * until the ImportJob that imports them runs, on whichever app instance that is.
+ *
+ * <p>A file is split into rows of app.jobs.import.chunkBytes bytes each, which are written as the
+ * file is uploaded and read back one at a time as it is imported, so a large file is never held in
+ * memory as a whole.
+ */
+@Service
+public class ImportUploadService {
+  @Autowired private ImportUploadChunksRepository importUploadChunksRepository;
+
+  @Value("${app.jobs.import.chunkBytes}")
+  private int chunkBytes;
+
+  /**
+   * Stores an uploaded file.
+   *
+   * @param file the contents of the file
+   * @return id of the upload, for open() and delete()
+   * @throws IOException if the file cannot be read; nothing is left stored
+   */
+  public String store(InputStream file) throws IOException {
+    String uploadId = UUID.randomUUID().toString();
+    ZonedDateTime createdAt = ZonedDateTime.now();
+    try {
+      byte[] data;
+      for (int chunkNumber = 0; (data = file.readNBytes(chunkBytes)).length > 0; chunkNumber++) {
+        importUploadChunksRepository.save(
+            ImportUploadChunk.builder()
+                .uploadId(uploadId)
+                .chunkNumber(chunkNumber)
+                .data(data)
+                .createdAt(createdAt)
+                .build());
+      }
+    } catch (IOException | RuntimeException e) {
+      delete(uploadId);
+      throw e;
+    }
+    return uploadId;
+  }
+
+  /**
+   * Reads back a stored file. Its pieces are read from the database as the stream reaches them.
+   *
+   * @param uploadId id of the upload
+   * @return the contents of the file (empty if there is no such upload)
+   */
+  public InputStream open(String uploadId) {
+    return new SequenceInputStream(
+        new Enumeration<InputStream>() {
+          private int chunkNumber;
+          private Optional<ImportUploadChunk> next;
+
+          @Override
+          public boolean hasMoreElements() {
+            if (next == null) {
+              next =
+                  importUploadChunksRepository.findByUploadIdAndChunkNumber(uploadId, chunkNumber);
+            }
+            return next.isPresent();
+          }
+
+          @Override
+          public InputStream nextElement() {
+            hasMoreElements();
+            byte[] data = next.orElseThrow().getData();
+            next = null;
+            chunkNumber++;
+            return new ByteArrayInputStream(data);
+          }
+        });
+  }
+
+  /**
+   * Deletes a stored file.
+   *
+   * @param uploadId id of the upload
+   */
+  public void delete(String uploadId) {
+    importUploadChunksRepository.deleteByUploadIdInBulk(uploadId);
+  }
+
+  /**
+   * Deletes the files uploaded before a cutoff that are still stored, because the jobs that were to
+   * import them were cancelled before they ran.
+   *
+   * @param cutoff files uploaded before this time are deleted
+   * @return the number of pieces of files deleted
+   */
+  public int deleteUploadedBefore(ZonedDateTime cutoff) {
+    return importUploadChunksRepository.deleteCreatedBeforeInBulk(cutoff);
+  }
+}
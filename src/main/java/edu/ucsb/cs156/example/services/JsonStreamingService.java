@@ -0,0 +1,72 @@
+package edu.ucsb.cs156.example.services;
+
+import com.fasterxml.jackson.core.JsonGenerator;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import jakarta.persistence.Entity;
+import jakarta.persistence.EntityManager;
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.util.function.Supplier;
+import java.util.stream.Stream;
+import org.hibernate.Hibernate;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.support.TransactionTemplate;
+import org.springframework.web.servlet.mvc.method.annotation.StreamingResponseBody;
+
+/**
+ * This is a service that writes query results to a response as a JSON array, one entity at a time.
+ *
+ * <p>The query is run in a read-only transaction while the response is written, and each entity is
+ * detached once it has been written, so neither the rows nor the JSON are ever all held in memory
+ * at once. Queries should return a Stream backed by a database cursor, with a fetch size hint so
+ * that the JDBC driver does not read every row up front.
+ */
+@Service
+public class JsonStreamingService {
+  @Autowired private ObjectMapper mapper;
+
+  @Autowired private EntityManager entityManager;
+
+  @Autowired private PlatformTransactionManager transactionManager;
+
+  /**
+   * Returns a response body that writes the results of a query as a JSON array.
+   *
+   * @param query runs the query; called when the response is written
+   * @param <T> the entity type
+   * @return the response body
+   */
+  public <T> StreamingResponseBody jsonArray(Supplier<Stream<T>> query) {
+    TransactionTemplate transaction = new TransactionTemplate(transactionManager);
+    transaction.setReadOnly(true);
+    return out ->
+        transaction.executeWithoutResult(
+            status -> {
+              try (Stream<T> entities = query.get();
+                  JsonGenerator generator =
+                      mapper
+                          .createGenerator(out)
+                          .disable(JsonGenerator.Feature.AUTO_CLOSE_TARGET)) {
+                generator.writeStartArray();
+                entities.forEach(entity -> write(generator, entity));
+                generator.writeEndArray();
+              } catch (IOException e) {
+                throw new UncheckedIOException(e);
+              }
+            });
+  }
+
+  private void write(JsonGenerator generator, Object entity) {
+    try {
+      generator.writeObject(entity);
+    } catch (IOException e) {
+      throw new UncheckedIOException(e);
+    }
+    // projections (e.g. JobListing) are not managed, so there is nothing to detach
+    if (Hibernate.getClass(entity).isAnnotationPresent(Entity.class)) {
+      entityManager.detach(entity);
+    }
+  }
+}
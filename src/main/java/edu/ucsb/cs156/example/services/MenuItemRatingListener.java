@@ -0,0 +1,117 @@
+package edu.ucsb.cs156.example.services;
+
+import edu.ucsb.cs156.example.entities.MenuItemReview;
+import jakarta.persistence.PostPersist;
+import jakarta.persistence.PreRemove;
+import jakarta.persistence.PreUpdate;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.jdbc.core.ConnectionCallback;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.stereotype.Component;
+
+/**
+ * This is a JPA entity listener that keeps MENUITEMRATING up to date as menu item reviews are saved
+ * and deleted, however they are saved: a new review is added to its item's rating, a deleted one is
+ * taken away, and an update that changes a review's item or stars moves it from the old rating to
+ * the new one. The changes are made in the same transaction as the review's, so they are rolled
+ * back with it.
+ *
+ * <p>Each change is a single upsert that adds to the counts, inserting the item's row if it has
+ * none yet, so concurrent reviews of the same item, even its first reviews, neither lose each
+ * other's changes nor fail. On PostgreSQL it is an INSERT ... ON CONFLICT DO UPDATE, which waits
+ * for a row inserted concurrently and then updates it; elsewhere (H2 in development and tests) it
+ * is the standard MERGE. As with ChangeVersionService, this runs while Hibernate is saving
+ * entities, so it uses JDBC directly rather than the entity manager.
+ */
+@Component
+public class MenuItemRatingListener {
+  private static final String COLUMNS =
+      "REVIEW_COUNT, STAR_SUM, STARS0, STARS1, STARS2, STARS3, STARS4, STARS5, ITEM_ID";
+
+  static final String UPSERT_RATING_POSTGRESQL =
+      "INSERT INTO MENUITEMRATING ("
+          + COLUMNS
+          + ") VALUES (?, ?, ?, ?, ?, ?, ?, ?, ?) ON CONFLICT (ITEM_ID) DO UPDATE SET"
+          + " REVIEW_COUNT = MENUITEMRATING.REVIEW_COUNT + EXCLUDED.REVIEW_COUNT,"
+          + " STAR_SUM = MENUITEMRATING.STAR_SUM + EXCLUDED.STAR_SUM,"
+          + " STARS0 = MENUITEMRATING.STARS0 + EXCLUDED.STARS0,"
+          + " STARS1 = MENUITEMRATING.STARS1 + EXCLUDED.STARS1,"
+          + " STARS2 = MENUITEMRATING.STARS2 + EXCLUDED.STARS2,"
+          + " STARS3 = MENUITEMRATING.STARS3 + EXCLUDED.STARS3,"
+          + " STARS4 = MENUITEMRATING.STARS4 + EXCLUDED.STARS4,"
+          + " STARS5 = MENUITEMRATING.STARS5 + EXCLUDED.STARS5";
+
+  static final String UPSERT_RATING_MERGE =
+      "MERGE INTO MENUITEMRATING R USING (VALUES (?, ?, ?, ?, ?, ?, ?, ?, ?)) AS D ("
+          + COLUMNS
+          + ") ON R.ITEM_ID = D.ITEM_ID WHEN MATCHED THEN UPDATE SET"
+          + " REVIEW_COUNT = R.REVIEW_COUNT + D.REVIEW_COUNT, STAR_SUM = R.STAR_SUM + D.STAR_SUM,"
+          + " STARS0 = R.STARS0 + D.STARS0, STARS1 = R.STARS1 + D.STARS1,"
+          + " STARS2 = R.STARS2 + D.STARS2, STARS3 = R.STARS3 + D.STARS3,"
+          + " STARS4 = R.STARS4 + D.STARS4, STARS5 = R.STARS5 + D.STARS5"
+          + " WHEN NOT MATCHED THEN INSERT ("
+          + COLUMNS
+          + ") VALUES (D.REVIEW_COUNT, D.STAR_SUM, D.STARS0, D.STARS1, D.STARS2, D.STARS3,"
+          + " D.STARS4, D.STARS5, D.ITEM_ID)";
+
+  // the review as it was last counted, i.e. as it is in the database before this change
+  private static final String STORED_REVIEW =
+      "SELECT ITEM_ID, STARS FROM MENUITEMREVIEW WHERE ID = ?";
+
+  private static final int MAX_STARS = 5;
+
+  @Autowired private JdbcTemplate jdbcTemplate;
+
+  // one of the upserts above, chosen for the database the first time a rating is changed
+  private volatile String upsertRating;
+
+  @PostPersist
+  public void reviewAdded(MenuItemReview review) {
+    count(review.getItemId(), review.getStars(), 1);
+  }
+
+  @PreUpdate
+  public void reviewUpdating(MenuItemReview review) {
+    for (Map<String, Object> stored : jdbcTemplate.queryForList(STORED_REVIEW, review.getId())) {
+      long itemId = ((Number) stored.get("ITEM_ID")).longValue();
+      int stars = ((Number) stored.get("STARS")).intValue();
+      if (itemId != review.getItemId() || stars != review.getStars()) {
+        count(itemId, stars, -1);
+        count(review.getItemId(), review.getStars(), 1);
+      }
+    }
+  }
+
+  @PreRemove
+  public void reviewRemoving(MenuItemReview review) {
+    for (Map<String, Object> stored : jdbcTemplate.queryForList(STORED_REVIEW, review.getId())) {
+      count(
+          ((Number) stored.get("ITEM_ID")).longValue(),
+          ((Number) stored.get("STARS")).intValue(),
+          -1);
+    }
+  }
+
+  private void count(long itemId, int stars, int delta) {
+    List<Object> args = new ArrayList<>(List.of(delta, (long) stars * delta));
+    // stars outside 0 to 5 still count towards the total and average, but not the histogram
+    for (int bucket = 0; bucket <= MAX_STARS; bucket++) {
+      args.add(bucket == stars ? delta : 0);
+    }
+    args.add(itemId);
+    jdbcTemplate.update(upsertRating(), args.toArray());
+  }
+
+  private String upsertRating() {
+    if (upsertRating == null) {
+      String database =
+          jdbcTemplate.execute(
+              (ConnectionCallback<String>) c -> c.getMetaData().getDatabaseProductName());
+      upsertRating = "PostgreSQL".equals(database) ? UPSERT_RATING_POSTGRESQL : UPSERT_RATING_MERGE;
+    }
+    return upsertRating;
+  }
+}
@@ -0,0 +1,34 @@
+package edu.ucsb.cs156.example.services;
+
+import edu.ucsb.cs156.example.entities.ChangeVersioned;
+import jakarta.persistence.PrePersist;
+import jakarta.persistence.PreRemove;
+import jakarta.persistence.PreUpdate;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.context.annotation.Lazy;
+import org.springframework.stereotype.Component;
+
+/**
+ * This is a JPA entity listener that keeps track of the changes made to an entity's table: before a
+ * row is inserted, updated or deleted, it has ChangeVersionService number the change (or leave a
+ * tombstone for the deleted row). The table's counter that this increments is also the ETag of the
+ * responses built from the table (see TableVersions), so they stop matching once the change
+ * commits.
+ */
+@Component
+public class TableChangeListener {
+  // lazy, because Hibernate creates this listener while the entity manager factory that
+  // ChangeVersionService uses is being built
+  @Lazy @Autowired private ChangeVersionService changeVersionService;
+
+  @PrePersist
+  @PreUpdate
+  public void entitySaving(ChangeVersioned entity) {
+    changeVersionService.recordChange(entity);
+  }
+
+  @PreRemove
+  public void entityRemoving(Object entity) {
+    changeVersionService.recordDeletion(entity);
+  }
+}
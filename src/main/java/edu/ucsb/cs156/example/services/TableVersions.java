@@ -0,0 +1,42 @@
+package edu.ucsb.cs156.example.services;
+
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.context.annotation.Lazy;
+import org.springframework.stereotype.Service;
+
+/**
+ * This builds the ETags that ApiController tags responses with from each table's counter in
+ * TABLE_CHANGE_VERSIONS: while the counter is unchanged, so is every response built from the table,
+ * and a client that already has it gets a 304 Not Modified without the table being queried.
+ *
+ * <p>The counter is in the database, so every app instance tags a response with the same ETag, and
+ * ETags still match after a restart. It is incremented by ChangeVersionService, in the transaction
+ * that changes the table, and only becomes visible when that transaction commits. The version is
+ * read before the table is queried, so a response is never tagged with a version newer than its
+ * rows; at worst it is tagged with an older one, and the next request simply reads the table again.
+ *
+ * <p>This only holds for rows read from the database. The second-level and query caches belong to
+ * each app instance, and may still hold rows that another instance has since changed, so the
+ * queries of tagged responses on cached entities must bypass them (as UCSBDateRepository.findAll
+ * and findUncachedById do); otherwise a stale copy would be tagged with the new version, and the
+ * client would keep it until the table changed again.
+ *
+ * <p>Rows changed without going through an entity (e.g. by a bulk JPQL or SQL statement) do not
+ * increment the counter, so such statements must not be used on tables served with ETags.
+ */
+@Service
+public class TableVersions {
+  // lazy, as most controllers never build a conditional response, and need no database
+  @Lazy @Autowired private ChangeVersionService changeVersionService;
+
+  /**
+   * Returns the ETag of responses built from a table. It is weak, as the same version of a table
+   * may be sent gzipped or not, and Tomcat only compresses responses with weak ETags.
+   *
+   * @param table the entity class of the table
+   * @return the ETag, e.g. {@code W/"42"}
+   */
+  public String etag(Class<?> table) {
+    return "W/\"%d\"".formatted(changeVersionService.currentVersion(table));
+  }
+}
@@ -0,0 +1,63 @@
+package edu.ucsb.cs156.example.services;
+
+import edu.ucsb.cs156.example.entities.User;
+import jakarta.persistence.PostPersist;
+import jakarta.persistence.PostRemove;
+import jakarta.persistence.PostUpdate;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.context.annotation.Lazy;
+import org.springframework.stereotype.Component;
+import org.springframework.transaction.support.TransactionSynchronization;
+import org.springframework.transaction.support.TransactionSynchronizationManager;
+
+/**
+ * This is a JPA entity listener for User that keeps the in-memory views of users up to date: it
+ * evicts a user from the CurrentUserCache whenever their row is updated or deleted, and records in
+ * the AdminDirectory whether they are an admin. A change such as being made an admin therefore
+ * takes effect on the user's next request rather than when the cache entry expires.
+ *
+ * <p>Both are done once the change is committed. Evicting the user any earlier would let a request
+ * in between read the old row back into the cache, and a change that is rolled back must not be
+ * recorded at all.
+ */
+@Component
+public class UserChangeListener {
+  // lazy, because Hibernate creates this listener while the entity manager is being built, before
+  // beans that use repositories (such as AdminDirectory) can be
+  @Lazy @Autowired private CurrentUserCache currentUserCache;
+
+  @Lazy @Autowired private AdminDirectory adminDirectory;
+
+  @PostPersist
+  @PostUpdate
+  public void userSaved(User user) {
+    afterCommit(
+        () -> {
+          currentUserCache.evict(user.getEmail());
+          adminDirectory.userSaved(user);
+        });
+  }
+
+  @PostRemove
+  public void userRemoved(User user) {
+    afterCommit(
+        () -> {
+          currentUserCache.evict(user.getEmail());
+          adminDirectory.userRemoved(user);
+        });
+  }
+
+  private void afterCommit(Runnable action) {
+    if (!TransactionSynchronizationManager.isSynchronizationActive()) {
+      action.run();
+      return;
+    }
+    TransactionSynchronizationManager.registerSynchronization(
+        new TransactionSynchronization() {
+          @Override
+          public void afterCommit() {
+            action.run();
+          }
+        });
+  }
+}
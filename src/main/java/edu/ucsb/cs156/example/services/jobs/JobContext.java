@@ -1,20 +1,154 @@
 package edu.ucsb.cs156.example.services.jobs;
 
 import edu.ucsb.cs156.example.entities.Job;
+import edu.ucsb.cs156.example.entities.JobLogLine;
+import edu.ucsb.cs156.example.errors.JobCancelledException;
+import edu.ucsb.cs156.example.repositories.JobLogLinesRepository;
 import edu.ucsb.cs156.example.repositories.JobsRepository;
-import lombok.AllArgsConstructor;
+import java.nio.charset.StandardCharsets;
+import java.time.Instant;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Objects;
+import lombok.RequiredArgsConstructor;
 import lombok.extern.slf4j.Slf4j;
 
-@AllArgsConstructor
+@RequiredArgsConstructor
 @Slf4j
 public class JobContext {
-  private JobsRepository jobsRepository;
-  private Job job;
+  static final String CANCELLED = "Job was cancelled";
+  static final String TIMED_OUT = "Job exceeded its time limit";
 
-  public void log(String message) {
+  private final JobLogLinesRepository jobLogLinesRepository;
+  private final JobsRepository jobsRepository;
+  private final Job job;
+
+  // lines are buffered in memory and written in one JDBC batch once this many have accumulated;
+  // JobService also flushes on a timer and when the job finishes
+  private final int flushLines;
+
+  private final Instant deadline; // null if the job has no time limit
+
+  private final List<JobLogLine> pendingLines = new ArrayList<>();
+
+  // the thread running the job, interrupted to wake the job up when it is cancelled
+  private final Thread thread = Thread.currentThread();
+
+  private volatile boolean cancelRequested;
+  private boolean finished;
+
+  private long logBytes;
+
+  public synchronized void log(String message) {
     log.info("Job %s: %s".formatted(job.getId(), message));
-    String previousLog = job.getLog() == null ? "" : (job.getLog() + "\n");
-    job.setLog(previousLog + message);
-    if (jobsRepository != null) jobsRepository.save(job);
+    pendingLines.add(JobLogLine.builder().jobId(job.getId()).line(message).build());
+    logBytes += Objects.toString(message, "").getBytes(StandardCharsets.UTF_8).length;
+    if (pendingLines.size() >= flushLines) {
+      flush();
+    }
+  }
+
+  public synchronized void flush() {
+    if (pendingLines.isEmpty()) {
+      return;
+    }
+    if (jobLogLinesRepository != null) {
+      jobLogLinesRepository.insertAll(new ArrayList<>(pendingLines));
+    }
+    pendingLines.clear();
+  }
+
+  /**
+   * Records how far along the job is. Only changes are written, each as a single column update.
+   *
+   * @param percent percent complete, from 0 to 100
+   */
+  public void progress(int percent) {
+    int clamped = Math.max(0, Math.min(100, percent));
+    if (job.getProgress() != null && job.getProgress() == clamped) {
+      return;
+    }
+    job.setProgress(clamped);
+    if (jobsRepository != null) {
+      jobsRepository.updateProgress(job.getId(), clamped);
+    }
+  }
+
+  /**
+   * Returns the checkpoint saved by an earlier attempt of the job. A job that is queued again
+   * because its app instance stopped can carry on from there instead of redoing work that was
+   * already committed.
+   *
+   * @return the last checkpoint saved, or null if there is none
+   */
+  public Long getCheckpoint() {
+    return job.getCheckpoint();
+  }
+
+  /**
+   * Records how far the job has got. Call it in the transaction that commits the work done so far,
+   * so that the checkpoint is saved if and only if the work is.
+   *
+   * @param checkpoint how far the job has got, in whatever unit the job chooses
+   */
+  public void checkpoint(long checkpoint) {
+    job.setCheckpoint(checkpoint);
+    if (jobsRepository != null) {
+      jobsRepository.updateCheckpoint(job.getId(), checkpoint);
+    }
+  }
+
+  /**
+   * Jobs that run for a long time should check this regularly and stop early when it is true.
+   *
+   * @return whether the job has been cancelled or has run past its time limit
+   */
+  public boolean isCancelled() {
+    return cancelRequested || isPastDeadline();
+  }
+
+  /**
+   * Throws if the job has been cancelled or has run past its time limit.
+   *
+   * @throws JobCancelledException if the job should stop
+   */
+  public void checkCancelled() {
+    if (isCancelled()) {
+      throw new JobCancelledException(getCancelReason());
+    }
+  }
+
+  synchronized long getLogBytes() {
+    return logBytes;
+  }
+
+  long getJobId() {
+    return job.getId();
+  }
+
+  String getCancelReason() {
+    return cancelRequested ? CANCELLED : TIMED_OUT;
+  }
+
+  boolean isPastDeadline() {
+    return deadline != null && !Instant.now().isBefore(deadline);
+  }
+
+  synchronized void cancel() {
+    cancelRequested = true;
+    interrupt();
+  }
+
+  synchronized void interrupt() {
+    if (!finished) {
+      thread.interrupt();
+    }
+  }
+
+  /** Called on the job's own thread once the job has returned */
+  synchronized void finish() {
+    finished = true;
+    // clear any interrupt from cancel() so it does not leak into the next job run on this thread
+    Thread.interrupted();
   }
 }
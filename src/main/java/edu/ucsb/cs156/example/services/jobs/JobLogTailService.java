@@ -0,0 +1,118 @@
+package edu.ucsb.cs156.example.services.jobs;
+
+import edu.ucsb.cs156.example.entities.Job;
+import edu.ucsb.cs156.example.entities.JobLogLine;
+import edu.ucsb.cs156.example.errors.EntityNotFoundException;
+import edu.ucsb.cs156.example.repositories.JobLogLinesRepository;
+import edu.ucsb.cs156.example.repositories.JobsRepository;
+import java.io.IOException;
+import java.util.List;
+import java.util.Optional;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Service;
+import org.springframework.web.servlet.mvc.method.annotation.SseEmitter;
+
+/**
+ * This is a service that streams the log of a job to clients as server-sent events.
+ *
+ * <p>Each event carries one log line, with the id of the line as the event id, so a client that
+ * reconnects can resume after the last line it received. New lines are picked up from the
+ * job_log_lines table on the same schedule that running jobs flush their logs, and the stream ends
+ * with a "complete" event once the job has finished, i.e. is neither queued nor running.
+ */
+@Slf4j
+@Service
+public class JobLogTailService {
+  static final List<String> UNFINISHED_STATUSES = List.of("queued", "running");
+
+  @Autowired private JobsRepository jobsRepository;
+
+  @Autowired private JobLogLinesRepository jobLogLinesRepository;
+
+  @Value("${app.jobs.log.streamTimeoutMs}")
+  private long streamTimeoutMs;
+
+  private final Set<Tail> tails = ConcurrentHashMap.newKeySet();
+
+  /** A client following the log of one job */
+  static class Tail {
+    final long jobId;
+    final SseEmitter emitter;
+    long lastLineId;
+
+    Tail(long jobId, SseEmitter emitter, long lastLineId) {
+      this.jobId = jobId;
+      this.emitter = emitter;
+      this.lastLineId = lastLineId;
+    }
+  }
+
+  /**
+   * Starts streaming the log of a job.
+   *
+   * @param jobId id of the job
+   * @param afterLineId id of the last line the client already has (0 for the whole log)
+   * @return the emitter that the log lines are sent to
+   */
+  public SseEmitter tail(long jobId, long afterLineId) {
+    if (!jobsRepository.existsById(jobId)) {
+      throw new EntityNotFoundException(Job.class, jobId);
+    }
+
+    SseEmitter emitter = new SseEmitter(streamTimeoutMs);
+    Tail tail = new Tail(jobId, emitter, afterLineId);
+    tails.add(tail);
+    emitter.onCompletion(() -> tails.remove(tail));
+    emitter.onTimeout(() -> tails.remove(tail));
+    emitter.onError(e -> tails.remove(tail));
+
+    send(tail);
+    return emitter;
+  }
+
+  /** Sends any lines written since the last call to every client following a job log. */
+  @Scheduled(fixedDelayString = "${app.jobs.log.flushIntervalMs}")
+  public void sendNewLines() {
+    tails.forEach(this::send);
+  }
+
+  void send(Tail tail) {
+    synchronized (tail) {
+      sendLines(tail);
+    }
+  }
+
+  private void sendLines(Tail tail) {
+    try {
+      // read the status before the lines: a job's lines are all written before it stops running
+      Optional<String> status = jobsRepository.findStatusById(tail.jobId);
+
+      List<JobLogLine> lines;
+      do {
+        lines =
+            jobLogLinesRepository.findTop500ByJobIdAndIdGreaterThanOrderByIdAsc(
+                tail.jobId, tail.lastLineId);
+        for (JobLogLine line : lines) {
+          tail.emitter.send(
+              SseEmitter.event().id(Long.toString(line.getId())).data(line.getLine()));
+          tail.lastLineId = line.getId();
+        }
+      } while (lines.size() == 500);
+
+      if (!UNFINISHED_STATUSES.contains(status.orElse(""))) {
+        tail.emitter.send(SseEmitter.event().name("complete").data(status.orElse("")));
+        tails.remove(tail);
+        tail.emitter.complete();
+      }
+    } catch (IOException | IllegalStateException e) {
+      log.info("Stopped streaming log of job {}: {}", tail.jobId, e.getMessage());
+      tails.remove(tail);
+      tail.emitter.completeWithError(e);
+    }
+  }
+}
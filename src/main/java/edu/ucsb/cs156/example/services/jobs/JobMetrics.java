@@ -0,0 +1,51 @@
+package edu.ucsb.cs156.example.services.jobs;
+
+import edu.ucsb.cs156.example.entities.Job;
+import io.micrometer.core.instrument.MeterRegistry;
+import java.time.Duration;
+import java.time.ZonedDateTime;
+import org.springframework.stereotype.Component;
+
+/**
+ * This records how jobs use the job threads, per type of job (e.g. TestJob), in the registry read
+ * by the actuator metrics endpoint (/actuator/metrics):
+ *
+ * <ul>
+ *   <li>jobs.queue.wait: time from launching a job until it starts running
+ *   <li>jobs.run: time a job ran for, tagged with its final status (complete, error or cancelled),
+ *       so its count is the number of jobs that finished that way
+ *   <li>jobs.log.bytes: bytes written to job logs
+ * </ul>
+ */
+@Component
+public class JobMetrics {
+  private final MeterRegistry meterRegistry;
+
+  public JobMetrics(MeterRegistry meterRegistry) {
+    this.meterRegistry = meterRegistry;
+  }
+
+  /**
+   * Returns the metrics tag for the type of a job: the simple name of its JobContextConsumer class.
+   *
+   * @param job the job
+   * @return the type of the job, or "unknown" if it was not queued with one
+   */
+  static String typeOf(Job job) {
+    String type = job.getType();
+    return type == null ? "unknown" : type.substring(type.lastIndexOf('.') + 1);
+  }
+
+  public void jobStarted(Job job) {
+    if (job.getCreatedAt() != null) {
+      meterRegistry
+          .timer("jobs.queue.wait", "type", typeOf(job))
+          .record(Duration.between(job.getCreatedAt(), ZonedDateTime.now()));
+    }
+  }
+
+  public void jobFinished(Job job, String status, Duration runTime, long logBytes) {
+    meterRegistry.timer("jobs.run", "type", typeOf(job), "status", status).record(runTime);
+    meterRegistry.counter("jobs.log.bytes", "type", typeOf(job)).increment(logBytes);
+  }
+}
@@ -0,0 +1,75 @@
+package edu.ucsb.cs156.example.services.jobs;
+
+import edu.ucsb.cs156.example.repositories.JobsRepository;
+import edu.ucsb.cs156.example.services.ImportUploadService;
+import java.time.ZonedDateTime;
+import java.util.List;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.data.domain.PageRequest;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Service;
+
+/**
+ * This is a service that deletes old jobs so that the jobs table (and the job_log_lines table
+ * behind it) does not grow without bound.
+ *
+ * <p>Only jobs that have finished, i.e. are complete, have failed or were cancelled, are deleted.
+ * Jobs are deleted in batches, each with a single delete statement, so that a large purge neither
+ * loads the jobs into memory nor holds one long transaction.
+ *
+ * <p>Files uploaded for import jobs are deleted by the jobs once they have run; any uploaded before
+ * the same cutoff that are still stored belong to jobs that never ran, and are deleted too.
+ */
+@Slf4j
+@Service
+public class JobRetentionService {
+  static final List<String> FINISHED_STATUSES = List.of("complete", "error", "cancelled");
+
+  @Autowired private JobsRepository jobsRepository;
+
+  @Autowired private ImportUploadService importUploadService;
+
+  @Value("${app.jobs.retention.days}")
+  private int retentionDays;
+
+  @Value("${app.jobs.retention.batchSize}")
+  private int batchSize;
+
+  /** Deletes finished jobs older than the retention period, unless retention is turned off. */
+  @Scheduled(cron = "${app.jobs.retention.cron}")
+  public void purgeExpiredJobs() {
+    if (retentionDays <= 0) {
+      return;
+    }
+    ZonedDateTime cutoff = ZonedDateTime.now().minusDays(retentionDays);
+    int deleted = purgeJobsFinishedBefore(cutoff);
+    int uploadChunks = importUploadService.deleteUploadedBefore(cutoff);
+    log.info(
+        "Deleted {} jobs and {} pieces of uploaded files older than {} days",
+        deleted,
+        uploadChunks,
+        retentionDays);
+  }
+
+  /**
+   * Deletes finished jobs that were last updated before a cutoff.
+   *
+   * @param cutoff jobs last updated before this time are deleted
+   * @return the number of jobs deleted
+   */
+  public int purgeJobsFinishedBefore(ZonedDateTime cutoff) {
+    int deleted = 0;
+    List<Long> ids;
+    do {
+      ids =
+          jobsRepository.findIdsByStatusInAndUpdatedBefore(
+              FINISHED_STATUSES, cutoff, PageRequest.ofSize(batchSize));
+      if (!ids.isEmpty()) {
+        deleted += jobsRepository.deleteByIdInBulk(ids);
+      }
+    } while (ids.size() == batchSize);
+    return deleted;
+  }
+}
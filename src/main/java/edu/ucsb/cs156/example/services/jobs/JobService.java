@@ -1,44 +1,320 @@
 package edu.ucsb.cs156.example.services.jobs;
 
+import com.fasterxml.jackson.core.JsonProcessingException;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import edu.ucsb.cs156.example.config.JobExecutorConfig;
 import edu.ucsb.cs156.example.entities.Job;
+import edu.ucsb.cs156.example.entities.JobLogLine;
+import edu.ucsb.cs156.example.models.JobExecutorStatus;
+import edu.ucsb.cs156.example.repositories.JobLogLinesRepository;
 import edu.ucsb.cs156.example.repositories.JobsRepository;
 import edu.ucsb.cs156.example.services.CurrentUserService;
+import java.time.Duration;
+import java.time.Instant;
+import java.time.ZonedDateTime;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Optional;
+import java.util.Set;
+import java.util.UUID;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.TimeUnit;
+import lombok.extern.slf4j.Slf4j;
 import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.beans.factory.config.AutowireCapableBeanFactory;
 import org.springframework.context.annotation.Lazy;
+import org.springframework.core.task.TaskRejectedException;
+import org.springframework.data.domain.PageRequest;
 import org.springframework.scheduling.annotation.Async;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.scheduling.concurrent.ThreadPoolTaskExecutor;
 import org.springframework.stereotype.Service;
+import org.springframework.transaction.annotation.Transactional;
 
+/**
+ * This is a service that runs jobs.
+ *
+ * <p>Launching a job only stores it in the jobs table with status "queued". Each app instance
+ * claims queued jobs as it has job threads free, leasing them so that no other instance runs them,
+ * and renews its leases while the jobs run. If an instance stops, the leases on its jobs run out
+ * and the jobs are queued again for another instance (or the restarted one) to pick up.
+ */
+@Slf4j
 @Service
 public class JobService {
   @Autowired private JobsRepository jobsRepository;
 
+  @Autowired private JobLogLinesRepository jobLogLinesRepository;
+
   @Autowired private CurrentUserService currentUserService;
 
+  @Autowired private ObjectMapper objectMapper;
+
+  @Autowired private JobMetrics jobMetrics;
+
   @Lazy @Autowired private JobService self;
 
+  @Autowired private ThreadPoolTaskExecutor jobExecutor;
+
+  @Autowired private AutowireCapableBeanFactory beanFactory;
+
+  @Value("${app.jobs.log.flushLines}")
+  private int logFlushLines;
+
+  @Value("${app.jobs.timeoutSeconds}")
+  private long timeoutSeconds;
+
+  @Value("${app.jobs.queue.leaseSeconds}")
+  private long leaseSeconds;
+
+  @Value("${app.jobs.queue.maxAttempts}")
+  private int maxAttempts;
+
+  // identifies this app instance as the holder of the leases on the jobs it runs
+  private final String nodeId = UUID.randomUUID().toString();
+
+  private final Set<Long> claimedJobIds = ConcurrentHashMap.newKeySet();
+
+  private final Set<JobContext> runningContexts = ConcurrentHashMap.newKeySet();
+
   public Job runAsJob(JobContextConsumer jobFunction) {
-    Job job = Job.builder().createdBy(currentUserService.getUser()).status("running").build();
+    return runAsJob(jobFunction, timeoutSeconds > 0 ? Duration.ofSeconds(timeoutSeconds) : null);
+  }
 
-    jobsRepository.save(job);
-    self.runJobAsync(job, jobFunction);
+  /**
+   * Queues a job to run on whichever app instance has a job thread free first.
+   *
+   * @param jobFunction the job; it is stored as JSON, so it must be a class that Jackson can write
+   *     and read back, not a lambda. Its @Autowired fields are injected when it is read back.
+   * @param timeout time limit of the job (null for none)
+   * @return the queued job
+   */
+  public Job runAsJob(JobContextConsumer jobFunction, Duration timeout) {
+    Job job =
+        Job.builder()
+            .createdBy(currentUserService.getUser())
+            .status("queued")
+            .type(jobFunction.getClass().getName())
+            .payload(writePayload(jobFunction))
+            .timeoutSeconds(timeout != null ? timeout.toSeconds() : null)
+            .build();
 
+    jobsRepository.save(job);
+    self.dispatchQueuedJobs();
     return job;
   }
 
-  @Async
-  public void runJobAsync(Job job, JobContextConsumer jobFunction) {
-    JobContext context = new JobContext(jobsRepository, job);
+  private String writePayload(JobContextConsumer jobFunction) {
+    if (jobFunction.getClass().isSynthetic()) {
+      throw new IllegalArgumentException("A lambda cannot be queued as a job");
+    }
+    try {
+      return objectMapper.writeValueAsString(jobFunction);
+    } catch (JsonProcessingException e) {
+      throw new IllegalArgumentException(
+          "Job %s cannot be queued: %s"
+              .formatted(jobFunction.getClass().getName(), e.getMessage()));
+    }
+  }
+
+  private JobContextConsumer readPayload(Job job) throws Exception {
+    Class<?> type = Class.forName(job.getType());
+    if (!JobContextConsumer.class.isAssignableFrom(type)) {
+      throw new IllegalArgumentException(type.getName() + " is not a job");
+    }
+    JobContextConsumer jobFunction =
+        (JobContextConsumer) objectMapper.readValue(job.getPayload(), type);
+    // only the job's own properties are stored, so give it back the services it uses
+    beanFactory.autowireBean(jobFunction);
+    return jobFunction;
+  }
+
+  /** Claims as many queued jobs as this instance has job threads free, and starts them. */
+  @Scheduled(fixedDelayString = "${app.jobs.queue.pollIntervalMs}")
+  public synchronized void dispatchQueuedJobs() {
+    int free = jobExecutor.getCorePoolSize() - claimedJobIds.size();
+    if (free <= 0) {
+      return;
+    }
+    for (Job job : self.claimQueuedJobs(free)) {
+      claimedJobIds.add(job.getId());
+      start(job);
+    }
+  }
+
+  /**
+   * Leases queued jobs to this instance and marks them as running.
+   *
+   * @param max the most jobs to claim
+   * @return the claimed jobs
+   */
+  @Transactional
+  public List<Job> claimQueuedJobs(int max) {
+    List<Job> jobs = jobsRepository.findQueuedForUpdate(PageRequest.ofSize(max));
+    ZonedDateTime leaseExpiresAt = ZonedDateTime.now().plusSeconds(leaseSeconds);
+    for (Job job : jobs) {
+      job.setStatus("running");
+      job.setAttempts(job.getAttempts() + 1);
+      job.setLeaseOwner(nodeId);
+      job.setLeaseExpiresAt(leaseExpiresAt);
+    }
+    jobsRepository.saveAll(jobs);
+    return jobs;
+  }
 
+  private void start(Job job) {
+    JobContextConsumer jobFunction;
     try {
-      jobFunction.accept(context);
+      jobFunction = readPayload(job);
     } catch (Exception e) {
+      claimedJobIds.remove(job.getId());
+      jobLogLinesRepository.save(
+          JobLogLine.builder()
+              .jobId(job.getId())
+              .line("Job could not be started: " + e.getMessage())
+              .build());
       job.setStatus("error");
-      context.log(e.getMessage());
+      job.setLeaseOwner(null);
+      job.setLeaseExpiresAt(null);
+      jobsRepository.save(job);
+      return;
+    }
+
+    Duration timeout =
+        job.getTimeoutSeconds() != null ? Duration.ofSeconds(job.getTimeoutSeconds()) : null;
+    try {
+      self.runJobAsync(job, jobFunction, timeout);
+    } catch (TaskRejectedException e) {
+      // put the job back for this or another instance to pick up later
+      claimedJobIds.remove(job.getId());
+      job.setStatus("queued");
+      job.setAttempts(job.getAttempts() - 1);
+      job.setLeaseOwner(null);
+      job.setLeaseExpiresAt(null);
+      jobsRepository.save(job);
+    }
+  }
+
+  /**
+   * Extends the leases on the jobs this instance is running, so they are not run elsewhere, and
+   * stops those of them that have been cancelled through another instance.
+   */
+  public void renewLeases() {
+    if (claimedJobIds.isEmpty()) {
       return;
     }
+    List<Long> ids = List.copyOf(claimedJobIds);
+    jobsRepository.renewLeases(ids, nodeId, ZonedDateTime.now().plusSeconds(leaseSeconds));
+    Set<Long> cancelled = Set.copyOf(jobsRepository.findCancelRequestedIds(ids));
+    runningContexts.stream()
+        .filter(c -> cancelled.contains(c.getJobId()) && !c.isCancelled())
+        .forEach(JobContext::cancel);
+  }
+
+  /**
+   * Queues again the jobs whose lease has run out because the instance running them stopped, or
+   * marks them as failed once they have been started maxAttempts times.
+   *
+   * <p>The leases of this instance's own jobs are renewed first, and its own jobs are left out
+   * however late that was, so a job still running here is never recovered and started a second
+   * time.
+   */
+  @Scheduled(fixedDelayString = "${app.jobs.queue.renewIntervalMs}")
+  public void recoverOrphanedJobs() {
+    renewLeases();
+    ZonedDateTime now = ZonedDateTime.now();
+    // never empty, since some databases reject NOT IN ()
+    List<Long> ownJobIds = new ArrayList<>(claimedJobIds);
+    ownJobIds.add(-1L);
+    int failed = jobsRepository.failExpiredLeases(now, maxAttempts, nodeId, ownJobIds);
+    int requeued = jobsRepository.requeueExpiredLeases(now, nodeId, ownJobIds);
+    if (failed > 0 || requeued > 0) {
+      log.info("Recovered orphaned jobs: {} queued again, {} failed", requeued, failed);
+    }
+  }
+
+  @Async(JobExecutorConfig.JOB_EXECUTOR)
+  public void runJobAsync(Job job, JobContextConsumer jobFunction, Duration timeout) {
+    Instant deadline = timeout != null ? Instant.now().plus(timeout) : null;
+    JobContext context =
+        new JobContext(jobLogLinesRepository, jobsRepository, job, logFlushLines, deadline);
+    runningContexts.add(context);
+
+    if (job.getAttempts() > 1) {
+      context.log("Restarting job (attempt %d)".formatted(job.getAttempts()));
+    }
 
-    job.setStatus("complete");
+    jobMetrics.jobStarted(job);
+    long startNanos = System.nanoTime();
+    String status = "complete";
+    try {
+      jobFunction.accept(context);
+    } catch (Exception e) {
+      // a job that finished its work despite being cancelled or timing out is still complete
+      if (context.isCancelled()) {
+        status = "cancelled";
+        context.log(context.getCancelReason());
+      } else {
+        status = "error";
+        context.log(e.getMessage());
+      }
+    } finally {
+      runningContexts.remove(context);
+      claimedJobIds.remove(job.getId());
+      context.finish();
+    }
+    Duration runTime = Duration.ofNanos(System.nanoTime() - startNanos);
+
+    context.flush();
+    job.setStatus(status);
+    job.setLeaseOwner(null);
+    job.setLeaseExpiresAt(null);
     jobsRepository.save(job);
+    jobMetrics.jobFinished(job, status, runTime, context.getLogBytes());
+  }
+
+  /**
+   * Asks a running job to stop, by making JobContext.isCancelled() return true and interrupting the
+   * thread it runs on. A job that has not started yet is cancelled straight away. A job running on
+   * another app instance is marked in the jobs table, and that instance stops it when it next
+   * renews its leases.
+   *
+   * @param jobId id of the job
+   * @return whether the job was queued or running, and has been cancelled or asked to stop
+   */
+  public boolean cancelJob(long jobId) {
+    Optional<JobContext> context =
+        runningContexts.stream().filter(c -> c.getJobId() == jobId).findFirst();
+    if (context.isPresent()) {
+      context.get().cancel();
+      return true;
+    }
+    return jobsRepository.cancelIfQueued(jobId) > 0 || jobsRepository.requestCancel(jobId) > 0;
+  }
+
+  /** Interrupts jobs that have run past their time limit. */
+  @Scheduled(fixedDelay = 1, timeUnit = TimeUnit.SECONDS)
+  public void interruptTimedOutJobs() {
+    runningContexts.stream().filter(JobContext::isPastDeadline).forEach(JobContext::interrupt);
+  }
+
+  /**
+   * Writes out log lines that running jobs have buffered but not yet flushed, so that the log of a
+   * quiet job is never more than one flush interval behind.
+   */
+  @Scheduled(fixedDelayString = "${app.jobs.log.flushIntervalMs}")
+  public void flushRunningJobLogs() {
+    runningContexts.forEach(JobContext::flush);
+  }
+
+  public JobExecutorStatus getExecutorStatus() {
+    return JobExecutorStatus.builder()
+        .corePoolSize(jobExecutor.getCorePoolSize())
+        .poolSize(jobExecutor.getPoolSize())
+        .activeCount(jobExecutor.getActiveCount())
+        .queueSize(jobsRepository.countByStatus("queued"))
+        .build();
   }
 
   public String getJobLogs(Long jobId) {
@@ -47,7 +323,12 @@ public class JobService {
             .findById(jobId)
             .orElseThrow(() -> new IllegalArgumentException("Job not found"));
 
-    String log = job.getLog();
-    return log != null ? log : "";
+    // jobs that ran before log lines were stored separately keep their log on the job itself
+    List<String> lines = new ArrayList<>();
+    if (job.getLog() != null) {
+      lines.add(job.getLog());
+    }
+    lines.addAll(jobLogLinesRepository.findLinesByJobId(jobId));
+    return String.join("\n", lines);
   }
 }
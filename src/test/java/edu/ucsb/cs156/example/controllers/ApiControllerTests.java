@@ -1,18 +1,40 @@
 package edu.ucsb.cs156.example.controllers;
 
 import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertNull;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.never;
+import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.when;
 import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.*;
 import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.*;
 
 import edu.ucsb.cs156.example.ControllerTestCase;
+import edu.ucsb.cs156.example.models.CursorPage;
+import edu.ucsb.cs156.example.repositories.PagedRepository;
 import edu.ucsb.cs156.example.repositories.UserRepository;
+import edu.ucsb.cs156.example.services.ChangeVersionService;
 import edu.ucsb.cs156.example.testconfig.TestConfig;
+import java.util.List;
 import java.util.Map;
+import java.util.Set;
 import org.junit.jupiter.api.Test;
 import org.springframework.boot.test.autoconfigure.web.servlet.WebMvcTest;
 import org.springframework.context.annotation.Import;
+import org.springframework.data.domain.Limit;
+import org.springframework.data.domain.PageImpl;
+import org.springframework.data.domain.PageRequest;
+import org.springframework.data.domain.Pageable;
+import org.springframework.data.domain.ScrollPosition;
+import org.springframework.data.domain.Sort;
+import org.springframework.data.domain.Window;
+import org.springframework.http.HttpHeaders;
+import org.springframework.http.HttpStatus;
 import org.springframework.test.context.bean.override.mockito.MockitoBean;
 import org.springframework.test.web.servlet.MvcResult;
+import org.springframework.web.server.ResponseStatusException;
 
 @WebMvcTest(controllers = DummyController.class)
 @Import(TestConfig.class)
@@ -20,6 +42,8 @@ public class ApiControllerTests extends ControllerTestCase {
 
   @MockitoBean UserRepository userRepository;
 
+  @MockitoBean ChangeVersionService changeVersionService;
+
   @Test
   public void generic_message_test() {
     ApiController apiController = new DummyController();
@@ -53,4 +77,92 @@ public class ApiControllerTests extends ControllerTestCase {
     assertEquals("EntityNotFoundException", json.get("type"));
     assertEquals("String with id 7 not found", json.get("message"));
   }
+
+  @SuppressWarnings("unchecked")
+  private final PagedRepository<String, Long> pagedRepository = mock(PagedRepository.class);
+
+  @Test
+  public void page_of_rejects_sort_properties_that_are_not_allowed() {
+    ApiController apiController = new DummyController();
+
+    ResponseStatusException e =
+        assertThrows(
+            ResponseStatusException.class,
+            () ->
+                apiController.pageOf(
+                    pagedRepository, "id", Set.of("id"), 0, 20, "secret", Sort.Direction.ASC));
+
+    assertEquals(HttpStatus.BAD_REQUEST, e.getStatusCode());
+    assertEquals("Cannot sort by secret", e.getReason());
+    verify(pagedRepository, never()).findAll(any(Pageable.class));
+  }
+
+  @Test
+  public void page_of_sorts_by_id_alone_and_keeps_page_and_size_in_bounds() {
+    // arrange
+    ApiController apiController = new DummyController();
+    PageRequest expectedPageRequest = PageRequest.of(0, 1, Sort.by(Sort.Direction.ASC, "id"));
+    when(pagedRepository.findAll(expectedPageRequest))
+        .thenReturn(new PageImpl<>(List.of("String1"), expectedPageRequest, 1));
+
+    // act
+    var page =
+        apiController.pageOf(pagedRepository, "id", Set.of("id"), -1, 0, "id", Sort.Direction.ASC);
+
+    // assert
+    assertEquals(List.of("String1"), page.getContent());
+  }
+
+  @Test
+  public void page_after_starts_from_the_beginning_and_ends_without_a_cursor() {
+    // arrange
+    ApiController apiController = new DummyController();
+    when(pagedRepository.findAllBy(
+            ScrollPosition.keyset(), Sort.by(Sort.Direction.DESC, "id"), Limit.of(100)))
+        .thenReturn(Window.from(List.of("String1"), i -> ScrollPosition.keyset(), false));
+
+    // act
+    CursorPage<String> page =
+        apiController.pageAfter(pagedRepository, "id", null, 1000, Sort.Direction.DESC);
+
+    // assert
+    assertEquals(List.of("String1"), page.getContent());
+    assertNull(page.getNext());
+  }
+
+  @Test
+  public void unless_not_modified_tags_the_response_with_the_table_version() throws Exception {
+    // arrange
+    when(changeVersionService.currentVersion(String.class)).thenReturn(5L);
+
+    // act
+    MvcResult response =
+        mockMvc.perform(get("/dummycontroller/all")).andExpect(status().isOk()).andReturn();
+
+    // assert
+    assertEquals("W/\"5\"", response.getResponse().getHeader(HttpHeaders.ETAG));
+    assertEquals("[\"String1\"]", response.getResponse().getContentAsString());
+  }
+
+  @Test
+  public void unless_not_modified_answers_304_until_the_table_changes() throws Exception {
+    // arrange
+    String etag = "W/\"5\"";
+    when(changeVersionService.currentVersion(String.class)).thenReturn(5L);
+
+    // act & assert
+    MvcResult notModified =
+        mockMvc
+            .perform(get("/dummycontroller/all").header(HttpHeaders.IF_NONE_MATCH, etag))
+            .andExpect(status().isNotModified())
+            .andExpect(header().string(HttpHeaders.ETAG, etag))
+            .andReturn();
+    assertEquals("", notModified.getResponse().getContentAsString());
+
+    when(changeVersionService.currentVersion(String.class)).thenReturn(6L);
+    mockMvc
+        .perform(get("/dummycontroller/all").header(HttpHeaders.IF_NONE_MATCH, etag))
+        .andExpect(status().isOk())
+        .andExpect(header().string(HttpHeaders.ETAG, "W/\"6\""));
+  }
 }
@@ -1,10 +1,12 @@
 package edu.ucsb.cs156.example.controllers;
 
 import edu.ucsb.cs156.example.errors.EntityNotFoundException;
+import java.util.List;
 import org.springframework.web.bind.annotation.GetMapping;
 import org.springframework.web.bind.annotation.RequestMapping;
 import org.springframework.web.bind.annotation.RequestParam;
 import org.springframework.web.bind.annotation.RestController;
+import org.springframework.web.context.request.WebRequest;
 
 /** This class is used to test ApiController and EntityNotFoundException */
 @RequestMapping("/dummycontroller")
@@ -18,4 +20,9 @@ public class DummyController extends ApiController {
     }
     throw new EntityNotFoundException(String.class, id);
   }
+
+  @GetMapping("/all")
+  public List<String> all(WebRequest request) {
+    return unlessNotModified(request, String.class, () -> List.of("String1"));
+  }
 }
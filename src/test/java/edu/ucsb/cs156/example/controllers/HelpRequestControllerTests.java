@@ -4,39 +4,66 @@ import static org.hamcrest.Matchers.*;
 import static org.junit.jupiter.api.Assertions.assertEquals;
 import static org.mockito.ArgumentMatchers.any;
 import static org.mockito.ArgumentMatchers.eq;
+import static org.mockito.Mockito.never;
 import static org.mockito.Mockito.times;
 import static org.mockito.Mockito.verify;
 import static org.mockito.Mockito.when;
 import static org.springframework.security.test.web.servlet.request.SecurityMockMvcRequestPostProcessors.csrf;
+import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.asyncDispatch;
 import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.delete;
 import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.get;
 import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.post;
 import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.put;
+import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.request;
 import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.status;
 
 import edu.ucsb.cs156.example.ControllerTestCase;
 import edu.ucsb.cs156.example.entities.HelpRequest;
+import edu.ucsb.cs156.example.models.Changes;
+import edu.ucsb.cs156.example.models.CursorPage;
 import edu.ucsb.cs156.example.repositories.HelpRequestRepository;
 import edu.ucsb.cs156.example.repositories.UserRepository;
+import edu.ucsb.cs156.example.services.ChangeVersionService;
+import edu.ucsb.cs156.example.services.ExportService;
 import edu.ucsb.cs156.example.testconfig.TestConfig;
+import jakarta.persistence.EntityManager;
 import java.time.LocalDateTime;
 import java.util.ArrayList;
 import java.util.Arrays;
+import java.util.List;
 import java.util.Map;
 import java.util.Optional;
+import java.util.stream.Stream;
 import org.junit.jupiter.api.Test;
 import org.springframework.boot.test.autoconfigure.web.servlet.WebMvcTest;
 import org.springframework.boot.test.mock.mockito.MockBean;
 import org.springframework.context.annotation.Import;
+import org.springframework.data.domain.Limit;
+import org.springframework.data.domain.PageImpl;
+import org.springframework.data.domain.PageRequest;
+import org.springframework.data.domain.ScrollPosition;
+import org.springframework.data.domain.Sort;
+import org.springframework.data.domain.Window;
+import org.springframework.data.web.PagedModel;
+import org.springframework.http.HttpHeaders;
 import org.springframework.http.MediaType;
 import org.springframework.security.test.context.support.WithMockUser;
+import org.springframework.test.context.bean.override.mockito.MockitoBean;
 import org.springframework.test.web.servlet.MvcResult;
+import org.springframework.transaction.PlatformTransactionManager;
 
 @WebMvcTest(controllers = HelpRequestController.class)
-@Import(TestConfig.class)
+@Import({TestConfig.class, ExportService.class})
 public class HelpRequestControllerTests extends ControllerTestCase {
+
+  @MockitoBean EntityManager entityManager;
+
+  @MockitoBean PlatformTransactionManager transactionManager;
+
   @MockBean HelpRequestRepository helpRequestRepository;
 
+  @MockitoBean ChangeVersionService changeVersionService;
+
   @MockBean UserRepository userRepository;
 
   // Authorization tests for /api/helpRequests/admin/all
@@ -423,4 +450,224 @@ public class HelpRequestControllerTests extends ControllerTestCase {
         .perform(post("/api/helprequests/delete"))
         .andExpect(status().is(403)); // only admins can delete
   }
+
+  @WithMockUser(roles = {"USER"})
+  @Test
+  public void logged_in_user_can_get_a_page_of_help_requests() throws Exception {
+    // arrange
+    List<HelpRequest> expected =
+        List.of(
+            HelpRequest.builder().id(7L).teamId("first").build(),
+            HelpRequest.builder().id(8L).teamId("second").build());
+    PageRequest pageRequest =
+        PageRequest.of(
+            2, 100, Sort.by(Sort.Direction.DESC, "teamId").and(Sort.by(Sort.Direction.DESC, "id")));
+    when(helpRequestRepository.findAll(eq(pageRequest)))
+        .thenReturn(new PageImpl<>(expected, pageRequest, 202));
+
+    // act
+    MvcResult response =
+        mockMvc
+            .perform(get("/api/helprequests/page?page=2&size=500&sort=teamId&direction=DESC"))
+            .andExpect(status().isOk())
+            .andReturn();
+
+    // assert
+    verify(helpRequestRepository, times(1)).findAll(eq(pageRequest));
+    String expectedJson =
+        mapper.writeValueAsString(new PagedModel<>(new PageImpl<>(expected, pageRequest, 202)));
+    assertEquals(expectedJson, response.getResponse().getContentAsString());
+  }
+
+  @WithMockUser(roles = {"USER"})
+  @Test
+  public void logged_in_user_can_get_help_requests_after_a_cursor() throws Exception {
+    // arrange
+    List<HelpRequest> expected =
+        List.of(
+            HelpRequest.builder().id(7L).teamId("first").build(),
+            HelpRequest.builder().id(8L).teamId("second").build());
+    ScrollPosition position = ScrollPosition.forward(Map.of("id", 6L));
+    when(helpRequestRepository.findAllBy(
+            eq(position), eq(Sort.by(Sort.Direction.ASC, "id")), eq(Limit.of(2))))
+        .thenReturn(
+            Window.from(
+                expected, i -> ScrollPosition.forward(Map.of("id", i == 0 ? 7L : 8L)), true));
+
+    // act
+    MvcResult response =
+        mockMvc
+            .perform(get("/api/helprequests/cursor?after=6&size=2"))
+            .andExpect(status().isOk())
+            .andReturn();
+
+    // assert
+    String expectedJson = mapper.writeValueAsString(new CursorPage<>(expected, 8L));
+    assertEquals(expectedJson, response.getResponse().getContentAsString());
+  }
+
+  @WithMockUser(roles = {"ADMIN", "USER"})
+  @Test
+  public void admin_can_post_help_requests_in_bulk_and_new_ids_are_assigned() throws Exception {
+    // arrange
+    List<HelpRequest> incoming =
+        List.of(
+            HelpRequest.builder().id(7L).teamId("first").build(),
+            HelpRequest.builder().id(8L).teamId("second").build());
+    List<HelpRequest> expected =
+        List.of(
+            HelpRequest.builder().id(0L).teamId("first").build(),
+            HelpRequest.builder().id(0L).teamId("second").build());
+    when(helpRequestRepository.saveAll(any())).thenAnswer(invocation -> invocation.getArgument(0));
+
+    // act
+    MvcResult response =
+        mockMvc
+            .perform(
+                post("/api/helprequests/bulk")
+                    .with(csrf())
+                    .contentType(MediaType.APPLICATION_JSON)
+                    .content(mapper.writeValueAsString(incoming)))
+            .andExpect(status().isOk())
+            .andReturn();
+
+    // assert
+    verify(helpRequestRepository, times(1)).saveAll(eq(expected));
+    assertEquals(mapper.writeValueAsString(expected), response.getResponse().getContentAsString());
+  }
+
+  @WithMockUser(roles = {"ADMIN", "USER"})
+  @Test
+  public void admin_can_update_help_requests_in_bulk() throws Exception {
+    // arrange
+    List<HelpRequest> incoming =
+        List.of(
+            HelpRequest.builder().id(7L).teamId("first").build(),
+            HelpRequest.builder().id(8L).teamId("second").build());
+    when(helpRequestRepository.findAllById(eq(List.of(7L, 8L)))).thenReturn(incoming);
+    when(helpRequestRepository.saveAll(eq(incoming))).thenReturn(incoming);
+
+    // act
+    MvcResult response =
+        mockMvc
+            .perform(
+                put("/api/helprequests/bulk")
+                    .with(csrf())
+                    .contentType(MediaType.APPLICATION_JSON)
+                    .content(mapper.writeValueAsString(incoming)))
+            .andExpect(status().isOk())
+            .andReturn();
+
+    // assert
+    verify(helpRequestRepository, times(1)).saveAll(eq(incoming));
+    assertEquals(mapper.writeValueAsString(incoming), response.getResponse().getContentAsString());
+  }
+
+  @WithMockUser(roles = {"ADMIN", "USER"})
+  @Test
+  public void admin_cannot_update_help_requests_in_bulk_when_one_does_not_exist() throws Exception {
+    // arrange
+    List<HelpRequest> incoming =
+        List.of(
+            HelpRequest.builder().id(7L).teamId("first").build(),
+            HelpRequest.builder().id(8L).teamId("second").build());
+    when(helpRequestRepository.findAllById(eq(List.of(7L, 8L))))
+        .thenReturn(List.of(incoming.get(0)));
+
+    // act
+    MvcResult response =
+        mockMvc
+            .perform(
+                put("/api/helprequests/bulk")
+                    .with(csrf())
+                    .contentType(MediaType.APPLICATION_JSON)
+                    .content(mapper.writeValueAsString(incoming)))
+            .andExpect(status().isNotFound())
+            .andReturn();
+
+    // assert
+    verify(helpRequestRepository, never()).saveAll(any());
+    Map<String, Object> json = responseToJson(response);
+    assertEquals("HelpRequest with id 8 not found", json.get("message"));
+  }
+
+  @WithMockUser(roles = {"USER"})
+  @Test
+  public void logged_in_user_can_export_help_requests_as_csv() throws Exception {
+    // arrange
+    HelpRequest first =
+        HelpRequest.builder()
+            .id(7L)
+            .requesterEmail("cgaucho@ucsb.edu")
+            .teamId("s22-5pm-3")
+            .tableOrBreakoutRoom("7")
+            .requestTime(LocalDateTime.parse("2022-04-20T17:35:00"))
+            .explanation("Need help with Swagger-ui")
+            .solved(false)
+            .build();
+    HelpRequest second =
+        HelpRequest.builder()
+            .id(8L)
+            .requesterEmail("ldelplaya@ucsb.edu")
+            .teamId("s22-6pm-4")
+            .tableOrBreakoutRoom("13")
+            .requestTime(LocalDateTime.parse("2022-04-20T18:31:00"))
+            .explanation("Dokku problems")
+            .solved(true)
+            .build();
+    when(helpRequestRepository.streamAll()).thenReturn(Stream.of(first, second));
+
+    // act
+    MvcResult started =
+        mockMvc
+            .perform(get("/api/helprequests/export"))
+            .andExpect(request().asyncStarted())
+            .andReturn();
+    MvcResult response =
+        mockMvc.perform(asyncDispatch(started)).andExpect(status().isOk()).andReturn();
+
+    // assert
+    assertEquals("text/csv", response.getResponse().getContentType());
+    assertEquals(
+        "attachment; filename=\"helprequests.csv\"",
+        response.getResponse().getHeader(HttpHeaders.CONTENT_DISPOSITION));
+    assertEquals(
+        """
+        explanation,id,requestTime,requesterEmail,solved,tableOrBreakoutRoom,teamId
+        "Need help with Swagger-ui",7,2022-04-20T17:35:00,cgaucho@ucsb.edu,false,7,s22-5pm-3
+        "Dokku problems",8,2022-04-20T18:31:00,ldelplaya@ucsb.edu,true,13,s22-6pm-4
+        """,
+        response.getResponse().getContentAsString());
+    verify(entityManager).detach(first);
+    verify(entityManager).detach(second);
+  }
+
+  @Test
+  public void logged_out_users_cannot_export_help_requests() throws Exception {
+    mockMvc.perform(get("/api/helprequests/export")).andExpect(status().is(403));
+  }
+
+  @Test
+  public void logged_out_users_cannot_get_changes() throws Exception {
+    mockMvc.perform(get("/api/helprequests/changes")).andExpect(status().is(403));
+  }
+
+  @WithMockUser(roles = {"USER"})
+  @Test
+  public void logged_in_users_can_get_changes_since_a_version() throws Exception {
+    // arrange
+    Changes<HelpRequest> changes = new Changes<>(7, List.of(), List.of("3"));
+    when(changeVersionService.changesSince(helpRequestRepository, HelpRequest.class, 5))
+        .thenReturn(changes);
+
+    // act
+    MvcResult response =
+        mockMvc
+            .perform(get("/api/helprequests/changes?since=5"))
+            .andExpect(status().isOk())
+            .andReturn();
+
+    // assert
+    assertEquals(mapper.writeValueAsString(changes), response.getResponse().getContentAsString());
+  }
 }
@@ -3,49 +3,98 @@ package edu.ucsb.cs156.example.controllers;
 import static java.util.concurrent.TimeUnit.SECONDS;
 import static org.awaitility.Awaitility.await;
 import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertNull;
 import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.argThat;
 import static org.mockito.ArgumentMatchers.eq;
 import static org.mockito.Mockito.*;
+import static org.mockito.Mockito.atLeastOnce;
 import static org.springframework.security.test.web.servlet.request.SecurityMockMvcRequestPostProcessors.csrf;
+import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.asyncDispatch;
 import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.delete;
 import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.get;
+import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.multipart;
 import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.post;
 import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.content;
+import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.request;
 import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.status;
 
 import com.fasterxml.jackson.databind.ObjectMapper;
 import edu.ucsb.cs156.example.ControllerTestCase;
+import edu.ucsb.cs156.example.config.JobExecutorConfig;
 import edu.ucsb.cs156.example.entities.Job;
+import edu.ucsb.cs156.example.entities.JobLogLine;
 import edu.ucsb.cs156.example.entities.User;
+import edu.ucsb.cs156.example.jobs.ImportJob;
+import edu.ucsb.cs156.example.jobs.TestJob;
+import edu.ucsb.cs156.example.models.JobListing;
+import edu.ucsb.cs156.example.models.JobSummary;
+import edu.ucsb.cs156.example.repositories.JobLogLinesRepository;
 import edu.ucsb.cs156.example.repositories.JobsRepository;
 import edu.ucsb.cs156.example.repositories.UserRepository;
+import edu.ucsb.cs156.example.services.EntityImportService;
+import edu.ucsb.cs156.example.services.ImportUploadService;
+import edu.ucsb.cs156.example.services.JsonStreamingService;
+import edu.ucsb.cs156.example.services.jobs.JobLogTailService;
+import edu.ucsb.cs156.example.services.jobs.JobMetrics;
 import edu.ucsb.cs156.example.services.jobs.JobService;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import java.io.ByteArrayInputStream;
+import java.io.InputStream;
 import java.util.ArrayList;
-import java.util.Arrays;
+import java.util.List;
 import java.util.Map;
 import java.util.Optional;
+import java.util.Queue;
+import java.util.Set;
+import java.util.concurrent.ConcurrentLinkedQueue;
 import lombok.extern.slf4j.Slf4j;
 import org.junit.jupiter.api.Test;
+import org.mockito.ArgumentCaptor;
 import org.springframework.beans.factory.annotation.Autowired;
 import org.springframework.boot.test.autoconfigure.orm.jpa.AutoConfigureDataJpa;
 import org.springframework.boot.test.autoconfigure.web.servlet.WebMvcTest;
 import org.springframework.context.annotation.Import;
+import org.springframework.data.domain.PageImpl;
+import org.springframework.data.domain.PageRequest;
+import org.springframework.data.domain.Sort;
+import org.springframework.data.projection.ProjectionFactory;
+import org.springframework.data.projection.SpelAwareProxyProjectionFactory;
+import org.springframework.mock.web.MockMultipartFile;
 import org.springframework.security.test.context.support.WithMockUser;
+import org.springframework.test.context.TestPropertySource;
 import org.springframework.test.context.bean.override.mockito.MockitoBean;
 import org.springframework.test.web.servlet.MvcResult;
 
 @Slf4j
 @WebMvcTest(controllers = JobsController.class)
-@Import(JobService.class)
+@Import({
+  JsonStreamingService.class,
+  JobService.class,
+  JobLogTailService.class,
+  JobMetrics.class,
+  JobExecutorConfig.class,
+  SimpleMeterRegistry.class
+})
 @AutoConfigureDataJpa
+@TestPropertySource(properties = "app.jobs.import.maxBytes=500000")
 public class JobsControllerTests extends ControllerTestCase {
 
   @MockitoBean JobsRepository jobsRepository;
 
+  @MockitoBean JobLogLinesRepository jobLogLinesRepository;
+
   @MockitoBean UserRepository userRepository;
 
+  @MockitoBean EntityImportService entityImportService;
+
+  @MockitoBean ImportUploadService importUploadService;
+
   @Autowired JobService jobService;
 
+  @Autowired JobLogTailService jobLogTailService;
+
   @Autowired ObjectMapper objectMapper;
 
   @WithMockUser(roles = {"ADMIN"})
@@ -54,24 +103,162 @@ public class JobsControllerTests extends ControllerTestCase {
 
     // arrange
 
-    Job job1 = Job.builder().log("this is job 1").build();
+    Job job1 = Job.builder().log("this is job 1").payload("{\"fail\":false}").build();
     Job job2 = Job.builder().log("this is job 2").build();
 
-    ArrayList<Job> expectedJobs = new ArrayList<>();
-    expectedJobs.addAll(Arrays.asList(job1, job2));
+    ProjectionFactory projections = new SpelAwareProxyProjectionFactory();
+    List<JobListing> expectedJobs =
+        List.of(
+            projections.createProjection(JobListing.class, job1),
+            projections.createProjection(JobListing.class, job2));
 
-    when(jobsRepository.findAll()).thenReturn(expectedJobs);
+    when(jobsRepository.streamAll()).thenReturn(expectedJobs.stream());
 
     // act
+    MvcResult started =
+        mockMvc.perform(get("/api/jobs/all")).andExpect(request().asyncStarted()).andReturn();
     MvcResult response =
-        mockMvc.perform(get("/api/jobs/all")).andExpect(status().isOk()).andReturn();
+        mockMvc.perform(asyncDispatch(started)).andExpect(status().isOk()).andReturn();
 
     // assert
 
-    verify(jobsRepository, atLeastOnce()).findAll();
-    String expectedJson = mapper.writeValueAsString(expectedJobs);
+    verify(jobsRepository, times(1)).streamAll();
     String responseString = response.getResponse().getContentAsString();
-    assertEquals(expectedJson, responseString);
+    assertEquals(
+        mapper.readTree(mapper.writeValueAsString(List.of(job1, job2))),
+        mapper.readTree(responseString));
+    assertFalse(responseString.contains("payload"));
+  }
+
+  @WithMockUser(roles = {"ADMIN"})
+  @Test
+  public void admin_can_get_first_page_of_jobs_with_defaults() throws Exception {
+
+    // arrange
+
+    JobSummary summary =
+        new SpelAwareProxyProjectionFactory()
+            .createProjection(
+                JobSummary.class, Map.of("id", 5L, "createdById", 1L, "status", "complete"));
+    PageRequest expectedPageRequest =
+        PageRequest.of(
+            0,
+            20,
+            Sort.by(Sort.Direction.DESC, "createdAt").and(Sort.by(Sort.Direction.DESC, "id")));
+    when(jobsRepository.findSummaries(expectedPageRequest))
+        .thenReturn(new PageImpl<>(List.of(summary), expectedPageRequest, 41));
+
+    // act
+    MvcResult response =
+        mockMvc.perform(get("/api/jobs/page")).andExpect(status().isOk()).andReturn();
+
+    // assert
+
+    verify(jobsRepository, times(1)).findSummaries(expectedPageRequest);
+    verify(jobsRepository, never()).findAll();
+    Map<String, Object> json = responseToJson(response);
+    List<Map<String, Object>> content = (List<Map<String, Object>>) json.get("content");
+    assertEquals(1, content.size());
+    assertEquals(5, content.get(0).get("id"));
+    assertEquals("complete", content.get(0).get("status"));
+    assertEquals(false, content.get(0).containsKey("log"));
+    Map<String, Object> page = (Map<String, Object>) json.get("page");
+    assertEquals(41, page.get("totalElements"));
+    assertEquals(3, page.get("totalPages"));
+  }
+
+  @WithMockUser(roles = {"ADMIN"})
+  @Test
+  public void admin_can_filter_sort_and_page_jobs() throws Exception {
+
+    // arrange
+
+    PageRequest expectedPageRequest =
+        PageRequest.of(
+            2,
+            100,
+            Sort.by(Sort.Direction.ASC, "createdBy.id").and(Sort.by(Sort.Direction.ASC, "id")));
+    when(jobsRepository.findSummariesByStatusAndCreatedById("error", 7L, expectedPageRequest))
+        .thenReturn(new PageImpl<>(List.of(), expectedPageRequest, 0));
+
+    // act
+    mockMvc
+        .perform(
+            get(
+                "/api/jobs/page?page=2&size=5000&sort=createdBy&direction=ASC&status=error&createdById=7"))
+        .andExpect(status().isOk());
+
+    // assert
+    verify(jobsRepository, times(1))
+        .findSummariesByStatusAndCreatedById("error", 7L, expectedPageRequest);
+  }
+
+  @WithMockUser(roles = {"ADMIN"})
+  @Test
+  public void admin_can_filter_jobs_by_status() throws Exception {
+
+    // arrange
+
+    PageRequest expectedPageRequest =
+        PageRequest.of(
+            0,
+            20,
+            Sort.by(Sort.Direction.DESC, "createdAt").and(Sort.by(Sort.Direction.DESC, "id")));
+    when(jobsRepository.findSummariesByStatus("running", expectedPageRequest))
+        .thenReturn(new PageImpl<>(List.of(), expectedPageRequest, 0));
+
+    // act
+    mockMvc.perform(get("/api/jobs/page?status=running")).andExpect(status().isOk());
+
+    // assert
+    verify(jobsRepository, times(1)).findSummariesByStatus("running", expectedPageRequest);
+  }
+
+  @WithMockUser(roles = {"ADMIN"})
+  @Test
+  public void admin_can_filter_jobs_by_creator() throws Exception {
+
+    // arrange
+
+    PageRequest expectedPageRequest =
+        PageRequest.of(
+            0,
+            20,
+            Sort.by(Sort.Direction.DESC, "createdAt").and(Sort.by(Sort.Direction.DESC, "id")));
+    when(jobsRepository.findSummariesByCreatedById(7L, expectedPageRequest))
+        .thenReturn(new PageImpl<>(List.of(), expectedPageRequest, 0));
+
+    // act
+    mockMvc.perform(get("/api/jobs/page?createdById=7")).andExpect(status().isOk());
+
+    // assert
+    verify(jobsRepository, times(1)).findSummariesByCreatedById(7L, expectedPageRequest);
+  }
+
+  @WithMockUser(roles = {"ADMIN"})
+  @Test
+  public void page_of_jobs_clamps_negative_page_and_size() throws Exception {
+
+    // arrange
+
+    PageRequest expectedPageRequest =
+        PageRequest.of(
+            0, 1, Sort.by(Sort.Direction.DESC, "status").and(Sort.by(Sort.Direction.DESC, "id")));
+    when(jobsRepository.findSummaries(expectedPageRequest))
+        .thenReturn(new PageImpl<>(List.of(), expectedPageRequest, 0));
+
+    // act
+    mockMvc.perform(get("/api/jobs/page?page=-1&size=0&sort=status")).andExpect(status().isOk());
+
+    // assert
+    verify(jobsRepository, times(1)).findSummaries(expectedPageRequest);
+  }
+
+  @WithMockUser(roles = {"ADMIN"})
+  @Test
+  public void page_of_jobs_rejects_unknown_sort() throws Exception {
+    mockMvc.perform(get("/api/jobs/page?sort=log")).andExpect(status().isBadRequest());
+    verify(jobsRepository, never()).findSummaries(any());
   }
 
   @WithMockUser(roles = {"ADMIN"})
@@ -80,7 +267,13 @@ public class JobsControllerTests extends ControllerTestCase {
 
     // arrange
 
-    Job job = Job.builder().id(1L).status("completed").log("This is a test job log.").build();
+    Job job =
+        Job.builder()
+            .id(1L)
+            .status("completed")
+            .payload("{\"fail\":false}")
+            .log("This is a test job log.")
+            .build();
 
     when(jobsRepository.findById(eq(1L))).thenReturn(Optional.of(job));
 
@@ -95,6 +288,7 @@ public class JobsControllerTests extends ControllerTestCase {
     String expectedJson = mapper.writeValueAsString(job);
     String responseString = response.getResponse().getContentAsString();
     assertEquals(expectedJson, responseString);
+    assertFalse(responseString.contains("payload"));
   }
 
   @WithMockUser(roles = {"ADMIN"})
@@ -123,7 +317,7 @@ public class JobsControllerTests extends ControllerTestCase {
   @Test
   public void admin_can_delete_all_jobs() throws Exception {
 
-    doNothing().when(jobsRepository).deleteAll();
+    when(jobsRepository.deleteAllInBulk()).thenReturn(2);
 
     // act
     MvcResult response =
@@ -134,7 +328,8 @@ public class JobsControllerTests extends ControllerTestCase {
 
     // assert
 
-    verify(jobsRepository, times(1)).deleteAll();
+    verify(jobsRepository, times(1)).deleteAllInBulk();
+    verify(jobsRepository, never()).deleteAll();
     String expectedJson = mapper.writeValueAsString(Map.of("message", "All jobs deleted"));
     String responseString = response.getResponse().getContentAsString();
     assertEquals(expectedJson, responseString);
@@ -149,6 +344,7 @@ public class JobsControllerTests extends ControllerTestCase {
     Job job = Job.builder().build();
     job.setLog(jobLog);
     when(jobsRepository.findById(jobId)).thenReturn(Optional.of(job));
+    when(jobLogLinesRepository.findLinesByJobId(jobId)).thenReturn(new ArrayList<>());
 
     // Act & Assert
     mockMvc
@@ -173,14 +369,37 @@ public class JobsControllerTests extends ControllerTestCase {
         .andExpect(content().string(""));
   }
 
+  @WithMockUser(roles = {"ADMIN"})
+  @Test
+  public void admin_can_get_executor_status() throws Exception {
+
+    // arrange
+    when(jobsRepository.countByStatus("queued")).thenReturn(7L);
+
+    // act
+    MvcResult response =
+        mockMvc.perform(get("/api/jobs/executor")).andExpect(status().isOk()).andReturn();
+
+    // assert
+    Map<String, Object> json = responseToJson(response);
+    assertEquals(2, json.get("corePoolSize"));
+    assertEquals(7, json.get("queueSize"));
+    assertFalse(json.containsKey("queueCapacity"));
+  }
+
+  @WithMockUser(roles = {"USER"})
+  @Test
+  public void non_admin_cannot_get_executor_status() throws Exception {
+    mockMvc.perform(get("/api/jobs/executor")).andExpect(status().is(403));
+  }
+
   @WithMockUser(roles = {"ADMIN"})
   @Test
   public void admin_can_delete_specific_job() throws Exception {
 
     // arrange
 
-    when(jobsRepository.existsById(eq(1L))).thenReturn(true);
-    doNothing().when(jobsRepository).deleteById(eq(1L));
+    when(jobsRepository.deleteByIdInBulk(eq(List.of(1L)))).thenReturn(1);
 
     // act
     MvcResult response =
@@ -191,7 +410,7 @@ public class JobsControllerTests extends ControllerTestCase {
 
     // assert
 
-    verify(jobsRepository, times(1)).deleteById(eq(1L));
+    verify(jobsRepository, times(1)).deleteByIdInBulk(eq(List.of(1L)));
     String expectedJson = mapper.writeValueAsString(Map.of("message", "Job with id 1 deleted"));
     String responseString = response.getResponse().getContentAsString();
     assertEquals(expectedJson, responseString);
@@ -203,7 +422,7 @@ public class JobsControllerTests extends ControllerTestCase {
 
     // arrange
 
-    when(jobsRepository.existsById(eq(2L))).thenReturn(false);
+    when(jobsRepository.deleteByIdInBulk(eq(List.of(2L)))).thenReturn(0);
 
     // act
     MvcResult response =
@@ -214,12 +433,35 @@ public class JobsControllerTests extends ControllerTestCase {
 
     // assert
 
-    verify(jobsRepository, times(1)).existsById(eq(2L));
+    verify(jobsRepository, times(1)).deleteByIdInBulk(eq(List.of(2L)));
     String expectedJson = mapper.writeValueAsString(Map.of("message", "Job with id 2 not found"));
     String responseString = response.getResponse().getContentAsString();
     assertEquals(expectedJson, responseString);
   }
 
+  /**
+   * Makes the mocked jobs table behave like a queue: jobs saved as queued are handed out, once, to
+   * the next claim.
+   */
+  private void mockJobQueue() {
+    Queue<Job> queued = new ConcurrentLinkedQueue<>();
+    when(jobsRepository.save(any(Job.class)))
+        .thenAnswer(
+            invocation -> {
+              Job job = invocation.getArgument(0);
+              if (job.getStatus().equals("queued")) {
+                queued.add(job);
+              }
+              return job;
+            });
+    when(jobsRepository.findQueuedForUpdate(any()))
+        .thenAnswer(
+            invocation -> {
+              Job job = queued.poll();
+              return job == null ? List.of() : List.of(job);
+            });
+  }
+
   @WithMockUser(roles = {"ADMIN"})
   @Test
   public void admin_can_launch_test_job() throws Exception {
@@ -227,28 +469,7 @@ public class JobsControllerTests extends ControllerTestCase {
     // arrange
 
     User user = currentUserService.getUser();
-
-    Job jobStarted =
-        Job.builder()
-            .id(0L)
-            .createdBy(user)
-            .createdAt(null)
-            .updatedAt(null)
-            .status("running")
-            .log("Hello World! from test job!")
-            .build();
-
-    Job jobCompleted =
-        Job.builder()
-            .id(0L)
-            .createdBy(user)
-            .createdAt(null)
-            .updatedAt(null)
-            .status("complete")
-            .log("Hello World! from test job!\nGoodbye from test job!")
-            .build();
-
-    when(jobsRepository.save(any(Job.class))).thenReturn(jobStarted).thenReturn(jobCompleted);
+    mockJobQueue();
 
     // act
     MvcResult response =
@@ -261,14 +482,38 @@ public class JobsControllerTests extends ControllerTestCase {
     String responseString = response.getResponse().getContentAsString();
     Job jobReturned = objectMapper.readValue(responseString, Job.class);
 
-    assertEquals("running", jobReturned.getStatus());
+    assertEquals(TestJob.class.getName(), jobReturned.getType());
+    // the payload is stored with the job, but not sent back
+    assertNull(jobReturned.getPayload());
+    verify(jobsRepository, atLeastOnce())
+        .save(argThat(job -> "{\"fail\":false,\"sleepMs\":2000}".equals(job.getPayload())));
 
     await()
-        .atMost(1, SECONDS)
-        .untilAsserted(() -> verify(jobsRepository, times(2)).save(eq(jobStarted)));
+        .atMost(2, SECONDS)
+        .untilAsserted(
+            () ->
+                verify(jobLogLinesRepository, times(1))
+                    .insertAll(
+                        eq(
+                            List.of(
+                                JobLogLine.builder()
+                                    .jobId(0L)
+                                    .line("Hello World! from test job!")
+                                    .build()))));
     await()
         .atMost(10, SECONDS)
-        .untilAsserted(() -> verify(jobsRepository, times(4)).save(eq(jobCompleted)));
+        .untilAsserted(
+            () ->
+                verify(jobsRepository, times(2))
+                    .save(
+                        argThat(
+                            job ->
+                                job.getStatus().equals("complete")
+                                    && job.getCreatedBy().equals(user)
+                                    && job.getLeaseOwner() == null)));
+    verify(jobLogLinesRepository, times(1))
+        .insertAll(
+            eq(List.of(JobLogLine.builder().jobId(0L).line("Goodbye from test job!").build())));
   }
 
   @WithMockUser(roles = {"ADMIN"})
@@ -277,48 +522,276 @@ public class JobsControllerTests extends ControllerTestCase {
 
     // arrange
 
-    User user = currentUserService.getUser();
+    mockJobQueue();
 
-    Job jobStarted =
-        Job.builder()
-            .id(0L)
-            .createdBy(user)
-            .createdAt(null)
-            .updatedAt(null)
-            .status("running")
-            .log("Hello World! from test job!")
-            .build();
+    // act
+    mockMvc
+        .perform(post("/api/jobs/launch/testjob?fail=true&sleepMs=4000").with(csrf()))
+        .andExpect(status().isOk());
 
-    Job jobFailed =
-        Job.builder()
-            .id(0L)
-            .createdBy(user)
-            .createdAt(null)
-            .updatedAt(null)
-            .status("error")
-            .log("Hello World! from test job!\nFail!")
-            .build();
+    // assert
+    await()
+        .atMost(10, SECONDS)
+        .untilAsserted(
+            () ->
+                verify(jobsRepository, times(2))
+                    .save(argThat(job -> job.getStatus().equals("error"))));
+    verify(jobLogLinesRepository, times(1))
+        .insertAll(eq(List.of(JobLogLine.builder().jobId(0L).line("Fail!").build())));
+  }
+
+  @WithMockUser(roles = {"ADMIN"})
+  @Test
+  public void admin_can_cancel_running_test_job() throws Exception {
+
+    // arrange
 
-    when(jobsRepository.save(any(Job.class))).thenReturn(jobStarted).thenReturn(jobFailed);
+    mockJobQueue();
+
+    // act
+    mockMvc
+        .perform(post("/api/jobs/launch/testjob?fail=false&sleepMs=30000").with(csrf()))
+        .andExpect(status().isOk());
+
+    // assert
+    // poll in this thread so the request runs with the mock admin user
+    await()
+        .pollInSameThread()
+        .atMost(5, SECONDS)
+        .untilAsserted(
+            () -> {
+              MvcResult response =
+                  mockMvc
+                      .perform(post("/api/jobs/cancel?id=0").with(csrf()))
+                      .andExpect(status().isOk())
+                      .andReturn();
+              assertEquals(
+                  "{\"message\":\"Job with id 0 cancelled\"}",
+                  response.getResponse().getContentAsString());
+            });
+    await()
+        .atMost(5, SECONDS)
+        .untilAsserted(
+            () ->
+                verify(jobsRepository, times(2))
+                    .save(argThat(job -> "cancelled".equals(job.getStatus()))));
+  }
+
+  @WithMockUser(roles = {"ADMIN"})
+  @Test
+  public void test_job_is_cancelled_when_it_exceeds_its_timeout() throws Exception {
+
+    // arrange
+
+    mockJobQueue();
+
+    // act
+    mockMvc
+        .perform(
+            post("/api/jobs/launch/testjob?fail=false&sleepMs=30000&timeoutSeconds=1").with(csrf()))
+        .andExpect(status().isOk());
+
+    // assert
+    await()
+        .atMost(10, SECONDS)
+        .untilAsserted(
+            () ->
+                verify(jobsRepository, times(2))
+                    .save(argThat(job -> "cancelled".equals(job.getStatus()))));
+  }
+
+  @WithMockUser(roles = {"ADMIN"})
+  @Test
+  public void admin_can_launch_import_job() throws Exception {
+
+    // arrange
+
+    mockJobQueue();
+    when(entityImportService.getEntityNames()).thenReturn(Set.of("restaurants"));
+    String csv = "name,description\nChipotle,Burritos\n";
+    MockMultipartFile file =
+        new MockMultipartFile("file", "restaurants.csv", "text/csv", csv.getBytes());
+    ArgumentCaptor<InputStream> uploaded = ArgumentCaptor.captor();
+    when(importUploadService.store(uploaded.capture())).thenReturn("upload-1");
+    InputStream stored = new ByteArrayInputStream(csv.getBytes());
+    when(importUploadService.open("upload-1")).thenReturn(stored);
 
     // act
     MvcResult response =
         mockMvc
-            .perform(post("/api/jobs/launch/testjob?fail=true&sleepMs=4000").with(csrf()))
+            .perform(
+                multipart("/api/jobs/launch/import?entity=restaurants").file(file).with(csrf()))
             .andExpect(status().isOk())
             .andReturn();
 
-    String responseString = response.getResponse().getContentAsString();
-    Job jobReturned = objectMapper.readValue(responseString, Job.class);
+    // assert
+    Job jobReturned =
+        objectMapper.readValue(response.getResponse().getContentAsString(), Job.class);
+    assertEquals(ImportJob.class.getName(), jobReturned.getType());
+    assertEquals(csv, new String(uploaded.getValue().readAllBytes()));
+    verify(jobsRepository, atLeastOnce())
+        .save(
+            argThat(
+                job ->
+                    ("{\"entity\":\"restaurants\",\"format\":\"csv\","
+                            + "\"uploadId\":\"upload-1\",\"size\":35}")
+                        .equals(job.getPayload())));
+
+    // the job read back from its payload has the services injected into it, imports the
+    // stored file and then deletes it
+    await().atMost(5, SECONDS).untilAsserted(() -> verify(importUploadService).delete("upload-1"));
+    verify(entityImportService)
+        .importRows(any(), eq("restaurants"), eq("csv"), eq(stored), eq(35L));
+  }
 
-    assertEquals("running", jobReturned.getStatus());
+  @WithMockUser(roles = {"ADMIN"})
+  @Test
+  public void import_job_rejects_unknown_entity_format_and_large_file() throws Exception {
 
-    await()
-        .atMost(1, SECONDS)
-        .untilAsserted(() -> verify(jobsRepository, times(2)).save(eq(jobStarted)));
+    // arrange
 
-    await()
-        .atMost(10, SECONDS)
-        .untilAsserted(() -> verify(jobsRepository, times(3)).save(eq(jobFailed)));
+    when(entityImportService.getEntityNames()).thenReturn(Set.of("restaurants"));
+    MockMultipartFile file = new MockMultipartFile("file", "{}".getBytes());
+    MockMultipartFile largeFile = new MockMultipartFile("file", new byte[500001]);
+
+    // act & assert
+    MvcResult unknownEntity =
+        mockMvc
+            .perform(multipart("/api/jobs/launch/import?entity=jobs").file(file).with(csrf()))
+            .andExpect(status().isBadRequest())
+            .andReturn();
+    assertEquals("Cannot import jobs", unknownEntity.getResponse().getErrorMessage());
+
+    MvcResult unknownFormat =
+        mockMvc
+            .perform(
+                multipart("/api/jobs/launch/import?entity=restaurants&format=xml")
+                    .file(file)
+                    .with(csrf()))
+            .andExpect(status().isBadRequest())
+            .andReturn();
+    assertEquals("Cannot import from xml", unknownFormat.getResponse().getErrorMessage());
+
+    MvcResult tooLarge =
+        mockMvc
+            .perform(
+                multipart("/api/jobs/launch/import?entity=restaurants&format=ndjson")
+                    .file(largeFile)
+                    .with(csrf()))
+            .andExpect(status().isBadRequest())
+            .andReturn();
+    assertEquals(
+        "Cannot import a file larger than 500000 bytes", tooLarge.getResponse().getErrorMessage());
+    verify(jobsRepository, never()).save(any());
+    verify(importUploadService, never()).store(any());
+  }
+
+  @WithMockUser(roles = {"USER"})
+  @Test
+  public void users_cannot_launch_import_job() throws Exception {
+    MockMultipartFile file = new MockMultipartFile("file", "{}".getBytes());
+    mockMvc
+        .perform(multipart("/api/jobs/launch/import?entity=restaurants").file(file).with(csrf()))
+        .andExpect(status().is(403));
+  }
+
+  @WithMockUser(roles = {"ADMIN"})
+  @Test
+  public void cancel_job_that_is_not_running() throws Exception {
+
+    // act
+    MvcResult response =
+        mockMvc
+            .perform(post("/api/jobs/cancel?id=17").with(csrf()))
+            .andExpect(status().isOk())
+            .andReturn();
+
+    // assert
+    assertEquals(
+        "{\"message\":\"Job with id 17 is not running\"}",
+        response.getResponse().getContentAsString());
+  }
+
+  @WithMockUser(roles = {"USER"})
+  @Test
+  public void regular_user_cannot_cancel_job() throws Exception {
+    mockMvc.perform(post("/api/jobs/cancel?id=17").with(csrf())).andExpect(status().isForbidden());
+  }
+
+  @WithMockUser(roles = {"ADMIN"})
+  @Test
+  public void admin_can_stream_log_of_finished_job() throws Exception {
+    // arrange
+    when(jobsRepository.existsById(eq(1L))).thenReturn(true);
+    when(jobsRepository.findStatusById(eq(1L))).thenReturn(Optional.of("complete"));
+    when(jobLogLinesRepository.findTop500ByJobIdAndIdGreaterThanOrderByIdAsc(eq(1L), eq(0L)))
+        .thenReturn(
+            List.of(
+                JobLogLine.builder().id(11L).jobId(1L).line("first line").build(),
+                JobLogLine.builder().id(12L).jobId(1L).line("second line").build()));
+
+    // act
+    MvcResult response =
+        mockMvc
+            .perform(get("/api/jobs/logs/1/stream"))
+            .andExpect(request().asyncStarted())
+            .andReturn();
+
+    // assert
+    assertEquals(
+        "id:11\ndata:first line\n\nid:12\ndata:second line\n\nevent:complete\ndata:complete\n\n",
+        response.getResponse().getContentAsString());
+  }
+
+  @WithMockUser(roles = {"ADMIN"})
+  @Test
+  public void admin_can_resume_log_stream_and_receive_new_lines() throws Exception {
+    // arrange
+    when(jobsRepository.existsById(eq(2L))).thenReturn(true);
+    when(jobsRepository.findStatusById(eq(2L))).thenReturn(Optional.of("running"));
+
+    // act
+    MvcResult response =
+        mockMvc
+            .perform(get("/api/jobs/logs/2/stream?after=3").header("Last-Event-ID", "5"))
+            .andExpect(request().asyncStarted())
+            .andReturn();
+
+    // assert
+    verify(jobLogLinesRepository, times(1))
+        .findTop500ByJobIdAndIdGreaterThanOrderByIdAsc(eq(2L), eq(5L));
+    assertEquals("", response.getResponse().getContentAsString());
+
+    // arrange
+    when(jobsRepository.findStatusById(eq(2L))).thenReturn(Optional.of("error"));
+    when(jobLogLinesRepository.findTop500ByJobIdAndIdGreaterThanOrderByIdAsc(eq(2L), eq(5L)))
+        .thenReturn(List.of(JobLogLine.builder().id(6L).jobId(2L).line("Fail!").build()));
+
+    // act
+    jobLogTailService.sendNewLines();
+    jobLogTailService.sendNewLines();
+
+    // assert
+    assertEquals(
+        "id:6\ndata:Fail!\n\nevent:complete\ndata:error\n\n",
+        response.getResponse().getContentAsString());
+  }
+
+  @WithMockUser(roles = {"ADMIN"})
+  @Test
+  public void streaming_log_of_missing_job_returns_not_found() throws Exception {
+    // arrange
+    when(jobsRepository.existsById(eq(3L))).thenReturn(false);
+
+    // act
+    MvcResult response =
+        mockMvc
+            .perform(get("/api/jobs/logs/3/stream"))
+            .andExpect(status().isNotFound())
+            .andReturn();
+
+    // assert
+    Map<String, Object> json = responseToJson(response);
+    assertEquals("Job with id 3 not found", json.get("message"));
   }
 }
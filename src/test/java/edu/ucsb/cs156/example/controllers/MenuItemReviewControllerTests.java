@@ -3,39 +3,71 @@ package edu.ucsb.cs156.example.controllers;
 import static org.junit.jupiter.api.Assertions.assertEquals;
 import static org.mockito.ArgumentMatchers.any;
 import static org.mockito.ArgumentMatchers.eq;
+import static org.mockito.Mockito.never;
 import static org.mockito.Mockito.times;
 import static org.mockito.Mockito.verify;
 import static org.mockito.Mockito.when;
 import static org.springframework.security.test.web.servlet.request.SecurityMockMvcRequestPostProcessors.csrf;
+import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.asyncDispatch;
 import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.delete;
 import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.get;
 import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.post;
 import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.put;
+import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.request;
 import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.status;
 
 import edu.ucsb.cs156.example.ControllerTestCase;
+import edu.ucsb.cs156.example.entities.MenuItemRating;
 import edu.ucsb.cs156.example.entities.MenuItemReview;
+import edu.ucsb.cs156.example.entities.UCSBDiningCommonsMenuItem;
+import edu.ucsb.cs156.example.models.Changes;
+import edu.ucsb.cs156.example.models.CursorPage;
+import edu.ucsb.cs156.example.models.RatedMenuItem;
+import edu.ucsb.cs156.example.repositories.MenuItemRatingRepository;
 import edu.ucsb.cs156.example.repositories.MenuItemReviewRepository;
 import edu.ucsb.cs156.example.repositories.UserRepository;
+import edu.ucsb.cs156.example.services.ChangeVersionService;
+import edu.ucsb.cs156.example.services.ExportService;
 import edu.ucsb.cs156.example.testconfig.TestConfig;
+import jakarta.persistence.EntityManager;
 import java.time.LocalDateTime;
 import java.util.ArrayList;
+import java.util.List;
 import java.util.Map;
 import java.util.Optional;
+import java.util.stream.Stream;
 import org.junit.jupiter.api.Test;
 import org.springframework.boot.test.autoconfigure.web.servlet.WebMvcTest;
 import org.springframework.boot.test.mock.mockito.MockBean;
 import org.springframework.context.annotation.Import;
+import org.springframework.data.domain.Limit;
+import org.springframework.data.domain.PageImpl;
+import org.springframework.data.domain.PageRequest;
+import org.springframework.data.domain.ScrollPosition;
+import org.springframework.data.domain.Sort;
+import org.springframework.data.domain.Window;
+import org.springframework.data.web.PagedModel;
+import org.springframework.http.HttpHeaders;
 import org.springframework.http.MediaType;
 import org.springframework.security.test.context.support.WithMockUser;
+import org.springframework.test.context.bean.override.mockito.MockitoBean;
 import org.springframework.test.web.servlet.MvcResult;
+import org.springframework.transaction.PlatformTransactionManager;
 
 @WebMvcTest(controllers = MenuItemReviewController.class)
-@Import(TestConfig.class)
+@Import({TestConfig.class, ExportService.class})
 public class MenuItemReviewControllerTests extends ControllerTestCase {
 
+  @MockitoBean EntityManager entityManager;
+
+  @MockitoBean PlatformTransactionManager transactionManager;
+
   @MockBean MenuItemReviewRepository menuItemReviewRepository;
 
+  @MockitoBean ChangeVersionService changeVersionService;
+
+  @MockitoBean MenuItemRatingRepository menuItemRatingRepository;
+
   @MockBean UserRepository userRepository;
 
   // Authorization tests for /api/menuitemreview/admin/all
@@ -337,4 +369,445 @@ public class MenuItemReviewControllerTests extends ControllerTestCase {
     Map<String, Object> json = responseToJson(response);
     assertEquals("MenuItemReview with id 15 not found", json.get("message"));
   }
+
+  @WithMockUser(roles = {"USER"})
+  @Test
+  public void logged_in_user_can_get_a_page_of_menu_item_reviews() throws Exception {
+    // arrange
+    List<MenuItemReview> expected =
+        List.of(
+            MenuItemReview.builder().id(7L).comments("first").build(),
+            MenuItemReview.builder().id(8L).comments("second").build());
+    PageRequest pageRequest =
+        PageRequest.of(
+            2, 100, Sort.by(Sort.Direction.DESC, "stars").and(Sort.by(Sort.Direction.DESC, "id")));
+    when(menuItemReviewRepository.findAll(eq(pageRequest)))
+        .thenReturn(new PageImpl<>(expected, pageRequest, 202));
+
+    // act
+    MvcResult response =
+        mockMvc
+            .perform(get("/api/menuitemreview/page?page=2&size=500&sort=stars&direction=DESC"))
+            .andExpect(status().isOk())
+            .andReturn();
+
+    // assert
+    verify(menuItemReviewRepository, times(1)).findAll(eq(pageRequest));
+    String expectedJson =
+        mapper.writeValueAsString(new PagedModel<>(new PageImpl<>(expected, pageRequest, 202)));
+    assertEquals(expectedJson, response.getResponse().getContentAsString());
+  }
+
+  @WithMockUser(roles = {"USER"})
+  @Test
+  public void logged_in_user_can_get_menu_item_reviews_after_a_cursor() throws Exception {
+    // arrange
+    List<MenuItemReview> expected =
+        List.of(
+            MenuItemReview.builder().id(7L).comments("first").build(),
+            MenuItemReview.builder().id(8L).comments("second").build());
+    ScrollPosition position = ScrollPosition.forward(Map.of("id", 6L));
+    when(menuItemReviewRepository.findAllBy(
+            eq(position), eq(Sort.by(Sort.Direction.ASC, "id")), eq(Limit.of(2))))
+        .thenReturn(
+            Window.from(
+                expected, i -> ScrollPosition.forward(Map.of("id", i == 0 ? 7L : 8L)), true));
+
+    // act
+    MvcResult response =
+        mockMvc
+            .perform(get("/api/menuitemreview/cursor?after=6&size=2"))
+            .andExpect(status().isOk())
+            .andReturn();
+
+    // assert
+    String expectedJson = mapper.writeValueAsString(new CursorPage<>(expected, 8L));
+    assertEquals(expectedJson, response.getResponse().getContentAsString());
+  }
+
+  @WithMockUser(roles = {"ADMIN", "USER"})
+  @Test
+  public void admin_can_post_menu_item_reviews_in_bulk_and_new_ids_are_assigned() throws Exception {
+    // arrange
+    List<MenuItemReview> incoming =
+        List.of(
+            MenuItemReview.builder().id(7L).comments("first").build(),
+            MenuItemReview.builder().id(8L).comments("second").build());
+    List<MenuItemReview> expected =
+        List.of(
+            MenuItemReview.builder().id(0L).comments("first").build(),
+            MenuItemReview.builder().id(0L).comments("second").build());
+    when(menuItemReviewRepository.saveAll(any()))
+        .thenAnswer(invocation -> invocation.getArgument(0));
+
+    // act
+    MvcResult response =
+        mockMvc
+            .perform(
+                post("/api/menuitemreview/bulk")
+                    .with(csrf())
+                    .contentType(MediaType.APPLICATION_JSON)
+                    .content(mapper.writeValueAsString(incoming)))
+            .andExpect(status().isOk())
+            .andReturn();
+
+    // assert
+    verify(menuItemReviewRepository, times(1)).saveAll(eq(expected));
+    assertEquals(mapper.writeValueAsString(expected), response.getResponse().getContentAsString());
+  }
+
+  @WithMockUser(roles = {"ADMIN", "USER"})
+  @Test
+  public void admin_can_update_menu_item_reviews_in_bulk() throws Exception {
+    // arrange
+    List<MenuItemReview> incoming =
+        List.of(
+            MenuItemReview.builder().id(7L).comments("first").build(),
+            MenuItemReview.builder().id(8L).comments("second").build());
+    when(menuItemReviewRepository.findAllById(eq(List.of(7L, 8L)))).thenReturn(incoming);
+    when(menuItemReviewRepository.saveAll(eq(incoming))).thenReturn(incoming);
+
+    // act
+    MvcResult response =
+        mockMvc
+            .perform(
+                put("/api/menuitemreview/bulk")
+                    .with(csrf())
+                    .contentType(MediaType.APPLICATION_JSON)
+                    .content(mapper.writeValueAsString(incoming)))
+            .andExpect(status().isOk())
+            .andReturn();
+
+    // assert
+    verify(menuItemReviewRepository, times(1)).saveAll(eq(incoming));
+    assertEquals(mapper.writeValueAsString(incoming), response.getResponse().getContentAsString());
+  }
+
+  @WithMockUser(roles = {"ADMIN", "USER"})
+  @Test
+  public void admin_cannot_update_menu_item_reviews_in_bulk_when_one_does_not_exist()
+      throws Exception {
+    // arrange
+    List<MenuItemReview> incoming =
+        List.of(
+            MenuItemReview.builder().id(7L).comments("first").build(),
+            MenuItemReview.builder().id(8L).comments("second").build());
+    when(menuItemReviewRepository.findAllById(eq(List.of(7L, 8L))))
+        .thenReturn(List.of(incoming.get(0)));
+
+    // act
+    MvcResult response =
+        mockMvc
+            .perform(
+                put("/api/menuitemreview/bulk")
+                    .with(csrf())
+                    .contentType(MediaType.APPLICATION_JSON)
+                    .content(mapper.writeValueAsString(incoming)))
+            .andExpect(status().isNotFound())
+            .andReturn();
+
+    // assert
+    verify(menuItemReviewRepository, never()).saveAll(any());
+    Map<String, Object> json = responseToJson(response);
+    assertEquals("MenuItemReview with id 8 not found", json.get("message"));
+  }
+
+  @WithMockUser(roles = {"USER"})
+  @Test
+  public void logged_in_user_can_export_menu_item_reviews_as_csv() throws Exception {
+    // arrange
+    MenuItemReview first =
+        MenuItemReview.builder()
+            .id(7L)
+            .itemId(3L)
+            .reviewerEmail("cgaucho@ucsb.edu")
+            .stars(5)
+            .dateReviewed(LocalDateTime.parse("2022-01-03T00:00:00"))
+            .comments("good, really")
+            .build();
+    MenuItemReview second =
+        MenuItemReview.builder()
+            .id(8L)
+            .itemId(4L)
+            .reviewerEmail("ldelplaya@ucsb.edu")
+            .stars(1)
+            .dateReviewed(LocalDateTime.parse("2022-01-04T00:00:00"))
+            .comments("bad")
+            .build();
+    when(menuItemReviewRepository.streamAll()).thenReturn(Stream.of(first, second));
+
+    // act
+    MvcResult started =
+        mockMvc
+            .perform(get("/api/menuitemreview/export"))
+            .andExpect(request().asyncStarted())
+            .andReturn();
+    MvcResult response =
+        mockMvc.perform(asyncDispatch(started)).andExpect(status().isOk()).andReturn();
+
+    // assert
+    assertEquals("text/csv", response.getResponse().getContentType());
+    assertEquals(
+        "attachment; filename=\"menuitemreview.csv\"",
+        response.getResponse().getHeader(HttpHeaders.CONTENT_DISPOSITION));
+    assertEquals(
+        """
+        comments,dateReviewed,id,itemId,reviewerEmail,stars
+        "good, really",2022-01-03T00:00:00,7,3,cgaucho@ucsb.edu,5
+        bad,2022-01-04T00:00:00,8,4,ldelplaya@ucsb.edu,1
+        """,
+        response.getResponse().getContentAsString());
+    verify(entityManager).detach(first);
+    verify(entityManager).detach(second);
+  }
+
+  @Test
+  public void logged_out_users_cannot_export_menu_item_reviews() throws Exception {
+    mockMvc.perform(get("/api/menuitemreview/export")).andExpect(status().is(403));
+  }
+
+  @Test
+  public void logged_out_users_cannot_get_changes() throws Exception {
+    mockMvc.perform(get("/api/menuitemreview/changes")).andExpect(status().is(403));
+  }
+
+  @WithMockUser(roles = {"USER"})
+  @Test
+  public void logged_in_users_can_get_changes_since_a_version() throws Exception {
+    // arrange
+    Changes<MenuItemReview> changes = new Changes<>(7, List.of(), List.of("3"));
+    when(changeVersionService.changesSince(menuItemReviewRepository, MenuItemReview.class, 5))
+        .thenReturn(changes);
+
+    // act
+    MvcResult response =
+        mockMvc
+            .perform(get("/api/menuitemreview/changes?since=5"))
+            .andExpect(status().isOk())
+            .andReturn();
+
+    // assert
+    assertEquals(mapper.writeValueAsString(changes), response.getResponse().getContentAsString());
+  }
+
+  @Test
+  public void logged_out_users_cannot_search() throws Exception {
+    mockMvc.perform(get("/api/menuitemreview/search?itemId=27")).andExpect(status().is(403));
+  }
+
+  private final List<MenuItemReview> searchResults =
+      List.of(
+          MenuItemReview.builder()
+              .id(9L)
+              .itemId(27L)
+              .reviewerEmail("cgaucho@ucsb.edu")
+              .stars(5)
+              .dateReviewed(LocalDateTime.parse("2022-01-05T12:00:00"))
+              .comments("great")
+              .build());
+
+  private void assertSearchResults(MvcResult response, PageRequest pageRequest) throws Exception {
+    String expectedJson =
+        mapper.writeValueAsString(new PagedModel<>(new PageImpl<>(searchResults, pageRequest, 1)));
+    assertEquals(expectedJson, response.getResponse().getContentAsString());
+  }
+
+  @WithMockUser(roles = {"USER"})
+  @Test
+  public void logged_in_user_can_search_reviews_of_an_item_between_two_times() throws Exception {
+    // arrange
+    LocalDateTime from = LocalDateTime.parse("2022-01-03T00:00:00");
+    LocalDateTime to = LocalDateTime.parse("2022-01-09T23:59:59");
+    PageRequest pageRequest =
+        PageRequest.of(
+            1,
+            10,
+            Sort.by(Sort.Direction.ASC, "dateReviewed").and(Sort.by(Sort.Direction.ASC, "id")));
+    when(menuItemReviewRepository.findByItemIdAndDateReviewedBetween(27L, from, to, pageRequest))
+        .thenReturn(new PageImpl<>(searchResults, pageRequest, 1));
+
+    // act
+    MvcResult response =
+        mockMvc
+            .perform(
+                get(
+                    "/api/menuitemreview/search?itemId=27&from=2022-01-03T00:00:00"
+                        + "&to=2022-01-09T23:59:59&page=1&size=10&direction=ASC"))
+            .andExpect(status().isOk())
+            .andReturn();
+
+    // assert
+    assertSearchResults(response, pageRequest);
+  }
+
+  @WithMockUser(roles = {"USER"})
+  @Test
+  public void logged_in_user_can_search_reviews_by_a_reviewer_at_any_time() throws Exception {
+    // arrange
+    PageRequest pageRequest =
+        PageRequest.of(
+            0,
+            20,
+            Sort.by(Sort.Direction.DESC, "dateReviewed").and(Sort.by(Sort.Direction.DESC, "id")));
+    when(menuItemReviewRepository.findByReviewerEmailAndDateReviewedBetween(
+            "cgaucho@ucsb.edu",
+            LocalDateTime.parse("0001-01-01T00:00:00"),
+            LocalDateTime.parse("9999-12-31T23:59:59"),
+            pageRequest))
+        .thenReturn(new PageImpl<>(searchResults, pageRequest, 1));
+
+    // act
+    MvcResult response =
+        mockMvc
+            .perform(get("/api/menuitemreview/search?reviewerEmail=cgaucho@ucsb.edu"))
+            .andExpect(status().isOk())
+            .andReturn();
+
+    // assert
+    assertSearchResults(response, pageRequest);
+  }
+
+  @WithMockUser(roles = {"USER"})
+  @Test
+  public void logged_in_user_can_search_all_reviews_between_two_times() throws Exception {
+    // arrange
+    LocalDateTime from = LocalDateTime.parse("2022-01-03T00:00:00");
+    PageRequest pageRequest =
+        PageRequest.of(
+            0,
+            20,
+            Sort.by(Sort.Direction.DESC, "dateReviewed").and(Sort.by(Sort.Direction.DESC, "id")));
+    when(menuItemReviewRepository.findByDateReviewedBetween(
+            from, LocalDateTime.parse("9999-12-31T23:59:59"), pageRequest))
+        .thenReturn(new PageImpl<>(searchResults, pageRequest, 1));
+
+    // act
+    MvcResult response =
+        mockMvc
+            .perform(get("/api/menuitemreview/search?from=2022-01-03T00:00:00"))
+            .andExpect(status().isOk())
+            .andReturn();
+
+    // assert
+    assertSearchResults(response, pageRequest);
+  }
+
+  @WithMockUser(roles = {"USER"})
+  @Test
+  public void logged_in_user_can_search_reviews_of_an_item_by_a_reviewer() throws Exception {
+    // arrange
+    PageRequest pageRequest =
+        PageRequest.of(
+            0,
+            20,
+            Sort.by(Sort.Direction.DESC, "dateReviewed").and(Sort.by(Sort.Direction.DESC, "id")));
+    when(menuItemReviewRepository.findByItemIdAndReviewerEmailAndDateReviewedBetween(
+            27L,
+            "cgaucho@ucsb.edu",
+            LocalDateTime.parse("0001-01-01T00:00:00"),
+            LocalDateTime.parse("9999-12-31T23:59:59"),
+            pageRequest))
+        .thenReturn(new PageImpl<>(searchResults, pageRequest, 1));
+
+    // act
+    MvcResult response =
+        mockMvc
+            .perform(get("/api/menuitemreview/search?itemId=27&reviewerEmail=cgaucho@ucsb.edu"))
+            .andExpect(status().isOk())
+            .andReturn();
+
+    // assert
+    verify(menuItemReviewRepository, never())
+        .findByItemIdAndDateReviewedBetween(any(Long.class), any(), any(), any());
+    assertSearchResults(response, pageRequest);
+  }
+
+  @Test
+  public void logged_out_users_cannot_get_ratings() throws Exception {
+    mockMvc.perform(get("/api/menuitemreview/rating?itemId=27")).andExpect(status().is(403));
+    mockMvc
+        .perform(get("/api/menuitemreview/toprated?diningCommonsCode=ortega"))
+        .andExpect(status().is(403));
+  }
+
+  @WithMockUser(roles = {"USER"})
+  @Test
+  public void logged_in_user_can_get_the_rating_of_a_menu_item() throws Exception {
+    // arrange
+    MenuItemRating rating =
+        MenuItemRating.builder().itemId(27L).reviewCount(3).starSum(11).stars3(1).stars4(2).build();
+    when(menuItemRatingRepository.findById(27L)).thenReturn(Optional.of(rating));
+
+    // act
+    MvcResult response =
+        mockMvc
+            .perform(get("/api/menuitemreview/rating?itemId=27"))
+            .andExpect(status().isOk())
+            .andReturn();
+
+    // assert
+    assertEquals(mapper.writeValueAsString(rating), response.getResponse().getContentAsString());
+    assertEquals(11.0 / 3, responseToJson(response).get("averageStars"));
+  }
+
+  @WithMockUser(roles = {"USER"})
+  @Test
+  public void rating_of_a_menu_item_without_reviews_is_all_zeros() throws Exception {
+    // arrange
+    when(menuItemRatingRepository.findById(27L)).thenReturn(Optional.empty());
+
+    // act
+    MvcResult response =
+        mockMvc
+            .perform(get("/api/menuitemreview/rating?itemId=27"))
+            .andExpect(status().isOk())
+            .andReturn();
+
+    // assert
+    assertEquals(
+        mapper.writeValueAsString(MenuItemRating.builder().itemId(27L).build()),
+        response.getResponse().getContentAsString());
+    assertEquals(0.0, responseToJson(response).get("averageStars"));
+  }
+
+  @WithMockUser(roles = {"USER"})
+  @Test
+  public void logged_in_user_can_get_the_top_rated_menu_items_of_a_dining_commons()
+      throws Exception {
+    // arrange
+    List<RatedMenuItem> expected =
+        List.of(
+            new RatedMenuItem(
+                UCSBDiningCommonsMenuItem.builder()
+                    .id(27L)
+                    .diningCommonsCode("ortega")
+                    .name("Baked Pesto Pasta with Chicken")
+                    .station("Entree Specials")
+                    .build(),
+                MenuItemRating.builder().itemId(27L).reviewCount(2).starSum(10).stars5(2).build()));
+    when(menuItemRatingRepository.findTopRated("ortega", 2, Limit.of(100))).thenReturn(expected);
+
+    // act
+    MvcResult response =
+        mockMvc
+            .perform(
+                get("/api/menuitemreview/toprated?diningCommonsCode=ortega&minReviews=2&size=500"))
+            .andExpect(status().isOk())
+            .andReturn();
+
+    // assert
+    assertEquals(mapper.writeValueAsString(expected), response.getResponse().getContentAsString());
+  }
+
+  @WithMockUser(roles = {"USER"})
+  @Test
+  public void top_rated_menu_items_have_at_least_one_review() throws Exception {
+    // act
+    mockMvc
+        .perform(get("/api/menuitemreview/toprated?diningCommonsCode=ortega&minReviews=0&size=0"))
+        .andExpect(status().isOk());
+
+    // assert
+    verify(menuItemRatingRepository).findTopRated("ortega", 1, Limit.of(1));
+  }
 }
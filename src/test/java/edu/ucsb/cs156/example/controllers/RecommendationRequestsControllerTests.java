@@ -4,40 +4,66 @@ import static org.junit.jupiter.api.Assertions.assertEquals;
 import static org.mockito.ArgumentMatchers.any;
 import static org.mockito.ArgumentMatchers.argThat;
 import static org.mockito.ArgumentMatchers.eq;
+import static org.mockito.Mockito.never;
 import static org.mockito.Mockito.times;
 import static org.mockito.Mockito.verify;
 import static org.mockito.Mockito.when;
 import static org.springframework.security.test.web.servlet.request.SecurityMockMvcRequestPostProcessors.csrf;
+import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.asyncDispatch;
 import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.delete;
 import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.get;
 import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.post;
 import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.put;
+import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.request;
 import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.status;
 
 import edu.ucsb.cs156.example.ControllerTestCase;
 import edu.ucsb.cs156.example.entities.RecommendationRequest;
+import edu.ucsb.cs156.example.models.Changes;
+import edu.ucsb.cs156.example.models.CursorPage;
 import edu.ucsb.cs156.example.repositories.RecommendationRequestRepository;
 import edu.ucsb.cs156.example.repositories.UserRepository;
+import edu.ucsb.cs156.example.services.ChangeVersionService;
+import edu.ucsb.cs156.example.services.ExportService;
 import edu.ucsb.cs156.example.testconfig.TestConfig;
+import jakarta.persistence.EntityManager;
 import java.time.LocalDateTime;
 import java.util.ArrayList;
 import java.util.Arrays;
+import java.util.List;
 import java.util.Map;
 import java.util.Optional;
+import java.util.stream.Stream;
 import org.junit.jupiter.api.Test;
 import org.springframework.boot.test.autoconfigure.web.servlet.WebMvcTest;
 import org.springframework.boot.test.mock.mockito.MockBean;
 import org.springframework.context.annotation.Import;
+import org.springframework.data.domain.Limit;
+import org.springframework.data.domain.PageImpl;
+import org.springframework.data.domain.PageRequest;
+import org.springframework.data.domain.ScrollPosition;
+import org.springframework.data.domain.Sort;
+import org.springframework.data.domain.Window;
+import org.springframework.data.web.PagedModel;
+import org.springframework.http.HttpHeaders;
 import org.springframework.http.MediaType;
 import org.springframework.security.test.context.support.WithMockUser;
+import org.springframework.test.context.bean.override.mockito.MockitoBean;
 import org.springframework.test.web.servlet.MvcResult;
+import org.springframework.transaction.PlatformTransactionManager;
 
 @WebMvcTest(controllers = RecommendationRequestsController.class)
-@Import(TestConfig.class)
+@Import({TestConfig.class, ExportService.class})
 public class RecommendationRequestsControllerTests extends ControllerTestCase {
 
+  @MockitoBean EntityManager entityManager;
+
+  @MockitoBean PlatformTransactionManager transactionManager;
+
   @MockBean RecommendationRequestRepository recommendationRequestRepository;
 
+  @MockitoBean ChangeVersionService changeVersionService;
+
   @MockBean UserRepository userRepository;
 
   // Authorization tests for /api/recommendationrequests/admin/all
@@ -468,4 +494,232 @@ public class RecommendationRequestsControllerTests extends ControllerTestCase {
     Map<String, Object> json = responseToJson(response);
     assertEquals("RecommendationRequest with id 15 not found", json.get("message"));
   }
+
+  @WithMockUser(roles = {"USER"})
+  @Test
+  public void logged_in_user_can_get_a_page_of_recommendation_requests() throws Exception {
+    // arrange
+    List<RecommendationRequest> expected =
+        List.of(
+            RecommendationRequest.builder().id(7L).explanation("first").build(),
+            RecommendationRequest.builder().id(8L).explanation("second").build());
+    PageRequest pageRequest =
+        PageRequest.of(
+            2,
+            100,
+            Sort.by(Sort.Direction.DESC, "dateNeeded").and(Sort.by(Sort.Direction.DESC, "id")));
+    when(recommendationRequestRepository.findAll(eq(pageRequest)))
+        .thenReturn(new PageImpl<>(expected, pageRequest, 202));
+
+    // act
+    MvcResult response =
+        mockMvc
+            .perform(
+                get(
+                    "/api/recommendationrequests/page?page=2&size=500&sort=dateNeeded&direction=DESC"))
+            .andExpect(status().isOk())
+            .andReturn();
+
+    // assert
+    verify(recommendationRequestRepository, times(1)).findAll(eq(pageRequest));
+    String expectedJson =
+        mapper.writeValueAsString(new PagedModel<>(new PageImpl<>(expected, pageRequest, 202)));
+    assertEquals(expectedJson, response.getResponse().getContentAsString());
+  }
+
+  @WithMockUser(roles = {"USER"})
+  @Test
+  public void logged_in_user_can_get_recommendation_requests_after_a_cursor() throws Exception {
+    // arrange
+    List<RecommendationRequest> expected =
+        List.of(
+            RecommendationRequest.builder().id(7L).explanation("first").build(),
+            RecommendationRequest.builder().id(8L).explanation("second").build());
+    ScrollPosition position = ScrollPosition.forward(Map.of("id", 6L));
+    when(recommendationRequestRepository.findAllBy(
+            eq(position), eq(Sort.by(Sort.Direction.ASC, "id")), eq(Limit.of(2))))
+        .thenReturn(
+            Window.from(
+                expected, i -> ScrollPosition.forward(Map.of("id", i == 0 ? 7L : 8L)), true));
+
+    // act
+    MvcResult response =
+        mockMvc
+            .perform(get("/api/recommendationrequests/cursor?after=6&size=2"))
+            .andExpect(status().isOk())
+            .andReturn();
+
+    // assert
+    String expectedJson = mapper.writeValueAsString(new CursorPage<>(expected, 8L));
+    assertEquals(expectedJson, response.getResponse().getContentAsString());
+  }
+
+  @WithMockUser(roles = {"ADMIN", "USER"})
+  @Test
+  public void admin_can_post_recommendation_requests_in_bulk_and_new_ids_are_assigned()
+      throws Exception {
+    // arrange
+    List<RecommendationRequest> incoming =
+        List.of(
+            RecommendationRequest.builder().id(7L).explanation("first").build(),
+            RecommendationRequest.builder().id(8L).explanation("second").build());
+    List<RecommendationRequest> expected =
+        List.of(
+            RecommendationRequest.builder().id(0L).explanation("first").build(),
+            RecommendationRequest.builder().id(0L).explanation("second").build());
+    when(recommendationRequestRepository.saveAll(any()))
+        .thenAnswer(invocation -> invocation.getArgument(0));
+
+    // act
+    MvcResult response =
+        mockMvc
+            .perform(
+                post("/api/recommendationrequests/bulk")
+                    .with(csrf())
+                    .contentType(MediaType.APPLICATION_JSON)
+                    .content(mapper.writeValueAsString(incoming)))
+            .andExpect(status().isOk())
+            .andReturn();
+
+    // assert
+    verify(recommendationRequestRepository, times(1)).saveAll(eq(expected));
+    assertEquals(mapper.writeValueAsString(expected), response.getResponse().getContentAsString());
+  }
+
+  @WithMockUser(roles = {"ADMIN", "USER"})
+  @Test
+  public void admin_can_update_recommendation_requests_in_bulk() throws Exception {
+    // arrange
+    List<RecommendationRequest> incoming =
+        List.of(
+            RecommendationRequest.builder().id(7L).explanation("first").build(),
+            RecommendationRequest.builder().id(8L).explanation("second").build());
+    when(recommendationRequestRepository.findAllById(eq(List.of(7L, 8L)))).thenReturn(incoming);
+    when(recommendationRequestRepository.saveAll(eq(incoming))).thenReturn(incoming);
+
+    // act
+    MvcResult response =
+        mockMvc
+            .perform(
+                put("/api/recommendationrequests/bulk")
+                    .with(csrf())
+                    .contentType(MediaType.APPLICATION_JSON)
+                    .content(mapper.writeValueAsString(incoming)))
+            .andExpect(status().isOk())
+            .andReturn();
+
+    // assert
+    verify(recommendationRequestRepository, times(1)).saveAll(eq(incoming));
+    assertEquals(mapper.writeValueAsString(incoming), response.getResponse().getContentAsString());
+  }
+
+  @WithMockUser(roles = {"ADMIN", "USER"})
+  @Test
+  public void admin_cannot_update_recommendation_requests_in_bulk_when_one_does_not_exist()
+      throws Exception {
+    // arrange
+    List<RecommendationRequest> incoming =
+        List.of(
+            RecommendationRequest.builder().id(7L).explanation("first").build(),
+            RecommendationRequest.builder().id(8L).explanation("second").build());
+    when(recommendationRequestRepository.findAllById(eq(List.of(7L, 8L))))
+        .thenReturn(List.of(incoming.get(0)));
+
+    // act
+    MvcResult response =
+        mockMvc
+            .perform(
+                put("/api/recommendationrequests/bulk")
+                    .with(csrf())
+                    .contentType(MediaType.APPLICATION_JSON)
+                    .content(mapper.writeValueAsString(incoming)))
+            .andExpect(status().isNotFound())
+            .andReturn();
+
+    // assert
+    verify(recommendationRequestRepository, never()).saveAll(any());
+    Map<String, Object> json = responseToJson(response);
+    assertEquals("RecommendationRequest with id 8 not found", json.get("message"));
+  }
+
+  @WithMockUser(roles = {"USER"})
+  @Test
+  public void logged_in_user_can_export_recommendation_requests_as_csv() throws Exception {
+    // arrange
+    RecommendationRequest first =
+        RecommendationRequest.builder()
+            .id(7L)
+            .requesterEmail("cgaucho@ucsb.edu")
+            .professorEmail("phtcon@ucsb.edu")
+            .explanation("BS/MS program")
+            .dateRequested(LocalDateTime.parse("2022-04-20T00:00:00"))
+            .dateNeeded(LocalDateTime.parse("2022-05-01T00:00:00"))
+            .done(false)
+            .build();
+    RecommendationRequest second =
+        RecommendationRequest.builder()
+            .id(8L)
+            .requesterEmail("ldelplaya@ucsb.edu")
+            .professorEmail("richert@ucsb.edu")
+            .explanation("PhD CS Stanford")
+            .dateRequested(LocalDateTime.parse("2022-05-20T00:00:00"))
+            .dateNeeded(LocalDateTime.parse("2022-11-15T00:00:00"))
+            .done(true)
+            .build();
+    when(recommendationRequestRepository.streamAll()).thenReturn(Stream.of(first, second));
+
+    // act
+    MvcResult started =
+        mockMvc
+            .perform(get("/api/recommendationrequests/export"))
+            .andExpect(request().asyncStarted())
+            .andReturn();
+    MvcResult response =
+        mockMvc.perform(asyncDispatch(started)).andExpect(status().isOk()).andReturn();
+
+    // assert
+    assertEquals("text/csv", response.getResponse().getContentType());
+    assertEquals(
+        "attachment; filename=\"recommendationrequests.csv\"",
+        response.getResponse().getHeader(HttpHeaders.CONTENT_DISPOSITION));
+    assertEquals(
+        """
+        dateNeeded,dateRequested,done,explanation,id,professorEmail,requesterEmail
+        2022-05-01T00:00:00,2022-04-20T00:00:00,false,"BS/MS program",7,phtcon@ucsb.edu,cgaucho@ucsb.edu
+        2022-11-15T00:00:00,2022-05-20T00:00:00,true,"PhD CS Stanford",8,richert@ucsb.edu,ldelplaya@ucsb.edu
+        """,
+        response.getResponse().getContentAsString());
+    verify(entityManager).detach(first);
+    verify(entityManager).detach(second);
+  }
+
+  @Test
+  public void logged_out_users_cannot_export_recommendation_requests() throws Exception {
+    mockMvc.perform(get("/api/recommendationrequests/export")).andExpect(status().is(403));
+  }
+
+  @Test
+  public void logged_out_users_cannot_get_changes() throws Exception {
+    mockMvc.perform(get("/api/recommendationrequests/changes")).andExpect(status().is(403));
+  }
+
+  @WithMockUser(roles = {"USER"})
+  @Test
+  public void logged_in_users_can_get_changes_since_a_version() throws Exception {
+    // arrange
+    Changes<RecommendationRequest> changes = new Changes<>(7, List.of(), List.of("3"));
+    when(changeVersionService.changesSince(
+            recommendationRequestRepository, RecommendationRequest.class, 5))
+        .thenReturn(changes);
+
+    // act
+    MvcResult response =
+        mockMvc
+            .perform(get("/api/recommendationrequests/changes?since=5"))
+            .andExpect(status().isOk())
+            .andReturn();
+
+    // assert
+    assertEquals(mapper.writeValueAsString(changes), response.getResponse().getContentAsString());
+  }
 }
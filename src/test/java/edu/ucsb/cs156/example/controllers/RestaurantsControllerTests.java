@@ -3,6 +3,7 @@ package edu.ucsb.cs156.example.controllers;
 import static org.junit.jupiter.api.Assertions.assertEquals;
 import static org.mockito.ArgumentMatchers.any;
 import static org.mockito.ArgumentMatchers.eq;
+import static org.mockito.Mockito.never;
 import static org.mockito.Mockito.times;
 import static org.mockito.Mockito.verify;
 import static org.mockito.Mockito.when;
@@ -12,16 +13,27 @@ import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.
 
 import edu.ucsb.cs156.example.ControllerTestCase;
 import edu.ucsb.cs156.example.entities.Restaurant;
+import edu.ucsb.cs156.example.models.Changes;
+import edu.ucsb.cs156.example.models.CursorPage;
 import edu.ucsb.cs156.example.repositories.RestaurantRepository;
 import edu.ucsb.cs156.example.repositories.UserRepository;
+import edu.ucsb.cs156.example.services.ChangeVersionService;
 import edu.ucsb.cs156.example.testconfig.TestConfig;
 import java.util.ArrayList;
 import java.util.Arrays;
+import java.util.List;
 import java.util.Map;
 import java.util.Optional;
 import org.junit.jupiter.api.Test;
 import org.springframework.boot.test.autoconfigure.web.servlet.WebMvcTest;
 import org.springframework.context.annotation.Import;
+import org.springframework.data.domain.Limit;
+import org.springframework.data.domain.PageImpl;
+import org.springframework.data.domain.PageRequest;
+import org.springframework.data.domain.ScrollPosition;
+import org.springframework.data.domain.Sort;
+import org.springframework.data.domain.Window;
+import org.springframework.data.web.PagedModel;
 import org.springframework.http.MediaType;
 import org.springframework.security.test.context.support.WithMockUser;
 import org.springframework.test.context.bean.override.mockito.MockitoBean;
@@ -33,6 +45,8 @@ public class RestaurantsControllerTests extends ControllerTestCase {
 
   @MockitoBean RestaurantRepository restaurantRepository;
 
+  @MockitoBean ChangeVersionService changeVersionService;
+
   @MockitoBean UserRepository userRepository;
 
   // Authorization tests for /api/phones/admin/all
@@ -277,4 +291,168 @@ public class RestaurantsControllerTests extends ControllerTestCase {
     Map<String, Object> json = responseToJson(response);
     assertEquals("Restaurant with id 67 not found", json.get("message"));
   }
+
+  @WithMockUser(roles = {"USER"})
+  @Test
+  public void logged_in_user_can_get_a_page_of_restaurants() throws Exception {
+    // arrange
+    List<Restaurant> expected =
+        List.of(
+            Restaurant.builder().id(7L).name("first").build(),
+            Restaurant.builder().id(8L).name("second").build());
+    PageRequest pageRequest =
+        PageRequest.of(
+            2, 100, Sort.by(Sort.Direction.DESC, "name").and(Sort.by(Sort.Direction.DESC, "id")));
+    when(restaurantRepository.findAll(eq(pageRequest)))
+        .thenReturn(new PageImpl<>(expected, pageRequest, 202));
+
+    // act
+    MvcResult response =
+        mockMvc
+            .perform(get("/api/restaurants/page?page=2&size=500&sort=name&direction=DESC"))
+            .andExpect(status().isOk())
+            .andReturn();
+
+    // assert
+    verify(restaurantRepository, times(1)).findAll(eq(pageRequest));
+    String expectedJson =
+        mapper.writeValueAsString(new PagedModel<>(new PageImpl<>(expected, pageRequest, 202)));
+    assertEquals(expectedJson, response.getResponse().getContentAsString());
+  }
+
+  @WithMockUser(roles = {"USER"})
+  @Test
+  public void logged_in_user_can_get_restaurants_after_a_cursor() throws Exception {
+    // arrange
+    List<Restaurant> expected =
+        List.of(
+            Restaurant.builder().id(7L).name("first").build(),
+            Restaurant.builder().id(8L).name("second").build());
+    ScrollPosition position = ScrollPosition.forward(Map.of("id", 6L));
+    when(restaurantRepository.findAllBy(
+            eq(position), eq(Sort.by(Sort.Direction.ASC, "id")), eq(Limit.of(2))))
+        .thenReturn(
+            Window.from(
+                expected, i -> ScrollPosition.forward(Map.of("id", i == 0 ? 7L : 8L)), true));
+
+    // act
+    MvcResult response =
+        mockMvc
+            .perform(get("/api/restaurants/cursor?after=6&size=2"))
+            .andExpect(status().isOk())
+            .andReturn();
+
+    // assert
+    String expectedJson = mapper.writeValueAsString(new CursorPage<>(expected, 8L));
+    assertEquals(expectedJson, response.getResponse().getContentAsString());
+  }
+
+  @WithMockUser(roles = {"ADMIN", "USER"})
+  @Test
+  public void admin_can_post_restaurants_in_bulk_and_new_ids_are_assigned() throws Exception {
+    // arrange
+    List<Restaurant> incoming =
+        List.of(
+            Restaurant.builder().id(7L).name("first").build(),
+            Restaurant.builder().id(8L).name("second").build());
+    List<Restaurant> expected =
+        List.of(
+            Restaurant.builder().id(0L).name("first").build(),
+            Restaurant.builder().id(0L).name("second").build());
+    when(restaurantRepository.saveAll(any())).thenAnswer(invocation -> invocation.getArgument(0));
+
+    // act
+    MvcResult response =
+        mockMvc
+            .perform(
+                post("/api/restaurants/bulk")
+                    .with(csrf())
+                    .contentType(MediaType.APPLICATION_JSON)
+                    .content(mapper.writeValueAsString(incoming)))
+            .andExpect(status().isOk())
+            .andReturn();
+
+    // assert
+    verify(restaurantRepository, times(1)).saveAll(eq(expected));
+    assertEquals(mapper.writeValueAsString(expected), response.getResponse().getContentAsString());
+  }
+
+  @WithMockUser(roles = {"ADMIN", "USER"})
+  @Test
+  public void admin_can_update_restaurants_in_bulk() throws Exception {
+    // arrange
+    List<Restaurant> incoming =
+        List.of(
+            Restaurant.builder().id(7L).name("first").build(),
+            Restaurant.builder().id(8L).name("second").build());
+    when(restaurantRepository.findAllById(eq(List.of(7L, 8L)))).thenReturn(incoming);
+    when(restaurantRepository.saveAll(eq(incoming))).thenReturn(incoming);
+
+    // act
+    MvcResult response =
+        mockMvc
+            .perform(
+                put("/api/restaurants/bulk")
+                    .with(csrf())
+                    .contentType(MediaType.APPLICATION_JSON)
+                    .content(mapper.writeValueAsString(incoming)))
+            .andExpect(status().isOk())
+            .andReturn();
+
+    // assert
+    verify(restaurantRepository, times(1)).saveAll(eq(incoming));
+    assertEquals(mapper.writeValueAsString(incoming), response.getResponse().getContentAsString());
+  }
+
+  @WithMockUser(roles = {"ADMIN", "USER"})
+  @Test
+  public void admin_cannot_update_restaurants_in_bulk_when_one_does_not_exist() throws Exception {
+    // arrange
+    List<Restaurant> incoming =
+        List.of(
+            Restaurant.builder().id(7L).name("first").build(),
+            Restaurant.builder().id(8L).name("second").build());
+    when(restaurantRepository.findAllById(eq(List.of(7L, 8L))))
+        .thenReturn(List.of(incoming.get(0)));
+
+    // act
+    MvcResult response =
+        mockMvc
+            .perform(
+                put("/api/restaurants/bulk")
+                    .with(csrf())
+                    .contentType(MediaType.APPLICATION_JSON)
+                    .content(mapper.writeValueAsString(incoming)))
+            .andExpect(status().isNotFound())
+            .andReturn();
+
+    // assert
+    verify(restaurantRepository, never()).saveAll(any());
+    Map<String, Object> json = responseToJson(response);
+    assertEquals("Restaurant with id 8 not found", json.get("message"));
+  }
+
+  @Test
+  public void logged_out_users_cannot_get_changes() throws Exception {
+    mockMvc.perform(get("/api/restaurants/changes")).andExpect(status().is(403));
+  }
+
+  @WithMockUser(roles = {"USER"})
+  @Test
+  public void logged_in_users_can_get_changes_since_a_version() throws Exception {
+    // arrange
+    Changes<Restaurant> changes = new Changes<>(7, List.of(), List.of("3"));
+    when(changeVersionService.changesSince(restaurantRepository, Restaurant.class, 5))
+        .thenReturn(changes);
+
+    // act
+    MvcResult response =
+        mockMvc
+            .perform(get("/api/restaurants/changes?since=5"))
+            .andExpect(status().isOk())
+            .andReturn();
+
+    // assert
+    assertEquals(mapper.writeValueAsString(changes), response.getResponse().getContentAsString());
+  }
 }
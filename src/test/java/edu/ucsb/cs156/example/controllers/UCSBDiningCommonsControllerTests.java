@@ -3,6 +3,7 @@ package edu.ucsb.cs156.example.controllers;
 import static org.junit.jupiter.api.Assertions.assertEquals;
 import static org.mockito.ArgumentMatchers.any;
 import static org.mockito.ArgumentMatchers.eq;
+import static org.mockito.Mockito.never;
 import static org.mockito.Mockito.times;
 import static org.mockito.Mockito.verify;
 import static org.mockito.Mockito.when;
@@ -12,16 +13,27 @@ import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.
 
 import edu.ucsb.cs156.example.ControllerTestCase;
 import edu.ucsb.cs156.example.entities.UCSBDiningCommons;
+import edu.ucsb.cs156.example.models.Changes;
+import edu.ucsb.cs156.example.models.CursorPage;
 import edu.ucsb.cs156.example.repositories.UCSBDiningCommonsRepository;
 import edu.ucsb.cs156.example.repositories.UserRepository;
+import edu.ucsb.cs156.example.services.ChangeVersionService;
 import edu.ucsb.cs156.example.testconfig.TestConfig;
 import java.util.ArrayList;
 import java.util.Arrays;
+import java.util.List;
 import java.util.Map;
 import java.util.Optional;
 import org.junit.jupiter.api.Test;
 import org.springframework.boot.test.autoconfigure.web.servlet.WebMvcTest;
 import org.springframework.context.annotation.Import;
+import org.springframework.data.domain.Limit;
+import org.springframework.data.domain.PageImpl;
+import org.springframework.data.domain.PageRequest;
+import org.springframework.data.domain.ScrollPosition;
+import org.springframework.data.domain.Sort;
+import org.springframework.data.domain.Window;
+import org.springframework.data.web.PagedModel;
 import org.springframework.http.MediaType;
 import org.springframework.security.test.context.support.WithMockUser;
 import org.springframework.test.context.bean.override.mockito.MockitoBean;
@@ -33,6 +45,8 @@ public class UCSBDiningCommonsControllerTests extends ControllerTestCase {
 
   @MockitoBean UCSBDiningCommonsRepository ucsbDiningCommonsRepository;
 
+  @MockitoBean ChangeVersionService changeVersionService;
+
   @MockitoBean UserRepository userRepository;
 
   // Authorization tests for /api/ucsbdiningcommons/admin/all
@@ -92,7 +106,8 @@ public class UCSBDiningCommonsControllerTests extends ControllerTestCase {
             .longitude(-119.85277)
             .build();
 
-    when(ucsbDiningCommonsRepository.findById(eq("carrillo"))).thenReturn(Optional.of(commons));
+    when(ucsbDiningCommonsRepository.findUncachedByCode(eq("carrillo")))
+        .thenReturn(Optional.of(commons));
 
     // act
     MvcResult response =
@@ -103,7 +118,7 @@ public class UCSBDiningCommonsControllerTests extends ControllerTestCase {
 
     // assert
 
-    verify(ucsbDiningCommonsRepository, times(1)).findById(eq("carrillo"));
+    verify(ucsbDiningCommonsRepository, times(1)).findUncachedByCode(eq("carrillo"));
     String expectedJson = mapper.writeValueAsString(commons);
     String responseString = response.getResponse().getContentAsString();
     assertEquals(expectedJson, responseString);
@@ -115,7 +130,8 @@ public class UCSBDiningCommonsControllerTests extends ControllerTestCase {
 
     // arrange
 
-    when(ucsbDiningCommonsRepository.findById(eq("munger-hall"))).thenReturn(Optional.empty());
+    when(ucsbDiningCommonsRepository.findUncachedByCode(eq("munger-hall")))
+        .thenReturn(Optional.empty());
 
     // act
     MvcResult response =
@@ -126,7 +142,7 @@ public class UCSBDiningCommonsControllerTests extends ControllerTestCase {
 
     // assert
 
-    verify(ucsbDiningCommonsRepository, times(1)).findById(eq("munger-hall"));
+    verify(ucsbDiningCommonsRepository, times(1)).findUncachedByCode(eq("munger-hall"));
     Map<String, Object> json = responseToJson(response);
     assertEquals("EntityNotFoundException", json.get("type"));
     assertEquals("UCSBDiningCommons with id munger-hall not found", json.get("message"));
@@ -354,4 +370,223 @@ public class UCSBDiningCommonsControllerTests extends ControllerTestCase {
     Map<String, Object> json = responseToJson(response);
     assertEquals("UCSBDiningCommons with id munger-hall not found", json.get("message"));
   }
+
+  @WithMockUser(roles = {"USER"})
+  @Test
+  public void logged_in_user_can_get_a_page_of_dining_commons() throws Exception {
+    // arrange
+    List<UCSBDiningCommons> expected =
+        List.of(
+            UCSBDiningCommons.builder().code("carrillo").name("first").build(),
+            UCSBDiningCommons.builder().code("ortega").name("second").build());
+    PageRequest pageRequest =
+        PageRequest.of(
+            2, 100, Sort.by(Sort.Direction.DESC, "name").and(Sort.by(Sort.Direction.DESC, "code")));
+    when(ucsbDiningCommonsRepository.findAll(eq(pageRequest)))
+        .thenReturn(new PageImpl<>(expected, pageRequest, 202));
+
+    // act
+    MvcResult response =
+        mockMvc
+            .perform(get("/api/ucsbdiningcommons/page?page=2&size=500&sort=name&direction=DESC"))
+            .andExpect(status().isOk())
+            .andReturn();
+
+    // assert
+    verify(ucsbDiningCommonsRepository, times(1)).findAll(eq(pageRequest));
+    String expectedJson =
+        mapper.writeValueAsString(new PagedModel<>(new PageImpl<>(expected, pageRequest, 202)));
+    assertEquals(expectedJson, response.getResponse().getContentAsString());
+  }
+
+  @WithMockUser(roles = {"USER"})
+  @Test
+  public void logged_in_user_can_get_dining_commons_after_a_cursor() throws Exception {
+    // arrange
+    List<UCSBDiningCommons> expected =
+        List.of(
+            UCSBDiningCommons.builder().code("carrillo").name("first").build(),
+            UCSBDiningCommons.builder().code("ortega").name("second").build());
+    ScrollPosition position = ScrollPosition.forward(Map.of("code", "ARG"));
+    when(ucsbDiningCommonsRepository.findAllBy(
+            eq(position), eq(Sort.by(Sort.Direction.ASC, "code")), eq(Limit.of(2))))
+        .thenReturn(
+            Window.from(
+                expected,
+                i -> ScrollPosition.forward(Map.of("code", i == 0 ? "carrillo" : "ortega")),
+                true));
+
+    // act
+    MvcResult response =
+        mockMvc
+            .perform(get("/api/ucsbdiningcommons/cursor?after=ARG&size=2"))
+            .andExpect(status().isOk())
+            .andReturn();
+
+    // assert
+    String expectedJson = mapper.writeValueAsString(new CursorPage<>(expected, "ortega"));
+    assertEquals(expectedJson, response.getResponse().getContentAsString());
+  }
+
+  @WithMockUser(roles = {"ADMIN", "USER"})
+  @Test
+  public void admin_can_post_dining_commons_in_bulk() throws Exception {
+    // arrange
+    List<UCSBDiningCommons> incoming =
+        List.of(
+            UCSBDiningCommons.builder().code("carrillo").name("first").build(),
+            UCSBDiningCommons.builder().code("ortega").name("second").build());
+    when(ucsbDiningCommonsRepository.findAllById(eq(List.of("carrillo", "ortega"))))
+        .thenReturn(List.of());
+    when(ucsbDiningCommonsRepository.persistAll(any()))
+        .thenAnswer(invocation -> invocation.getArgument(0));
+
+    // act
+    MvcResult response =
+        mockMvc
+            .perform(
+                post("/api/ucsbdiningcommons/bulk")
+                    .with(csrf())
+                    .contentType(MediaType.APPLICATION_JSON)
+                    .content(mapper.writeValueAsString(incoming)))
+            .andExpect(status().isOk())
+            .andReturn();
+
+    // assert
+    verify(ucsbDiningCommonsRepository, times(1)).persistAll(eq(incoming));
+    verify(ucsbDiningCommonsRepository, never()).saveAll(any());
+    assertEquals(mapper.writeValueAsString(incoming), response.getResponse().getContentAsString());
+  }
+
+  @WithMockUser(roles = {"ADMIN", "USER"})
+  @Test
+  public void admin_cannot_post_dining_commons_in_bulk_when_a_code_is_taken() throws Exception {
+    // arrange
+    List<UCSBDiningCommons> incoming =
+        List.of(
+            UCSBDiningCommons.builder().code("carrillo").name("first").build(),
+            UCSBDiningCommons.builder().code("ortega").name("second").build());
+    when(ucsbDiningCommonsRepository.findAllById(eq(List.of("carrillo", "ortega"))))
+        .thenReturn(List.of(UCSBDiningCommons.builder().code("ortega").name("existing").build()));
+
+    // act
+    MvcResult response =
+        mockMvc
+            .perform(
+                post("/api/ucsbdiningcommons/bulk")
+                    .with(csrf())
+                    .contentType(MediaType.APPLICATION_JSON)
+                    .content(mapper.writeValueAsString(incoming)))
+            .andExpect(status().isConflict())
+            .andReturn();
+
+    // assert
+    verify(ucsbDiningCommonsRepository, never()).persistAll(any());
+    assertEquals(
+        "UCSBDiningCommons ortega already exists", response.getResponse().getErrorMessage());
+  }
+
+  @WithMockUser(roles = {"ADMIN", "USER"})
+  @Test
+  public void admin_cannot_update_dining_commons_in_bulk_without_a_code() throws Exception {
+    // arrange
+    List<UCSBDiningCommons> incoming = List.of(UCSBDiningCommons.builder().name("first").build());
+
+    // act
+    MvcResult response =
+        mockMvc
+            .perform(
+                put("/api/ucsbdiningcommons/bulk")
+                    .with(csrf())
+                    .contentType(MediaType.APPLICATION_JSON)
+                    .content(mapper.writeValueAsString(incoming)))
+            .andExpect(status().isBadRequest())
+            .andReturn();
+
+    // assert
+    verify(ucsbDiningCommonsRepository, never()).findAllById(any());
+    assertEquals(
+        "Every UCSBDiningCommons must have an id", response.getResponse().getErrorMessage());
+  }
+
+  @WithMockUser(roles = {"ADMIN", "USER"})
+  @Test
+  public void admin_can_update_dining_commons_in_bulk() throws Exception {
+    // arrange
+    List<UCSBDiningCommons> incoming =
+        List.of(
+            UCSBDiningCommons.builder().code("carrillo").name("first").build(),
+            UCSBDiningCommons.builder().code("ortega").name("second").build());
+    when(ucsbDiningCommonsRepository.findAllById(eq(List.of("carrillo", "ortega"))))
+        .thenReturn(incoming);
+    when(ucsbDiningCommonsRepository.saveAll(eq(incoming))).thenReturn(incoming);
+
+    // act
+    MvcResult response =
+        mockMvc
+            .perform(
+                put("/api/ucsbdiningcommons/bulk")
+                    .with(csrf())
+                    .contentType(MediaType.APPLICATION_JSON)
+                    .content(mapper.writeValueAsString(incoming)))
+            .andExpect(status().isOk())
+            .andReturn();
+
+    // assert
+    verify(ucsbDiningCommonsRepository, times(1)).saveAll(eq(incoming));
+    assertEquals(mapper.writeValueAsString(incoming), response.getResponse().getContentAsString());
+  }
+
+  @WithMockUser(roles = {"ADMIN", "USER"})
+  @Test
+  public void admin_cannot_update_dining_commons_in_bulk_when_one_does_not_exist()
+      throws Exception {
+    // arrange
+    List<UCSBDiningCommons> incoming =
+        List.of(
+            UCSBDiningCommons.builder().code("carrillo").name("first").build(),
+            UCSBDiningCommons.builder().code("ortega").name("second").build());
+    when(ucsbDiningCommonsRepository.findAllById(eq(List.of("carrillo", "ortega"))))
+        .thenReturn(List.of(incoming.get(0)));
+
+    // act
+    MvcResult response =
+        mockMvc
+            .perform(
+                put("/api/ucsbdiningcommons/bulk")
+                    .with(csrf())
+                    .contentType(MediaType.APPLICATION_JSON)
+                    .content(mapper.writeValueAsString(incoming)))
+            .andExpect(status().isNotFound())
+            .andReturn();
+
+    // assert
+    verify(ucsbDiningCommonsRepository, never()).saveAll(any());
+    Map<String, Object> json = responseToJson(response);
+    assertEquals("UCSBDiningCommons with id ortega not found", json.get("message"));
+  }
+
+  @Test
+  public void logged_out_users_cannot_get_changes() throws Exception {
+    mockMvc.perform(get("/api/ucsbdiningcommons/changes")).andExpect(status().is(403));
+  }
+
+  @WithMockUser(roles = {"USER"})
+  @Test
+  public void logged_in_users_can_get_changes_since_a_version() throws Exception {
+    // arrange
+    Changes<UCSBDiningCommons> changes = new Changes<>(7, List.of(), List.of("carrillo"));
+    when(changeVersionService.changesSince(ucsbDiningCommonsRepository, UCSBDiningCommons.class, 5))
+        .thenReturn(changes);
+
+    // act
+    MvcResult response =
+        mockMvc
+            .perform(get("/api/ucsbdiningcommons/changes?since=5"))
+            .andExpect(status().isOk())
+            .andReturn();
+
+    // assert
+    assertEquals(mapper.writeValueAsString(changes), response.getResponse().getContentAsString());
+  }
 }
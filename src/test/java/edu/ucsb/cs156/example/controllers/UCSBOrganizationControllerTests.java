@@ -4,6 +4,7 @@ import static org.junit.jupiter.api.Assertions.assertEquals;
 import static org.mockito.ArgumentMatchers.any;
 import static org.mockito.ArgumentMatchers.argThat;
 import static org.mockito.ArgumentMatchers.eq;
+import static org.mockito.Mockito.never;
 import static org.mockito.Mockito.times;
 import static org.mockito.Mockito.verify;
 import static org.mockito.Mockito.when;
@@ -16,19 +17,32 @@ import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.
 
 import edu.ucsb.cs156.example.ControllerTestCase;
 import edu.ucsb.cs156.example.entities.UCSBOrganization;
+import edu.ucsb.cs156.example.models.Changes;
+import edu.ucsb.cs156.example.models.CursorPage;
 import edu.ucsb.cs156.example.repositories.UCSBOrganizationRepository;
 import edu.ucsb.cs156.example.repositories.UserRepository;
+import edu.ucsb.cs156.example.services.ChangeVersionService;
 import edu.ucsb.cs156.example.testconfig.TestConfig;
 import java.util.ArrayList;
 import java.util.Arrays;
+import java.util.List;
 import java.util.Map;
 import java.util.Optional;
 import org.junit.jupiter.api.Test;
 import org.springframework.boot.test.autoconfigure.web.servlet.WebMvcTest;
 import org.springframework.boot.test.mock.mockito.MockBean;
 import org.springframework.context.annotation.Import;
+import org.springframework.data.domain.Limit;
+import org.springframework.data.domain.PageImpl;
+import org.springframework.data.domain.PageRequest;
+import org.springframework.data.domain.ScrollPosition;
+import org.springframework.data.domain.Sort;
+import org.springframework.data.domain.Window;
+import org.springframework.data.web.PagedModel;
+import org.springframework.http.HttpHeaders;
 import org.springframework.http.MediaType;
 import org.springframework.security.test.context.support.WithMockUser;
+import org.springframework.test.context.bean.override.mockito.MockitoBean;
 import org.springframework.test.web.servlet.MvcResult;
 
 @WebMvcTest(controllers = UCSBOrganizationController.class)
@@ -37,6 +51,8 @@ public class UCSBOrganizationControllerTests extends ControllerTestCase {
 
   @MockBean UCSBOrganizationRepository ucsbOrganizationRepository;
 
+  @MockitoBean ChangeVersionService changeVersionService;
+
   @MockBean UserRepository userRepository;
 
   @Test
@@ -95,7 +111,7 @@ public class UCSBOrganizationControllerTests extends ControllerTestCase {
             .inactive(false)
             .build();
 
-    when(ucsbOrganizationRepository.findById(eq("TT"))).thenReturn(Optional.of(org));
+    when(ucsbOrganizationRepository.findUncachedByOrgCode(eq("TT"))).thenReturn(Optional.of(org));
 
     // act
     MvcResult response =
@@ -106,19 +122,38 @@ public class UCSBOrganizationControllerTests extends ControllerTestCase {
 
     // assert
 
-    verify(ucsbOrganizationRepository, times(1)).findById(eq("TT"));
+    verify(ucsbOrganizationRepository, times(1)).findUncachedByOrgCode(eq("TT"));
     String expectedJson = mapper.writeValueAsString(org);
     String responseString = response.getResponse().getContentAsString();
     assertEquals(expectedJson, responseString);
   }
 
+  @WithMockUser(roles = {"USER"})
+  @Test
+  public void unchanged_organizations_are_not_read_again() throws Exception {
+    // arrange
+    String etag = "W/\"3\"";
+    when(changeVersionService.currentVersion(UCSBOrganization.class)).thenReturn(3L);
+
+    // act & assert
+    mockMvc
+        .perform(get("/api/ucsborganization/all").header(HttpHeaders.IF_NONE_MATCH, etag))
+        .andExpect(status().isNotModified());
+    mockMvc
+        .perform(get("/api/ucsborganization?orgCode=TT").header(HttpHeaders.IF_NONE_MATCH, etag))
+        .andExpect(status().isNotModified());
+    verify(ucsbOrganizationRepository, never()).findAll();
+    verify(ucsbOrganizationRepository, never()).findUncachedByOrgCode(any());
+  }
+
   @WithMockUser(roles = {"USER"})
   @Test
   public void test_that_logged_in_user_can_get_by_id_when_the_id_does_not_exist() throws Exception {
 
     // arrange
 
-    when(ucsbOrganizationRepository.findById(eq("akpsi"))).thenReturn(Optional.empty());
+    when(ucsbOrganizationRepository.findUncachedByOrgCode(eq("akpsi")))
+        .thenReturn(Optional.empty());
 
     // act
     MvcResult response =
@@ -129,7 +164,7 @@ public class UCSBOrganizationControllerTests extends ControllerTestCase {
 
     // assert
 
-    verify(ucsbOrganizationRepository, times(1)).findById(eq("akpsi"));
+    verify(ucsbOrganizationRepository, times(1)).findUncachedByOrgCode(eq("akpsi"));
     Map<String, Object> json = responseToJson(response);
     assertEquals("EntityNotFoundException", json.get("type"));
     assertEquals("UCSBOrganization with id akpsi not found", json.get("message"));
@@ -322,4 +357,230 @@ public class UCSBOrganizationControllerTests extends ControllerTestCase {
     Map<String, Object> json = responseToJson(response);
     assertEquals("UCSBOrganization with id akpsi not found", json.get("message"));
   }
+
+  @WithMockUser(roles = {"USER"})
+  @Test
+  public void logged_in_user_can_get_a_page_of_organizations() throws Exception {
+    // arrange
+    List<UCSBOrganization> expected =
+        List.of(
+            UCSBOrganization.builder().orgCode("KRC").orgTranslationShort("first").build(),
+            UCSBOrganization.builder().orgCode("OSLI").orgTranslationShort("second").build());
+    PageRequest pageRequest =
+        PageRequest.of(
+            2,
+            100,
+            Sort.by(Sort.Direction.DESC, "orgTranslation")
+                .and(Sort.by(Sort.Direction.DESC, "orgCode")));
+    when(ucsbOrganizationRepository.findAll(eq(pageRequest)))
+        .thenReturn(new PageImpl<>(expected, pageRequest, 202));
+
+    // act
+    MvcResult response =
+        mockMvc
+            .perform(
+                get(
+                    "/api/ucsborganization/page?page=2&size=500&sort=orgTranslation&direction=DESC"))
+            .andExpect(status().isOk())
+            .andReturn();
+
+    // assert
+    verify(ucsbOrganizationRepository, times(1)).findAll(eq(pageRequest));
+    String expectedJson =
+        mapper.writeValueAsString(new PagedModel<>(new PageImpl<>(expected, pageRequest, 202)));
+    assertEquals(expectedJson, response.getResponse().getContentAsString());
+  }
+
+  @WithMockUser(roles = {"USER"})
+  @Test
+  public void logged_in_user_can_get_organizations_after_a_cursor() throws Exception {
+    // arrange
+    List<UCSBOrganization> expected =
+        List.of(
+            UCSBOrganization.builder().orgCode("KRC").orgTranslationShort("first").build(),
+            UCSBOrganization.builder().orgCode("OSLI").orgTranslationShort("second").build());
+    ScrollPosition position = ScrollPosition.forward(Map.of("orgCode", "ARG"));
+    when(ucsbOrganizationRepository.findAllBy(
+            eq(position), eq(Sort.by(Sort.Direction.ASC, "orgCode")), eq(Limit.of(2))))
+        .thenReturn(
+            Window.from(
+                expected,
+                i -> ScrollPosition.forward(Map.of("orgCode", i == 0 ? "KRC" : "OSLI")),
+                true));
+
+    // act
+    MvcResult response =
+        mockMvc
+            .perform(get("/api/ucsborganization/cursor?after=ARG&size=2"))
+            .andExpect(status().isOk())
+            .andReturn();
+
+    // assert
+    String expectedJson = mapper.writeValueAsString(new CursorPage<>(expected, "OSLI"));
+    assertEquals(expectedJson, response.getResponse().getContentAsString());
+  }
+
+  @WithMockUser(roles = {"ADMIN", "USER"})
+  @Test
+  public void admin_can_post_organizations_in_bulk() throws Exception {
+    // arrange
+    List<UCSBOrganization> incoming =
+        List.of(
+            UCSBOrganization.builder().orgCode("KRC").orgTranslationShort("first").build(),
+            UCSBOrganization.builder().orgCode("OSLI").orgTranslationShort("second").build());
+    when(ucsbOrganizationRepository.findAllById(eq(List.of("KRC", "OSLI")))).thenReturn(List.of());
+    when(ucsbOrganizationRepository.persistAll(any()))
+        .thenAnswer(invocation -> invocation.getArgument(0));
+
+    // act
+    MvcResult response =
+        mockMvc
+            .perform(
+                post("/api/ucsborganization/bulk")
+                    .with(csrf())
+                    .contentType(MediaType.APPLICATION_JSON)
+                    .content(mapper.writeValueAsString(incoming)))
+            .andExpect(status().isOk())
+            .andReturn();
+
+    // assert
+    verify(ucsbOrganizationRepository, times(1)).persistAll(eq(incoming));
+    verify(ucsbOrganizationRepository, never()).saveAll(any());
+    assertEquals(mapper.writeValueAsString(incoming), response.getResponse().getContentAsString());
+  }
+
+  @WithMockUser(roles = {"ADMIN", "USER"})
+  @Test
+  public void admin_cannot_post_organizations_in_bulk_when_a_code_is_taken() throws Exception {
+    // arrange
+    List<UCSBOrganization> incoming =
+        List.of(
+            UCSBOrganization.builder().orgCode("KRC").orgTranslationShort("first").build(),
+            UCSBOrganization.builder().orgCode("OSLI").orgTranslationShort("second").build());
+    when(ucsbOrganizationRepository.findAllById(eq(List.of("KRC", "OSLI"))))
+        .thenReturn(
+            List.of(
+                UCSBOrganization.builder()
+                    .orgCode("OSLI")
+                    .orgTranslationShort("existing")
+                    .build()));
+
+    // act
+    MvcResult response =
+        mockMvc
+            .perform(
+                post("/api/ucsborganization/bulk")
+                    .with(csrf())
+                    .contentType(MediaType.APPLICATION_JSON)
+                    .content(mapper.writeValueAsString(incoming)))
+            .andExpect(status().isConflict())
+            .andReturn();
+
+    // assert
+    verify(ucsbOrganizationRepository, never()).persistAll(any());
+    assertEquals("UCSBOrganization OSLI already exists", response.getResponse().getErrorMessage());
+  }
+
+  @WithMockUser(roles = {"ADMIN", "USER"})
+  @Test
+  public void admin_cannot_update_organizations_in_bulk_without_a_code() throws Exception {
+    // arrange
+    List<UCSBOrganization> incoming =
+        List.of(UCSBOrganization.builder().orgTranslationShort("first").build());
+
+    // act
+    MvcResult response =
+        mockMvc
+            .perform(
+                put("/api/ucsborganization/bulk")
+                    .with(csrf())
+                    .contentType(MediaType.APPLICATION_JSON)
+                    .content(mapper.writeValueAsString(incoming)))
+            .andExpect(status().isBadRequest())
+            .andReturn();
+
+    // assert
+    verify(ucsbOrganizationRepository, never()).findAllById(any());
+    assertEquals(
+        "Every UCSBOrganization must have an id", response.getResponse().getErrorMessage());
+  }
+
+  @WithMockUser(roles = {"ADMIN", "USER"})
+  @Test
+  public void admin_can_update_organizations_in_bulk() throws Exception {
+    // arrange
+    List<UCSBOrganization> incoming =
+        List.of(
+            UCSBOrganization.builder().orgCode("KRC").orgTranslationShort("first").build(),
+            UCSBOrganization.builder().orgCode("OSLI").orgTranslationShort("second").build());
+    when(ucsbOrganizationRepository.findAllById(eq(List.of("KRC", "OSLI")))).thenReturn(incoming);
+    when(ucsbOrganizationRepository.saveAll(eq(incoming))).thenReturn(incoming);
+
+    // act
+    MvcResult response =
+        mockMvc
+            .perform(
+                put("/api/ucsborganization/bulk")
+                    .with(csrf())
+                    .contentType(MediaType.APPLICATION_JSON)
+                    .content(mapper.writeValueAsString(incoming)))
+            .andExpect(status().isOk())
+            .andReturn();
+
+    // assert
+    verify(ucsbOrganizationRepository, times(1)).saveAll(eq(incoming));
+    assertEquals(mapper.writeValueAsString(incoming), response.getResponse().getContentAsString());
+  }
+
+  @WithMockUser(roles = {"ADMIN", "USER"})
+  @Test
+  public void admin_cannot_update_organizations_in_bulk_when_one_does_not_exist() throws Exception {
+    // arrange
+    List<UCSBOrganization> incoming =
+        List.of(
+            UCSBOrganization.builder().orgCode("KRC").orgTranslationShort("first").build(),
+            UCSBOrganization.builder().orgCode("OSLI").orgTranslationShort("second").build());
+    when(ucsbOrganizationRepository.findAllById(eq(List.of("KRC", "OSLI"))))
+        .thenReturn(List.of(incoming.get(0)));
+
+    // act
+    MvcResult response =
+        mockMvc
+            .perform(
+                put("/api/ucsborganization/bulk")
+                    .with(csrf())
+                    .contentType(MediaType.APPLICATION_JSON)
+                    .content(mapper.writeValueAsString(incoming)))
+            .andExpect(status().isNotFound())
+            .andReturn();
+
+    // assert
+    verify(ucsbOrganizationRepository, never()).saveAll(any());
+    Map<String, Object> json = responseToJson(response);
+    assertEquals("UCSBOrganization with id OSLI not found", json.get("message"));
+  }
+
+  @Test
+  public void logged_out_users_cannot_get_changes() throws Exception {
+    mockMvc.perform(get("/api/ucsborganization/changes")).andExpect(status().is(403));
+  }
+
+  @WithMockUser(roles = {"USER"})
+  @Test
+  public void logged_in_users_can_get_changes_since_a_version() throws Exception {
+    // arrange
+    Changes<UCSBOrganization> changes = new Changes<>(7, List.of(), List.of("ZPR"));
+    when(changeVersionService.changesSince(ucsbOrganizationRepository, UCSBOrganization.class, 5))
+        .thenReturn(changes);
+
+    // act
+    MvcResult response =
+        mockMvc
+            .perform(get("/api/ucsborganization/changes?since=5"))
+            .andExpect(status().isOk())
+            .andReturn();
+
+    // assert
+    assertEquals(mapper.writeValueAsString(changes), response.getResponse().getContentAsString());
+  }
 }
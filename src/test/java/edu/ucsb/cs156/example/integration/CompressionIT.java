@@ -0,0 +1,86 @@
+package edu.ucsb.cs156.example.integration;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+import edu.ucsb.cs156.example.testconfig.TestConfig;
+import java.io.ByteArrayInputStream;
+import java.io.IOException;
+import java.net.URI;
+import java.net.http.HttpClient;
+import java.net.http.HttpRequest;
+import java.net.http.HttpResponse;
+import java.nio.charset.StandardCharsets;
+import java.util.Optional;
+import java.util.zip.GZIPInputStream;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.extension.ExtendWith;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.boot.test.web.server.LocalServerPort;
+import org.springframework.context.annotation.Import;
+import org.springframework.core.io.ClassPathResource;
+import org.springframework.test.context.ActiveProfiles;
+import org.springframework.test.context.junit.jupiter.SpringExtension;
+
+/**
+ * Tests of response compression, made over real HTTP since it is done by the embedded server rather
+ * than by Spring MVC.
+ */
+@ExtendWith(SpringExtension.class)
+@SpringBootTest(webEnvironment = SpringBootTest.WebEnvironment.RANDOM_PORT)
+@ActiveProfiles("integration")
+@Import(TestConfig.class)
+public class CompressionIT {
+  @LocalServerPort private int port;
+
+  private final HttpClient client = HttpClient.newHttpClient();
+
+  private HttpResponse<byte[]> get(String path, String acceptEncoding) throws Exception {
+    HttpRequest.Builder request =
+        HttpRequest.newBuilder(URI.create("http://localhost:" + port + path));
+    if (acceptEncoding != null) {
+      request.header("Accept-Encoding", acceptEncoding);
+    }
+    return client.send(request.build(), HttpResponse.BodyHandlers.ofByteArray());
+  }
+
+  private static String gunzip(byte[] body) throws IOException {
+    return new String(new GZIPInputStream(new ByteArrayInputStream(body)).readAllBytes());
+  }
+
+  @Test
+  public void large_json_response_is_gzipped_for_clients_that_accept_it() throws Exception {
+    // act
+    HttpResponse<byte[]> plain = get("/v3/api-docs", null);
+    HttpResponse<byte[]> gzipped = get("/v3/api-docs", "gzip, deflate, br");
+
+    // assert
+    assertEquals(200, plain.statusCode());
+    assertEquals(Optional.empty(), plain.headers().firstValue("Content-Encoding"));
+    assertEquals(Optional.of("gzip"), gzipped.headers().firstValue("Content-Encoding"));
+    assertEquals(new String(plain.body()), gunzip(gzipped.body()));
+    assertTrue(gzipped.body().length * 4 < plain.body().length);
+  }
+
+  @Test
+  public void precompressed_copy_of_a_static_file_is_served_to_clients_that_accept_it()
+      throws Exception {
+    // arrange
+    String css =
+        new ClassPathResource("public/compression-test.css")
+            .getContentAsString(StandardCharsets.UTF_8);
+
+    // act
+    HttpResponse<byte[]> plain = get("/compression-test.css", null);
+    HttpResponse<byte[]> gzipped = get("/compression-test.css", "gzip");
+
+    // assert
+    assertEquals(css, new String(plain.body()));
+    assertEquals(Optional.empty(), plain.headers().firstValue("Content-Encoding"));
+    // the file is smaller than server.compression.min-response-size, so only the copy is gzipped
+    assertEquals(Optional.of("gzip"), gzipped.headers().firstValue("Content-Encoding"));
+    assertEquals(Optional.of("Accept-Encoding"), gzipped.headers().firstValue("Vary"));
+    assertTrue(gzipped.headers().firstValue("Content-Type").get().startsWith("text/css"));
+    assertEquals(css, gunzip(gzipped.body()));
+  }
+}
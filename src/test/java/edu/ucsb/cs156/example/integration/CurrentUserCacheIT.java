@@ -0,0 +1,86 @@
+package edu.ucsb.cs156.example.integration;
+
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+import edu.ucsb.cs156.example.entities.User;
+import edu.ucsb.cs156.example.repositories.UserRepository;
+import edu.ucsb.cs156.example.services.AdminDirectory;
+import edu.ucsb.cs156.example.services.CurrentUserCache;
+import edu.ucsb.cs156.example.testconfig.TestConfig;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.extension.ExtendWith;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.context.annotation.Import;
+import org.springframework.test.annotation.DirtiesContext;
+import org.springframework.test.annotation.DirtiesContext.ClassMode;
+import org.springframework.test.context.ActiveProfiles;
+import org.springframework.test.context.junit.jupiter.SpringExtension;
+
+@ExtendWith(SpringExtension.class)
+@SpringBootTest
+@ActiveProfiles("integration")
+@Import(TestConfig.class)
+@DirtiesContext(classMode = ClassMode.BEFORE_EACH_TEST_METHOD)
+public class CurrentUserCacheIT {
+  @Autowired UserRepository userRepository;
+
+  @Autowired CurrentUserCache currentUserCache;
+
+  @Autowired AdminDirectory adminDirectory;
+
+  @Test
+  public void making_a_user_admin_evicts_them_from_the_cache() {
+    // arrange
+    User user = userRepository.save(User.builder().email("ta@ucsb.edu").build());
+    currentUserCache.get("ta@ucsb.edu", () -> userRepository.findById(user.getId()).get());
+    assertFalse(currentUserCache.get("ta@ucsb.edu", () -> null).getAdmin());
+
+    // act
+    user.setAdmin(true);
+    userRepository.save(user);
+
+    // assert
+    assertTrue(
+        currentUserCache
+            .get("ta@ucsb.edu", () -> userRepository.findById(user.getId()).get())
+            .getAdmin());
+  }
+
+  @Test
+  public void admin_directory_follows_changes_to_users() {
+    // arrange
+    User user = userRepository.save(User.builder().email("ta@ucsb.edu").admin(true).build());
+    assertTrue(adminDirectory.isAdmin("ta@ucsb.edu"));
+
+    // act
+    user.setAdmin(false);
+    userRepository.save(user);
+
+    // assert
+    assertFalse(adminDirectory.isAdmin("ta@ucsb.edu"));
+
+    // act
+    userRepository.save(User.builder().email("lead@ucsb.edu").admin(true).build());
+    userRepository.delete(userRepository.findByEmailIgnoringCase("lead@ucsb.edu").get());
+
+    // assert
+    assertFalse(adminDirectory.isAdmin("lead@ucsb.edu"));
+  }
+
+  @Test
+  public void admin_directory_loads_admins_from_users_table() {
+    // arrange
+    userRepository.save(User.builder().email("ta@ucsb.edu").admin(true).build());
+    userRepository.save(User.builder().email("student@ucsb.edu").build());
+    adminDirectory.userRemoved(userRepository.findByEmailIgnoringCase("ta@ucsb.edu").get());
+
+    // act
+    adminDirectory.refresh();
+
+    // assert
+    assertTrue(adminDirectory.isAdmin("ta@ucsb.edu"));
+    assertFalse(adminDirectory.isAdmin("student@ucsb.edu"));
+  }
+}
@@ -13,6 +13,8 @@ import edu.ucsb.cs156.example.services.CurrentUserService;
 import edu.ucsb.cs156.example.services.GrantedAuthoritiesService;
 import edu.ucsb.cs156.example.testconfig.TestConfig;
 import java.time.LocalDateTime;
+import java.util.List;
+import java.util.Map;
 import org.junit.jupiter.api.Test;
 import org.junit.jupiter.api.extension.ExtendWith;
 import org.springframework.beans.factory.annotation.Autowired;
@@ -108,4 +110,51 @@ public class HelpRequestIT {
     String responseString = response.getResponse().getContentAsString();
     assertEquals(expectedJson, responseString);
   }
+
+  private Map<String, Object> changesSince(long version) throws Exception {
+    MvcResult response =
+        mockMvc
+            .perform(get("/api/helprequests/changes?since=" + version))
+            .andExpect(status().isOk())
+            .andReturn();
+    return mapper.readValue(response.getResponse().getContentAsString(), Map.class);
+  }
+
+  @WithMockUser(roles = {"ADMIN", "USER"})
+  @Test
+  public void a_user_can_read_just_the_help_requests_changed_since_a_version() throws Exception {
+    // arrange
+    for (String teamId : List.of("team1", "team2", "team3")) {
+      helpRequestRepository.save(
+          HelpRequest.builder()
+              .teamId(teamId)
+              .requestTime(LocalDateTime.parse("2022-01-03T00:00:00"))
+              .requesterEmail("cgaucho@ucsb.edu")
+              .tableOrBreakoutRoom("Table 3")
+              .solved(false)
+              .explanation("help")
+              .build());
+    }
+    Map<String, Object> everything = changesSince(0);
+    long version = ((Number) everything.get("version")).longValue();
+
+    // act
+    HelpRequest solved = helpRequestRepository.findById(2L).get();
+    solved.setSolved(true);
+    helpRequestRepository.save(solved);
+    mockMvc.perform(delete("/api/helprequests?id=3").with(csrf())).andExpect(status().isOk());
+    Map<String, Object> changes = changesSince(version);
+
+    // assert
+    assertEquals(3, ((List<?>) everything.get("changed")).size());
+    assertEquals(List.of(), everything.get("deleted"));
+    assertEquals(
+        List.of(mapper.readValue(mapper.writeValueAsString(solved), Map.class)),
+        changes.get("changed"));
+    assertEquals(List.of("3"), changes.get("deleted"));
+    assertEquals(version + 2, ((Number) changes.get("version")).longValue());
+    Map<String, Object> noChanges = changesSince(version + 2);
+    assertEquals(List.of(), noChanges.get("changed"));
+    assertEquals(List.of(), noChanges.get("deleted"));
+  }
 }
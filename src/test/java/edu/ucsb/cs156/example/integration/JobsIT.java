@@ -0,0 +1,688 @@
+package edu.ucsb.cs156.example.integration;
+
+import static java.util.concurrent.TimeUnit.SECONDS;
+import static org.awaitility.Awaitility.await;
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertNotNull;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+import static org.springframework.security.test.web.servlet.request.SecurityMockMvcRequestPostProcessors.csrf;
+import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.*;
+import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.*;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
+import edu.ucsb.cs156.example.entities.Job;
+import edu.ucsb.cs156.example.entities.JobLogLine;
+import edu.ucsb.cs156.example.entities.Restaurant;
+import edu.ucsb.cs156.example.entities.UCSBOrganization;
+import edu.ucsb.cs156.example.entities.User;
+import edu.ucsb.cs156.example.jobs.ImportJob;
+import edu.ucsb.cs156.example.jobs.TestJob;
+import edu.ucsb.cs156.example.repositories.ImportUploadChunksRepository;
+import edu.ucsb.cs156.example.repositories.JobLogLinesRepository;
+import edu.ucsb.cs156.example.repositories.JobsRepository;
+import edu.ucsb.cs156.example.repositories.RestaurantRepository;
+import edu.ucsb.cs156.example.repositories.UCSBOrganizationRepository;
+import edu.ucsb.cs156.example.repositories.UserRepository;
+import edu.ucsb.cs156.example.services.CurrentUserService;
+import edu.ucsb.cs156.example.services.EntityImportService;
+import edu.ucsb.cs156.example.services.GrantedAuthoritiesService;
+import edu.ucsb.cs156.example.services.ImportUploadService;
+import edu.ucsb.cs156.example.services.jobs.JobRetentionService;
+import edu.ucsb.cs156.example.services.jobs.JobService;
+import edu.ucsb.cs156.example.testconfig.TestConfig;
+import java.io.ByteArrayInputStream;
+import java.time.ZonedDateTime;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.extension.ExtendWith;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.config.AutowireCapableBeanFactory;
+import org.springframework.boot.test.autoconfigure.web.servlet.AutoConfigureMockMvc;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.context.annotation.Import;
+import org.springframework.data.domain.Sort;
+import org.springframework.data.util.Streamable;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.mock.web.MockMultipartFile;
+import org.springframework.security.test.context.support.WithMockUser;
+import org.springframework.test.annotation.DirtiesContext;
+import org.springframework.test.annotation.DirtiesContext.ClassMode;
+import org.springframework.test.context.ActiveProfiles;
+import org.springframework.test.context.junit.jupiter.SpringExtension;
+import org.springframework.test.util.ReflectionTestUtils;
+import org.springframework.test.web.servlet.MockMvc;
+import org.springframework.test.web.servlet.MvcResult;
+
+@ExtendWith(SpringExtension.class)
+@SpringBootTest(webEnvironment = SpringBootTest.WebEnvironment.RANDOM_PORT)
+@AutoConfigureMockMvc
+@ActiveProfiles("integration")
+@Import(TestConfig.class)
+@DirtiesContext(classMode = ClassMode.BEFORE_EACH_TEST_METHOD)
+public class JobsIT {
+  @Autowired public CurrentUserService currentUserService;
+
+  @Autowired public GrantedAuthoritiesService grantedAuthoritiesService;
+
+  @Autowired JobsRepository jobsRepository;
+
+  @Autowired UserRepository userRepository;
+
+  @Autowired JobLogLinesRepository jobLogLinesRepository;
+
+  @Autowired JobRetentionService jobRetentionService;
+
+  @Autowired JobService jobService;
+
+  @Autowired EntityImportService entityImportService;
+
+  @Autowired RestaurantRepository restaurantRepository;
+
+  @Autowired UCSBOrganizationRepository ucsbOrganizationRepository;
+
+  @Autowired ImportUploadService importUploadService;
+
+  @Autowired ImportUploadChunksRepository importUploadChunksRepository;
+
+  @Autowired JdbcTemplate jdbcTemplate;
+
+  @Autowired AutowireCapableBeanFactory beanFactory;
+
+  @Autowired public MockMvc mockMvc;
+
+  @Autowired public ObjectMapper mapper;
+
+  @WithMockUser(roles = {"ADMIN", "USER"})
+  @Test
+  public void job_payloads_are_not_sent_to_clients() throws Exception {
+    // arrange
+    Job job =
+        jobsRepository.save(
+            Job.builder()
+                .status("queued")
+                .type(TestJob.class.getName())
+                .payload("{\"fail\":false,\"sleepMs\":0}")
+                .log("old log")
+                .build());
+
+    // act
+    MvcResult started =
+        mockMvc.perform(get("/api/jobs/all")).andExpect(request().asyncStarted()).andReturn();
+    MvcResult all = mockMvc.perform(asyncDispatch(started)).andExpect(status().isOk()).andReturn();
+    MvcResult one =
+        mockMvc.perform(get("/api/jobs?id=" + job.getId())).andExpect(status().isOk()).andReturn();
+
+    // assert
+    List<Map<String, Object>> jobs =
+        mapper.readValue(all.getResponse().getContentAsString(), List.class);
+    assertEquals(1, jobs.size());
+    assertEquals(TestJob.class.getName(), jobs.get(0).get("type"));
+    assertEquals("old log", jobs.get(0).get("log"));
+    assertFalse(jobs.get(0).containsKey("payload"));
+    assertFalse(one.getResponse().getContentAsString().contains("payload"));
+  }
+
+  @WithMockUser(roles = {"ADMIN", "USER"})
+  @Test
+  public void admin_can_page_through_jobs_filtered_by_status_and_creator() throws Exception {
+    // arrange
+
+    User alice = userRepository.save(User.builder().email("alice@ucsb.edu").build());
+    User bob = userRepository.save(User.builder().email("bob@ucsb.edu").build());
+
+    Job job1 = jobsRepository.save(Job.builder().createdBy(alice).status("complete").build());
+    Job job2 = jobsRepository.save(Job.builder().createdBy(bob).status("complete").build());
+    Job job3 = jobsRepository.save(Job.builder().createdBy(alice).status("error").build());
+    Job job4 =
+        jobsRepository.save(
+            Job.builder().createdBy(alice).status("complete").log("a long log").build());
+
+    // act
+    MvcResult response =
+        mockMvc
+            .perform(
+                get(
+                    "/api/jobs/page?status=complete&createdById=%d&sort=id&direction=ASC&size=1"
+                        .formatted(alice.getId())))
+            .andExpect(status().isOk())
+            .andReturn();
+
+    // assert
+    Map<String, Object> json =
+        mapper.readValue(response.getResponse().getContentAsString(), Map.class);
+    List<Map<String, Object>> content = (List<Map<String, Object>>) json.get("content");
+    assertEquals(1, content.size());
+    assertEquals((int) job1.getId(), content.get(0).get("id"));
+    assertEquals((int) alice.getId(), content.get(0).get("createdById"));
+    assertEquals("complete", content.get(0).get("status"));
+    Map<String, Object> page = (Map<String, Object>) json.get("page");
+    assertEquals(2, page.get("totalElements"));
+    assertEquals(3, totalJobs("/api/jobs/page?status=complete"));
+    assertEquals(3, totalJobs("/api/jobs/page?createdById=%d".formatted(alice.getId())));
+  }
+
+  @WithMockUser(roles = {"ADMIN", "USER"})
+  @Test
+  public void admin_can_list_all_jobs_without_filters() throws Exception {
+    // arrange
+
+    jobsRepository.save(Job.builder().status("running").build());
+    jobsRepository.save(Job.builder().status("complete").build());
+
+    // act
+    MvcResult response =
+        mockMvc
+            .perform(get("/api/jobs/page?sort=createdBy"))
+            .andExpect(status().isOk())
+            .andReturn();
+
+    // assert
+    Map<String, Object> json =
+        mapper.readValue(response.getResponse().getContentAsString(), Map.class);
+    Map<String, Object> page = (Map<String, Object>) json.get("page");
+    assertEquals(2, page.get("totalElements"));
+  }
+
+  @Test
+  public void purge_deletes_finished_jobs_and_their_log_lines() throws Exception {
+    // arrange
+
+    Job finished = jobsRepository.save(Job.builder().status("complete").build());
+    Job failed = jobsRepository.save(Job.builder().status("error").build());
+    Job running = jobsRepository.save(Job.builder().status("running").build());
+    jobLogLinesRepository.save(JobLogLine.builder().jobId(finished.getId()).line("done").build());
+    jobLogLinesRepository.save(JobLogLine.builder().jobId(running.getId()).line("busy").build());
+    assertNotNull(finished.getUpdatedAt());
+
+    // act
+    int deleted = jobRetentionService.purgeJobsFinishedBefore(ZonedDateTime.now().plusMinutes(1));
+
+    // assert
+    assertEquals(2, deleted);
+    assertFalse(jobsRepository.existsById(finished.getId()));
+    assertFalse(jobsRepository.existsById(failed.getId()));
+    assertTrue(jobsRepository.existsById(running.getId()));
+    assertEquals(List.of(), jobLogLinesRepository.findLinesByJobId(finished.getId()));
+    assertEquals(List.of("busy"), jobLogLinesRepository.findLinesByJobId(running.getId()));
+  }
+
+  @Test
+  public void purge_keeps_recently_finished_jobs() throws Exception {
+    // arrange
+
+    Job finished = jobsRepository.save(Job.builder().status("complete").build());
+
+    // act
+    int deleted = jobRetentionService.purgeJobsFinishedBefore(ZonedDateTime.now().minusDays(1));
+
+    // assert
+    assertEquals(0, deleted);
+    assertTrue(jobsRepository.existsById(finished.getId()));
+  }
+
+  @Test
+  public void purge_keeps_jobs_with_no_update_time() throws Exception {
+    // arrange
+
+    Job finished = jobsRepository.save(Job.builder().status("complete").build());
+    jdbcTemplate.update("UPDATE JOBS SET UPDATED_AT = NULL WHERE ID = ?", finished.getId());
+
+    // act
+    int deleted = jobRetentionService.purgeJobsFinishedBefore(ZonedDateTime.now().plusMinutes(1));
+
+    // assert
+    assertEquals(0, deleted);
+    assertTrue(jobsRepository.existsById(finished.getId()));
+  }
+
+  @WithMockUser(roles = {"ADMIN", "USER"})
+  @Test
+  public void admin_can_delete_all_jobs_and_their_log_lines() throws Exception {
+    // arrange
+
+    Job job1 = jobsRepository.save(Job.builder().status("complete").build());
+    Job job2 = jobsRepository.save(Job.builder().status("running").build());
+    jobLogLinesRepository.save(JobLogLine.builder().jobId(job1.getId()).line("one").build());
+    jobLogLinesRepository.save(JobLogLine.builder().jobId(job2.getId()).line("two").build());
+
+    // act
+    mockMvc.perform(delete("/api/jobs/all").with(csrf())).andExpect(status().isOk());
+
+    // assert
+    assertEquals(0, jobsRepository.count());
+    assertEquals(0, jobLogLinesRepository.count());
+  }
+
+  @WithMockUser(roles = {"ADMIN", "USER"})
+  @Test
+  public void admin_can_delete_one_job() throws Exception {
+    // arrange
+
+    Job job1 = jobsRepository.save(Job.builder().status("complete").build());
+    Job job2 = jobsRepository.save(Job.builder().status("complete").build());
+
+    // act
+    mockMvc
+        .perform(delete("/api/jobs?id=%d".formatted(job1.getId())).with(csrf()))
+        .andExpect(status().isOk());
+
+    // assert
+    assertFalse(jobsRepository.existsById(job1.getId()));
+    assertTrue(jobsRepository.existsById(job2.getId()));
+  }
+
+  @Test
+  public void updateProgress_sets_only_the_progress_column() throws Exception {
+    // arrange
+
+    Job job = jobsRepository.save(Job.builder().status("running").log("a long log").build());
+
+    // act
+
+    int updated = jobsRepository.updateProgress(job.getId(), 42);
+
+    // assert
+
+    assertEquals(1, updated);
+    Job reloaded = jobsRepository.findById(job.getId()).get();
+    assertEquals(42, reloaded.getProgress());
+    assertEquals("running", reloaded.getStatus());
+    assertEquals("a long log", reloaded.getLog());
+  }
+
+  @Test
+  public void insertAll_writes_log_lines_in_order() throws Exception {
+    // arrange
+
+    Job job = jobsRepository.save(Job.builder().status("running").build());
+    jobLogLinesRepository.save(JobLogLine.builder().jobId(job.getId()).line("first").build());
+
+    // act
+
+    jobLogLinesRepository.insertAll(
+        List.of(
+            JobLogLine.builder().jobId(job.getId()).line("second").build(),
+            JobLogLine.builder().jobId(job.getId()).line("third").build()));
+
+    // assert
+
+    assertEquals(
+        List.of("first", "second", "third"), jobLogLinesRepository.findLinesByJobId(job.getId()));
+  }
+
+  @WithMockUser(roles = {"ADMIN", "USER"})
+  @Test
+  public void launched_job_is_queued_then_claimed_and_run() throws Exception {
+    // act
+
+    MvcResult response =
+        mockMvc
+            .perform(post("/api/jobs/launch/testjob?fail=false&sleepMs=0").with(csrf()))
+            .andExpect(status().isOk())
+            .andReturn();
+    long id = mapper.readValue(response.getResponse().getContentAsString(), Job.class).getId();
+
+    // assert
+
+    await()
+        .atMost(10, SECONDS)
+        .untilAsserted(
+            () -> assertEquals("complete", jobsRepository.findById(id).get().getStatus()));
+    Job job = jobsRepository.findById(id).get();
+    assertEquals(1, job.getAttempts());
+    assertEquals(null, job.getLeaseOwner());
+    assertEquals(
+        List.of("Hello World! from test job!", "Goodbye from test job!"),
+        jobLogLinesRepository.findLinesByJobId(id));
+
+    mockMvc
+        .perform(get("/actuator/metrics/jobs.run?tag=type:TestJob&tag=status:complete"))
+        .andExpect(status().isOk())
+        .andExpect(jsonPath("$.measurements[0].statistic").value("COUNT"))
+        .andExpect(jsonPath("$.measurements[0].value").value(1.0));
+  }
+
+  @WithMockUser(roles = {"USER"})
+  @Test
+  public void regular_user_cannot_read_metrics() throws Exception {
+    mockMvc.perform(get("/actuator/metrics")).andExpect(status().isForbidden());
+  }
+
+  @Test
+  public void jobs_whose_lease_ran_out_are_queued_again_or_failed() throws Exception {
+    // arrange
+
+    ZonedDateTime expired = ZonedDateTime.now().minusMinutes(5);
+    String payload = "{\"fail\":false,\"sleepMs\":0}";
+    Job orphaned =
+        jobsRepository.save(
+            Job.builder()
+                .status("running")
+                .type(TestJob.class.getName())
+                .payload(payload)
+                .attempts(1)
+                .leaseOwner("stopped-instance")
+                .leaseExpiresAt(expired)
+                .build());
+    Job outOfAttempts =
+        jobsRepository.save(
+            Job.builder()
+                .status("running")
+                .type(TestJob.class.getName())
+                .payload(payload)
+                .attempts(3)
+                .leaseOwner("stopped-instance")
+                .leaseExpiresAt(expired)
+                .build());
+    Job startedBeforeQueue = jobsRepository.save(Job.builder().status("running").build());
+    Job leased =
+        jobsRepository.save(
+            Job.builder()
+                .status("running")
+                .type(TestJob.class.getName())
+                .payload(payload)
+                .attempts(1)
+                .leaseOwner("live-instance")
+                .leaseExpiresAt(ZonedDateTime.now().plusMinutes(5))
+                .build());
+    // still running on this instance, but its lease was not renewed in time
+    Job late =
+        jobsRepository.save(
+            Job.builder()
+                .status("running")
+                .type(TestJob.class.getName())
+                .payload(payload)
+                .attempts(1)
+                .leaseOwner((String) ReflectionTestUtils.getField(jobService, "nodeId"))
+                .leaseExpiresAt(expired)
+                .build());
+    @SuppressWarnings("unchecked")
+    Set<Long> claimedJobIds = (Set<Long>) ReflectionTestUtils.getField(jobService, "claimedJobIds");
+    claimedJobIds.add(late.getId());
+
+    // act
+
+    jobService.recoverOrphanedJobs();
+    claimedJobIds.remove(late.getId());
+
+    // assert
+
+    assertEquals("error", jobsRepository.findById(outOfAttempts.getId()).get().getStatus());
+    assertEquals("error", jobsRepository.findById(startedBeforeQueue.getId()).get().getStatus());
+    assertEquals("running", jobsRepository.findById(leased.getId()).get().getStatus());
+    Job renewed = jobsRepository.findById(late.getId()).get();
+    assertEquals("running", renewed.getStatus());
+    assertTrue(renewed.getLeaseExpiresAt().isAfter(ZonedDateTime.now()));
+    await()
+        .atMost(10, SECONDS)
+        .untilAsserted(
+            () ->
+                assertEquals(
+                    "complete", jobsRepository.findById(orphaned.getId()).get().getStatus()));
+    assertEquals(2, jobsRepository.findById(orphaned.getId()).get().getAttempts());
+    assertEquals(
+        "Restarting job (attempt 2)",
+        jobLogLinesRepository.findLinesByJobId(orphaned.getId()).get(0));
+  }
+
+  @WithMockUser(roles = {"ADMIN", "USER"})
+  @Test
+  public void job_cancelled_through_another_instance_is_stopped_by_the_one_running_it()
+      throws Exception {
+    // arrange
+
+    MvcResult response =
+        mockMvc
+            .perform(post("/api/jobs/launch/testjob?fail=false&sleepMs=60000").with(csrf()))
+            .andExpect(status().isOk())
+            .andReturn();
+    long id = mapper.readValue(response.getResponse().getContentAsString(), Job.class).getId();
+    await()
+        .atMost(10, SECONDS)
+        .untilAsserted(
+            () ->
+                assertEquals(
+                    List.of("Hello World! from test job!"),
+                    jobLogLinesRepository.findLinesByJobId(id)));
+    JobService otherInstance = new JobService();
+    beanFactory.autowireBean(otherInstance);
+
+    // act
+
+    boolean cancelled = otherInstance.cancelJob(id);
+    jobService.renewLeases();
+
+    // assert
+
+    assertTrue(cancelled);
+    await()
+        .atMost(10, SECONDS)
+        .untilAsserted(
+            () -> assertEquals("cancelled", jobsRepository.findById(id).get().getStatus()));
+    assertEquals(
+        List.of("Hello World! from test job!", "Job was cancelled"),
+        jobLogLinesRepository.findLinesByJobId(id));
+  }
+
+  @Test
+  public void job_cancelled_before_its_instance_stopped_is_not_queued_again() throws Exception {
+    // arrange
+
+    Job orphaned =
+        jobsRepository.save(
+            Job.builder()
+                .status("running")
+                .type(TestJob.class.getName())
+                .payload("{\"fail\":false,\"sleepMs\":0}")
+                .attempts(1)
+                .leaseOwner("stopped-instance")
+                .leaseExpiresAt(ZonedDateTime.now().minusMinutes(5))
+                .cancelRequested(true)
+                .build());
+
+    // act
+
+    jobService.recoverOrphanedJobs();
+
+    // assert
+
+    assertEquals("cancelled", jobsRepository.findById(orphaned.getId()).get().getStatus());
+  }
+
+  @WithMockUser(roles = {"ADMIN", "USER"})
+  @Test
+  public void import_job_saves_rows_and_logs_the_rows_it_rejects() throws Exception {
+    // arrange
+
+    ReflectionTestUtils.setField(entityImportService, "batchSize", 2);
+    // the file is stored in several pieces
+    ReflectionTestUtils.setField(importUploadService, "chunkBytes", 100);
+    StringBuilder csv = new StringBuilder("id,name,description\n");
+    csv.append("7,Chipotle,Burritos\n");
+    csv.append("x,Bad,Id\n");
+    csv.append("9,Freebirds,Burritos\n");
+    csv.append("10,Wordy,").append("a".repeat(300)).append("\n");
+    csv.append("11,Subway,Sandwiches\n");
+    MockMultipartFile file =
+        new MockMultipartFile("file", "restaurants.csv", "text/csv", csv.toString().getBytes());
+
+    // act
+
+    MvcResult response =
+        mockMvc
+            .perform(
+                multipart("/api/jobs/launch/import?entity=restaurants").file(file).with(csrf()))
+            .andExpect(status().isOk())
+            .andReturn();
+    long id = mapper.readValue(response.getResponse().getContentAsString(), Job.class).getId();
+
+    // assert
+
+    await()
+        .atMost(10, SECONDS)
+        .untilAsserted(
+            () -> assertEquals("complete", jobsRepository.findById(id).get().getStatus()));
+    assertEquals(100, jobsRepository.findById(id).get().getProgress());
+    assertEquals(
+        List.of("Chipotle", "Freebirds", "Subway"),
+        Streamable.of(restaurantRepository.findAll(Sort.by("id")))
+            .map(Restaurant::getName)
+            .toList());
+    List<String> log = jobLogLinesRepository.findLinesByJobId(id);
+    assertEquals(4, log.size());
+    assertEquals("Importing restaurants from csv (%d bytes)".formatted(csv.length()), log.get(0));
+    assertTrue(log.get(1).startsWith("Row 2: Cannot deserialize value of type `long`"));
+    assertTrue(log.get(2).startsWith("Row 4: Value too long for column"));
+    assertEquals("Imported 3 of 5 rows (2 rejected)", log.get(3));
+    assertEquals(0, importUploadChunksRepository.count());
+  }
+
+  @WithMockUser(roles = {"ADMIN", "USER"})
+  @Test
+  public void import_job_rejects_rows_whose_code_is_taken() throws Exception {
+    // arrange
+
+    UCSBOrganization existing =
+        ucsbOrganizationRepository.save(
+            UCSBOrganization.builder()
+                .orgCode("ZPR")
+                .orgTranslationShort("ZETA PHI RHO")
+                .orgTranslation("ZETA PHI RHO")
+                .inactive(false)
+                .build());
+    String csv =
+        """
+        orgCode,orgTranslationShort,orgTranslation,inactive
+        ZPR,OVERWRITTEN,OVERWRITTEN,true
+        SKY,SKYDIVING CLUB,SKYDIVING CLUB AT UCSB,false
+        SKY,SKY AGAIN,SKY AGAIN,true
+        """;
+    MockMultipartFile file =
+        new MockMultipartFile("file", "organizations.csv", "text/csv", csv.getBytes());
+
+    // act
+
+    MvcResult response =
+        mockMvc
+            .perform(
+                multipart("/api/jobs/launch/import?entity=ucsborganization")
+                    .file(file)
+                    .with(csrf()))
+            .andExpect(status().isOk())
+            .andReturn();
+    long id = mapper.readValue(response.getResponse().getContentAsString(), Job.class).getId();
+
+    // assert
+
+    await()
+        .atMost(10, SECONDS)
+        .untilAsserted(
+            () -> assertEquals("complete", jobsRepository.findById(id).get().getStatus()));
+    assertEquals(
+        existing.getOrgTranslation(),
+        ucsbOrganizationRepository.findById("ZPR").get().getOrgTranslation());
+    assertEquals(
+        "SKYDIVING CLUB",
+        ucsbOrganizationRepository.findById("SKY").get().getOrgTranslationShort());
+    assertEquals(
+        List.of(
+            "Importing ucsborganization from csv (%d bytes)".formatted(csv.length()),
+            "Row 1: UCSBOrganization ZPR already exists",
+            "Row 3: UCSBOrganization SKY already exists",
+            "Imported 1 of 3 rows (2 rejected)"),
+        jobLogLinesRepository.findLinesByJobId(id));
+  }
+
+  @Test
+  public void import_job_restarted_halfway_carries_on_after_its_checkpoint() throws Exception {
+    // arrange: the instance running the import stopped after committing the first batch
+
+    ReflectionTestUtils.setField(entityImportService, "batchSize", 2);
+    String csv =
+        """
+        name,description
+        Chipotle,Burritos
+        Freebirds,Burritos
+        Subway,Sandwiches
+        Woodstocks,Pizza
+        """;
+    restaurantRepository.save(
+        Restaurant.builder().name("Chipotle").description("Burritos").build());
+    restaurantRepository.save(
+        Restaurant.builder().name("Freebirds").description("Burritos").build());
+    ImportJob importJob =
+        ImportJob.builder()
+            .entity("restaurants")
+            .format("csv")
+            .uploadId(importUploadService.store(new ByteArrayInputStream(csv.getBytes())))
+            .size(csv.length())
+            .build();
+    Job orphaned =
+        jobsRepository.save(
+            Job.builder()
+                .status("running")
+                .type(ImportJob.class.getName())
+                .payload(mapper.writeValueAsString(importJob))
+                .attempts(1)
+                .leaseOwner("stopped-instance")
+                .leaseExpiresAt(ZonedDateTime.now().minusMinutes(1))
+                .checkpoint(2L)
+                .build());
+
+    // act
+
+    jobService.recoverOrphanedJobs();
+
+    // assert
+
+    await()
+        .atMost(10, SECONDS)
+        .untilAsserted(
+            () ->
+                assertEquals(
+                    "complete", jobsRepository.findById(orphaned.getId()).get().getStatus()));
+    assertEquals(
+        List.of("Chipotle", "Freebirds", "Subway", "Woodstocks"),
+        Streamable.of(restaurantRepository.findAll(Sort.by("id")))
+            .map(Restaurant::getName)
+            .toList());
+    assertEquals(
+        List.of(
+            "Restarting job (attempt 2)",
+            "Importing restaurants from csv (%d bytes)".formatted(csv.length()),
+            "Resuming after row 2",
+            "Imported 2 of rows 3 to 4 (0 rejected)"),
+        jobLogLinesRepository.findLinesByJobId(orphaned.getId()));
+    assertEquals(4L, jobsRepository.findById(orphaned.getId()).get().getCheckpoint());
+  }
+
+  @Test
+  public void claimed_jobs_are_locked_so_they_are_claimed_once() throws Exception {
+    // arrange
+
+    Job queued = jobsRepository.save(Job.builder().status("queued").type("none").build());
+
+    // act
+
+    List<Job> claimed = jobService.claimQueuedJobs(10);
+    List<Job> claimedAgain = jobService.claimQueuedJobs(10);
+
+    // assert
+
+    assertEquals(List.of(queued.getId()), claimed.stream().map(Job::getId).toList());
+    assertTrue(claimedAgain.isEmpty());
+    Job job = jobsRepository.findById(queued.getId()).get();
+    assertEquals("running", job.getStatus());
+    assertNotNull(job.getLeaseExpiresAt());
+  }
+
+  private int totalJobs(String url) throws Exception {
+    MvcResult response = mockMvc.perform(get(url)).andExpect(status().isOk()).andReturn();
+    Map<String, Object> json =
+        mapper.readValue(response.getResponse().getContentAsString(), Map.class);
+    return (int) ((Map<String, Object>) json.get("page")).get("totalElements");
+  }
+}
@@ -6,19 +6,30 @@ import static org.springframework.test.web.servlet.request.MockMvcRequestBuilder
 import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.*;
 
 import com.fasterxml.jackson.databind.ObjectMapper;
+import edu.ucsb.cs156.example.entities.MenuItemRating;
 import edu.ucsb.cs156.example.entities.MenuItemReview;
+import edu.ucsb.cs156.example.entities.UCSBDiningCommonsMenuItem;
+import edu.ucsb.cs156.example.repositories.MenuItemRatingRepository;
 import edu.ucsb.cs156.example.repositories.MenuItemReviewRepository;
+import edu.ucsb.cs156.example.repositories.UCSBDiningCommonsMenuItemRepository;
 import edu.ucsb.cs156.example.repositories.UserRepository;
 import edu.ucsb.cs156.example.services.CurrentUserService;
 import edu.ucsb.cs156.example.services.GrantedAuthoritiesService;
 import edu.ucsb.cs156.example.testconfig.TestConfig;
+import java.io.ByteArrayInputStream;
 import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.zip.GZIPInputStream;
 import org.junit.jupiter.api.Test;
 import org.junit.jupiter.api.extension.ExtendWith;
 import org.springframework.beans.factory.annotation.Autowired;
 import org.springframework.boot.test.autoconfigure.web.servlet.AutoConfigureMockMvc;
 import org.springframework.boot.test.context.SpringBootTest;
 import org.springframework.context.annotation.Import;
+import org.springframework.data.domain.PageRequest;
+import org.springframework.http.HttpHeaders;
+import org.springframework.http.MediaType;
 import org.springframework.security.test.context.support.WithMockUser;
 import org.springframework.test.annotation.DirtiesContext;
 import org.springframework.test.annotation.DirtiesContext.ClassMode;
@@ -41,6 +52,10 @@ public class MenuItemReviewIT {
 
   @Autowired MenuItemReviewRepository menuItemReviewRepository;
 
+  @Autowired MenuItemRatingRepository menuItemRatingRepository;
+
+  @Autowired UCSBDiningCommonsMenuItemRepository ucsbDiningCommonsMenuItemRepository;
+
   @Autowired public MockMvc mockMvc;
 
   @Autowired public ObjectMapper mapper;
@@ -106,4 +121,241 @@ public class MenuItemReviewIT {
     String responseString = response.getResponse().getContentAsString();
     assertEquals(expectedJson, responseString);
   }
+
+  @WithMockUser(roles = {"USER"})
+  @Test
+  public void logged_in_user_can_export_all_reviews_as_gzipped_ndjson() throws Exception {
+    // arrange
+
+    List<MenuItemReview> reviews = new ArrayList<>();
+    for (int i = 0; i < 1200; i++) {
+      reviews.add(
+          MenuItemReview.builder()
+              .itemId(i % 7)
+              .reviewerEmail("reviewer%d@ucsb.edu".formatted(i))
+              .stars(i % 6)
+              .dateReviewed(LocalDateTime.parse("2022-01-03T00:00:00").plusMinutes(i))
+              .comments("review " + i)
+              .build());
+    }
+    menuItemReviewRepository.saveAll(reviews);
+
+    // act
+
+    MvcResult started =
+        mockMvc
+            .perform(
+                get("/api/menuitemreview/export?format=ndjson")
+                    .header(HttpHeaders.ACCEPT_ENCODING, "gzip"))
+            .andExpect(request().asyncStarted())
+            .andReturn();
+    MvcResult response =
+        mockMvc
+            .perform(asyncDispatch(started))
+            .andExpect(status().isOk())
+            .andExpect(header().string(HttpHeaders.CONTENT_ENCODING, "gzip"))
+            .andReturn();
+
+    // assert
+
+    byte[] gzipped = response.getResponse().getContentAsByteArray();
+    List<MenuItemReview> exported =
+        mapper
+            .readerFor(MenuItemReview.class)
+            .<MenuItemReview>readValues(new GZIPInputStream(new ByteArrayInputStream(gzipped)))
+            .readAll();
+    assertEquals(reviews, exported);
+  }
+
+  @WithMockUser(roles = {"USER"})
+  @Test
+  public void logged_in_user_can_search_reviews_of_an_item_newest_first() throws Exception {
+    // arrange
+    List<MenuItemReview> reviews = new ArrayList<>();
+    for (int day = 3; day <= 6; day++) {
+      reviews.add(
+          menuItemReviewRepository.save(
+              MenuItemReview.builder()
+                  .itemId(day % 2 == 0 ? 23 : 24)
+                  .reviewerEmail("akc@ucsb.edu")
+                  .stars(day % 5)
+                  .dateReviewed(LocalDateTime.parse("2022-01-0%dT12:00:00".formatted(day)))
+                  .comments("day " + day)
+                  .build()));
+    }
+
+    // act
+    MvcResult response =
+        mockMvc
+            .perform(
+                get(
+                    "/api/menuitemreview/search?itemId=23&from=2022-01-04T00:00:00"
+                        + "&to=2022-01-06T12:00:00"))
+            .andExpect(status().isOk())
+            .andReturn();
+
+    // assert: reviews of item 23 on the 4th and 6th, the 6th's included although it is on `to`
+    List<String> ids =
+        mapper
+            .readTree(response.getResponse().getContentAsString())
+            .get("content")
+            .findValuesAsText("id");
+    assertEquals(
+        List.of(String.valueOf(reviews.get(3).getId()), String.valueOf(reviews.get(1).getId())),
+        ids);
+  }
+
+  @WithMockUser(roles = {"USER"})
+  @Test
+  public void logged_in_user_can_search_reviews_of_an_item_by_a_reviewer() throws Exception {
+    // arrange
+    List<MenuItemReview> reviews = new ArrayList<>();
+    for (int day = 3; day <= 6; day++) {
+      reviews.add(
+          menuItemReviewRepository.save(
+              MenuItemReview.builder()
+                  .itemId(23)
+                  .reviewerEmail(day % 2 == 0 ? "akc@ucsb.edu" : "cgaucho@ucsb.edu")
+                  .stars(day % 5)
+                  .dateReviewed(LocalDateTime.parse("2022-01-0%dT12:00:00".formatted(day)))
+                  .comments("day " + day)
+                  .build()));
+    }
+
+    // act
+    MvcResult response =
+        mockMvc
+            .perform(get("/api/menuitemreview/search?itemId=23&reviewerEmail=cgaucho@ucsb.edu"))
+            .andExpect(status().isOk())
+            .andReturn();
+
+    // assert: reviews of item 23 by cgaucho on the 5th and 3rd
+    List<String> ids =
+        mapper
+            .readTree(response.getResponse().getContentAsString())
+            .get("content")
+            .findValuesAsText("id");
+    assertEquals(
+        List.of(String.valueOf(reviews.get(2).getId()), String.valueOf(reviews.get(0).getId())),
+        ids);
+  }
+
+  private List<MenuItemReview> reviewsOf(long itemId) {
+    return menuItemReviewRepository
+        .findByItemIdAndDateReviewedBetween(
+            itemId,
+            LocalDateTime.parse("2022-01-01T00:00:00"),
+            LocalDateTime.parse("2022-12-31T00:00:00"),
+            PageRequest.of(0, 10))
+        .getContent();
+  }
+
+  private MenuItemRating rating(long itemId) {
+    return menuItemRatingRepository.findById(itemId).orElseThrow();
+  }
+
+  @WithMockUser(roles = {"ADMIN", "USER"})
+  @Test
+  public void ratings_follow_reviews_as_they_are_posted_updated_and_deleted() throws Exception {
+    // arrange
+    UCSBDiningCommonsMenuItem pasta =
+        ucsbDiningCommonsMenuItemRepository.save(
+            UCSBDiningCommonsMenuItem.builder()
+                .diningCommonsCode("ortega")
+                .name("Baked Pesto Pasta with Chicken")
+                .station("Entree Specials")
+                .build());
+    UCSBDiningCommonsMenuItem salad =
+        ucsbDiningCommonsMenuItemRepository.save(
+            UCSBDiningCommonsMenuItem.builder()
+                .diningCommonsCode("ortega")
+                .name("Caesar Salad")
+                .station("Salads")
+                .build());
+    UCSBDiningCommonsMenuItem burger =
+        ucsbDiningCommonsMenuItemRepository.save(
+            UCSBDiningCommonsMenuItem.builder()
+                .diningCommonsCode("carrillo")
+                .name("Burger")
+                .station("Grill")
+                .build());
+
+    // act: post reviews one at a time and in bulk
+    for (int stars : List.of(5, 4)) {
+      mockMvc
+          .perform(
+              post("/api/menuitemreview/post?itemId=%d&reviewerEmail=akc@ucsb.edu&stars=%d&dateReviewed=2022-01-03T00:00:00&comments=ok"
+                      .formatted(pasta.getId(), stars))
+                  .with(csrf()))
+          .andExpect(status().isOk());
+    }
+    List<MenuItemReview> bulk =
+        List.of(
+            MenuItemReview.builder().itemId(salad.getId()).stars(2).comments("wilted").build(),
+            MenuItemReview.builder().itemId(salad.getId()).stars(5).comments("crisp").build(),
+            MenuItemReview.builder().itemId(burger.getId()).stars(5).comments("yum").build());
+    mockMvc
+        .perform(
+            post("/api/menuitemreview/bulk")
+                .contentType(MediaType.APPLICATION_JSON)
+                .content(mapper.writeValueAsString(bulk))
+                .with(csrf()))
+        .andExpect(status().isOk());
+
+    // assert
+    assertEquals(new MenuItemRating(pasta.getId(), 2, 9, 0, 0, 0, 0, 1, 1), rating(pasta.getId()));
+    assertEquals(new MenuItemRating(salad.getId(), 2, 7, 0, 0, 1, 0, 0, 1), rating(salad.getId()));
+
+    // act: move the pasta's 4 star review to the salad, as a 1 star review
+    MenuItemReview moved =
+        reviewsOf(pasta.getId()).stream()
+            .filter(review -> review.getStars() == 4)
+            .findFirst()
+            .orElseThrow();
+    moved.setItemId(salad.getId());
+    moved.setStars(1);
+    mockMvc
+        .perform(
+            put("/api/menuitemreview?id=" + moved.getId())
+                .contentType(MediaType.APPLICATION_JSON)
+                .content(mapper.writeValueAsString(moved))
+                .with(csrf()))
+        .andExpect(status().isOk());
+
+    // assert
+    assertEquals(new MenuItemRating(pasta.getId(), 1, 5, 0, 0, 0, 0, 0, 1), rating(pasta.getId()));
+    assertEquals(new MenuItemRating(salad.getId(), 3, 8, 0, 1, 1, 0, 0, 1), rating(salad.getId()));
+
+    // act & assert: top rated items of ortega, best average first
+    MvcResult topRated =
+        mockMvc
+            .perform(get("/api/menuitemreview/toprated?diningCommonsCode=ortega"))
+            .andExpect(status().isOk())
+            .andReturn();
+    assertEquals(
+        List.of(pasta.getId(), salad.getId()),
+        mapper.readTree(topRated.getResponse().getContentAsString()).findValues("item").stream()
+            .map(item -> item.get("id").asLong())
+            .toList());
+
+    // act: delete the pasta's last review
+    mockMvc
+        .perform(
+            delete("/api/menuitemreview?id=" + reviewsOf(pasta.getId()).get(0).getId())
+                .with(csrf()))
+        .andExpect(status().isOk());
+
+    // assert: the pasta has no reviews, so it is no longer among the top rated
+    assertEquals(new MenuItemRating(pasta.getId(), 0, 0, 0, 0, 0, 0, 0, 0), rating(pasta.getId()));
+    topRated =
+        mockMvc
+            .perform(get("/api/menuitemreview/toprated?diningCommonsCode=ortega"))
+            .andExpect(status().isOk())
+            .andReturn();
+    assertEquals(
+        List.of(salad.getId()),
+        mapper.readTree(topRated.getResponse().getContentAsString()).findValues("item").stream()
+            .map(item -> item.get("id").asLong())
+            .toList());
+  }
 }
@@ -0,0 +1,225 @@
+package edu.ucsb.cs156.example.integration;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertNotEquals;
+import static org.springframework.security.test.web.servlet.request.SecurityMockMvcRequestPostProcessors.csrf;
+import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.*;
+import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.*;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
+import edu.ucsb.cs156.example.entities.UCSBDate;
+import edu.ucsb.cs156.example.entities.UCSBOrganization;
+import edu.ucsb.cs156.example.repositories.UCSBDateRepository;
+import edu.ucsb.cs156.example.repositories.UCSBOrganizationRepository;
+import edu.ucsb.cs156.example.repositories.UserRepository;
+import edu.ucsb.cs156.example.testconfig.TestConfig;
+import jakarta.persistence.EntityManagerFactory;
+import java.time.LocalDateTime;
+import java.util.List;
+import org.hibernate.SessionFactory;
+import org.hibernate.stat.Statistics;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.extension.ExtendWith;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.autoconfigure.web.servlet.AutoConfigureMockMvc;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.context.annotation.Import;
+import org.springframework.http.MediaType;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.security.test.context.support.WithMockUser;
+import org.springframework.test.annotation.DirtiesContext;
+import org.springframework.test.annotation.DirtiesContext.ClassMode;
+import org.springframework.test.context.ActiveProfiles;
+import org.springframework.test.context.bean.override.mockito.MockitoBean;
+import org.springframework.test.context.junit.jupiter.SpringExtension;
+import org.springframework.test.web.servlet.MockMvc;
+import org.springframework.test.web.servlet.MvcResult;
+
+/**
+ * Tests that reference data is read from the second-level cache, and kept up to date in it, but
+ * that responses tagged with the table's version are not built from it.
+ */
+@ExtendWith(SpringExtension.class)
+@SpringBootTest(
+    webEnvironment = SpringBootTest.WebEnvironment.RANDOM_PORT,
+    properties = "spring.jpa.properties.hibernate.generate_statistics=true")
+@AutoConfigureMockMvc
+@ActiveProfiles("integration")
+@Import(TestConfig.class)
+@DirtiesContext(classMode = ClassMode.BEFORE_EACH_TEST_METHOD)
+public class ReferenceDataCacheIT {
+  @Autowired UCSBOrganizationRepository ucsbOrganizationRepository;
+
+  @Autowired UCSBDateRepository ucsbDateRepository;
+
+  @Autowired EntityManagerFactory entityManagerFactory;
+
+  @Autowired JdbcTemplate jdbcTemplate;
+
+  @Autowired public MockMvc mockMvc;
+
+  @Autowired public ObjectMapper mapper;
+
+  @MockitoBean UserRepository userRepository;
+
+  private Statistics statistics;
+
+  private final UCSBOrganization zpr =
+      UCSBOrganization.builder()
+          .orgCode("ZPR")
+          .orgTranslationShort("ZETA PHI RHO")
+          .orgTranslation("ZETA PHI RHO")
+          .inactive(false)
+          .build();
+
+  @BeforeEach
+  public void setup() {
+    statistics = entityManagerFactory.unwrap(SessionFactory.class).getStatistics();
+  }
+
+  @WithMockUser(roles = {"ADMIN", "USER"})
+  @Test
+  public void organization_is_read_from_the_cache_and_updated_in_it() throws Exception {
+    // arrange
+    ucsbOrganizationRepository.save(zpr);
+    statistics.clear();
+
+    // act & assert: reads after the first come from the cache
+    assertEquals(zpr, ucsbOrganizationRepository.findById("ZPR").get());
+    assertEquals(zpr, ucsbOrganizationRepository.findById("ZPR").get());
+    assertEquals(0, statistics.getPrepareStatementCount());
+    assertEquals(2, statistics.getSecondLevelCacheHitCount());
+
+    // act & assert: an update is written through to the cache
+    UCSBOrganization renamed =
+        UCSBOrganization.builder()
+            .orgCode("ZPR")
+            .orgTranslationShort("ZPR")
+            .orgTranslation("ZETA PHI RHO FRATERNITY")
+            .inactive(true)
+            .build();
+    mockMvc
+        .perform(
+            put("/api/ucsborganization?orgCode=ZPR")
+                .contentType(MediaType.APPLICATION_JSON)
+                .content(mapper.writeValueAsString(renamed))
+                .with(csrf()))
+        .andExpect(status().isOk());
+    statistics.clear();
+    assertEquals(renamed, ucsbOrganizationRepository.findById("ZPR").get());
+    assertEquals(0, statistics.getPrepareStatementCount());
+
+    // act & assert: a delete evicts it
+    mockMvc
+        .perform(delete("/api/ucsborganization?orgCode=ZPR").with(csrf()))
+        .andExpect(status().isOk());
+    mockMvc.perform(get("/api/ucsborganization?orgCode=ZPR")).andExpect(status().isNotFound());
+  }
+
+  @WithMockUser(roles = {"ADMIN", "USER"})
+  @Test
+  public void dates_of_a_quarter_are_read_from_the_query_cache_until_a_date_changes()
+      throws Exception {
+    // arrange
+    UCSBDate date =
+        ucsbDateRepository.save(
+            UCSBDate.builder()
+                .quarterYYYYQ("20221")
+                .name("firstDayOfClasses")
+                .localDateTime(LocalDateTime.parse("2022-01-03T00:00:00"))
+                .build());
+    ucsbDateRepository.findAllByQuarterYYYYQ("20221");
+    statistics.clear();
+
+    // act & assert
+    assertEquals(List.of(date), ucsbDateRepository.findAllByQuarterYYYYQ("20221"));
+    assertEquals(1, statistics.getQueryCacheHitCount());
+    assertEquals(0, statistics.getPrepareStatementCount());
+
+    // act: adding a date makes the cached list stale, so it is queried again
+    mockMvc
+        .perform(
+            post("/api/ucsbdates/post?quarterYYYYQ=20221&name=lastDayOfClasses"
+                    + "&localDateTime=2022-03-11T00:00:00")
+                .with(csrf()))
+        .andExpect(status().isOk());
+    statistics.clear();
+    Iterable<UCSBDate> fresh = ucsbDateRepository.findAllByQuarterYYYYQ("20221");
+
+    // assert
+    assertEquals(0, statistics.getQueryCacheHitCount());
+    assertEquals(2, ((List<UCSBDate>) fresh).size());
+  }
+
+  @WithMockUser(roles = {"ADMIN", "USER"})
+  @Test
+  public void tagged_responses_are_read_from_the_database_although_the_cache_is_stale()
+      throws Exception {
+    // arrange: the organization is in this instance's cache, and the client has it
+    ucsbOrganizationRepository.save(zpr);
+    assertEquals(zpr, ucsbOrganizationRepository.findById("ZPR").get());
+    String oneETag =
+        mockMvc
+            .perform(get("/api/ucsborganization?orgCode=ZPR"))
+            .andExpect(status().isOk())
+            .andReturn()
+            .getResponse()
+            .getHeader("ETag");
+    String allETag =
+        mockMvc
+            .perform(get("/api/ucsborganization/all"))
+            .andExpect(status().isOk())
+            .andReturn()
+            .getResponse()
+            .getHeader("ETag");
+
+    // act: another instance renames it, moving the table's version
+    jdbcTemplate.update(
+        "UPDATE TABLE_CHANGE_VERSIONS SET VERSION = VERSION + 1"
+            + " WHERE TABLE_NAME = 'ucsborganization'");
+    jdbcTemplate.update(
+        "UPDATE UCSBORGANIZATION SET ORG_TRANSLATION = 'ZETA PHI RHO FRATERNITY',"
+            + " CHANGE_VERSION = (SELECT VERSION FROM TABLE_CHANGE_VERSIONS"
+            + " WHERE TABLE_NAME = 'ucsborganization') WHERE ORG_CODE = 'ZPR'");
+
+    // assert: the cache still has the old name, but the client gets the new one
+    assertEquals(
+        "ZETA PHI RHO", ucsbOrganizationRepository.findById("ZPR").get().getOrgTranslation());
+    MvcResult one =
+        mockMvc
+            .perform(get("/api/ucsborganization?orgCode=ZPR").header("If-None-Match", oneETag))
+            .andExpect(status().isOk())
+            .andReturn();
+    assertNotEquals(oneETag, one.getResponse().getHeader("ETag"));
+    assertEquals(
+        "ZETA PHI RHO FRATERNITY",
+        mapper
+            .readValue(one.getResponse().getContentAsString(), UCSBOrganization.class)
+            .getOrgTranslation());
+    MvcResult all =
+        mockMvc
+            .perform(get("/api/ucsborganization/all").header("If-None-Match", allETag))
+            .andExpect(status().isOk())
+            .andReturn();
+    assertNotEquals(allETag, all.getResponse().getHeader("ETag"));
+    assertEquals(
+        "ZETA PHI RHO FRATERNITY",
+        mapper
+            .readTree(all.getResponse().getContentAsString())
+            .get(0)
+            .get("orgTranslation")
+            .asText());
+    MvcResult changes =
+        mockMvc
+            .perform(get("/api/ucsborganization/changes?since=0"))
+            .andExpect(status().isOk())
+            .andReturn();
+    assertEquals(
+        "ZETA PHI RHO FRATERNITY",
+        mapper
+            .readTree(changes.getResponse().getContentAsString())
+            .findValue("orgTranslation")
+            .asText());
+  }
+}
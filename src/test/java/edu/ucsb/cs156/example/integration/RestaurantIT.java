@@ -1,6 +1,7 @@
 package edu.ucsb.cs156.example.integration;
 
 import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertNull;
 import static org.springframework.security.test.web.servlet.request.SecurityMockMvcRequestPostProcessors.csrf;
 import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.*;
 import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.*;
@@ -12,12 +13,16 @@ import edu.ucsb.cs156.example.repositories.UserRepository;
 import edu.ucsb.cs156.example.services.CurrentUserService;
 import edu.ucsb.cs156.example.services.GrantedAuthoritiesService;
 import edu.ucsb.cs156.example.testconfig.TestConfig;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
 import org.junit.jupiter.api.Test;
 import org.junit.jupiter.api.extension.ExtendWith;
 import org.springframework.beans.factory.annotation.Autowired;
 import org.springframework.boot.test.autoconfigure.web.servlet.AutoConfigureMockMvc;
 import org.springframework.boot.test.context.SpringBootTest;
 import org.springframework.context.annotation.Import;
+import org.springframework.http.MediaType;
 import org.springframework.security.test.context.support.WithMockUser;
 import org.springframework.test.annotation.DirtiesContext;
 import org.springframework.test.annotation.DirtiesContext.ClassMode;
@@ -85,4 +90,102 @@ public class RestaurantIT {
     String responseString = response.getResponse().getContentAsString();
     assertEquals(expectedJson, responseString);
   }
+
+  @WithMockUser(roles = {"USER"})
+  @Test
+  public void a_user_can_page_through_restaurants_sorted_by_name() throws Exception {
+    // arrange
+    restaurantRepository.saveAll(
+        List.of(
+            Restaurant.builder().name("Taco Bell").description("Mexican").build(),
+            Restaurant.builder().name("Chipotle").description("Mexican").build(),
+            Restaurant.builder().name("Panda Express").description("Chinese").build()));
+
+    // act
+    MvcResult response =
+        mockMvc
+            .perform(get("/api/restaurants/page?page=1&size=2&sort=name"))
+            .andExpect(status().isOk())
+            .andReturn();
+
+    // assert
+    Map<String, Object> json =
+        mapper.readValue(response.getResponse().getContentAsString(), Map.class);
+    List<Map<String, Object>> content = (List<Map<String, Object>>) json.get("content");
+    assertEquals(List.of("Taco Bell"), content.stream().map(r -> r.get("name")).toList());
+    assertEquals(3, ((Map<String, Object>) json.get("page")).get("totalElements"));
+  }
+
+  @WithMockUser(roles = {"USER"})
+  @Test
+  public void a_user_can_read_restaurants_after_a_cursor() throws Exception {
+    // arrange
+    restaurantRepository.saveAll(
+        List.of(
+            Restaurant.builder().name("Taco Bell").description("Mexican").build(),
+            Restaurant.builder().name("Chipotle").description("Mexican").build(),
+            Restaurant.builder().name("Panda Express").description("Chinese").build()));
+
+    // act
+    MvcResult first =
+        mockMvc
+            .perform(get("/api/restaurants/cursor?size=2"))
+            .andExpect(status().isOk())
+            .andReturn();
+    MvcResult last =
+        mockMvc
+            .perform(get("/api/restaurants/cursor?size=2&after=2"))
+            .andExpect(status().isOk())
+            .andReturn();
+
+    // assert
+    Map<String, Object> firstJson =
+        mapper.readValue(first.getResponse().getContentAsString(), Map.class);
+    List<Map<String, Object>> firstContent = (List<Map<String, Object>>) firstJson.get("content");
+    assertEquals(
+        List.of("Taco Bell", "Chipotle"), firstContent.stream().map(r -> r.get("name")).toList());
+    assertEquals(2, firstJson.get("next"));
+
+    Map<String, Object> lastJson =
+        mapper.readValue(last.getResponse().getContentAsString(), Map.class);
+    List<Map<String, Object>> lastContent = (List<Map<String, Object>>) lastJson.get("content");
+    assertEquals(List.of("Panda Express"), lastContent.stream().map(r -> r.get("name")).toList());
+    assertNull(lastJson.get("next"));
+  }
+
+  @WithMockUser(roles = {"ADMIN", "USER"})
+  @Test
+  public void an_admin_user_can_create_and_update_restaurants_in_bulk() throws Exception {
+    // arrange
+    List<Restaurant> restaurants = new ArrayList<>();
+    for (int i = 0; i < 120; i++) {
+      restaurants.add(Restaurant.builder().name("Restaurant " + i).description("new").build());
+    }
+
+    // act
+    mockMvc
+        .perform(
+            post("/api/restaurants/bulk")
+                .with(csrf())
+                .contentType(MediaType.APPLICATION_JSON)
+                .content(mapper.writeValueAsString(restaurants)))
+        .andExpect(status().isOk());
+    List<Restaurant> saved = new ArrayList<>();
+    restaurantRepository.findAll().forEach(saved::add);
+    saved.forEach(r -> r.setDescription("updated"));
+    mockMvc
+        .perform(
+            put("/api/restaurants/bulk")
+                .with(csrf())
+                .contentType(MediaType.APPLICATION_JSON)
+                .content(mapper.writeValueAsString(saved)))
+        .andExpect(status().isOk());
+
+    // assert
+    List<Restaurant> updated = new ArrayList<>();
+    restaurantRepository.findAll().forEach(updated::add);
+    assertEquals(120, updated.size());
+    assertEquals(
+        List.of("updated"), updated.stream().map(Restaurant::getDescription).distinct().toList());
+  }
 }
@@ -1,6 +1,7 @@
 package edu.ucsb.cs156.example.integration;
 
 import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertNotEquals;
 import static org.springframework.security.test.web.servlet.request.SecurityMockMvcRequestPostProcessors.csrf;
 import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.*;
 import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.*;
@@ -12,12 +13,16 @@ import edu.ucsb.cs156.example.repositories.UserRepository;
 import edu.ucsb.cs156.example.services.CurrentUserService;
 import edu.ucsb.cs156.example.services.GrantedAuthoritiesService;
 import edu.ucsb.cs156.example.testconfig.TestConfig;
+import java.util.List;
+import java.util.Map;
 import org.junit.jupiter.api.Test;
 import org.junit.jupiter.api.extension.ExtendWith;
 import org.springframework.beans.factory.annotation.Autowired;
 import org.springframework.boot.test.autoconfigure.web.servlet.AutoConfigureMockMvc;
 import org.springframework.boot.test.context.SpringBootTest;
 import org.springframework.context.annotation.Import;
+import org.springframework.http.HttpHeaders;
+import org.springframework.http.MediaType;
 import org.springframework.security.test.context.support.WithMockUser;
 import org.springframework.test.annotation.DirtiesContext;
 import org.springframework.test.annotation.DirtiesContext.ClassMode;
@@ -101,4 +106,120 @@ public class UCSBOrganizationIT {
     String responseString = response.getResponse().getContentAsString();
     assertEquals(expectedJson, responseString);
   }
+
+  @WithMockUser(roles = {"USER"})
+  @Test
+  public void a_user_can_read_organizations_after_a_cursor_in_descending_order() throws Exception {
+    // arrange
+    for (String orgCode : List.of("ZPR", "SKY", "OSLI", "KRC")) {
+      ucsborganizationRepository.save(
+          UCSBOrganization.builder()
+              .orgCode(orgCode)
+              .orgTranslationShort(orgCode)
+              .orgTranslation(orgCode)
+              .inactive(false)
+              .build());
+    }
+
+    // act
+    MvcResult response =
+        mockMvc
+            .perform(get("/api/ucsborganization/cursor?after=SKY&size=1&direction=DESC"))
+            .andExpect(status().isOk())
+            .andReturn();
+
+    // assert
+    Map<String, Object> json =
+        mapper.readValue(response.getResponse().getContentAsString(), Map.class);
+    List<Map<String, Object>> content = (List<Map<String, Object>>) json.get("content");
+    assertEquals(List.of("OSLI"), content.stream().map(o -> o.get("orgCode")).toList());
+    assertEquals("OSLI", json.get("next"));
+  }
+
+  @WithMockUser(roles = {"USER"})
+  @Test
+  public void list_of_organizations_is_not_modified_until_an_organization_is_saved()
+      throws Exception {
+    // arrange
+    UCSBOrganization organization =
+        ucsborganizationRepository.save(
+            UCSBOrganization.builder()
+                .orgCode("TT")
+                .orgTranslationShort("Theta Tau")
+                .orgTranslation("Theta Tau Engineering Frat")
+                .inactive(false)
+                .build());
+    String etag =
+        mockMvc
+            .perform(get("/api/ucsborganization/all"))
+            .andExpect(status().isOk())
+            .andReturn()
+            .getResponse()
+            .getHeader(HttpHeaders.ETAG);
+
+    // act & assert
+    mockMvc
+        .perform(get("/api/ucsborganization/all").header(HttpHeaders.IF_NONE_MATCH, etag))
+        .andExpect(status().isNotModified());
+
+    organization.setInactive(true);
+    ucsborganizationRepository.save(organization);
+    MvcResult response =
+        mockMvc
+            .perform(get("/api/ucsborganization/all").header(HttpHeaders.IF_NONE_MATCH, etag))
+            .andExpect(status().isOk())
+            .andReturn();
+    assertNotEquals(etag, response.getResponse().getHeader(HttpHeaders.ETAG));
+    assertEquals(
+        mapper.writeValueAsString(List.of(organization)),
+        response.getResponse().getContentAsString());
+  }
+
+  @WithMockUser(roles = {"ADMIN", "USER"})
+  @Test
+  public void an_admin_can_post_new_organizations_in_bulk_but_not_over_an_existing_one()
+      throws Exception {
+    // arrange
+    UCSBOrganization existing =
+        ucsborganizationRepository.save(
+            UCSBOrganization.builder()
+                .orgCode("TT")
+                .orgTranslationShort("Theta Tau")
+                .orgTranslation("Theta Tau Engineering Frat")
+                .inactive(false)
+                .build());
+    UCSBOrganization acm =
+        UCSBOrganization.builder()
+            .orgCode("ACM")
+            .orgTranslationShort("ACM")
+            .orgTranslation("Association for Computing Machinery")
+            .inactive(false)
+            .build();
+    UCSBOrganization overwrite =
+        UCSBOrganization.builder()
+            .orgCode("TT")
+            .orgTranslationShort("Overwritten")
+            .orgTranslation("Overwritten")
+            .inactive(true)
+            .build();
+
+    // act & assert
+    mockMvc
+        .perform(
+            post("/api/ucsborganization/bulk")
+                .with(csrf())
+                .contentType(MediaType.APPLICATION_JSON)
+                .content(mapper.writeValueAsString(List.of(acm, overwrite))))
+        .andExpect(status().isConflict());
+    assertEquals(List.of(existing), ucsborganizationRepository.findAll());
+
+    mockMvc
+        .perform(
+            post("/api/ucsborganization/bulk")
+                .with(csrf())
+                .contentType(MediaType.APPLICATION_JSON)
+                .content(mapper.writeValueAsString(List.of(acm))))
+        .andExpect(status().isOk());
+    assertEquals(acm, ucsborganizationRepository.findById("ACM").orElseThrow());
+  }
 }
@@ -0,0 +1,90 @@
+package edu.ucsb.cs156.example.integration;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.asyncDispatch;
+import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.get;
+import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.request;
+import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.status;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
+import edu.ucsb.cs156.example.entities.User;
+import edu.ucsb.cs156.example.repositories.UserRepository;
+import edu.ucsb.cs156.example.testconfig.TestConfig;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.extension.ExtendWith;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.autoconfigure.web.servlet.AutoConfigureMockMvc;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.context.annotation.Import;
+import org.springframework.dao.DataIntegrityViolationException;
+import org.springframework.security.test.context.support.WithMockUser;
+import org.springframework.test.annotation.DirtiesContext;
+import org.springframework.test.annotation.DirtiesContext.ClassMode;
+import org.springframework.test.context.ActiveProfiles;
+import org.springframework.test.context.junit.jupiter.SpringExtension;
+import org.springframework.test.web.servlet.MockMvc;
+import org.springframework.test.web.servlet.MvcResult;
+
+@ExtendWith(SpringExtension.class)
+@SpringBootTest
+@AutoConfigureMockMvc
+@ActiveProfiles("integration")
+@Import(TestConfig.class)
+@DirtiesContext(classMode = ClassMode.BEFORE_EACH_TEST_METHOD)
+public class UsersIT {
+  @Autowired UserRepository userRepository;
+
+  @Autowired MockMvc mockMvc;
+
+  @Autowired ObjectMapper mapper;
+
+  @Test
+  public void users_are_found_by_email_in_any_case() {
+    // arrange
+    User user = userRepository.save(User.builder().email("ta@ucsb.edu").build());
+
+    // act & assert
+    assertEquals(user.getId(), userRepository.findByEmailIgnoringCase("TA@UCSB.edu").get().getId());
+    assertTrue(userRepository.findByEmailIgnoringCase("student@ucsb.edu").isEmpty());
+  }
+
+  @Test
+  public void two_users_cannot_have_the_same_email() {
+    // arrange
+    userRepository.save(User.builder().email("ta@ucsb.edu").build());
+
+    // act & assert
+    assertThrows(
+        DataIntegrityViolationException.class,
+        () -> userRepository.save(User.builder().email("ta@ucsb.edu").build()));
+  }
+
+  @WithMockUser(roles = {"ADMIN", "USER"})
+  @Test
+  public void admin_gets_every_user_streamed_from_the_database() throws Exception {
+    // arrange
+    List<User> users = new ArrayList<>();
+    for (int i = 0; i < 250; i++) {
+      users.add(User.builder().email("user%d@ucsb.edu".formatted(i)).build());
+    }
+    userRepository.saveAll(users);
+
+    // act
+    MvcResult started =
+        mockMvc.perform(get("/api/admin/users")).andExpect(request().asyncStarted()).andReturn();
+    MvcResult response =
+        mockMvc.perform(asyncDispatch(started)).andExpect(status().isOk()).andReturn();
+
+    // assert
+    List<Map<String, Object>> json =
+        mapper.readValue(response.getResponse().getContentAsString(), List.class);
+    assertEquals(250, json.size());
+    assertEquals("user0@ucsb.edu", json.get(0).get("email"));
+    assertEquals("user249@ucsb.edu", json.get(249).get("email"));
+  }
+}
@@ -0,0 +1,47 @@
+package edu.ucsb.cs156.example.repositories;
+
+import static org.junit.jupiter.api.Assertions.assertArrayEquals;
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.mockito.ArgumentMatchers.eq;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.times;
+import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.verifyNoMoreInteractions;
+
+import edu.ucsb.cs156.example.entities.JobLogLine;
+import java.util.List;
+import org.junit.jupiter.api.Test;
+import org.mockito.ArgumentCaptor;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.test.util.ReflectionTestUtils;
+
+public class JobLogLinesBatchRepositoryImplTests {
+  private final JdbcTemplate jdbcTemplate = mock(JdbcTemplate.class);
+
+  private final JobLogLinesBatchRepositoryImpl repository = new JobLogLinesBatchRepositoryImpl();
+
+  @Test
+  @SuppressWarnings("unchecked")
+  public void insert_all_writes_every_line_in_one_batch() {
+    // arrange
+    ReflectionTestUtils.setField(repository, "jdbcTemplate", jdbcTemplate);
+    List<JobLogLine> lines =
+        List.of(
+            JobLogLine.builder().jobId(7L).line("one").build(),
+            JobLogLine.builder().jobId(7L).line("two").build(),
+            JobLogLine.builder().jobId(7L).line("three").build());
+
+    // act
+    repository.insertAll(lines);
+
+    // assert
+    ArgumentCaptor<List<Object[]>> batchArgs = ArgumentCaptor.forClass(List.class);
+    verify(jdbcTemplate, times(1))
+        .batchUpdate(eq(JobLogLinesBatchRepositoryImpl.INSERT_SQL), batchArgs.capture());
+    verifyNoMoreInteractions(jdbcTemplate);
+    assertEquals(3, batchArgs.getValue().size());
+    assertArrayEquals(new Object[] {7L, "one"}, batchArgs.getValue().get(0));
+    assertArrayEquals(new Object[] {7L, "two"}, batchArgs.getValue().get(1));
+    assertArrayEquals(new Object[] {7L, "three"}, batchArgs.getValue().get(2));
+  }
+}
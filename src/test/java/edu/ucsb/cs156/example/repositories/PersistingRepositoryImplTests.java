@@ -0,0 +1,37 @@
+package edu.ucsb.cs156.example.repositories;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.mockito.Mockito.inOrder;
+import static org.mockito.Mockito.mock;
+
+import edu.ucsb.cs156.example.entities.UCSBOrganization;
+import jakarta.persistence.EntityManager;
+import java.util.List;
+import org.junit.jupiter.api.Test;
+import org.mockito.InOrder;
+import org.springframework.test.util.ReflectionTestUtils;
+
+public class PersistingRepositoryImplTests {
+  private final EntityManager entityManager = mock(EntityManager.class);
+
+  private final PersistingRepositoryImpl<UCSBOrganization> repository =
+      new PersistingRepositoryImpl<>();
+
+  @Test
+  public void persist_all_persists_every_entity_without_merging() {
+    // arrange
+    ReflectionTestUtils.setField(repository, "entityManager", entityManager);
+    UCSBOrganization krc = UCSBOrganization.builder().orgCode("KRC").build();
+    UCSBOrganization osli = UCSBOrganization.builder().orgCode("OSLI").build();
+
+    // act
+    List<UCSBOrganization> persisted = repository.persistAll(List.of(krc, osli));
+
+    // assert
+    assertEquals(List.of(krc, osli), persisted);
+    InOrder inOrder = inOrder(entityManager);
+    inOrder.verify(entityManager).persist(krc);
+    inOrder.verify(entityManager).persist(osli);
+    inOrder.verifyNoMoreInteractions();
+  }
+}
@@ -0,0 +1,72 @@
+package edu.ucsb.cs156.example.services;
+
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+import static org.mockito.Mockito.when;
+
+import edu.ucsb.cs156.example.entities.User;
+import edu.ucsb.cs156.example.repositories.UserRepository;
+import java.util.List;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.mockito.InjectMocks;
+import org.mockito.Mock;
+import org.mockito.MockitoAnnotations;
+import org.springframework.test.util.ReflectionTestUtils;
+
+public class AdminDirectoryTests {
+  @Mock private UserRepository userRepository;
+
+  @InjectMocks private AdminDirectory adminDirectory;
+
+  @BeforeEach
+  public void setup() {
+    MockitoAnnotations.openMocks(this);
+    ReflectionTestUtils.setField(adminDirectory, "adminEmails", List.of("prof@ucsb.edu"));
+  }
+
+  @Test
+  public void configured_admins_are_admins() {
+    assertTrue(adminDirectory.isConfiguredAdmin("prof@ucsb.edu"));
+    assertTrue(adminDirectory.isAdmin("prof@ucsb.edu"));
+    assertTrue(adminDirectory.isConfiguredAdmin("Prof@UCSB.edu"));
+    assertFalse(adminDirectory.isConfiguredAdmin("student@ucsb.edu"));
+    assertFalse(adminDirectory.isAdmin("student@ucsb.edu"));
+  }
+
+  @Test
+  public void refresh_loads_admins_from_users_table() {
+    // arrange
+    when(userRepository.findAdminEmails()).thenReturn(List.of("ta@ucsb.edu", "lead@ucsb.edu"));
+    adminDirectory.refresh();
+    when(userRepository.findAdminEmails()).thenReturn(List.of("ta@ucsb.edu"));
+
+    // act
+    adminDirectory.refresh();
+
+    // assert
+    assertTrue(adminDirectory.isAdmin("ta@ucsb.edu"));
+    assertTrue(adminDirectory.isAdmin("TA@ucsb.edu"));
+    assertFalse(adminDirectory.isAdmin("lead@ucsb.edu"));
+    assertFalse(adminDirectory.isConfiguredAdmin("ta@ucsb.edu"));
+  }
+
+  @Test
+  public void saved_and_removed_users_update_admins() {
+    // arrange
+    User ta = User.builder().email("ta@ucsb.edu").admin(true).build();
+
+    // act & assert
+    adminDirectory.userSaved(ta);
+    assertTrue(adminDirectory.isAdmin("ta@ucsb.edu"));
+
+    ta.setAdmin(false);
+    adminDirectory.userSaved(ta);
+    assertFalse(adminDirectory.isAdmin("ta@ucsb.edu"));
+
+    ta.setAdmin(true);
+    adminDirectory.userSaved(ta);
+    adminDirectory.userRemoved(ta);
+    assertFalse(adminDirectory.isAdmin("ta@ucsb.edu"));
+  }
+}
@@ -0,0 +1,217 @@
+package edu.ucsb.cs156.example.services;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.never;
+import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.when;
+
+import edu.ucsb.cs156.example.entities.Restaurant;
+import edu.ucsb.cs156.example.entities.UCSBOrganization;
+import edu.ucsb.cs156.example.errors.EntityNotFoundException;
+import edu.ucsb.cs156.example.repositories.RestaurantRepository;
+import edu.ucsb.cs156.example.repositories.UCSBOrganizationRepository;
+import java.util.List;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.http.HttpStatus;
+import org.springframework.test.util.ReflectionTestUtils;
+import org.springframework.web.server.ResponseStatusException;
+
+public class BulkSaveServiceTests {
+  private final BulkSaveService bulkSaveService = new BulkSaveService();
+
+  private final RestaurantRepository restaurantRepository = mock(RestaurantRepository.class);
+
+  private final Restaurant chipotle = Restaurant.builder().id(1L).name("Chipotle").build();
+
+  private final Restaurant freebirds = Restaurant.builder().id(2L).name("Freebirds").build();
+
+  private final UCSBOrganizationRepository ucsbOrganizationRepository =
+      mock(UCSBOrganizationRepository.class);
+
+  private final UCSBOrganization krc =
+      UCSBOrganization.builder().orgCode("KRC").orgTranslationShort("KOREAN RADIO CL").build();
+
+  private final UCSBOrganization osli =
+      UCSBOrganization.builder().orgCode("OSLI").orgTranslationShort("STUDENT LIFE").build();
+
+  @BeforeEach
+  public void setup() {
+    ReflectionTestUtils.setField(bulkSaveService, "maxSize", 2);
+  }
+
+  @Test
+  public void create_all_saves_every_entity_at_once() {
+    List<Restaurant> incoming = List.of(chipotle, freebirds);
+    when(restaurantRepository.saveAll(incoming)).thenReturn(incoming);
+
+    assertEquals(incoming, bulkSaveService.createAll(restaurantRepository, incoming));
+  }
+
+  @Test
+  public void create_all_rejects_too_many_entities() {
+    List<Restaurant> incoming = List.of(chipotle, freebirds, chipotle);
+
+    ResponseStatusException e =
+        assertThrows(
+            ResponseStatusException.class,
+            () -> bulkSaveService.createAll(restaurantRepository, incoming));
+
+    assertEquals(HttpStatus.BAD_REQUEST, e.getStatusCode());
+    assertEquals("Cannot save more than 2 entities at once", e.getReason());
+    verify(restaurantRepository, never()).saveAll(any());
+  }
+
+  @Test
+  public void update_all_checks_existence_with_one_query_then_saves() {
+    List<Restaurant> incoming = List.of(chipotle, freebirds);
+    when(restaurantRepository.findAllById(List.of(1L, 2L))).thenReturn(incoming);
+    when(restaurantRepository.saveAll(incoming)).thenReturn(incoming);
+
+    assertEquals(
+        incoming,
+        bulkSaveService.updateAll(
+            restaurantRepository, Restaurant.class, Restaurant::getId, incoming));
+  }
+
+  @Test
+  public void update_all_rejects_entities_that_do_not_exist() {
+    List<Restaurant> incoming = List.of(chipotle, freebirds);
+    when(restaurantRepository.findAllById(List.of(1L, 2L))).thenReturn(List.of(freebirds));
+
+    EntityNotFoundException e =
+        assertThrows(
+            EntityNotFoundException.class,
+            () ->
+                bulkSaveService.updateAll(
+                    restaurantRepository, Restaurant.class, Restaurant::getId, incoming));
+
+    assertEquals("Restaurant with id 1 not found", e.getMessage());
+    verify(restaurantRepository, never()).saveAll(any());
+  }
+
+  @Test
+  public void update_all_rejects_too_many_entities() {
+    List<Restaurant> incoming = List.of(chipotle, freebirds, chipotle);
+
+    assertThrows(
+        ResponseStatusException.class,
+        () ->
+            bulkSaveService.updateAll(
+                restaurantRepository, Restaurant.class, Restaurant::getId, incoming));
+    verify(restaurantRepository, never()).findAllById(any());
+  }
+
+  @Test
+  public void create_all_with_assigned_ids_checks_them_with_one_query_then_inserts() {
+    List<UCSBOrganization> incoming = List.of(krc, osli);
+    when(ucsbOrganizationRepository.findAllById(List.of("KRC", "OSLI"))).thenReturn(List.of());
+    when(ucsbOrganizationRepository.persistAll(incoming)).thenReturn(incoming);
+
+    assertEquals(
+        incoming,
+        bulkSaveService.createAllWithAssignedIds(
+            ucsbOrganizationRepository,
+            UCSBOrganization.class,
+            UCSBOrganization::getOrgCode,
+            incoming));
+    verify(ucsbOrganizationRepository, never()).saveAll(any());
+  }
+
+  @Test
+  public void create_all_with_assigned_ids_rejects_an_id_that_is_taken() {
+    List<UCSBOrganization> incoming = List.of(krc, osli);
+    when(ucsbOrganizationRepository.findAllById(List.of("KRC", "OSLI"))).thenReturn(List.of(osli));
+
+    ResponseStatusException e =
+        assertThrows(
+            ResponseStatusException.class,
+            () ->
+                bulkSaveService.createAllWithAssignedIds(
+                    ucsbOrganizationRepository,
+                    UCSBOrganization.class,
+                    UCSBOrganization::getOrgCode,
+                    incoming));
+
+    assertEquals(HttpStatus.CONFLICT, e.getStatusCode());
+    assertEquals("UCSBOrganization OSLI already exists", e.getReason());
+    verify(ucsbOrganizationRepository, never()).persistAll(any());
+  }
+
+  @Test
+  public void create_all_with_assigned_ids_rejects_an_id_given_twice() {
+    List<UCSBOrganization> incoming = List.of(krc, krc);
+
+    ResponseStatusException e =
+        assertThrows(
+            ResponseStatusException.class,
+            () ->
+                bulkSaveService.createAllWithAssignedIds(
+                    ucsbOrganizationRepository,
+                    UCSBOrganization.class,
+                    UCSBOrganization::getOrgCode,
+                    incoming));
+
+    assertEquals(HttpStatus.CONFLICT, e.getStatusCode());
+    assertEquals("UCSBOrganization KRC already exists", e.getReason());
+    verify(ucsbOrganizationRepository, never()).findAllById(any());
+  }
+
+  @Test
+  public void create_all_with_assigned_ids_rejects_an_entity_without_an_id() {
+    List<UCSBOrganization> incoming =
+        List.of(UCSBOrganization.builder().orgTranslationShort("NO CODE").build());
+
+    ResponseStatusException e =
+        assertThrows(
+            ResponseStatusException.class,
+            () ->
+                bulkSaveService.createAllWithAssignedIds(
+                    ucsbOrganizationRepository,
+                    UCSBOrganization.class,
+                    UCSBOrganization::getOrgCode,
+                    incoming));
+
+    assertEquals(HttpStatus.BAD_REQUEST, e.getStatusCode());
+    assertEquals("Every UCSBOrganization must have an id", e.getReason());
+    verify(ucsbOrganizationRepository, never()).findAllById(any());
+  }
+
+  @Test
+  public void create_all_with_assigned_ids_rejects_too_many_entities() {
+    List<UCSBOrganization> incoming = List.of(krc, osli, krc);
+
+    assertThrows(
+        ResponseStatusException.class,
+        () ->
+            bulkSaveService.createAllWithAssignedIds(
+                ucsbOrganizationRepository,
+                UCSBOrganization.class,
+                UCSBOrganization::getOrgCode,
+                incoming));
+    verify(ucsbOrganizationRepository, never()).findAllById(any());
+  }
+
+  @Test
+  public void update_all_rejects_an_entity_without_an_id() {
+    List<UCSBOrganization> incoming =
+        List.of(krc, UCSBOrganization.builder().orgTranslationShort("NO CODE").build());
+
+    ResponseStatusException e =
+        assertThrows(
+            ResponseStatusException.class,
+            () ->
+                bulkSaveService.updateAll(
+                    ucsbOrganizationRepository,
+                    UCSBOrganization.class,
+                    UCSBOrganization::getOrgCode,
+                    incoming));
+
+    assertEquals(HttpStatus.BAD_REQUEST, e.getStatusCode());
+    assertEquals("Every UCSBOrganization must have an id", e.getReason());
+    verify(ucsbOrganizationRepository, never()).findAllById(any());
+  }
+}
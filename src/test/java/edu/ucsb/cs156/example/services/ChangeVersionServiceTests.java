@@ -0,0 +1,176 @@
+package edu.ucsb.cs156.example.services;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.times;
+import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.when;
+
+import edu.ucsb.cs156.example.entities.HelpRequest;
+import edu.ucsb.cs156.example.entities.UCSBOrganization;
+import edu.ucsb.cs156.example.models.Changes;
+import edu.ucsb.cs156.example.repositories.HelpRequestRepository;
+import jakarta.persistence.EntityManagerFactory;
+import jakarta.persistence.PersistenceUnitUtil;
+import jakarta.persistence.metamodel.EntityType;
+import jakarta.persistence.metamodel.Metamodel;
+import java.util.List;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.test.util.ReflectionTestUtils;
+import org.springframework.transaction.support.TransactionSynchronization;
+import org.springframework.transaction.support.TransactionSynchronizationManager;
+
+public class ChangeVersionServiceTests {
+  private static final String INCREMENT =
+      "UPDATE TABLE_CHANGE_VERSIONS SET VERSION = VERSION + 1 WHERE TABLE_NAME = ?";
+
+  private static final String SELECT_VERSION =
+      "SELECT VERSION FROM TABLE_CHANGE_VERSIONS WHERE TABLE_NAME = ?";
+
+  private final ChangeVersionService changeVersionService = new ChangeVersionService();
+
+  private final JdbcTemplate jdbcTemplate = mock(JdbcTemplate.class);
+
+  private final EntityManagerFactory entityManagerFactory = mock(EntityManagerFactory.class);
+
+  private final PersistenceUnitUtil persistenceUnitUtil = mock(PersistenceUnitUtil.class);
+
+  @BeforeEach
+  @SuppressWarnings("unchecked")
+  public void setup() {
+    ReflectionTestUtils.setField(changeVersionService, "jdbcTemplate", jdbcTemplate);
+    ReflectionTestUtils.setField(
+        changeVersionService, "entityManagerFactory", entityManagerFactory);
+    Metamodel metamodel = mock(Metamodel.class);
+    EntityType<HelpRequest> helpRequests = mock(EntityType.class);
+    EntityType<UCSBOrganization> organizations = mock(EntityType.class);
+    when(helpRequests.getName()).thenReturn("helprequests");
+    when(organizations.getName()).thenReturn("ucsborganization");
+    when(metamodel.entity(HelpRequest.class)).thenReturn(helpRequests);
+    when(metamodel.entity(UCSBOrganization.class)).thenReturn(organizations);
+    when(entityManagerFactory.getMetamodel()).thenReturn(metamodel);
+    when(entityManagerFactory.getPersistenceUnitUtil()).thenReturn(persistenceUnitUtil);
+    TransactionSynchronizationManager.initSynchronization();
+  }
+
+  @AfterEach
+  public void teardown() {
+    TransactionSynchronizationManager.clearSynchronization();
+  }
+
+  private void endTransaction() {
+    TransactionSynchronizationManager.getSynchronizations()
+        .forEach(sync -> sync.afterCompletion(TransactionSynchronization.STATUS_COMMITTED));
+  }
+
+  @Test
+  public void changes_in_one_transaction_share_a_version_per_table() {
+    // arrange
+    when(jdbcTemplate.queryForObject(SELECT_VERSION, Long.class, "helprequests")).thenReturn(8L);
+    when(jdbcTemplate.queryForObject(SELECT_VERSION, Long.class, "ucsborganization"))
+        .thenReturn(3L);
+    HelpRequest first = HelpRequest.builder().id(1).build();
+    HelpRequest second = HelpRequest.builder().id(2).build();
+    UCSBOrganization organization = UCSBOrganization.builder().orgCode("ZPR").build();
+
+    // act
+    changeVersionService.recordChange(first);
+    changeVersionService.recordChange(second);
+    changeVersionService.recordChange(organization);
+    endTransaction();
+
+    // assert
+    assertEquals(8, first.getChangeVersion());
+    assertEquals(8, second.getChangeVersion());
+    assertEquals(3, organization.getChangeVersion());
+    verify(jdbcTemplate, times(1)).update(INCREMENT, "helprequests");
+    verify(jdbcTemplate, times(1)).update(INCREMENT, "ucsborganization");
+    assertFalse(TransactionSynchronizationManager.hasResource(changeVersionService));
+  }
+
+  @Test
+  public void each_transaction_takes_a_new_version() {
+    // arrange
+    when(jdbcTemplate.queryForObject(SELECT_VERSION, Long.class, "helprequests"))
+        .thenReturn(8L, 9L);
+    HelpRequest first = HelpRequest.builder().id(1).build();
+    HelpRequest second = HelpRequest.builder().id(2).build();
+
+    // act
+    changeVersionService.recordChange(first);
+    endTransaction();
+    TransactionSynchronizationManager.clearSynchronization();
+    TransactionSynchronizationManager.initSynchronization();
+    changeVersionService.recordChange(second);
+    endTransaction();
+
+    // assert
+    assertEquals(8, first.getChangeVersion());
+    assertEquals(9, second.getChangeVersion());
+    verify(jdbcTemplate, times(2)).update(INCREMENT, "helprequests");
+  }
+
+  @Test
+  public void deletion_replaces_the_tombstone_of_the_entity() {
+    // arrange
+    UCSBOrganization organization = UCSBOrganization.builder().orgCode("ZPR").build();
+    when(persistenceUnitUtil.getIdentifier(organization)).thenReturn("ZPR");
+    when(jdbcTemplate.queryForObject(SELECT_VERSION, Long.class, "ucsborganization"))
+        .thenReturn(4L);
+
+    // act
+    changeVersionService.recordDeletion(organization);
+    endTransaction();
+
+    // assert
+    verify(jdbcTemplate).update(INCREMENT, "ucsborganization");
+    verify(jdbcTemplate)
+        .update(
+            "DELETE FROM TOMBSTONES WHERE TABLE_NAME = ? AND ENTITY_ID = ?",
+            "ucsborganization",
+            "ZPR");
+    verify(jdbcTemplate)
+        .update(
+            "INSERT INTO TOMBSTONES (TABLE_NAME, ENTITY_ID, VERSION) VALUES (?, ?, ?)",
+            "ucsborganization",
+            "ZPR",
+            4L);
+  }
+
+  @Test
+  public void changes_since_a_version_are_the_changed_entities_and_the_deleted_ids() {
+    // arrange
+    HelpRequestRepository repository = mock(HelpRequestRepository.class);
+    HelpRequest changed = HelpRequest.builder().id(2).changeVersion(6).build();
+    when(jdbcTemplate.queryForObject(SELECT_VERSION, Long.class, "helprequests")).thenReturn(7L);
+    when(repository.findByChangeVersionGreaterThanOrderByChangeVersion(5))
+        .thenReturn(List.of(changed));
+    when(jdbcTemplate.queryForList(
+            "SELECT ENTITY_ID FROM TOMBSTONES WHERE TABLE_NAME = ? AND VERSION > ? ORDER BY VERSION",
+            String.class,
+            "helprequests",
+            5L))
+        .thenReturn(List.of("1", "3"));
+
+    // act
+    Changes<HelpRequest> changes =
+        changeVersionService.changesSince(repository, HelpRequest.class, 5);
+
+    // assert
+    assertEquals(new Changes<>(7, List.of(changed), List.of("1", "3")), changes);
+  }
+
+  @Test
+  public void current_version_of_an_entity_is_the_counter_of_its_table() {
+    // arrange
+    when(jdbcTemplate.queryForObject(SELECT_VERSION, Long.class, "ucsborganization"))
+        .thenReturn(12L);
+
+    // act & assert
+    assertEquals(12, changeVersionService.currentVersion(UCSBOrganization.class));
+  }
+}
@@ -0,0 +1,74 @@
+package edu.ucsb.cs156.example.services;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertSame;
+
+import edu.ucsb.cs156.example.entities.User;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.function.Supplier;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.test.util.ReflectionTestUtils;
+
+public class CurrentUserCacheTests {
+  private final CurrentUserCache cache = new CurrentUserCache();
+
+  private final AtomicInteger loads = new AtomicInteger();
+
+  private Supplier<User> loader(String email) {
+    return () -> {
+      loads.incrementAndGet();
+      return User.builder().email(email).build();
+    };
+  }
+
+  @BeforeEach
+  public void setup() {
+    ReflectionTestUtils.setField(cache, "ttlSeconds", 60L);
+  }
+
+  @Test
+  public void get_loads_user_once_then_returns_cached_user() {
+    User first = cache.get("a@ucsb.edu", loader("a@ucsb.edu"));
+    User second = cache.get("a@ucsb.edu", loader("a@ucsb.edu"));
+    cache.get("b@ucsb.edu", loader("b@ucsb.edu"));
+
+    assertSame(first, second);
+    assertEquals(2, loads.get());
+  }
+
+  @Test
+  public void evict_makes_next_get_load_again() {
+    cache.get("a@ucsb.edu", loader("a@ucsb.edu"));
+
+    cache.evict("a@ucsb.edu");
+    cache.get("a@ucsb.edu", loader("a@ucsb.edu"));
+
+    assertEquals(2, loads.get());
+  }
+
+  @Test
+  public void expired_entries_are_loaded_again_and_dropped() throws Exception {
+    ReflectionTestUtils.setField(cache, "ttlSeconds", 1L);
+    cache.get("a@ucsb.edu", loader("a@ucsb.edu"));
+    cache.get("b@ucsb.edu", loader("b@ucsb.edu"));
+
+    Thread.sleep(1100);
+    cache.get("a@ucsb.edu", loader("a@ucsb.edu"));
+    cache.evictExpired();
+
+    assertEquals(3, loads.get());
+    assertEquals(1, cache.size());
+  }
+
+  @Test
+  public void nothing_is_cached_when_ttl_is_zero() {
+    ReflectionTestUtils.setField(cache, "ttlSeconds", 0L);
+
+    cache.get("a@ucsb.edu", loader("a@ucsb.edu"));
+    cache.get("a@ucsb.edu", loader("a@ucsb.edu"));
+
+    assertEquals(2, loads.get());
+    assertEquals(0, cache.size());
+  }
+}
@@ -0,0 +1,363 @@
+package edu.ucsb.cs156.example.services;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.startsWith;
+import static org.mockito.Mockito.doThrow;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.never;
+import static org.mockito.Mockito.times;
+import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.when;
+import static org.springframework.test.util.ReflectionTestUtils.getField;
+import static org.springframework.test.util.ReflectionTestUtils.setField;
+
+import com.fasterxml.jackson.core.JsonParseException;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import edu.ucsb.cs156.example.entities.Restaurant;
+import edu.ucsb.cs156.example.entities.UCSBDiningCommons;
+import edu.ucsb.cs156.example.entities.UCSBOrganization;
+import edu.ucsb.cs156.example.errors.JobCancelledException;
+import edu.ucsb.cs156.example.repositories.ArticleRepository;
+import edu.ucsb.cs156.example.repositories.HelpRequestRepository;
+import edu.ucsb.cs156.example.repositories.MenuItemReviewRepository;
+import edu.ucsb.cs156.example.repositories.RecommendationRequestRepository;
+import edu.ucsb.cs156.example.repositories.RestaurantRepository;
+import edu.ucsb.cs156.example.repositories.UCSBDateRepository;
+import edu.ucsb.cs156.example.repositories.UCSBDiningCommonsMenuItemRepository;
+import edu.ucsb.cs156.example.repositories.UCSBDiningCommonsRepository;
+import edu.ucsb.cs156.example.repositories.UCSBOrganizationRepository;
+import edu.ucsb.cs156.example.services.jobs.JobContext;
+import java.io.ByteArrayInputStream;
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.mockito.ArgumentCaptor;
+import org.mockito.InOrder;
+import org.mockito.Mockito;
+import org.springframework.dao.DataIntegrityViolationException;
+import org.springframework.data.repository.CrudRepository;
+import org.springframework.test.util.ReflectionTestUtils;
+import org.springframework.transaction.PlatformTransactionManager;
+
+public class EntityImportServiceTests {
+  private final EntityImportService entityImportService = new EntityImportService();
+
+  private final RestaurantRepository restaurantRepository = mock(RestaurantRepository.class);
+
+  private final UCSBOrganizationRepository ucsbOrganizationRepository =
+      mock(UCSBOrganizationRepository.class);
+
+  private final PlatformTransactionManager transactionManager =
+      mock(PlatformTransactionManager.class);
+
+  private final JobContext ctx = mock(JobContext.class);
+
+  // what each saveAll was given
+  private final List<List<Restaurant>> savedBatches = new ArrayList<>();
+
+  // the other repositories, by the name of their field in the service
+  private final Map<String, CrudRepository<?, ?>> repositories =
+      Map.of(
+          "articleRepository", mock(ArticleRepository.class),
+          "helpRequestRepository", mock(HelpRequestRepository.class),
+          "menuItemReviewRepository", mock(MenuItemReviewRepository.class),
+          "recommendationRequestRepository", mock(RecommendationRequestRepository.class),
+          "ucsbDateRepository", mock(UCSBDateRepository.class),
+          "ucsbDiningCommonsRepository", mock(UCSBDiningCommonsRepository.class),
+          "ucsbDiningCommonsMenuItemRepository", mock(UCSBDiningCommonsMenuItemRepository.class));
+
+  @BeforeEach
+  public void setup() {
+    repositories.forEach((field, repository) -> setField(entityImportService, field, repository));
+    ReflectionTestUtils.setField(entityImportService, "mapper", new ObjectMapper());
+    ReflectionTestUtils.setField(entityImportService, "transactionManager", transactionManager);
+    ReflectionTestUtils.setField(entityImportService, "restaurantRepository", restaurantRepository);
+    ReflectionTestUtils.setField(
+        entityImportService, "ucsbOrganizationRepository", ucsbOrganizationRepository);
+    ReflectionTestUtils.setField(entityImportService, "batchSize", 2);
+    entityImportService.registerImportables();
+    // a job that has not saved a checkpoint yet (Mockito would answer 0)
+    when(ctx.getCheckpoint()).thenReturn(null);
+
+    when(restaurantRepository.saveAll(any()))
+        .thenAnswer(
+            invocation -> {
+              List<Restaurant> batch = invocation.getArgument(0);
+              savedBatches.add(List.copyOf(batch));
+              return batch;
+            });
+  }
+
+  private void importRows(String entity, String format, String content) throws IOException {
+    byte[] file = content.getBytes(StandardCharsets.UTF_8);
+    entityImportService.importRows(
+        ctx, entity, format, new ByteArrayInputStream(file), file.length);
+  }
+
+  private Restaurant restaurant(String name) {
+    return Restaurant.builder().name(name).description(name + " food").build();
+  }
+
+  @Test
+  public void entity_names_are_the_api_paths_of_the_crud_entities() {
+    assertEquals(
+        Set.of(
+            "articles",
+            "helprequests",
+            "menuitemreview",
+            "recommendationrequests",
+            "restaurants",
+            "ucsbdates",
+            "ucsbdiningcommons",
+            "ucsbdiningcommonsmenuitem",
+            "ucsborganization"),
+        entityImportService.getEntityNames());
+  }
+
+  @Test
+  public void csv_rows_are_saved_in_batches_with_new_ids() throws Exception {
+    // arrange
+    String csv =
+        """
+        id,name,description,rating
+        17,Chipotle,Chipotle food,5
+        18,Freebirds,Freebirds food,4
+        19,Subway,Subway food,3
+        """;
+
+    // act
+    importRows("restaurants", "csv", csv);
+
+    // assert
+    assertEquals(
+        List.of(
+            List.of(restaurant("Chipotle"), restaurant("Freebirds")),
+            List.of(restaurant("Subway"))),
+        savedBatches);
+    InOrder inOrder = Mockito.inOrder(ctx);
+    inOrder.verify(ctx).log("Importing restaurants from csv (109 bytes)");
+    inOrder.verify(ctx).progress(any(Integer.class));
+    inOrder.verify(ctx).checkCancelled();
+    inOrder.verify(ctx).progress(100);
+    inOrder.verify(ctx).log("Imported 3 of 3 rows (0 rejected)");
+    verify(ctx).checkpoint(2);
+    verify(ctx).checkpoint(3);
+  }
+
+  @SuppressWarnings("unchecked")
+  @Test
+  public void every_entity_gets_a_new_generated_id_or_keeps_its_code() throws Exception {
+    Map<String, String> repositoryOf =
+        Map.of(
+            "articles", "articleRepository",
+            "helprequests", "helpRequestRepository",
+            "menuitemreview", "menuItemReviewRepository",
+            "recommendationrequests", "recommendationRequestRepository",
+            "ucsbdates", "ucsbDateRepository",
+            "ucsbdiningcommonsmenuitem", "ucsbDiningCommonsMenuItemRepository");
+
+    for (Map.Entry<String, String> entity : repositoryOf.entrySet()) {
+      importRows(entity.getKey(), "ndjson", "{\"id\":5}");
+
+      CrudRepository<Object, ?> repository =
+          (CrudRepository<Object, ?>) repositories.get(entity.getValue());
+      ArgumentCaptor<List<Object>> saved = ArgumentCaptor.captor();
+      verify(repository).saveAll(saved.capture());
+      Object id = getField(saved.getValue().get(0), "id");
+      assertTrue(id == null || id.equals(0L), entity.getKey() + " kept id " + id);
+    }
+
+    importRows("ucsbdiningcommons", "ndjson", "{\"code\":\"ortega\"}");
+    verify((UCSBDiningCommonsRepository) repositories.get("ucsbDiningCommonsRepository"))
+        .saveAll(List.of(UCSBDiningCommons.builder().code("ortega").build()));
+  }
+
+  @Test
+  public void ndjson_rows_that_cannot_be_read_are_logged_and_skipped() throws Exception {
+    // arrange
+    String ndjson =
+        """
+        {"name":"Chipotle","description":"Chipotle food"}
+        {"id":"seventeen","name":"Bad","description":"Bad food"}
+        {"name":"Freebirds","description":"Freebirds food"}
+        """;
+
+    // act
+    importRows("restaurants", "ndjson", ndjson);
+
+    // assert
+    assertEquals(List.of(List.of(restaurant("Chipotle"), restaurant("Freebirds"))), savedBatches);
+    verify(ctx).log(startsWith("Row 2: Cannot deserialize value of type `long`"));
+    verify(ctx).log("Imported 2 of 3 rows (1 rejected)");
+  }
+
+  @Test
+  public void restarted_import_skips_the_rows_before_its_checkpoint() throws Exception {
+    // arrange: an earlier attempt saved or rejected the first two rows
+    when(ctx.getCheckpoint()).thenReturn(2L);
+    String ndjson =
+        """
+        {"id":"seventeen","name":"Bad","description":"Bad food"}
+        {"name":"Chipotle","description":"Chipotle food"}
+        {"name":"Freebirds","description":"Freebirds food"}
+        {"name":"Subway","description":"Subway food"}
+        """;
+
+    // act
+    importRows("restaurants", "ndjson", ndjson);
+
+    // assert
+    assertEquals(List.of(List.of(restaurant("Freebirds"), restaurant("Subway"))), savedBatches);
+    verify(ctx).log("Resuming after row 2");
+    verify(ctx, never()).log(startsWith("Row 1: "));
+    verify(ctx).checkpoint(4);
+    verify(ctx).log("Imported 2 of rows 3 to 4 (0 rejected)");
+  }
+
+  @Test
+  public void rows_of_a_batch_the_database_rejects_are_saved_one_at_a_time() throws Exception {
+    // arrange
+    String ndjson =
+        """
+        {"id":5,"name":"Chipotle","description":"Chipotle food"}
+        {"name":"Freebirds","description":null}
+        """;
+    doThrow(new DataIntegrityViolationException("batch failed"))
+        .when(restaurantRepository)
+        .saveAll(any());
+    when(restaurantRepository.save(Restaurant.builder().name("Freebirds").build()))
+        .thenThrow(
+            new DataIntegrityViolationException(
+                "row failed", new IllegalStateException("DESCRIPTION cannot be null")));
+
+    // act
+    importRows("restaurants", "ndjson", ndjson);
+
+    // assert
+    verify(restaurantRepository).save(restaurant("Chipotle"));
+    verify(ctx).checkpoint(1);
+    verify(ctx, never()).checkpoint(2);
+    verify(ctx).log("Row 2: DESCRIPTION cannot be null");
+    verify(ctx).log("Imported 1 of 2 rows (1 rejected)");
+    verify(transactionManager, times(2)).rollback(any());
+  }
+
+  @Test
+  public void only_the_first_rejected_rows_are_logged() throws Exception {
+    // arrange
+    StringBuilder ndjson = new StringBuilder();
+    for (int i = 0; i < EntityImportService.MAX_LOGGED_ERRORS + 2; i++) {
+      ndjson.append("{\"id\":\"x\"}\n");
+    }
+
+    // act
+    importRows("restaurants", "ndjson", ndjson.toString());
+
+    // assert
+    verify(ctx).log(startsWith("Row 100: "));
+    verify(ctx, never()).log(startsWith("Row 101: "));
+    verify(ctx, times(1)).log("More than 100 rows rejected; only counting the rest");
+    verify(ctx).log("Imported 0 of 102 rows (102 rejected)");
+    verify(restaurantRepository, never()).saveAll(any());
+  }
+
+  @Test
+  public void rows_keyed_by_code_keep_their_code() throws Exception {
+    // arrange
+    UCSBOrganization zpr =
+        UCSBOrganization.builder()
+            .orgCode("ZPR")
+            .orgTranslationShort("ZETA PHI RHO")
+            .orgTranslation("ZETA PHI RHO")
+            .inactive(false)
+            .build();
+    UCSBOrganization sky =
+        UCSBOrganization.builder()
+            .orgCode("SKY")
+            .orgTranslationShort("SKYDIVING CLUB")
+            .orgTranslation("SKYDIVING CLUB AT UCSB")
+            .inactive(true)
+            .build();
+    String csv =
+        """
+        orgCode,orgTranslationShort,orgTranslation,inactive
+        ZPR,ZETA PHI RHO,ZETA PHI RHO,false
+        SKY,SKYDIVING CLUB,SKYDIVING CLUB AT UCSB,true
+        """;
+
+    // act
+    importRows("ucsborganization", "csv", csv);
+
+    // assert
+    verify(ucsbOrganizationRepository, times(1)).saveAll(List.of(zpr, sky));
+    verify(ctx).log("Imported 2 of 2 rows (0 rejected)");
+  }
+
+  @Test
+  public void rows_whose_code_is_taken_are_rejected() throws Exception {
+    // arrange
+    UCSBOrganization zpr = UCSBOrganization.builder().orgCode("ZPR").build();
+    UCSBOrganization sky = UCSBOrganization.builder().orgCode("SKY").build();
+    when(ucsbOrganizationRepository.findAllById(List.of("ZPR", "SKY")))
+        .thenReturn(List.of(UCSBOrganization.builder().orgCode("ZPR").build()));
+    // by the second batch, the first has saved SKY
+    when(ucsbOrganizationRepository.findAllById(List.of("SKY"))).thenReturn(List.of(sky));
+    String ndjson =
+        """
+        {"orgCode":"ZPR"}
+        {"orgCode":"SKY"}
+        {"orgCode":"SKY"}
+        {}
+        """;
+
+    // act
+    importRows("ucsborganization", "ndjson", ndjson);
+
+    // assert
+    verify(ctx).log("Row 1: UCSBOrganization ZPR already exists");
+    verify(ctx).log("Row 3: UCSBOrganization SKY already exists");
+    verify(ucsbOrganizationRepository).saveAll(List.of(sky));
+    // a row without a code is left for the database to reject
+    verify(ucsbOrganizationRepository).saveAll(List.of(UCSBOrganization.builder().build()));
+    verify(ucsbOrganizationRepository, never()).saveAll(List.of(zpr));
+    verify(ctx).log("Imported 2 of 4 rows (2 rejected)");
+  }
+
+  @Test
+  public void import_stops_when_the_job_is_cancelled() {
+    // arrange
+    doThrow(new JobCancelledException("Job was cancelled")).when(ctx).checkCancelled();
+    String csv = "name,description\nA,a\nB,b\nC,c\n";
+
+    // act & assert
+    assertThrows(JobCancelledException.class, () -> importRows("restaurants", "csv", csv));
+    assertEquals(1, savedBatches.size());
+  }
+
+  @Test
+  public void import_stops_at_a_row_that_is_not_json() {
+    String ndjson = "{\"name\":\"Chipotle\"}\n{\"name\":\n";
+
+    assertThrows(JsonParseException.class, () -> importRows("restaurants", "ndjson", ndjson));
+  }
+
+  @Test
+  public void unknown_entity_or_format_cannot_be_imported() {
+    IllegalArgumentException unknownEntity =
+        assertThrows(IllegalArgumentException.class, () -> importRows("jobs", "csv", ""));
+    IllegalArgumentException unknownFormat =
+        assertThrows(IllegalArgumentException.class, () -> importRows("restaurants", "xml", ""));
+
+    assertEquals("Cannot import jobs", unknownEntity.getMessage());
+    assertEquals("Cannot import from xml", unknownFormat.getMessage());
+    assertTrue(savedBatches.isEmpty());
+  }
+}
@@ -0,0 +1,200 @@
+package edu.ucsb.cs156.example.services;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertNull;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+import static org.mockito.ArgumentMatchers.argThat;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.never;
+import static org.mockito.Mockito.verify;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.fasterxml.jackson.databind.SerializationFeature;
+import com.fasterxml.jackson.datatype.jsr310.JavaTimeModule;
+import edu.ucsb.cs156.example.entities.UCSBDate;
+import jakarta.persistence.EntityManager;
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.io.UncheckedIOException;
+import java.nio.charset.StandardCharsets;
+import java.time.LocalDateTime;
+import java.util.stream.Stream;
+import java.util.zip.GZIPInputStream;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.http.HttpHeaders;
+import org.springframework.http.HttpStatus;
+import org.springframework.http.ResponseEntity;
+import org.springframework.test.util.ReflectionTestUtils;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.web.server.ResponseStatusException;
+import org.springframework.web.servlet.mvc.method.annotation.StreamingResponseBody;
+
+public class ExportServiceTests {
+  private final ExportService exportService = new ExportService();
+
+  private final EntityManager entityManager = mock(EntityManager.class);
+
+  private final PlatformTransactionManager transactionManager =
+      mock(PlatformTransactionManager.class);
+
+  private final UCSBDate date1 =
+      UCSBDate.builder()
+          .id(1L)
+          .quarterYYYYQ("20221")
+          .name("noon on January 2")
+          .localDateTime(LocalDateTime.parse("2022-01-02T12:00:00"))
+          .build();
+
+  private final UCSBDate date2 =
+      UCSBDate.builder()
+          .id(2L)
+          .quarterYYYYQ("20222")
+          .name("lunch, April 3")
+          .localDateTime(LocalDateTime.parse("2022-04-03T12:00:00"))
+          .build();
+
+  @BeforeEach
+  public void setup() {
+    // configured like the Spring Boot ObjectMapper, which writes dates as ISO strings
+    ObjectMapper mapper =
+        new ObjectMapper()
+            .registerModule(new JavaTimeModule())
+            .disable(SerializationFeature.WRITE_DATES_AS_TIMESTAMPS);
+    ReflectionTestUtils.setField(exportService, "mapper", mapper);
+    ReflectionTestUtils.setField(exportService, "entityManager", entityManager);
+    ReflectionTestUtils.setField(exportService, "transactionManager", transactionManager);
+    exportService.configureCsvMapper();
+  }
+
+  @Test
+  public void csv_has_a_header_row_and_one_row_per_entity() throws Exception {
+    // act
+    ResponseEntity<StreamingResponseBody> response =
+        exportService.export(
+            "ucsbdates", UCSBDate.class, "csv", "deflate", () -> Stream.of(date1, date2));
+    ByteArrayOutputStream out = new ByteArrayOutputStream();
+    response.getBody().writeTo(out);
+
+    // assert
+    assertEquals(ExportService.TEXT_CSV, response.getHeaders().getContentType());
+    assertNull(response.getHeaders().getFirst(HttpHeaders.CONTENT_ENCODING));
+    assertEquals(
+        """
+        id,localDateTime,name,quarterYYYYQ
+        1,2022-01-02T12:00:00,"noon on January 2",20221
+        2,2022-04-03T12:00:00,"lunch, April 3",20222
+        """,
+        out.toString(StandardCharsets.UTF_8));
+    verify(entityManager).detach(date1);
+    verify(entityManager).detach(date2);
+    verify(transactionManager).getTransaction(argThat(definition -> definition.isReadOnly()));
+  }
+
+  @Test
+  public void ndjson_is_gzipped_when_the_client_accepts_gzip() throws Exception {
+    // act
+    ResponseEntity<StreamingResponseBody> response =
+        exportService.export(
+            "ucsbdates", UCSBDate.class, "ndjson", "gzip, deflate", () -> Stream.of(date1, date2));
+    ByteArrayOutputStream out = new ByteArrayOutputStream();
+    response.getBody().writeTo(out);
+
+    // assert
+    assertEquals(ExportService.APPLICATION_NDJSON, response.getHeaders().getContentType());
+    assertEquals("gzip", response.getHeaders().getFirst(HttpHeaders.CONTENT_ENCODING));
+    assertEquals(HttpHeaders.ACCEPT_ENCODING, response.getHeaders().getFirst(HttpHeaders.VARY));
+    assertEquals(
+        "attachment; filename=\"ucsbdates.ndjson\"",
+        response.getHeaders().getFirst(HttpHeaders.CONTENT_DISPOSITION));
+    String ndjson =
+        new String(
+            new GZIPInputStream(new ByteArrayInputStream(out.toByteArray())).readAllBytes(),
+            StandardCharsets.UTF_8);
+    assertEquals(
+        """
+        {"id":1,"quarterYYYYQ":"20221","name":"noon on January 2","localDateTime":"2022-01-02T12:00:00"}
+        {"id":2,"quarterYYYYQ":"20222","name":"lunch, April 3","localDateTime":"2022-04-03T12:00:00"}""",
+        ndjson);
+  }
+
+  @Test
+  public void accepts_gzip_only_when_the_header_allows_it() {
+    assertTrue(ExportService.acceptsGzip("gzip"));
+    assertTrue(ExportService.acceptsGzip("deflate, GZIP;q=0.5"));
+    assertTrue(ExportService.acceptsGzip("br;q=1, *;q=0.1"));
+    assertTrue(ExportService.acceptsGzip("gzip;level=1"));
+    assertTrue(ExportService.acceptsGzip("gzip;broken"));
+    assertFalse(ExportService.acceptsGzip(null));
+    assertFalse(ExportService.acceptsGzip("identity"));
+    assertFalse(ExportService.acceptsGzip("x-gzip"));
+    assertFalse(ExportService.acceptsGzip("gzip;q=0"));
+    assertFalse(ExportService.acceptsGzip("gzip; q=0.0, deflate"));
+    assertFalse(ExportService.acceptsGzip("gzip;q=0, *"));
+    assertFalse(ExportService.acceptsGzip("*;q=0"));
+    assertFalse(ExportService.acceptsGzip("gzip;q=high"));
+  }
+
+  @Test
+  public void csv_is_not_gzipped_when_the_client_refuses_gzip() throws Exception {
+    // act
+    ResponseEntity<StreamingResponseBody> response =
+        exportService.export(
+            "ucsbdates", UCSBDate.class, "csv", "gzip;q=0, deflate", () -> Stream.of(date1));
+    ByteArrayOutputStream out = new ByteArrayOutputStream();
+    response.getBody().writeTo(out);
+
+    // assert
+    assertNull(response.getHeaders().getFirst(HttpHeaders.CONTENT_ENCODING));
+    assertTrue(out.toString(StandardCharsets.UTF_8).startsWith("id,localDateTime,name"));
+  }
+
+  @Test
+  public void unknown_format_cannot_be_exported() {
+    ResponseStatusException e =
+        assertThrows(
+            ResponseStatusException.class,
+            () -> exportService.export("ucsbdates", UCSBDate.class, "xml", null, Stream::empty));
+
+    assertEquals(HttpStatus.BAD_REQUEST, e.getStatusCode());
+    assertEquals("Cannot export as xml", e.getReason());
+  }
+
+  @Test
+  public void export_stops_when_the_client_goes_away() {
+    // arrange
+    OutputStream broken =
+        new OutputStream() {
+          @Override
+          public void write(int b) throws IOException {
+            throw new IOException("Broken pipe");
+          }
+
+          @Override
+          public void write(byte[] b, int off, int len) throws IOException {
+            throw new IOException("Broken pipe");
+          }
+        };
+
+    // act & assert
+    assertThrows(
+        UncheckedIOException.class,
+        () ->
+            exportService
+                .export("ucsbdates", UCSBDate.class, "csv", null, () -> Stream.of(date1))
+                .getBody()
+                .writeTo(broken));
+    assertThrows(
+        UncheckedIOException.class,
+        () ->
+            exportService
+                .export("ucsbdates", UCSBDate.class, "csv", "gzip", Stream::empty)
+                .getBody()
+                .writeTo(broken));
+    verify(entityManager, never()).detach(date1);
+  }
+}
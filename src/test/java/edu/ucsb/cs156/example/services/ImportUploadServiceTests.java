@@ -0,0 +1,128 @@
+package edu.ucsb.cs156.example.services;
+
+import static org.junit.jupiter.api.Assertions.assertArrayEquals;
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.anyInt;
+import static org.mockito.ArgumentMatchers.anyString;
+import static org.mockito.Mockito.never;
+import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.when;
+
+import edu.ucsb.cs156.example.entities.ImportUploadChunk;
+import edu.ucsb.cs156.example.repositories.ImportUploadChunksRepository;
+import java.io.ByteArrayInputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.nio.charset.StandardCharsets;
+import java.time.ZonedDateTime;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Optional;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.mockito.ArgumentCaptor;
+import org.mockito.InjectMocks;
+import org.mockito.Mock;
+import org.mockito.MockitoAnnotations;
+import org.springframework.test.util.ReflectionTestUtils;
+
+public class ImportUploadServiceTests {
+  @Mock private ImportUploadChunksRepository importUploadChunksRepository;
+
+  @InjectMocks private ImportUploadService importUploadService;
+
+  @BeforeEach
+  public void setup() {
+    MockitoAnnotations.openMocks(this);
+    ReflectionTestUtils.setField(importUploadService, "chunkBytes", 4);
+  }
+
+  @Test
+  public void a_file_is_stored_in_pieces_and_read_back_whole() throws Exception {
+    // arrange
+    List<ImportUploadChunk> saved = new ArrayList<>();
+    when(importUploadChunksRepository.save(any()))
+        .thenAnswer(
+            invocation -> {
+              saved.add(invocation.getArgument(0));
+              return invocation.getArgument(0);
+            });
+
+    // act
+    String uploadId =
+        importUploadService.store(
+            new ByteArrayInputStream("name,description\n".getBytes(StandardCharsets.UTF_8)));
+
+    // assert
+    assertEquals(5, saved.size());
+    assertEquals(List.of(0, 1, 2, 3, 4), saved.stream().map(c -> c.getChunkNumber()).toList());
+    assertEquals(uploadId, saved.get(4).getUploadId());
+    assertArrayEquals("\n".getBytes(StandardCharsets.UTF_8), saved.get(4).getData());
+
+    for (ImportUploadChunk chunk : saved) {
+      when(importUploadChunksRepository.findByUploadIdAndChunkNumber(
+              uploadId, chunk.getChunkNumber()))
+          .thenReturn(Optional.of(chunk));
+    }
+    try (InputStream file = importUploadService.open(uploadId)) {
+      assertEquals("name,description\n", new String(file.readAllBytes(), StandardCharsets.UTF_8));
+    }
+  }
+
+  @Test
+  public void an_empty_file_has_no_pieces() throws Exception {
+    // act
+    String uploadId = importUploadService.store(new ByteArrayInputStream(new byte[0]));
+
+    // assert
+    verify(importUploadChunksRepository, never()).save(any());
+    try (InputStream file = importUploadService.open(uploadId)) {
+      assertEquals(0, file.readAllBytes().length);
+    }
+  }
+
+  @Test
+  public void nothing_is_left_stored_when_the_upload_cannot_be_read() throws Exception {
+    // arrange
+    InputStream broken =
+        new InputStream() {
+          private int read;
+
+          @Override
+          public int read() throws IOException {
+            if (read++ < 6) {
+              return 'x';
+            }
+            throw new IOException("connection reset");
+          }
+        };
+    ArgumentCaptor<ImportUploadChunk> saved = ArgumentCaptor.captor();
+
+    // act
+    IOException e = assertThrows(IOException.class, () -> importUploadService.store(broken));
+
+    // assert
+    assertEquals("connection reset", e.getMessage());
+    verify(importUploadChunksRepository).save(saved.capture());
+    verify(importUploadChunksRepository).deleteByUploadIdInBulk(saved.getValue().getUploadId());
+  }
+
+  @Test
+  public void uploads_are_deleted_by_id_or_age() {
+    // arrange
+    ZonedDateTime cutoff = ZonedDateTime.parse("2025-01-01T00:00:00Z");
+    when(importUploadChunksRepository.deleteCreatedBeforeInBulk(cutoff)).thenReturn(3);
+
+    // act
+    importUploadService.delete("upload-1");
+    int deleted = importUploadService.deleteUploadedBefore(cutoff);
+
+    // assert
+    verify(importUploadChunksRepository).deleteByUploadIdInBulk("upload-1");
+    assertEquals(3, deleted);
+    verify(importUploadChunksRepository, never())
+        .findByUploadIdAndChunkNumber(anyString(), anyInt());
+  }
+}
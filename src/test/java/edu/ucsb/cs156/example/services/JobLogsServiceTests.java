@@ -1,26 +1,139 @@
 package edu.ucsb.cs156.example.services;
 
 import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
 import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
 import static org.mockito.Mockito.*;
 
+import com.fasterxml.jackson.databind.ObjectMapper;
 import edu.ucsb.cs156.example.entities.Job;
+import edu.ucsb.cs156.example.entities.JobLogLine;
+import edu.ucsb.cs156.example.models.JobExecutorStatus;
+import edu.ucsb.cs156.example.repositories.JobLogLinesRepository;
 import edu.ucsb.cs156.example.repositories.JobsRepository;
+import edu.ucsb.cs156.example.services.jobs.JobMetrics;
 import edu.ucsb.cs156.example.services.jobs.JobService;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import java.time.Duration;
+import java.time.ZonedDateTime;
+import java.util.List;
 import java.util.Optional;
 import org.junit.jupiter.api.BeforeEach;
 import org.junit.jupiter.api.Test;
 import org.mockito.*;
+import org.springframework.scheduling.concurrent.ThreadPoolTaskExecutor;
+import org.springframework.test.util.ReflectionTestUtils;
 
 public class JobLogsServiceTests {
 
   @Mock private JobsRepository jobRepository;
 
+  @Mock private JobLogLinesRepository jobLogLinesRepository;
+
+  @Mock private CurrentUserService currentUserService;
+
+  @Mock private JobService self;
+
+  @Mock private ThreadPoolTaskExecutor jobExecutor;
+
+  @Spy private ObjectMapper objectMapper = new ObjectMapper();
+
+  private final SimpleMeterRegistry meterRegistry = new SimpleMeterRegistry();
+
+  @Spy private JobMetrics jobMetrics = new JobMetrics(meterRegistry);
+
   @InjectMocks private JobService jobService;
 
   @BeforeEach
   public void setup() {
     MockitoAnnotations.openMocks(this);
+    ReflectionTestUtils.setField(jobService, "logFlushLines", 50);
+  }
+
+  private JobLogLine line(long jobId, String text) {
+    return JobLogLine.builder().jobId(jobId).line(text).build();
+  }
+
+  @Test
+  void test_getExecutorStatus() {
+    // Arrange
+    when(jobExecutor.getCorePoolSize()).thenReturn(2);
+    when(jobExecutor.getPoolSize()).thenReturn(3);
+    when(jobExecutor.getActiveCount()).thenReturn(2);
+    when(jobRepository.countByStatus("queued")).thenReturn(5L);
+
+    // Act
+    JobExecutorStatus status = jobService.getExecutorStatus();
+
+    // Assert
+    JobExecutorStatus expected =
+        JobExecutorStatus.builder().corePoolSize(2).poolSize(3).activeCount(2).queueSize(5).build();
+    assertEquals(expected, status);
+  }
+
+  @Test
+  void test_runJobAsync_flushes_buffered_lines_when_job_completes() {
+    // Arrange
+    Job job = Job.builder().id(9L).status("running").build();
+
+    // Act
+    jobService.runJobAsync(
+        job,
+        ctx -> {
+          ctx.log("first");
+          ctx.log("second");
+        },
+        null);
+
+    // Assert
+    verify(jobLogLinesRepository, times(1))
+        .insertAll(eq(List.of(line(9L, "first"), line(9L, "second"))));
+    assertEquals("complete", job.getStatus());
+    verify(jobRepository, times(1)).save(job);
+  }
+
+  @Test
+  void test_runJobAsync_flushes_buffered_lines_and_error_when_job_fails() {
+    // Arrange
+    Job job = Job.builder().id(9L).status("running").build();
+
+    // Act
+    jobService.runJobAsync(
+        job,
+        ctx -> {
+          ctx.log("first");
+          throw new Exception("boom");
+        },
+        null);
+
+    // Assert
+    verify(jobLogLinesRepository, times(1))
+        .insertAll(eq(List.of(line(9L, "first"), line(9L, "boom"))));
+    assertEquals("error", job.getStatus());
+    verify(jobRepository, times(1)).save(job);
+  }
+
+  @Test
+  void test_flushRunningJobLogs_flushes_only_running_jobs() {
+    // Arrange
+    Job job = Job.builder().id(9L).status("running").build();
+
+    // Act
+    jobService.runJobAsync(
+        job,
+        ctx -> {
+          ctx.log("before flush");
+          jobService.flushRunningJobLogs();
+          verify(jobLogLinesRepository, times(1)).insertAll(eq(List.of(line(9L, "before flush"))));
+          ctx.log("after flush");
+        },
+        null);
+    jobService.flushRunningJobLogs();
+
+    // Assert
+    verify(jobLogLinesRepository, times(1)).insertAll(eq(List.of(line(9L, "after flush"))));
+    verify(jobLogLinesRepository, times(2)).insertAll(any());
   }
 
   @Test
@@ -53,6 +166,36 @@ public class JobLogsServiceTests {
     assertEquals("", result);
   }
 
+  @Test
+  void test_getJobLogs_with_log_lines() {
+    // Arrange
+    Long jobId = 4L;
+    Job job = Job.builder().build();
+    when(jobRepository.findById(jobId)).thenReturn(Optional.of(job));
+    when(jobLogLinesRepository.findLinesByJobId(jobId)).thenReturn(List.of("line one", "line two"));
+
+    // Act
+    String result = jobService.getJobLogs(jobId);
+
+    // Assert
+    assertEquals("line one\nline two", result);
+  }
+
+  @Test
+  void test_getJobLogs_with_legacy_log_and_log_lines() {
+    // Arrange
+    Long jobId = 5L;
+    Job job = Job.builder().log("legacy log").build();
+    when(jobRepository.findById(jobId)).thenReturn(Optional.of(job));
+    when(jobLogLinesRepository.findLinesByJobId(jobId)).thenReturn(List.of("new line"));
+
+    // Act
+    String result = jobService.getJobLogs(jobId);
+
+    // Assert
+    assertEquals("legacy log\nnew line", result);
+  }
+
   @Test
   void test_getJobLogs_job_not_found() {
     // Arrange
@@ -62,4 +205,154 @@ public class JobLogsServiceTests {
     // Act & Assert
     assertThrows(IllegalArgumentException.class, () -> jobService.getJobLogs(jobId));
   }
+
+  @Test
+  void test_cancelJob_interrupts_running_job() {
+    // Arrange
+    Job job = Job.builder().id(9L).status("running").build();
+
+    // Act
+    jobService.runJobAsync(
+        job,
+        ctx -> {
+          ctx.log("started");
+          assertFalse(jobService.cancelJob(8L));
+          assertTrue(jobService.cancelJob(9L));
+          Thread.sleep(10000);
+          ctx.log("never logged");
+        },
+        null);
+
+    // Assert
+    assertFalse(Thread.currentThread().isInterrupted());
+    assertFalse(jobService.cancelJob(9L));
+    verify(jobLogLinesRepository, times(1))
+        .insertAll(eq(List.of(line(9L, "started"), line(9L, "Job was cancelled"))));
+    assertEquals("cancelled", job.getStatus());
+    verify(jobRepository, times(1)).save(job);
+  }
+
+  @Test
+  void test_cancelled_job_that_returns_normally_is_complete() {
+    // Arrange
+    Job job = Job.builder().id(9L).status("running").build();
+
+    // Act
+    jobService.runJobAsync(
+        job,
+        ctx -> {
+          jobService.cancelJob(9L);
+          Thread.interrupted();
+          ctx.log("finished anyway");
+        },
+        null);
+
+    // Assert
+    verify(jobLogLinesRepository, times(1)).insertAll(eq(List.of(line(9L, "finished anyway"))));
+    assertEquals("complete", job.getStatus());
+  }
+
+  @Test
+  void test_job_that_returns_normally_past_its_timeout_is_complete() {
+    // Arrange
+    Job job = Job.builder().id(9L).status("running").build();
+
+    // Act
+    jobService.runJobAsync(job, ctx -> assertTrue(ctx.isCancelled()), Duration.ZERO);
+
+    // Assert
+    verify(jobLogLinesRepository, never()).insertAll(any());
+    assertEquals("complete", job.getStatus());
+  }
+
+  @Test
+  void test_job_that_runs_past_its_timeout_is_interrupted_and_cancelled() {
+    // Arrange
+    Job job = Job.builder().id(9L).status("running").build();
+
+    // Act
+    jobService.runJobAsync(
+        job,
+        ctx -> {
+          jobService.interruptTimedOutJobs();
+          assertTrue(Thread.currentThread().isInterrupted());
+          ctx.checkCancelled();
+        },
+        Duration.ZERO);
+
+    // Assert
+    assertFalse(Thread.currentThread().isInterrupted());
+    verify(jobLogLinesRepository, times(1))
+        .insertAll(eq(List.of(line(9L, "Job exceeded its time limit"))));
+    assertEquals("cancelled", job.getStatus());
+  }
+
+  @Test
+  void test_interruptTimedOutJobs_leaves_jobs_within_their_timeout() {
+    // Arrange
+    Job job = Job.builder().id(9L).status("running").build();
+
+    // Act
+    jobService.runJobAsync(
+        job,
+        ctx -> {
+          jobService.interruptTimedOutJobs();
+          assertFalse(Thread.currentThread().isInterrupted());
+        },
+        Duration.ofHours(1));
+
+    // Assert
+    assertEquals("complete", job.getStatus());
+  }
+
+  @Test
+  void test_runJobAsync_logs_restart_of_job_that_was_started_before() {
+    // Arrange
+    Job job = Job.builder().id(9L).status("running").attempts(2).leaseOwner("other").build();
+
+    // Act
+    jobService.runJobAsync(job, ctx -> ctx.log("running again"), null);
+
+    // Assert
+    verify(jobLogLinesRepository, times(1))
+        .insertAll(eq(List.of(line(9L, "Restarting job (attempt 2)"), line(9L, "running again"))));
+    assertEquals("complete", job.getStatus());
+    assertEquals(null, job.getLeaseOwner());
+  }
+
+  @Test
+  void test_cancelJob_cancels_queued_job() {
+    // Arrange
+    when(jobRepository.cancelIfQueued(9L)).thenReturn(1);
+
+    // Act & Assert
+    assertTrue(jobService.cancelJob(9L));
+  }
+
+  @Test
+  void test_runJobAsync_records_metrics() {
+    // Arrange
+    Job job =
+        Job.builder()
+            .id(9L)
+            .type("edu.ucsb.cs156.example.jobs.TestJob")
+            .createdAt(ZonedDateTime.now().minusSeconds(5))
+            .status("running")
+            .build();
+
+    // Act
+    jobService.runJobAsync(job, ctx -> ctx.log("héllo"), null);
+
+    // Assert
+    verify(jobMetrics, times(1)).jobStarted(job);
+    verify(jobMetrics, times(1)).jobFinished(eq(job), eq("complete"), any(), eq(6L));
+    assertEquals(
+        1,
+        meterRegistry
+            .get("jobs.run")
+            .tag("type", "TestJob")
+            .tag("status", "complete")
+            .timer()
+            .count());
+  }
 }
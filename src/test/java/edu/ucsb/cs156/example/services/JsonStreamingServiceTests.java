@@ -0,0 +1,127 @@
+package edu.ucsb.cs156.example.services;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+import static org.mockito.ArgumentMatchers.argThat;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.never;
+import static org.mockito.Mockito.verify;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
+import edu.ucsb.cs156.example.entities.User;
+import jakarta.persistence.EntityManager;
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.io.UncheckedIOException;
+import java.util.Map;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.stream.Stream;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.test.util.ReflectionTestUtils;
+import org.springframework.transaction.PlatformTransactionManager;
+
+public class JsonStreamingServiceTests {
+  private final JsonStreamingService jsonStreamingService = new JsonStreamingService();
+
+  private final ObjectMapper mapper = new ObjectMapper();
+
+  private final EntityManager entityManager = mock(EntityManager.class);
+
+  private final PlatformTransactionManager transactionManager =
+      mock(PlatformTransactionManager.class);
+
+  @BeforeEach
+  public void setup() {
+    ReflectionTestUtils.setField(jsonStreamingService, "mapper", mapper);
+    ReflectionTestUtils.setField(jsonStreamingService, "entityManager", entityManager);
+    ReflectionTestUtils.setField(jsonStreamingService, "transactionManager", transactionManager);
+  }
+
+  @Test
+  public void json_array_writes_and_detaches_each_entity_in_a_read_only_transaction()
+      throws Exception {
+    // arrange
+    User u1 = User.builder().id(1L).email("a@ucsb.edu").build();
+    User u2 = User.builder().id(2L).email("b@ucsb.edu").build();
+    AtomicBoolean closed = new AtomicBoolean();
+    ByteArrayOutputStream out = new ByteArrayOutputStream();
+
+    // act
+    jsonStreamingService
+        .jsonArray(() -> Stream.of(u1, u2).onClose(() -> closed.set(true)))
+        .writeTo(out);
+
+    // assert
+    assertEquals(mapper.writeValueAsString(new User[] {u1, u2}), out.toString());
+    assertTrue(closed.get());
+    verify(entityManager).detach(u1);
+    verify(entityManager).detach(u2);
+    verify(transactionManager).getTransaction(argThat(definition -> definition.isReadOnly()));
+  }
+
+  @Test
+  public void json_array_does_not_detach_objects_that_are_not_entities() throws Exception {
+    // arrange
+    Map<String, Integer> row = Map.of("id", 1);
+    ByteArrayOutputStream out = new ByteArrayOutputStream();
+
+    // act
+    jsonStreamingService.jsonArray(() -> Stream.of(row)).writeTo(out);
+
+    // assert
+    assertEquals("[{\"id\":1}]", out.toString());
+    verify(entityManager, never()).detach(row);
+  }
+
+  @Test
+  public void json_array_of_no_entities_is_empty() throws Exception {
+    ByteArrayOutputStream out = new ByteArrayOutputStream();
+
+    jsonStreamingService.jsonArray(Stream::empty).writeTo(out);
+
+    assertEquals("[]", out.toString());
+  }
+
+  @Test
+  public void json_array_stops_when_an_entity_cannot_be_written() {
+    // arrange
+    Object unwritable = new Object(); // no properties, so Jackson refuses to serialize it
+
+    // act & assert
+    assertThrows(
+        UncheckedIOException.class,
+        () ->
+            jsonStreamingService
+                .jsonArray(() -> Stream.of(unwritable))
+                .writeTo(new ByteArrayOutputStream()));
+    verify(entityManager, never()).detach(unwritable);
+  }
+
+  @Test
+  public void json_array_stops_when_the_client_goes_away() {
+    // arrange
+    OutputStream broken =
+        new OutputStream() {
+          @Override
+          public void write(int b) throws IOException {
+            throw new IOException("Broken pipe");
+          }
+
+          @Override
+          public void write(byte[] b, int off, int len) throws IOException {
+            throw new IOException("Broken pipe");
+          }
+        };
+
+    // act & assert
+    assertThrows(
+        UncheckedIOException.class,
+        () -> jsonStreamingService.jsonArray(() -> Stream.of(Map.of("id", 1))).writeTo(broken));
+    assertThrows(
+        UncheckedIOException.class,
+        () -> jsonStreamingService.jsonArray(Stream::empty).writeTo(broken));
+  }
+}
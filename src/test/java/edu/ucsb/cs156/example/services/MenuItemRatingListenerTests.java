@@ -0,0 +1,137 @@
+package edu.ucsb.cs156.example.services;
+
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.anyString;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.never;
+import static org.mockito.Mockito.times;
+import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.when;
+
+import edu.ucsb.cs156.example.entities.MenuItemReview;
+import java.sql.Connection;
+import java.sql.DatabaseMetaData;
+import java.util.List;
+import java.util.Map;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.jdbc.core.ConnectionCallback;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.test.util.ReflectionTestUtils;
+
+public class MenuItemRatingListenerTests {
+  private static final String UPSERT_RATING = MenuItemRatingListener.UPSERT_RATING_MERGE;
+
+  private static final String STORED_REVIEW =
+      "SELECT ITEM_ID, STARS FROM MENUITEMREVIEW WHERE ID = ?";
+
+  private final MenuItemRatingListener listener = new MenuItemRatingListener();
+
+  private final JdbcTemplate jdbcTemplate = mock(JdbcTemplate.class);
+
+  private final MenuItemReview review =
+      MenuItemReview.builder().id(7L).itemId(27L).stars(4).build();
+
+  @BeforeEach
+  @SuppressWarnings("unchecked")
+  public void setup() throws Exception {
+    ReflectionTestUtils.setField(listener, "jdbcTemplate", jdbcTemplate);
+    Connection connection = mock(Connection.class);
+    DatabaseMetaData metaData = mock(DatabaseMetaData.class);
+    when(connection.getMetaData()).thenReturn(metaData);
+    when(metaData.getDatabaseProductName()).thenReturn("H2");
+    when(jdbcTemplate.execute(any(ConnectionCallback.class)))
+        .thenAnswer(
+            invocation ->
+                ((ConnectionCallback<String>) invocation.getArgument(0))
+                    .doInConnection(connection));
+  }
+
+  @Test
+  public void added_review_is_counted_in_the_rating_of_its_item() {
+    // act
+    listener.reviewAdded(review);
+    listener.reviewAdded(review);
+
+    // assert
+    verify(jdbcTemplate, times(2)).update(UPSERT_RATING, 1, 4L, 0, 0, 0, 0, 1, 0, 27L);
+    // the database is only looked up once
+    verify(jdbcTemplate, times(1)).execute(any(ConnectionCallback.class));
+  }
+
+  @Test
+  public void postgresql_ratings_are_upserted_with_on_conflict() {
+    // arrange
+    when(jdbcTemplate.execute(any(ConnectionCallback.class))).thenReturn("PostgreSQL");
+
+    // act
+    listener.reviewAdded(review);
+
+    // assert
+    verify(jdbcTemplate)
+        .update(MenuItemRatingListener.UPSERT_RATING_POSTGRESQL, 1, 4L, 0, 0, 0, 0, 1, 0, 27L);
+  }
+
+  @Test
+  public void stars_out_of_range_are_left_out_of_the_histogram() {
+    // act
+    listener.reviewAdded(MenuItemReview.builder().id(7L).itemId(27L).stars(7).build());
+
+    // assert
+    verify(jdbcTemplate).update(UPSERT_RATING, 1, 7L, 0, 0, 0, 0, 0, 0, 27L);
+  }
+
+  @Test
+  public void updated_review_is_moved_from_its_old_rating_to_its_new_one() {
+    // arrange
+    when(jdbcTemplate.queryForList(STORED_REVIEW, 7L))
+        .thenReturn(List.of(Map.of("ITEM_ID", 26L, "STARS", 2)));
+
+    // act
+    listener.reviewUpdating(review);
+
+    // assert
+    verify(jdbcTemplate).update(UPSERT_RATING, -1, -2L, 0, 0, -1, 0, 0, 0, 26L);
+    verify(jdbcTemplate).update(UPSERT_RATING, 1, 4L, 0, 0, 0, 0, 1, 0, 27L);
+  }
+
+  @Test
+  public void update_that_changes_only_the_stars_moves_the_review_within_its_rating() {
+    // arrange
+    when(jdbcTemplate.queryForList(STORED_REVIEW, 7L))
+        .thenReturn(List.of(Map.of("ITEM_ID", 27L, "STARS", 2)));
+
+    // act
+    listener.reviewUpdating(review);
+
+    // assert
+    verify(jdbcTemplate).update(UPSERT_RATING, -1, -2L, 0, 0, -1, 0, 0, 0, 27L);
+    verify(jdbcTemplate).update(UPSERT_RATING, 1, 4L, 0, 0, 0, 0, 1, 0, 27L);
+  }
+
+  @Test
+  public void update_that_keeps_the_item_and_stars_leaves_the_rating_alone() {
+    // arrange
+    when(jdbcTemplate.queryForList(STORED_REVIEW, 7L))
+        .thenReturn(List.of(Map.of("ITEM_ID", 27L, "STARS", 4)));
+
+    // act
+    listener.reviewUpdating(review);
+
+    // assert
+    verify(jdbcTemplate, never()).update(anyString(), any(Object[].class));
+  }
+
+  @Test
+  public void removed_review_is_taken_out_of_the_rating_it_was_counted_in() {
+    // arrange
+    when(jdbcTemplate.queryForList(STORED_REVIEW, 7L))
+        .thenReturn(List.of(Map.of("ITEM_ID", 27L, "STARS", 5)));
+
+    // act
+    listener.reviewRemoving(review);
+
+    // assert
+    verify(jdbcTemplate).update(UPSERT_RATING, -1, -5L, 0, 0, 0, 0, 0, -1, 27L);
+  }
+}
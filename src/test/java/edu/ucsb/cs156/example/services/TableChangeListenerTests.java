@@ -0,0 +1,39 @@
+package edu.ucsb.cs156.example.services;
+
+import static org.mockito.Mockito.verify;
+
+import edu.ucsb.cs156.example.entities.UCSBOrganization;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.mockito.InjectMocks;
+import org.mockito.Mock;
+import org.mockito.MockitoAnnotations;
+
+public class TableChangeListenerTests {
+  @Mock private ChangeVersionService changeVersionService;
+
+  @InjectMocks private TableChangeListener tableChangeListener;
+
+  @BeforeEach
+  public void setup() {
+    MockitoAnnotations.openMocks(this);
+  }
+
+  @Test
+  public void entitySaving_records_the_change_version() {
+    UCSBOrganization organization = UCSBOrganization.builder().orgCode("ZPR").build();
+
+    tableChangeListener.entitySaving(organization);
+
+    verify(changeVersionService).recordChange(organization);
+  }
+
+  @Test
+  public void entityRemoving_records_the_deletion() {
+    UCSBOrganization organization = UCSBOrganization.builder().orgCode("ZPR").build();
+
+    tableChangeListener.entityRemoving(organization);
+
+    verify(changeVersionService).recordDeletion(organization);
+  }
+}
@@ -0,0 +1,32 @@
+package edu.ucsb.cs156.example.services;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.mockito.Mockito.when;
+
+import edu.ucsb.cs156.example.entities.UCSBDate;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.mockito.InjectMocks;
+import org.mockito.Mock;
+import org.mockito.MockitoAnnotations;
+
+public class TableVersionsTests {
+  @Mock private ChangeVersionService changeVersionService;
+
+  @InjectMocks private TableVersions tableVersions;
+
+  @BeforeEach
+  public void setup() {
+    MockitoAnnotations.openMocks(this);
+  }
+
+  @Test
+  public void etag_is_the_committed_version_of_the_table() {
+    // arrange
+    when(changeVersionService.currentVersion(UCSBDate.class)).thenReturn(42L, 43L);
+
+    // act & assert
+    assertEquals("W/\"42\"", tableVersions.etag(UCSBDate.class));
+    assertEquals("W/\"43\"", tableVersions.etag(UCSBDate.class));
+  }
+}
@@ -0,0 +1,81 @@
+package edu.ucsb.cs156.example.services;
+
+import static org.mockito.Mockito.never;
+import static org.mockito.Mockito.times;
+import static org.mockito.Mockito.verify;
+
+import edu.ucsb.cs156.example.entities.User;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.mockito.InjectMocks;
+import org.mockito.Mock;
+import org.mockito.MockitoAnnotations;
+import org.springframework.transaction.support.TransactionSynchronization;
+import org.springframework.transaction.support.TransactionSynchronizationManager;
+
+public class UserChangeListenerTests {
+  @Mock private CurrentUserCache currentUserCache;
+
+  @Mock private AdminDirectory adminDirectory;
+
+  @InjectMocks private UserChangeListener userChangeListener;
+
+  private final User user = User.builder().email("a@ucsb.edu").admin(true).build();
+
+  @BeforeEach
+  public void setup() {
+    MockitoAnnotations.openMocks(this);
+  }
+
+  @AfterEach
+  public void teardown() {
+    if (TransactionSynchronizationManager.isSynchronizationActive()) {
+      TransactionSynchronizationManager.clearSynchronization();
+    }
+  }
+
+  @Test
+  public void userSaved_evicts_user_from_cache_and_updates_admins() {
+    userChangeListener.userSaved(user);
+
+    verify(currentUserCache, times(1)).evict("a@ucsb.edu");
+    verify(adminDirectory, times(1)).userSaved(user);
+  }
+
+  @Test
+  public void userRemoved_evicts_user_from_cache_and_admins() {
+    userChangeListener.userRemoved(user);
+
+    verify(currentUserCache, times(1)).evict("a@ucsb.edu");
+    verify(adminDirectory, times(1)).userRemoved(user);
+  }
+
+  @Test
+  public void userSaved_in_a_transaction_waits_until_it_commits() {
+    TransactionSynchronizationManager.initSynchronization();
+
+    userChangeListener.userSaved(user);
+
+    verify(currentUserCache, never()).evict("a@ucsb.edu");
+    verify(adminDirectory, never()).userSaved(user);
+
+    TransactionSynchronizationManager.getSynchronizations()
+        .forEach(TransactionSynchronization::afterCommit);
+
+    verify(currentUserCache, times(1)).evict("a@ucsb.edu");
+    verify(adminDirectory, times(1)).userSaved(user);
+  }
+
+  @Test
+  public void userRemoved_in_a_transaction_that_rolls_back_changes_nothing() {
+    TransactionSynchronizationManager.initSynchronization();
+
+    userChangeListener.userRemoved(user);
+    TransactionSynchronizationManager.getSynchronizations()
+        .forEach(s -> s.afterCompletion(TransactionSynchronization.STATUS_ROLLED_BACK));
+
+    verify(currentUserCache, never()).evict("a@ucsb.edu");
+    verify(adminDirectory, never()).userRemoved(user);
+  }
+}
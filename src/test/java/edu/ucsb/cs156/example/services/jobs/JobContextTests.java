@@ -1,23 +1,253 @@
 package edu.ucsb.cs156.example.services.jobs;
 
 import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.anyInt;
+import static org.mockito.ArgumentMatchers.anyLong;
+import static org.mockito.ArgumentMatchers.eq;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.never;
+import static org.mockito.Mockito.times;
+import static org.mockito.Mockito.verify;
 
 import edu.ucsb.cs156.example.entities.Job;
+import edu.ucsb.cs156.example.entities.JobLogLine;
+import edu.ucsb.cs156.example.errors.JobCancelledException;
+import edu.ucsb.cs156.example.repositories.JobLogLinesRepository;
+import edu.ucsb.cs156.example.repositories.JobsRepository;
+import java.time.Instant;
+import java.util.List;
 import org.junit.jupiter.api.Test;
 
 public class JobContextTests {
   @Test
-  public void when_jobs_repository_is_null_does_not_save() throws Exception {
+  public void when_log_lines_repository_is_null_does_not_save() throws Exception {
 
     // arrange
 
-    Job job1 = Job.builder().build();
-    JobContext ctx = new JobContext(null, job1);
+    Job job1 = Job.builder().id(1L).build();
+    JobContext ctx = new JobContext(null, null, job1, 1, null);
 
     // act
     ctx.log("This is a log message");
+    ctx.flush();
+
+    // assert (no exception, nothing to save to)
+  }
+
+  @Test
+  public void log_writes_each_line_when_flushing_every_line() throws Exception {
+
+    // arrange
+
+    JobLogLinesRepository jobLogLinesRepository = mock(JobLogLinesRepository.class);
+    Job job1 = Job.builder().id(7L).build();
+    JobContext ctx = new JobContext(jobLogLinesRepository, null, job1, 1, null);
+
+    // act
+    ctx.log("This is a log message");
+
+    // assert
+    JobLogLine expected = JobLogLine.builder().jobId(7L).line("This is a log message").build();
+    verify(jobLogLinesRepository, times(1)).insertAll(eq(List.of(expected)));
+  }
+
+  @Test
+  public void log_buffers_lines_until_batch_is_full() throws Exception {
+
+    // arrange
+
+    JobLogLinesRepository jobLogLinesRepository = mock(JobLogLinesRepository.class);
+    Job job1 = Job.builder().id(7L).build();
+    JobContext ctx = new JobContext(jobLogLinesRepository, null, job1, 3, null);
+
+    // act
+    ctx.log("one");
+    ctx.log("two");
+
+    // assert
+    verify(jobLogLinesRepository, never()).insertAll(any());
+
+    // act
+    ctx.log("three");
+
+    // assert
+    List<JobLogLine> expected =
+        List.of(
+            JobLogLine.builder().jobId(7L).line("one").build(),
+            JobLogLine.builder().jobId(7L).line("two").build(),
+            JobLogLine.builder().jobId(7L).line("three").build());
+    verify(jobLogLinesRepository, times(1)).insertAll(eq(expected));
+  }
+
+  @Test
+  public void flush_writes_partial_batch_once() throws Exception {
+
+    // arrange
+
+    JobLogLinesRepository jobLogLinesRepository = mock(JobLogLinesRepository.class);
+    Job job1 = Job.builder().id(7L).build();
+    JobContext ctx = new JobContext(jobLogLinesRepository, null, job1, 50, null);
+    ctx.log("only line");
+
+    // act
+    ctx.flush();
+    ctx.flush();
+
+    // assert
+    JobLogLine expected = JobLogLine.builder().jobId(7L).line("only line").build();
+    verify(jobLogLinesRepository, times(1)).insertAll(eq(List.of(expected)));
+  }
+
+  @Test
+  public void flush_with_nothing_pending_does_not_save() throws Exception {
+
+    // arrange
+
+    JobLogLinesRepository jobLogLinesRepository = mock(JobLogLinesRepository.class);
+    Job job1 = Job.builder().id(7L).build();
+    JobContext ctx = new JobContext(jobLogLinesRepository, null, job1, 50, null);
+
+    // act
+    ctx.flush();
+
+    // assert
+    verify(jobLogLinesRepository, never()).insertAll(any());
+  }
+
+  @Test
+  public void progress_is_clamped_and_only_written_when_it_changes() throws Exception {
+
+    // arrange
+
+    JobsRepository jobsRepository = mock(JobsRepository.class);
+    Job job1 = Job.builder().id(7L).build();
+    JobContext ctx = new JobContext(null, jobsRepository, job1, 50, null);
+
+    // act
+    ctx.progress(-5);
+    ctx.progress(0);
+    ctx.progress(40);
+    ctx.progress(150);
+
+    // assert
+    assertEquals(100, job1.getProgress());
+    verify(jobsRepository, times(1)).updateProgress(7L, 0);
+    verify(jobsRepository, times(1)).updateProgress(7L, 40);
+    verify(jobsRepository, times(1)).updateProgress(7L, 100);
+    verify(jobsRepository, times(3)).updateProgress(anyLong(), anyInt());
+  }
+
+  @Test
+  public void when_jobs_repository_is_null_progress_is_only_kept_on_job() throws Exception {
+
+    // arrange
+
+    Job job1 = Job.builder().id(7L).build();
+    JobContext ctx = new JobContext(null, null, job1, 50, null);
+
+    // act
+    ctx.progress(25);
+
+    // assert
+    assertEquals(25, job1.getProgress());
+  }
+
+  @Test
+  public void checkpoint_is_kept_on_job_and_written() throws Exception {
+
+    // arrange
+
+    JobsRepository jobsRepository = mock(JobsRepository.class);
+    Job job1 = Job.builder().id(7L).checkpoint(10L).build();
+    JobContext ctx = new JobContext(null, jobsRepository, job1, 50, null);
+    assertEquals(10L, ctx.getCheckpoint());
+
+    // act
+    ctx.checkpoint(20);
+
+    // assert
+    assertEquals(20L, ctx.getCheckpoint());
+    verify(jobsRepository, times(1)).updateCheckpoint(7L, 20);
+  }
+
+  @Test
+  public void when_jobs_repository_is_null_checkpoint_is_only_kept_on_job() throws Exception {
+
+    // arrange
+
+    Job job1 = Job.builder().id(7L).build();
+    JobContext ctx = new JobContext(null, null, job1, 50, null);
+
+    // act
+    ctx.checkpoint(20);
+
+    // assert
+    assertEquals(20L, job1.getCheckpoint());
+  }
+
+  @Test
+  public void cancel_interrupts_job_thread_until_finished() throws Exception {
+
+    // arrange
+
+    Job job1 = Job.builder().id(7L).build();
+    JobContext ctx = new JobContext(null, null, job1, 50, null);
+    ctx.checkCancelled();
+    assertFalse(ctx.isCancelled());
+
+    // act
+    ctx.cancel();
+
+    // assert
+    assertTrue(Thread.currentThread().isInterrupted());
+    assertTrue(ctx.isCancelled());
+    JobCancelledException e = assertThrows(JobCancelledException.class, ctx::checkCancelled);
+    assertEquals(JobContext.CANCELLED, e.getMessage());
+
+    // act
+    ctx.finish();
+    ctx.cancel();
+
+    // assert
+    assertFalse(Thread.currentThread().isInterrupted());
+  }
+
+  @Test
+  public void job_is_cancelled_once_past_deadline() throws Exception {
+
+    // arrange
+
+    Job job1 = Job.builder().id(7L).build();
+    JobContext later = new JobContext(null, null, job1, 50, Instant.now().plusSeconds(3600));
+    JobContext past = new JobContext(null, null, job1, 50, Instant.now());
+
+    // assert
+    assertFalse(later.isPastDeadline());
+    assertFalse(later.isCancelled());
+    assertTrue(past.isPastDeadline());
+    assertTrue(past.isCancelled());
+    JobCancelledException e = assertThrows(JobCancelledException.class, past::checkCancelled);
+    assertEquals(JobContext.TIMED_OUT, e.getMessage());
+  }
+
+  @Test
+  public void log_counts_bytes_written() throws Exception {
+
+    // arrange
+
+    Job job1 = Job.builder().id(7L).build();
+    JobContext ctx = new JobContext(null, null, job1, 50, null);
+
+    // act
+    ctx.log("abc");
+    ctx.log("é");
+    ctx.log(null);
 
     // assert
-    assertEquals("This is a log message", job1.getLog());
+    assertEquals(5, ctx.getLogBytes());
   }
 }
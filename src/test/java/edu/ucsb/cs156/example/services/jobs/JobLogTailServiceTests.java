@@ -0,0 +1,123 @@
+package edu.ucsb.cs156.example.services.jobs;
+
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.eq;
+import static org.mockito.Mockito.*;
+
+import edu.ucsb.cs156.example.entities.JobLogLine;
+import edu.ucsb.cs156.example.errors.EntityNotFoundException;
+import edu.ucsb.cs156.example.repositories.JobLogLinesRepository;
+import edu.ucsb.cs156.example.repositories.JobsRepository;
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Optional;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.mockito.InjectMocks;
+import org.mockito.Mock;
+import org.mockito.MockitoAnnotations;
+import org.springframework.test.util.ReflectionTestUtils;
+import org.springframework.web.servlet.mvc.method.annotation.SseEmitter;
+
+public class JobLogTailServiceTests {
+
+  @Mock private JobsRepository jobsRepository;
+
+  @Mock private JobLogLinesRepository jobLogLinesRepository;
+
+  @InjectMocks private JobLogTailService jobLogTailService;
+
+  @BeforeEach
+  public void setup() {
+    MockitoAnnotations.openMocks(this);
+    ReflectionTestUtils.setField(jobLogTailService, "streamTimeoutMs", 60000L);
+  }
+
+  private List<JobLogLine> lines(long firstId, int count) {
+    List<JobLogLine> lines = new ArrayList<>();
+    for (long id = firstId; id < firstId + count; id++) {
+      lines.add(JobLogLine.builder().id(id).jobId(1L).line("line " + id).build());
+    }
+    return lines;
+  }
+
+  @Test
+  void tail_of_missing_job_throws() {
+    when(jobsRepository.existsById(eq(1L))).thenReturn(false);
+
+    assertThrows(EntityNotFoundException.class, () -> jobLogTailService.tail(1L, 0L));
+  }
+
+  @Test
+  void send_pages_through_lines_in_batches_of_500() throws Exception {
+    // arrange
+    SseEmitter emitter = mock(SseEmitter.class);
+    JobLogTailService.Tail tail = new JobLogTailService.Tail(1L, emitter, 0L);
+    when(jobsRepository.findStatusById(eq(1L))).thenReturn(Optional.of("running"));
+    when(jobLogLinesRepository.findTop500ByJobIdAndIdGreaterThanOrderByIdAsc(eq(1L), eq(0L)))
+        .thenReturn(lines(1L, 500));
+    when(jobLogLinesRepository.findTop500ByJobIdAndIdGreaterThanOrderByIdAsc(eq(1L), eq(500L)))
+        .thenReturn(lines(501L, 2));
+
+    // act
+    jobLogTailService.send(tail);
+
+    // assert
+    verify(emitter, times(502)).send(any(SseEmitter.SseEventBuilder.class));
+    verify(jobLogLinesRepository, times(1))
+        .findTop500ByJobIdAndIdGreaterThanOrderByIdAsc(eq(1L), eq(500L));
+    verify(emitter, never()).complete();
+  }
+
+  @Test
+  void send_completes_when_job_is_not_running() throws Exception {
+    // arrange
+    SseEmitter emitter = mock(SseEmitter.class);
+    JobLogTailService.Tail tail = new JobLogTailService.Tail(1L, emitter, 3L);
+    when(jobsRepository.findStatusById(eq(1L))).thenReturn(Optional.empty());
+
+    // act
+    jobLogTailService.send(tail);
+
+    // assert
+    verify(jobLogLinesRepository, times(1))
+        .findTop500ByJobIdAndIdGreaterThanOrderByIdAsc(eq(1L), eq(3L));
+    verify(emitter, times(1)).send(any(SseEmitter.SseEventBuilder.class));
+    verify(emitter, times(1)).complete();
+  }
+
+  @Test
+  void send_keeps_streaming_while_job_is_queued() throws Exception {
+    // arrange
+    SseEmitter emitter = mock(SseEmitter.class);
+    JobLogTailService.Tail tail = new JobLogTailService.Tail(1L, emitter, 0L);
+    when(jobsRepository.findStatusById(eq(1L))).thenReturn(Optional.of("queued"));
+
+    // act
+    jobLogTailService.send(tail);
+
+    // assert
+    verify(emitter, never()).send(any(SseEmitter.SseEventBuilder.class));
+    verify(emitter, never()).complete();
+  }
+
+  @Test
+  void send_stops_streaming_when_client_goes_away() throws Exception {
+    // arrange
+    SseEmitter emitter = mock(SseEmitter.class);
+    JobLogTailService.Tail tail = new JobLogTailService.Tail(1L, emitter, 0L);
+    IOException broken = new IOException("Broken pipe");
+    when(jobsRepository.findStatusById(eq(1L))).thenReturn(Optional.of("running"));
+    when(jobLogLinesRepository.findTop500ByJobIdAndIdGreaterThanOrderByIdAsc(eq(1L), eq(0L)))
+        .thenReturn(lines(1L, 1));
+    doThrow(broken).when(emitter).send(any(SseEmitter.SseEventBuilder.class));
+
+    // act
+    jobLogTailService.send(tail);
+
+    // assert
+    verify(emitter, times(1)).completeWithError(broken);
+  }
+}
@@ -0,0 +1,80 @@
+package edu.ucsb.cs156.example.services.jobs;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertNull;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+import edu.ucsb.cs156.example.entities.Job;
+import edu.ucsb.cs156.example.jobs.TestJob;
+import io.micrometer.core.instrument.Timer;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import java.time.Duration;
+import java.time.ZonedDateTime;
+import java.util.concurrent.TimeUnit;
+import org.junit.jupiter.api.Test;
+
+public class JobMetricsTests {
+  private final SimpleMeterRegistry meterRegistry = new SimpleMeterRegistry();
+
+  private final JobMetrics jobMetrics = new JobMetrics(meterRegistry);
+
+  @Test
+  public void typeOf_is_simple_class_name_or_unknown() {
+    assertEquals("TestJob", JobMetrics.typeOf(Job.builder().type(TestJob.class.getName()).build()));
+    assertEquals("unknown", JobMetrics.typeOf(Job.builder().build()));
+  }
+
+  @Test
+  public void jobStarted_records_time_since_launch() {
+    // arrange
+    Job job =
+        Job.builder()
+            .type(TestJob.class.getName())
+            .createdAt(ZonedDateTime.now().minusSeconds(30))
+            .build();
+
+    // act
+    jobMetrics.jobStarted(job);
+
+    // assert
+    Timer timer = meterRegistry.get("jobs.queue.wait").tag("type", "TestJob").timer();
+    assertEquals(1, timer.count());
+    assertTrue(timer.totalTime(TimeUnit.SECONDS) >= 30);
+  }
+
+  @Test
+  public void jobStarted_without_launch_time_records_nothing() {
+    // act
+    jobMetrics.jobStarted(Job.builder().build());
+
+    // assert
+    assertNull(meterRegistry.find("jobs.queue.wait").timer());
+  }
+
+  @Test
+  public void jobFinished_records_run_time_by_status_and_log_bytes() {
+    // arrange
+    Job job = Job.builder().type(TestJob.class.getName()).build();
+
+    // act
+    jobMetrics.jobFinished(job, "complete", Duration.ofSeconds(2), 100);
+    jobMetrics.jobFinished(job, "complete", Duration.ofSeconds(4), 20);
+    jobMetrics.jobFinished(job, "error", Duration.ofSeconds(1), 5);
+
+    // assert
+    Timer complete =
+        meterRegistry.get("jobs.run").tag("type", "TestJob").tag("status", "complete").timer();
+    assertEquals(2, complete.count());
+    assertEquals(6.0, complete.totalTime(TimeUnit.SECONDS));
+    assertEquals(
+        1,
+        meterRegistry
+            .get("jobs.run")
+            .tag("type", "TestJob")
+            .tag("status", "error")
+            .timer()
+            .count());
+    assertEquals(
+        125.0, meterRegistry.get("jobs.log.bytes").tag("type", "TestJob").counter().count());
+  }
+}
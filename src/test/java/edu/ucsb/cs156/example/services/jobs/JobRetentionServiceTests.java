@@ -0,0 +1,103 @@
+package edu.ucsb.cs156.example.services.jobs;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.eq;
+import static org.mockito.Mockito.*;
+
+import edu.ucsb.cs156.example.repositories.JobsRepository;
+import edu.ucsb.cs156.example.services.ImportUploadService;
+import java.time.ZonedDateTime;
+import java.util.List;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.mockito.ArgumentCaptor;
+import org.mockito.InjectMocks;
+import org.mockito.Mock;
+import org.mockito.MockitoAnnotations;
+import org.springframework.data.domain.PageRequest;
+import org.springframework.test.util.ReflectionTestUtils;
+
+public class JobRetentionServiceTests {
+
+  @Mock private JobsRepository jobsRepository;
+
+  @Mock private ImportUploadService importUploadService;
+
+  @InjectMocks private JobRetentionService jobRetentionService;
+
+  @BeforeEach
+  public void setup() {
+    MockitoAnnotations.openMocks(this);
+    ReflectionTestUtils.setField(jobRetentionService, "retentionDays", 30);
+    ReflectionTestUtils.setField(jobRetentionService, "batchSize", 2);
+  }
+
+  @Test
+  void purgeJobsFinishedBefore_deletes_in_batches_until_a_short_batch() {
+    // arrange
+    ZonedDateTime cutoff = ZonedDateTime.parse("2025-01-01T00:00:00Z");
+    when(jobsRepository.findIdsByStatusInAndUpdatedBefore(
+            eq(List.of("complete", "error", "cancelled")), eq(cutoff), eq(PageRequest.ofSize(2))))
+        .thenReturn(List.of(1L, 2L))
+        .thenReturn(List.of(3L));
+    when(jobsRepository.deleteByIdInBulk(List.of(1L, 2L))).thenReturn(2);
+    when(jobsRepository.deleteByIdInBulk(List.of(3L))).thenReturn(1);
+
+    // act
+    int deleted = jobRetentionService.purgeJobsFinishedBefore(cutoff);
+
+    // assert
+    assertEquals(3, deleted);
+    verify(jobsRepository, times(2)).deleteByIdInBulk(any());
+  }
+
+  @Test
+  void purgeJobsFinishedBefore_stops_on_empty_batch() {
+    // arrange
+    ZonedDateTime cutoff = ZonedDateTime.parse("2025-01-01T00:00:00Z");
+    when(jobsRepository.findIdsByStatusInAndUpdatedBefore(any(), any(), any()))
+        .thenReturn(List.of(1L, 2L))
+        .thenReturn(List.of());
+    when(jobsRepository.deleteByIdInBulk(List.of(1L, 2L))).thenReturn(2);
+
+    // act
+    int deleted = jobRetentionService.purgeJobsFinishedBefore(cutoff);
+
+    // assert
+    assertEquals(2, deleted);
+    verify(jobsRepository, times(2)).findIdsByStatusInAndUpdatedBefore(any(), any(), any());
+    verify(jobsRepository, times(1)).deleteByIdInBulk(any());
+  }
+
+  @Test
+  void purgeExpiredJobs_uses_retention_period_as_cutoff() {
+    // arrange
+    when(jobsRepository.findIdsByStatusInAndUpdatedBefore(any(), any(), any()))
+        .thenReturn(List.of());
+    ZonedDateTime before = ZonedDateTime.now().minusDays(30);
+
+    // act
+    jobRetentionService.purgeExpiredJobs();
+
+    // assert
+    ZonedDateTime after = ZonedDateTime.now().minusDays(30);
+    ArgumentCaptor<ZonedDateTime> cutoff = ArgumentCaptor.forClass(ZonedDateTime.class);
+    verify(jobsRepository).findIdsByStatusInAndUpdatedBefore(any(), cutoff.capture(), any());
+    assertTrue(!cutoff.getValue().isBefore(before) && !cutoff.getValue().isAfter(after));
+    verify(importUploadService).deleteUploadedBefore(cutoff.getValue());
+  }
+
+  @Test
+  void purgeExpiredJobs_does_nothing_when_retention_is_off() {
+    // arrange
+    ReflectionTestUtils.setField(jobRetentionService, "retentionDays", 0);
+
+    // act
+    jobRetentionService.purgeExpiredJobs();
+
+    // assert
+    verifyNoInteractions(jobsRepository, importUploadService);
+  }
+}
@@ -0,0 +1,371 @@
+package edu.ucsb.cs156.example.services.jobs;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertNull;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.anyInt;
+import static org.mockito.ArgumentMatchers.anyString;
+import static org.mockito.ArgumentMatchers.eq;
+import static org.mockito.Mockito.doThrow;
+import static org.mockito.Mockito.inOrder;
+import static org.mockito.Mockito.never;
+import static org.mockito.Mockito.times;
+import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.when;
+
+import com.fasterxml.jackson.core.JsonProcessingException;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import edu.ucsb.cs156.example.entities.Job;
+import edu.ucsb.cs156.example.entities.JobLogLine;
+import edu.ucsb.cs156.example.entities.User;
+import edu.ucsb.cs156.example.jobs.TestJob;
+import edu.ucsb.cs156.example.repositories.JobLogLinesRepository;
+import edu.ucsb.cs156.example.repositories.JobsRepository;
+import edu.ucsb.cs156.example.services.CurrentUserService;
+import java.time.Duration;
+import java.time.ZonedDateTime;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Set;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.mockito.ArgumentCaptor;
+import org.mockito.InOrder;
+import org.mockito.InjectMocks;
+import org.mockito.Mock;
+import org.mockito.MockitoAnnotations;
+import org.mockito.Spy;
+import org.springframework.beans.factory.config.AutowireCapableBeanFactory;
+import org.springframework.core.task.TaskRejectedException;
+import org.springframework.data.domain.PageRequest;
+import org.springframework.scheduling.concurrent.ThreadPoolTaskExecutor;
+import org.springframework.test.util.ReflectionTestUtils;
+
+/** Tests of how JobService queues jobs in the jobs table and claims them from there. */
+public class JobServiceTests {
+
+  @Mock private JobsRepository jobsRepository;
+
+  @Mock private JobLogLinesRepository jobLogLinesRepository;
+
+  @Mock private CurrentUserService currentUserService;
+
+  @Mock private JobService self;
+
+  @Mock private ThreadPoolTaskExecutor jobExecutor;
+
+  @Mock private AutowireCapableBeanFactory beanFactory;
+
+  @Mock private JobMetrics jobMetrics;
+
+  @Spy private ObjectMapper objectMapper = new ObjectMapper();
+
+  @InjectMocks private JobService jobService;
+
+  private final User user = User.builder().id(1L).email("admin@ucsb.edu").build();
+
+  @BeforeEach
+  public void setup() {
+    MockitoAnnotations.openMocks(this);
+    ReflectionTestUtils.setField(jobService, "timeoutSeconds", 3600L);
+    ReflectionTestUtils.setField(jobService, "leaseSeconds", 60L);
+    ReflectionTestUtils.setField(jobService, "maxAttempts", 3);
+    when(currentUserService.getUser()).thenReturn(user);
+    when(jobExecutor.getCorePoolSize()).thenReturn(2);
+  }
+
+  @SuppressWarnings("unchecked")
+  private Set<Long> claimedJobIds() {
+    return (Set<Long>) ReflectionTestUtils.getField(jobService, "claimedJobIds");
+  }
+
+  private Job claimedJob(long id, String type, String payload, Long timeoutSeconds) {
+    return Job.builder()
+        .id(id)
+        .status("running")
+        .type(type)
+        .payload(payload)
+        .timeoutSeconds(timeoutSeconds)
+        .attempts(1)
+        .leaseOwner("me")
+        .leaseExpiresAt(ZonedDateTime.now().plusSeconds(60))
+        .build();
+  }
+
+  @Test
+  void runAsJob_stores_job_as_queued_and_dispatches() {
+    // Act
+    Job job = jobService.runAsJob(TestJob.builder().fail(true).sleepMs(5).build());
+
+    // Assert
+    assertEquals("queued", job.getStatus());
+    assertEquals(user, job.getCreatedBy());
+    assertEquals(TestJob.class.getName(), job.getType());
+    assertEquals("{\"fail\":true,\"sleepMs\":5}", job.getPayload());
+    assertEquals(3600L, job.getTimeoutSeconds());
+    verify(jobsRepository, times(1)).save(job);
+    verify(self, times(1)).dispatchQueuedJobs();
+  }
+
+  @Test
+  void runAsJob_without_default_timeout() {
+    // Arrange
+    ReflectionTestUtils.setField(jobService, "timeoutSeconds", 0L);
+
+    // Act
+    Job job = jobService.runAsJob(TestJob.builder().build());
+
+    // Assert
+    assertNull(job.getTimeoutSeconds());
+  }
+
+  @Test
+  void runAsJob_with_timeout() {
+    // Act
+    Job job = jobService.runAsJob(TestJob.builder().build(), Duration.ofMinutes(2));
+
+    // Assert
+    assertEquals(120L, job.getTimeoutSeconds());
+  }
+
+  @Test
+  void runAsJob_rejects_lambda() {
+    // Act
+    IllegalArgumentException e =
+        assertThrows(
+            IllegalArgumentException.class, () -> jobService.runAsJob(ctx -> ctx.log("hi")));
+
+    // Assert
+    assertEquals("A lambda cannot be queued as a job", e.getMessage());
+    verify(jobsRepository, never()).save(any());
+  }
+
+  @Test
+  void runAsJob_rejects_job_that_cannot_be_written_as_json() throws Exception {
+    // Arrange
+    TestJob testJob = TestJob.builder().build();
+    doThrow(new JsonProcessingException("no serializer") {})
+        .when(objectMapper)
+        .writeValueAsString(testJob);
+
+    // Act
+    IllegalArgumentException e =
+        assertThrows(IllegalArgumentException.class, () -> jobService.runAsJob(testJob));
+
+    // Assert
+    assertEquals(
+        "Job edu.ucsb.cs156.example.jobs.TestJob cannot be queued: no serializer", e.getMessage());
+    verify(jobsRepository, never()).save(any());
+  }
+
+  @Test
+  void claimQueuedJobs_leases_jobs_to_this_instance() {
+    // Arrange
+    Job job = Job.builder().id(3L).status("queued").attempts(1).build();
+    when(jobsRepository.findQueuedForUpdate(PageRequest.ofSize(5))).thenReturn(List.of(job));
+    ZonedDateTime before = ZonedDateTime.now();
+
+    // Act
+    List<Job> claimed = jobService.claimQueuedJobs(5);
+
+    // Assert
+    assertEquals(List.of(job), claimed);
+    assertEquals("running", job.getStatus());
+    assertEquals(2, job.getAttempts());
+    assertEquals(ReflectionTestUtils.getField(jobService, "nodeId"), job.getLeaseOwner());
+    assertFalse(job.getLeaseExpiresAt().isBefore(before.plusSeconds(60)));
+    verify(jobsRepository, times(1)).saveAll(List.of(job));
+  }
+
+  @Test
+  void dispatchQueuedJobs_starts_claimed_jobs_until_threads_are_used_up() {
+    // Arrange
+    Job job1 = claimedJob(1L, TestJob.class.getName(), "{\"fail\":false,\"sleepMs\":0}", 30L);
+    Job job2 = claimedJob(2L, TestJob.class.getName(), "{}", null);
+    when(self.claimQueuedJobs(2)).thenReturn(List.of(job1, job2));
+
+    // Act
+    jobService.dispatchQueuedJobs();
+    jobService.dispatchQueuedJobs();
+
+    // Assert
+    ArgumentCaptor<JobContextConsumer> captor = ArgumentCaptor.forClass(JobContextConsumer.class);
+    verify(self, times(1)).runJobAsync(eq(job1), captor.capture(), eq(Duration.ofSeconds(30)));
+    verify(self, times(1)).runJobAsync(eq(job2), any(TestJob.class), eq(null));
+    assertEquals(TestJob.class, captor.getValue().getClass());
+    verify(beanFactory, times(1)).autowireBean(captor.getValue());
+    verify(self, times(1)).claimQueuedJobs(anyInt());
+  }
+
+  @Test
+  void dispatchQueuedJobs_fails_job_that_cannot_be_loaded() {
+    // Arrange
+    Job notAJob = claimedJob(1L, String.class.getName(), "\"hello\"", null);
+    Job noSuchClass = claimedJob(2L, "edu.ucsb.cs156.example.jobs.NoSuchJob", "{}", null);
+    when(self.claimQueuedJobs(2)).thenReturn(List.of(notAJob, noSuchClass));
+
+    // Act
+    jobService.dispatchQueuedJobs();
+
+    // Assert
+    assertEquals("error", notAJob.getStatus());
+    assertNull(notAJob.getLeaseOwner());
+    assertEquals("error", noSuchClass.getStatus());
+    verify(jobLogLinesRepository, times(1))
+        .save(
+            JobLogLine.builder()
+                .jobId(1L)
+                .line("Job could not be started: java.lang.String is not a job")
+                .build());
+    verify(jobLogLinesRepository, times(1))
+        .save(
+            JobLogLine.builder()
+                .jobId(2L)
+                .line("Job could not be started: edu.ucsb.cs156.example.jobs.NoSuchJob")
+                .build());
+    verify(jobsRepository, times(1)).save(notAJob);
+    verify(jobsRepository, times(1)).save(noSuchClass);
+    verify(self, never()).runJobAsync(any(), any(), any());
+
+    // the threads are free again
+    jobService.dispatchQueuedJobs();
+    verify(self, times(2)).claimQueuedJobs(2);
+  }
+
+  @Test
+  void dispatchQueuedJobs_puts_job_back_when_executor_rejects_it() {
+    // Arrange
+    Job job = claimedJob(1L, TestJob.class.getName(), "{}", null);
+    when(self.claimQueuedJobs(2)).thenReturn(List.of(job));
+    doThrow(new TaskRejectedException("full")).when(self).runJobAsync(eq(job), any(), any());
+
+    // Act
+    jobService.dispatchQueuedJobs();
+
+    // Assert
+    assertEquals("queued", job.getStatus());
+    assertEquals(0, job.getAttempts());
+    assertNull(job.getLeaseOwner());
+    assertNull(job.getLeaseExpiresAt());
+    verify(jobsRepository, times(1)).save(job);
+
+    jobService.renewLeases();
+    verify(jobsRepository, never()).renewLeases(any(), anyString(), any());
+  }
+
+  @Test
+  void renewLeases_extends_leases_of_claimed_jobs() {
+    // Arrange
+    Job job = claimedJob(7L, TestJob.class.getName(), "{}", null);
+    when(self.claimQueuedJobs(2)).thenReturn(List.of(job));
+
+    // Act
+    jobService.renewLeases();
+    jobService.dispatchQueuedJobs();
+    jobService.renewLeases();
+
+    // Assert
+    verify(jobsRepository, times(1))
+        .renewLeases(
+            eq(List.of(7L)),
+            eq((String) ReflectionTestUtils.getField(jobService, "nodeId")),
+            any());
+  }
+
+  @Test
+  void renewLeases_cancels_claimed_jobs_cancelled_through_another_instance() throws Exception {
+    // Arrange
+    Job job = claimedJob(7L, TestJob.class.getName(), "{}", null);
+    when(jobsRepository.findCancelRequestedIds(List.of(7L))).thenReturn(List.of(7L));
+    claimedJobIds().add(7L);
+    List<Boolean> cancelled = new ArrayList<>();
+
+    // Act
+    jobService.runJobAsync(
+        job,
+        ctx -> {
+          jobService.renewLeases();
+          cancelled.add(ctx.isCancelled());
+          Thread.interrupted();
+          jobService.renewLeases();
+          cancelled.add(Thread.currentThread().isInterrupted());
+        },
+        null);
+
+    // Assert
+    // cancelled once, so a job that is cleaning up after being cancelled is not interrupted again
+    assertEquals(List.of(true, false), cancelled);
+  }
+
+  @Test
+  void renewLeases_leaves_jobs_that_were_not_cancelled() throws Exception {
+    // Arrange
+    Job job = claimedJob(7L, TestJob.class.getName(), "{}", null);
+    when(jobsRepository.findCancelRequestedIds(List.of(7L))).thenReturn(List.of());
+    claimedJobIds().add(7L);
+    List<Boolean> cancelled = new ArrayList<>();
+
+    // Act
+    jobService.runJobAsync(
+        job,
+        ctx -> {
+          jobService.renewLeases();
+          cancelled.add(ctx.isCancelled());
+        },
+        null);
+
+    // Assert
+    assertEquals(List.of(false), cancelled);
+    assertEquals("complete", job.getStatus());
+  }
+
+  @Test
+  void cancelJob_asks_the_instance_running_a_job_elsewhere_to_stop_it() {
+    // Arrange
+    when(jobsRepository.cancelIfQueued(7L)).thenReturn(0);
+    when(jobsRepository.requestCancel(7L)).thenReturn(1);
+
+    // Act & Assert
+    assertTrue(jobService.cancelJob(7L));
+    assertFalse(jobService.cancelJob(8L));
+  }
+
+  @Test
+  void recoverOrphanedJobs_fails_then_requeues_expired_jobs() {
+    // Arrange
+    when(jobsRepository.failExpiredLeases(any(), eq(3), anyString(), any())).thenReturn(0, 1, 0);
+    when(jobsRepository.requeueExpiredLeases(any(), anyString(), any())).thenReturn(0, 0, 2);
+
+    // Act
+    jobService.recoverOrphanedJobs();
+    jobService.recoverOrphanedJobs();
+    jobService.recoverOrphanedJobs();
+
+    // Assert
+    verify(jobsRepository, times(3)).failExpiredLeases(any(), eq(3), anyString(), any());
+    verify(jobsRepository, times(3)).requeueExpiredLeases(any(), anyString(), any());
+  }
+
+  @Test
+  void recoverOrphanedJobs_renews_own_leases_first_and_leaves_own_jobs_alone() {
+    // Arrange
+    Job job = claimedJob(7L, TestJob.class.getName(), "{}", null);
+    when(self.claimQueuedJobs(2)).thenReturn(List.of(job));
+    jobService.dispatchQueuedJobs();
+    String nodeId = (String) ReflectionTestUtils.getField(jobService, "nodeId");
+
+    // Act
+    jobService.recoverOrphanedJobs();
+
+    // Assert
+    InOrder inOrder = inOrder(jobsRepository);
+    inOrder.verify(jobsRepository).renewLeases(eq(List.of(7L)), eq(nodeId), any());
+    inOrder
+        .verify(jobsRepository)
+        .failExpiredLeases(any(), eq(3), eq(nodeId), eq(List.of(7L, -1L)));
+    inOrder.verify(jobsRepository).requeueExpiredLeases(any(), eq(nodeId), eq(List.of(7L, -1L)));
+  }
+}
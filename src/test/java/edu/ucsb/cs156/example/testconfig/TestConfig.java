@@ -1,8 +1,12 @@
 package edu.ucsb.cs156.example.testconfig;
 
 import edu.ucsb.cs156.example.config.SecurityConfig;
+import edu.ucsb.cs156.example.services.AdminDirectory;
+import edu.ucsb.cs156.example.services.BulkSaveService;
+import edu.ucsb.cs156.example.services.CurrentUserCache;
 import edu.ucsb.cs156.example.services.CurrentUserService;
 import edu.ucsb.cs156.example.services.GrantedAuthoritiesService;
+import edu.ucsb.cs156.example.services.TableVersions;
 import org.springframework.boot.test.context.TestConfiguration;
 import org.springframework.context.annotation.Bean;
 import org.springframework.context.annotation.Import;
@@ -16,8 +20,28 @@ public class TestConfig {
     return new MockCurrentUserServiceImpl();
   }
 
+  @Bean
+  public AdminDirectory adminDirectory() {
+    return new AdminDirectory();
+  }
+
+  @Bean
+  public BulkSaveService bulkSaveService() {
+    return new BulkSaveService();
+  }
+
+  @Bean
+  public CurrentUserCache currentUserCache() {
+    return new CurrentUserCache();
+  }
+
   @Bean
   public GrantedAuthoritiesService grantedAuthoritiesService() {
     return new GrantedAuthoritiesService();
   }
+
+  @Bean
+  public TableVersions tableVersions() {
+    return new TableVersions();
+  }
 }